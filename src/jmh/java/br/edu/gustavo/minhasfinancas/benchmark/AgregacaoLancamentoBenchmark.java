@@ -0,0 +1,117 @@
+package br.edu.gustavo.minhasfinancas.benchmark;
+
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.service.analise.ColunasLancamento;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o total mensal de despesas de um usuário calculado pelo SQL (H2 em memória, valores em
+ * {@link BigDecimal}) com o mesmo agrupamento feito sobre {@link ColunasLancamento}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgregacaoLancamentoBenchmark {
+
+    private static final String SQL_POR_MES =
+            "select mes, sum(valor) from lancamento where id_usuario = ? and ano = ? and tipo = ? group by mes";
+
+    @Param({"1000", "20000"})
+    int lancamentos;
+
+    private Connection conexao;
+    private PreparedStatement consultaPorMes;
+    private ColunasLancamento colunas;
+    private final long[] destino = new long[12];
+    private int consulta;
+
+    @Setup
+    public void preparar() throws SQLException {
+        conexao = DriverManager.getConnection("jdbc:h2:mem:benchmark" + lancamentos, "sa", "");
+
+        try (Statement ddl = conexao.createStatement()) {
+            ddl.execute("create table lancamento (id bigint primary key, id_usuario bigint, ano int, mes int, " +
+                    "tipo varchar(20), status varchar(20), valor numeric(16,2))");
+            ddl.execute("create index idx_lancamento_usuario_ano on lancamento (id_usuario, ano)");
+        }
+
+        colunas = new ColunasLancamento(lancamentos);
+        Random random = new Random(42);
+
+        try (PreparedStatement insert = conexao.prepareStatement("insert into lancamento values (?, 1, ?, ?, ?, ?, ?)")) {
+            for (int id = 1; id <= lancamentos; id++) {
+                int ano = 2018 + random.nextInt(5);
+                int mes = 1 + random.nextInt(12);
+                TipoLancamento tipo = TipoLancamento.values()[random.nextInt(2)];
+                StatusLancamento status = StatusLancamento.values()[random.nextInt(3)];
+                BigDecimal valor = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+
+                insert.setLong(1, id);
+                insert.setInt(2, ano);
+                insert.setInt(3, mes);
+                insert.setString(4, tipo.name());
+                insert.setString(5, status.name());
+                insert.setBigDecimal(6, valor);
+                insert.addBatch();
+
+                colunas.gravar(id, ColunasLancamento.competencia(ano, mes), tipo.ordinal(), status.ordinal(),
+                        ColunasLancamento.paraCentavos(valor));
+            }
+
+            insert.executeBatch();
+        }
+
+        consultaPorMes = conexao.prepareStatement(SQL_POR_MES);
+    }
+
+    @TearDown
+    public void encerrar() throws SQLException {
+        conexao.close();
+    }
+
+    @Benchmark
+    public void sql(Blackhole blackhole) throws SQLException {
+        consultaPorMes.setLong(1, 1);
+        consultaPorMes.setInt(2, proximoAno());
+        consultaPorMes.setString(3, TipoLancamento.DESPESA.name());
+
+        try (ResultSet resultado = consultaPorMes.executeQuery()) {
+            while (resultado.next()) {
+                blackhole.consume(resultado.getInt(1));
+                blackhole.consume(resultado.getBigDecimal(2));
+            }
+        }
+    }
+
+    @Benchmark
+    public long[] colunar() {
+        Arrays.fill(destino, 0);
+
+        colunas.somarPorMes(proximoAno(), TipoLancamento.DESPESA.ordinal(), ColunasLancamento.QUALQUER, destino);
+
+        return destino;
+    }
+
+    /**
+     * Alterna o ano consultado para que o H2 não reaproveite o resultado da execução anterior.
+     */
+    private int proximoAno() {
+        return 2018 + (consulta++ % 5);
+    }
+}
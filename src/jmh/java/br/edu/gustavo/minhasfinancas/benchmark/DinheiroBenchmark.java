@@ -0,0 +1,88 @@
+package br.edu.gustavo.minhasfinancas.benchmark;
+
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara, por operação, o caminho antigo em {@link BigDecimal} com o de {@link Dinheiro} na
+ * conversão para centavos, no saldo de um usuário (receitas - despesas + arquivados) e na soma de
+ * {@code lancamentos} valores. Para ver a alocação por operação ({@code gc.alloc.rate.norm}), rode o
+ * JMH com {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DinheiroBenchmark {
+
+    @Param({"1000"})
+    int lancamentos;
+
+    private BigDecimal valor;
+    private BigDecimal receitas;
+    private BigDecimal despesas;
+    private long arquivado;
+    private BigDecimal[] valores;
+    private long[] centavos;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+
+        valor = BigDecimal.valueOf(12050, 2);
+        receitas = BigDecimal.valueOf(123456789, 2);
+        despesas = BigDecimal.valueOf(98765432, 2);
+        arquivado = 5000000;
+        valores = new BigDecimal[lancamentos];
+        centavos = new long[lancamentos];
+
+        for (int i = 0; i < lancamentos; i++) {
+            valores[i] = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+            centavos[i] = Dinheiro.centavos(valores[i]);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal saldoBigDecimal() {
+        return receitas.subtract(despesas).add(BigDecimal.valueOf(arquivado, 2));
+    }
+
+    @Benchmark
+    public BigDecimal saldoDinheiro() {
+        return Dinheiro.reais(Dinheiro.somar(
+                Dinheiro.subtrair(Dinheiro.centavos(receitas), Dinheiro.centavos(despesas)), arquivado));
+    }
+
+    @Benchmark
+    public long paraCentavosAntigo() {
+        return valor.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    @Benchmark
+    public long paraCentavosDinheiro() {
+        return Dinheiro.centavos(valor);
+    }
+
+    @Benchmark
+    public BigDecimal somarBigDecimal() {
+        BigDecimal soma = BigDecimal.ZERO;
+
+        for (BigDecimal parcela : valores) {
+            soma = soma.add(parcela);
+        }
+
+        return soma;
+    }
+
+    @Benchmark
+    public long somarDinheiro() {
+        return Dinheiro.somar(centavos);
+    }
+}
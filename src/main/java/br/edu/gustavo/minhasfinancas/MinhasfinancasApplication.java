@@ -2,11 +2,18 @@ package br.edu.gustavo.minhasfinancas;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class MinhasfinancasApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(MinhasfinancasApplication.class, args);
+		SpringApplication application = new SpringApplication(MinhasfinancasApplication.class);
+
+		if (Boolean.getBoolean("minhasfinancas.startup.relatorio")) {
+			application.setApplicationStartup(new BufferingApplicationStartup(10000));
+		}
+
+		application.run(args);
 	}
 }
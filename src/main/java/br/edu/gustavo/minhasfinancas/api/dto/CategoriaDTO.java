@@ -0,0 +1,14 @@
+package br.edu.gustavo.minhasfinancas.api.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoriaDTO {
+
+    private Long id;
+    private String nome;
+    private Long usuario;
+}
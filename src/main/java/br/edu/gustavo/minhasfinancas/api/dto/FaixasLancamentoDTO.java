@@ -0,0 +1,34 @@
+package br.edu.gustavo.minhasfinancas.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Parâmetros de consulta com as faixas das buscas de lançamentos. O período vai de
+ * {@code anoInicio}/{@code mesInicio} (janeiro se omitido) a {@code anoFim}/{@code mesFim}
+ * (dezembro se omitido); as datas são ISO, como {@code 2021-03-31}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FaixasLancamentoDTO {
+
+    private BigDecimal valorMinimo;
+    private BigDecimal valorMaximo;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate dataCadastroInicio;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate dataCadastroFim;
+
+    private Integer anoInicio;
+    private Integer mesInicio;
+    private Integer anoFim;
+    private Integer mesFim;
+}
@@ -0,0 +1,17 @@
+package br.edu.gustavo.minhasfinancas.api.dto;
+
+import lombok.*;
+
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GrupoDTO {
+
+    private Long id;
+    private String nome;
+    private Long usuario;
+    private Set<Long> membros;
+}
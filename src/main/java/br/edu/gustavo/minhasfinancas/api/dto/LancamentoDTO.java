@@ -3,6 +3,7 @@ package br.edu.gustavo.minhasfinancas.api.dto;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.util.Set;
 
 @Data
 @Builder
@@ -18,4 +19,6 @@ public class LancamentoDTO {
     private Long usuario;
     private String tipo;
     private String status;
+    private Long categoria;
+    private Set<String> tags;
 }
@@ -0,0 +1,17 @@
+package br.edu.gustavo.minhasfinancas.api.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LimiteGastoDTO {
+
+    private Long id;
+    private Long usuario;
+    private Long categoria;
+    private BigDecimal valor;
+}
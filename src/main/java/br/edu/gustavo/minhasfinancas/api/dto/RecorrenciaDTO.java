@@ -0,0 +1,23 @@
+package br.edu.gustavo.minhasfinancas.api.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecorrenciaDTO {
+
+    private Long id;
+    private String descricao;
+    private BigDecimal valor;
+    private Long usuario;
+    private String tipo;
+    private Integer mesInicio;
+    private Integer anoInicio;
+    private Integer totalParcelas;
+    private LocalDate dataFim;
+}
@@ -0,0 +1,232 @@
+package br.edu.gustavo.minhasfinancas.api.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reproduz a resposta da primeira requisição concluída quando o cliente reenvia um POST
+ * com o mesmo cabeçalho {@code Idempotency-Key}, evitando lançamentos e usuários duplicados.
+ *
+ * A chave vale só para o mesmo cliente, método e URI: o usuário autenticado pelo contêiner, quando
+ * houver, ou o endereço de origem. O corpo é lido antes da requisição seguir e o hash dele fica com
+ * a chave; reenviar a mesma chave com outro corpo é um erro do cliente e recebe 422, sem executar
+ * nada nem reproduzir a resposta de outra operação. Como o corpo fica em memória, um corpo maior
+ * que {@code corpo-maximo-bytes} é recusado com 413 antes de ser lido além do limite.
+ */
+@Component
+public class IdempotenciaFilter extends OncePerRequestFilter {
+
+    public static final String CABECALHO_CHAVE = "Idempotency-Key";
+    public static final String CABECALHO_REPRODUZIDA = "Idempotent-Replayed";
+
+    private static final Set<String> URIS_PROTEGIDAS = Set.of("/api/lancamentos", "/api/usuarios");
+
+    private final RegistroIdempotencia registro;
+    private final long esperaMillis;
+    private final int corpoMaximo;
+
+    public IdempotenciaFilter(
+            @Value("${minhasfinancas.idempotencia.ttl-segundos:86400}") long ttlSegundos,
+            @Value("${minhasfinancas.idempotencia.memoria-maxima-bytes:16777216}") long memoriaMaxima,
+            @Value("${minhasfinancas.idempotencia.espera-ms:10000}") long esperaMillis,
+            @Value("${minhasfinancas.idempotencia.corpo-maximo-bytes:1048576}") int corpoMaximo
+    ) {
+        this.registro = new RegistroIdempotencia(ttlSegundos, memoriaMaxima);
+        this.esperaMillis = esperaMillis;
+        this.corpoMaximo = corpoMaximo;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !URIS_PROTEGIDAS.contains(request.getRequestURI())
+                || request.getHeader(CABECALHO_CHAVE) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String cliente = request.getRemoteUser() != null ? "usuario:" + request.getRemoteUser()
+                : "origem:" + request.getRemoteAddr();
+        String chave = cliente + " " + request.getMethod() + " " + request.getRequestURI() + " "
+                + request.getHeader(CABECALHO_CHAVE);
+
+        byte[] lido = request.getContentLengthLong() > corpoMaximo ? null
+                : request.getInputStream().readNBytes(corpoMaximo + 1);
+
+        if (lido == null || lido.length > corpoMaximo) {
+            responder(response, HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Corpo de requisição grande demais para uma requisição com chave de idempotência");
+            return;
+        }
+
+        CorpoLido corpo = new CorpoLido(request, lido);
+        RegistroIdempotencia.Entrada entrada = registro.reservar(chave, corpo.hash());
+
+        if (!entrada.mesmoCorpo(corpo.hash())) {
+            responder(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Chave de idempotência já usada com outro corpo de requisição");
+            return;
+        }
+
+        if (!entrada.assumir()) {
+            aguardarEReproduzir(entrada, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper respostaEmCache = new ContentCachingResponseWrapper(response);
+
+        try {
+            chain.doFilter(corpo, respostaEmCache);
+        } catch (IOException | ServletException | RuntimeException e) {
+            registro.falhar(entrada, e);
+            throw e;
+        }
+
+        registro.concluir(entrada, new RespostaArmazenada(
+                respostaEmCache.getStatus(),
+                respostaEmCache.getContentType(),
+                respostaEmCache.getContentAsByteArray()
+        ));
+
+        respostaEmCache.copyBodyToResponse();
+    }
+
+    private void aguardarEReproduzir(RegistroIdempotencia.Entrada entrada, HttpServletResponse response)
+            throws IOException {
+        RespostaArmazenada armazenada;
+
+        try {
+            armazenada = entrada.getResposta().get(esperaMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            responderConflito(response);
+            return;
+        } catch (TimeoutException | ExecutionException e) {
+            responderConflito(response);
+            return;
+        }
+
+        response.setStatus(armazenada.getStatus());
+        response.setHeader(CABECALHO_REPRODUZIDA, "true");
+
+        if (armazenada.getContentType() != null) {
+            response.setContentType(armazenada.getContentType());
+        }
+
+        response.setContentLength(armazenada.getCorpo().length);
+        response.getOutputStream().write(armazenada.getCorpo());
+    }
+
+    private void responderConflito(HttpServletResponse response) throws IOException {
+        responder(response, HttpStatus.CONFLICT, "Requisição com a mesma chave de idempotência ainda em processamento");
+    }
+
+    private void responder(HttpServletResponse response, HttpStatus status, String texto) throws IOException {
+        byte[] mensagem = texto.getBytes(StandardCharsets.UTF_8);
+
+        response.setStatus(status.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.setContentLength(mensagem.length);
+        response.getOutputStream().write(mensagem);
+    }
+
+    /**
+     * A requisição com o corpo já lido em memória, que pode ser lido de novo adiante.
+     */
+    private static final class CorpoLido extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        CorpoLido(HttpServletRequest request, byte[] corpo) {
+            super(request);
+            this.corpo = corpo;
+        }
+
+        byte[] hash() {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(corpo);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(corpo);
+
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * O corpo já está em memória: o listener é chamado na hora, como se tudo tivesse
+                 * chegado de uma vez.
+                 */
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] destino, int inicio, int tamanho) {
+                    return entrada.read(destino, inicio, tamanho);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() == null ? StandardCharsets.UTF_8
+                    : Charset.forName(getCharacterEncoding());
+
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package br.edu.gustavo.minhasfinancas.api.filter;
+
+import br.edu.gustavo.minhasfinancas.model.perfil.PerfilConsultas;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Set;
+
+/**
+ * Abre a coleta de {@link PerfilConsultas} nas requisições atendidas pelos resources configurados
+ * ({@code minhasfinancas.perfil-consultas.recursos}), com {@code Resource.metodo} como origem das
+ * consultas. Como o prazo, a coleta sai da thread ao fim da requisição ou ao iniciar o processamento
+ * assíncrono.
+ */
+public class PerfilConsultasInterceptor implements AsyncHandlerInterceptor {
+
+    private final Set<String> recursos;
+
+    public PerfilConsultasInterceptor(Set<String> recursos) {
+        this.recursos = recursos;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod metodo = (HandlerMethod) handler;
+            String recurso = metodo.getBeanType().getSimpleName();
+
+            if (recursos.contains(recurso)) {
+                PerfilConsultas.iniciar(recurso + "." + metodo.getMethod().getName());
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        PerfilConsultas.encerrar();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        PerfilConsultas.encerrar();
+    }
+}
@@ -0,0 +1,47 @@
+package br.edu.gustavo.minhasfinancas.api.filter;
+
+import br.edu.gustavo.minhasfinancas.model.resiliencia.TempoLimiteConsultas;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Abre o prazo da requisição quando o endpoint tem tempo limite configurado
+ * ({@code minhasfinancas.tempo-limite.<Resource>.<metodo>}), para que as consultas feitas durante
+ * ela dividam esse orçamento. Requisições assíncronas liberam a thread ao iniciar o processamento
+ * assíncrono, e o prazo sai dela nesse momento.
+ */
+public class PrazoRequisicaoInterceptor implements AsyncHandlerInterceptor {
+
+    private final TempoLimiteConsultas tempos;
+
+    public PrazoRequisicaoInterceptor(TempoLimiteConsultas tempos) {
+        this.tempos = tempos;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod metodo = (HandlerMethod) handler;
+            long tempoLimiteMs = tempos.configuradoMs(metodo.getBeanType().getSimpleName(), metodo.getMethod().getName());
+
+            if (tempoLimiteMs > 0) {
+                TempoLimiteConsultas.iniciarPrazo(tempoLimiteMs);
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        TempoLimiteConsultas.encerrarPrazo();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        TempoLimiteConsultas.encerrarPrazo();
+    }
+}
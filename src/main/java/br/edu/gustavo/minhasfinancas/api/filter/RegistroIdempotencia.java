@@ -0,0 +1,149 @@
+package br.edu.gustavo.minhasfinancas.api.filter;
+
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Guarda as respostas já produzidas para cada chave de idempotência.
+ *
+ * A primeira requisição de uma chave assume a entrada e as duplicadas que chegam
+ * enquanto ela ainda está em andamento aguardam o mesmo {@link CompletableFuture}.
+ * As entradas expiram pelo TTL e o total de bytes guardados é limitado; quando o limite
+ * é ultrapassado as entradas concluídas mais antigas são descartadas primeiro. Entradas ainda em
+ * andamento são puladas, nunca descartadas, e não impedem o descarte das concluídas depois delas.
+ *
+ * Cada entrada guarda o hash do corpo da requisição que a criou, para que o reenvio da mesma chave
+ * com outro corpo seja recusado em vez de receber a resposta de outra operação.
+ */
+public class RegistroIdempotencia {
+
+    private static final int CUSTO_FIXO_ENTRADA = 256;
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Queue<Entrada> ordemInsercao = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bytesOcupados = new AtomicLong();
+
+    private final long ttlMillis;
+    private final long memoriaMaxima;
+    private final LongSupplier relogio;
+
+    public RegistroIdempotencia(long ttlSegundos, long memoriaMaxima) {
+        this(ttlSegundos, memoriaMaxima, System::currentTimeMillis);
+    }
+
+    RegistroIdempotencia(long ttlSegundos, long memoriaMaxima, LongSupplier relogio) {
+        this.ttlMillis = ttlSegundos * 1000;
+        this.memoriaMaxima = memoriaMaxima;
+        this.relogio = relogio;
+    }
+
+    public Entrada reservar(String chave, byte[] hashCorpo) {
+        long agora = relogio.getAsLong();
+        Entrada nova = new Entrada(chave, hashCorpo, agora + ttlMillis);
+
+        Entrada atual = entradas.compute(chave, (k, existente) ->
+                existente == null || existente.expirou(agora) ? nova : existente);
+
+        if (atual == nova) {
+            ordemInsercao.add(nova);
+            liberarEspaco(agora);
+        }
+
+        return atual;
+    }
+
+    public void concluir(Entrada entrada, RespostaArmazenada resposta) {
+        if (resposta.isErroServidor()) {
+            descartar(entrada);
+        } else if (entradas.get(entrada.chave) == entrada) {
+            entrada.bytes = CUSTO_FIXO_ENTRADA + entrada.chave.length() + resposta.getCorpo().length;
+            bytesOcupados.addAndGet(entrada.bytes);
+        }
+
+        entrada.resposta.complete(resposta);
+
+        liberarEspaco(relogio.getAsLong());
+    }
+
+    public void falhar(Entrada entrada, Throwable erro) {
+        descartar(entrada);
+
+        entrada.resposta.completeExceptionally(erro);
+    }
+
+    private void descartar(Entrada entrada) {
+        if (entradas.remove(entrada.chave, entrada)) {
+            bytesOcupados.addAndGet(-entrada.bytes);
+        }
+    }
+
+    private void liberarEspaco(long agora) {
+        Iterator<Entrada> iterator = ordemInsercao.iterator();
+
+        while (iterator.hasNext()) {
+            Entrada entrada = iterator.next();
+
+            if (entradas.get(entrada.chave) != entrada) {
+                iterator.remove();
+                continue;
+            }
+
+            boolean excedeuMemoria = bytesOcupados.get() > memoriaMaxima;
+
+            if (!entrada.expirou(agora) && !excedeuMemoria) {
+                break;
+            }
+
+            if (!entrada.resposta.isDone()) {
+                // Requisições em andamento nunca são descartadas, senão a duplicada passaria direto
+                continue;
+            }
+
+            descartar(entrada);
+            iterator.remove();
+        }
+    }
+
+    public static class Entrada {
+
+        private final String chave;
+        private final byte[] hashCorpo;
+        private final long expiraEm;
+        private final CompletableFuture<RespostaArmazenada> resposta = new CompletableFuture<>();
+        private final AtomicBoolean assumida = new AtomicBoolean();
+        private volatile long bytes;
+
+        private Entrada(String chave, byte[] hashCorpo, long expiraEm) {
+            this.chave = chave;
+            this.hashCorpo = hashCorpo;
+            this.expiraEm = expiraEm;
+        }
+
+        public boolean mesmoCorpo(byte[] hashCorpo) {
+            return MessageDigest.isEqual(this.hashCorpo, hashCorpo);
+        }
+
+        /**
+         * Apenas uma requisição consegue assumir a entrada; as demais devem aguardar a resposta.
+         */
+        public boolean assumir() {
+            return assumida.compareAndSet(false, true);
+        }
+
+        public CompletableFuture<RespostaArmazenada> getResposta() {
+            return resposta;
+        }
+
+        private boolean expirou(long agora) {
+            return agora >= expiraEm;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package br.edu.gustavo.minhasfinancas.api.filter;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RespostaArmazenada {
+
+    private final int status;
+    private final String contentType;
+    private final byte[] corpo;
+
+    public boolean isErroServidor() {
+        return status >= 500;
+    }
+}
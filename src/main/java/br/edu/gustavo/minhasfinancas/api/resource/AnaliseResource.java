@@ -0,0 +1,109 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.service.AnaliseLancamentoService;
+import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/usuarios/{id}/analise")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "minhasfinancas.analise.habilitada", havingValue = "true")
+public class AnaliseResource {
+
+    private final AnaliseLancamentoService service;
+    private final UsuarioService usuarioService;
+
+    @GetMapping("mensal")
+    public ResponseEntity totaisMensais(
+            @PathVariable("id") Long id,
+            @RequestParam("ano") Integer ano,
+            @RequestParam(value = "status", required = false) StatusLancamento status
+    ) {
+        if (usuarioService.obterPorId(id).isEmpty()) {
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
+
+        long[] receitas = new long[12];
+        long[] despesas = new long[12];
+
+        service.somarPorMes(id, ano, TipoLancamento.RECEITA, status, receitas);
+        service.somarPorMes(id, ano, TipoLancamento.DESPESA, status, despesas);
+
+        List<BigDecimal> saldos = new ArrayList<>(12);
+
+        for (int mes = 0; mes < 12; mes++) {
+            saldos.add(paraReais(receitas[mes] - despesas[mes]));
+        }
+
+        Map<String, Object> resposta = new LinkedHashMap<>();
+        resposta.put("ano", ano);
+        resposta.put("receitas", paraReais(receitas));
+        resposta.put("despesas", paraReais(despesas));
+        resposta.put("saldos", saldos);
+
+        return ResponseEntity.ok(resposta);
+    }
+
+    @GetMapping("totais")
+    public ResponseEntity totais(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "anoInicio", required = false) Integer anoInicio,
+            @RequestParam(value = "mesInicio", required = false, defaultValue = "1") Integer mesInicio,
+            @RequestParam(value = "anoFim", required = false) Integer anoFim,
+            @RequestParam(value = "mesFim", required = false, defaultValue = "12") Integer mesFim,
+            @RequestParam(value = "status", required = false) StatusLancamento status
+    ) {
+        if (usuarioService.obterPorId(id).isEmpty()) {
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
+
+        if (mesInicio < 1 || mesInicio > 12 || mesFim < 1 || mesFim > 12) {
+            return ResponseEntity.badRequest().body("Informe um Mês válido");
+        }
+
+        YearMonth inicio = anoInicio == null ? null : YearMonth.of(anoInicio, mesInicio);
+        YearMonth fim = anoFim == null ? null : YearMonth.of(anoFim, mesFim);
+
+        long[] porTipo = new long[TipoLancamento.values().length];
+
+        service.somarPorTipo(id, inicio, fim, status, porTipo);
+
+        Map<String, Object> resposta = new LinkedHashMap<>();
+
+        for (TipoLancamento tipo : TipoLancamento.values()) {
+            resposta.put(tipo.name(), paraReais(porTipo[tipo.ordinal()]));
+        }
+
+        resposta.put("saldo", paraReais(porTipo[TipoLancamento.RECEITA.ordinal()] - porTipo[TipoLancamento.DESPESA.ordinal()]));
+        resposta.put("quantidade", service.contar(id, inicio, fim, null, status));
+
+        return ResponseEntity.ok(resposta);
+    }
+
+    private BigDecimal paraReais(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    private List<BigDecimal> paraReais(long[] centavos) {
+        List<BigDecimal> valores = new ArrayList<>(centavos.length);
+
+        for (long valor : centavos) {
+            valores.add(paraReais(valor));
+        }
+
+        return valores;
+    }
+}
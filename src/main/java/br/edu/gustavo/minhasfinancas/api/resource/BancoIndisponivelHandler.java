@@ -0,0 +1,31 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.exception.BancoIndisponivelException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Responde 503 quando o disjuntor do banco está aberto ou uma consulta estoura o tempo limite.
+ */
+@RestControllerAdvice
+public class BancoIndisponivelHandler {
+
+    @ExceptionHandler(BancoIndisponivelException.class)
+    public ResponseEntity bancoIndisponivel(BancoIndisponivelException e) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getSegundosParaNovaTentativa()))
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity tempoLimiteEsgotado(QueryTimeoutException e) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("A consulta excedeu o tempo limite, tente novamente em instantes");
+    }
+}
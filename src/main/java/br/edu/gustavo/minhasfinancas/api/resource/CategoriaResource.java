@@ -0,0 +1,50 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.api.dto.CategoriaDTO;
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.service.CategoriaService;
+import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/categorias")
+@RequiredArgsConstructor
+public class CategoriaResource {
+
+    private final CategoriaService service;
+    private final UsuarioService usuarioService;
+
+    @GetMapping
+    public ResponseEntity listar(@RequestParam("usuario") Long idUsuario) {
+        if (usuarioService.obterPorId(idUsuario).isEmpty()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Não foi possível realizar a consulta. Usuario não encontrado para o Id informado");
+        }
+
+        return ResponseEntity.ok(service.listarPorUsuario(idUsuario));
+    }
+
+    @PostMapping
+    public ResponseEntity salvar(@RequestBody CategoriaDTO dto) {
+        try {
+            Usuario usuario = usuarioService
+                    .obterPorId(dto.getUsuario())
+                    .orElseThrow(() -> new RegraNegocioException("Usuario não encontrado para o Id informado"));
+
+            Categoria categoria = Categoria.builder()
+                    .nome(dto.getNome())
+                    .usuario(usuario)
+                    .build();
+
+            return new ResponseEntity(service.salvar(categoria), HttpStatus.CREATED);
+        } catch (RegraNegocioException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
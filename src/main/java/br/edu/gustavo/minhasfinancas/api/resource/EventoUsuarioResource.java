@@ -0,0 +1,48 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.service.EventoUsuarioService;
+import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/usuarios/{id}/eventos")
+@RequiredArgsConstructor
+public class EventoUsuarioResource {
+
+    private final EventoUsuarioService service;
+    private final UsuarioService usuarioService;
+
+    /**
+     * O tipo precisa ser declarado como {@code ResponseEntity<SseEmitter>} para que o Spring trate a
+     * resposta como fluxo; por isso os erros vão sem corpo.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> assinar(@PathVariable("id") Long id) {
+        if (usuarioService.obterPorId(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                    .header("X-Accel-Buffering", "no")
+                    .body(service.assinar(id));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+    }
+}
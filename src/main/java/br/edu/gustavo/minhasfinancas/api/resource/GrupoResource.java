@@ -0,0 +1,93 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.api.dto.GrupoDTO;
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.Grupo;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.service.GrupoService;
+import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashSet;
+
+@RestController
+@RequestMapping("/api/grupos")
+@RequiredArgsConstructor
+public class GrupoResource {
+
+    private final GrupoService service;
+    private final UsuarioService usuarioService;
+
+    @GetMapping
+    public ResponseEntity listar(@RequestParam("usuario") Long idUsuario) {
+        if (usuarioService.obterPorId(idUsuario).isEmpty()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Não foi possível realizar a consulta. Usuario não encontrado para o Id informado");
+        }
+
+        return ResponseEntity.ok(service.listarPorUsuario(idUsuario));
+    }
+
+    @PostMapping
+    public ResponseEntity salvar(@RequestBody GrupoDTO dto) {
+        try {
+            Usuario usuario = usuarioService
+                    .obterPorId(dto.getUsuario())
+                    .orElseThrow(() -> new RegraNegocioException("Usuario não encontrado para o Id informado"));
+
+            Grupo grupo = Grupo.builder()
+                    .nome(dto.getNome())
+                    .usuario(usuario)
+                    .membros(dto.getMembros() == null ? new HashSet<>() : new HashSet<>(dto.getMembros()))
+                    .build();
+
+            return new ResponseEntity(service.salvar(grupo), HttpStatus.CREATED);
+        } catch (RegraNegocioException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("{id}/membros/{idUsuario}")
+    public ResponseEntity adicionarMembro(@PathVariable("id") Long id, @PathVariable("idUsuario") Long idUsuario) {
+        return service.obterPorId(id).map(grupo -> {
+            try {
+                return ResponseEntity.ok(service.adicionarMembro(grupo, idUsuario));
+            } catch (RegraNegocioException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }).orElseGet(() -> new ResponseEntity("Grupo não encontrado na base de dados", HttpStatus.BAD_REQUEST));
+    }
+
+    @DeleteMapping("{id}/membros/{idUsuario}")
+    public ResponseEntity removerMembro(@PathVariable("id") Long id, @PathVariable("idUsuario") Long idUsuario) {
+        return service.obterPorId(id).map(grupo -> {
+            try {
+                return ResponseEntity.ok(service.removerMembro(grupo, idUsuario));
+            } catch (RegraNegocioException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }).orElseGet(() -> new ResponseEntity("Grupo não encontrado na base de dados", HttpStatus.BAD_REQUEST));
+    }
+
+    @GetMapping("{id}/saldo")
+    public ResponseEntity obterSaldo(@PathVariable("id") Long id) {
+        return service.obterPorId(id)
+                .map(grupo -> new ResponseEntity(service.obterSaldo(grupo), HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("{id}/saldo/mensal")
+    public ResponseEntity obterSaldoMensal(@PathVariable("id") Long id, @RequestParam("ano") Integer ano) {
+        return service.obterPorId(id).map(grupo -> {
+            try {
+                return ResponseEntity.ok(service.obterSaldoMensal(grupo, ano));
+            } catch (RegraNegocioException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }).orElseGet(() -> new ResponseEntity(HttpStatus.NOT_FOUND));
+    }
+}
@@ -1,19 +1,29 @@
 package br.edu.gustavo.minhasfinancas.api.resource;
 
 import br.edu.gustavo.minhasfinancas.api.dto.AtualizaStatusDTO;
+import br.edu.gustavo.minhasfinancas.api.dto.FaixasLancamentoDTO;
 import br.edu.gustavo.minhasfinancas.api.dto.LancamentoDTO;
 import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
 import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
 import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
 import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
 import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.CamposLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.FaixasLancamento;
+import br.edu.gustavo.minhasfinancas.service.CategoriaService;
+import br.edu.gustavo.minhasfinancas.service.ImportacaoService;
 import br.edu.gustavo.minhasfinancas.service.LancamentoService;
 import br.edu.gustavo.minhasfinancas.service.UsuarioService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.YearMonth;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +34,8 @@ public class LancamentoResource {
 
     private final LancamentoService service;
     private final UsuarioService usuarioService;
+    private final CategoriaService categoriaService;
+    private final ImportacaoService importacaoService;
 
     @GetMapping
     public ResponseEntity buscar(
@@ -32,8 +44,65 @@ public class LancamentoResource {
             @RequestParam(value = "descricao", required = false) String descricao,
             @RequestParam(value = "tipo", required = false) TipoLancamento tipo,
             @RequestParam(value = "status", required = false) StatusLancamento status,
-            @RequestParam("usuario") Long idUsuario
+            @RequestParam(value = "categoria", required = false, defaultValue = "") List<Long> categorias,
+            @RequestParam(value = "tag", required = false, defaultValue = "") List<String> tags,
+            @RequestParam(value = "fields", required = false, defaultValue = "") List<String> campos,
+            @RequestParam("usuario") Long idUsuario,
+            FaixasLancamentoDTO faixasDTO
     ) {
+        Optional<Lancamento> lancamentoFiltro = criarFiltro(ano, mes, descricao, tipo, status, idUsuario);
+
+        if (lancamentoFiltro.isEmpty()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Não foi possível realizar a consulta. Usuario não encontrado para o Id informado");
+        }
+
+        try {
+            FaixasLancamento faixas = criarFaixas(faixasDTO);
+
+            if (!campos.isEmpty()) {
+                return ResponseEntity.ok(service.buscar(lancamentoFiltro.get(), categorias, tags, faixas,
+                        CamposLancamento.de(campos)));
+            }
+
+            List<Lancamento> lancamentos = service.buscar(lancamentoFiltro.get(), categorias, tags, faixas);
+
+            return ResponseEntity.ok(lancamentos);
+        } catch (RegraNegocioException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("contagem")
+    public ResponseEntity contar(
+            @RequestParam(value = "ano", required = false) Integer ano,
+            @RequestParam(value = "mes", required = false) Integer mes,
+            @RequestParam(value = "descricao", required = false) String descricao,
+            @RequestParam(value = "tipo", required = false) TipoLancamento tipo,
+            @RequestParam(value = "status", required = false) StatusLancamento status,
+            @RequestParam(value = "categoria", required = false, defaultValue = "") List<Long> categorias,
+            @RequestParam(value = "tag", required = false, defaultValue = "") List<String> tags,
+            @RequestParam("usuario") Long idUsuario,
+            FaixasLancamentoDTO faixasDTO
+    ) {
+        Optional<Lancamento> lancamentoFiltro = criarFiltro(ano, mes, descricao, tipo, status, idUsuario);
+
+        if (lancamentoFiltro.isEmpty()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Não foi possível realizar a consulta. Usuario não encontrado para o Id informado");
+        }
+
+        try {
+            return ResponseEntity.ok(service.contar(lancamentoFiltro.get(), categorias, tags, criarFaixas(faixasDTO)));
+        } catch (RegraNegocioException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private Optional<Lancamento> criarFiltro(Integer ano, Integer mes, String descricao, TipoLancamento tipo,
+                                             StatusLancamento status, Long idUsuario) {
         Lancamento lancamentoFiltro = Lancamento.builder()
                 .descricao(descricao)
                 .ano(ano)
@@ -42,23 +111,45 @@ public class LancamentoResource {
                 .status(status)
                 .build();
 
-        Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
+        return usuarioService.obterPorId(idUsuario).map(usuario -> {
+            lancamentoFiltro.setUsuario(usuario);
 
-        if (usuario.isEmpty()) {
-            return ResponseEntity
-                    .badRequest()
-                    .body("Não foi possível realizar a consulta. Usuario não encontrado para o Id informado");
-        } else {
-            lancamentoFiltro.setUsuario(usuario.get());
-        }
+            return lancamentoFiltro;
+        });
+    }
 
-        List<Lancamento> lancamentos = service.buscar(lancamentoFiltro);
+    private FaixasLancamento criarFaixas(FaixasLancamentoDTO dto) {
+        int mesInicio = dto.getMesInicio() == null ? 1 : dto.getMesInicio();
+        int mesFim = dto.getMesFim() == null ? 12 : dto.getMesFim();
 
-        return ResponseEntity.ok(lancamentos);
+        if (mesInicio < 1 || mesInicio > 12 || mesFim < 1 || mesFim > 12) {
+            throw new RegraNegocioException("Informe um Mês válido");
+        }
+
+        return FaixasLancamento.de(
+                dto.getValorMinimo(),
+                dto.getValorMaximo(),
+                dto.getDataCadastroInicio(),
+                dto.getDataCadastroFim(),
+                dto.getAnoInicio() == null ? null : YearMonth.of(dto.getAnoInicio(), mesInicio),
+                dto.getAnoFim() == null ? null : YearMonth.of(dto.getAnoFim(), mesFim));
     }
 
     @GetMapping("{id}")
-    public ResponseEntity buscarPorId(@PathVariable("id") Long id) {
+    public ResponseEntity buscarPorId(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "fields", required = false, defaultValue = "") List<String> campos
+    ) {
+        if (!campos.isEmpty()) {
+            try {
+                return service.obterPorId(id, CamposLancamento.de(campos))
+                        .map(lancamento -> new ResponseEntity(lancamento, HttpStatus.OK))
+                        .orElseGet(() -> new ResponseEntity(HttpStatus.NOT_FOUND));
+            } catch (RegraNegocioException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
+
         return service.obterPorId(id)
                 .map(lancamento -> new ResponseEntity(converterLancamentoParaLancamentoDTO(lancamento), HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity(HttpStatus.NOT_FOUND));
@@ -77,6 +168,22 @@ public class LancamentoResource {
         }
     }
 
+    @PostMapping("importacao")
+    public ResponseEntity importar(@RequestParam("usuario") Long idUsuario, @RequestParam("arquivo") MultipartFile arquivo)
+            throws IOException {
+        Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
+
+        if (usuario.isEmpty()) {
+            return ResponseEntity.badRequest().body("Usuario não encontrado para o Id informado");
+        }
+
+        try (InputStream conteudo = arquivo.getInputStream()) {
+            return ResponseEntity.ok(importacaoService.importarOfx(usuario.get(), conteudo));
+        } catch (RegraNegocioException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PutMapping("{id}")
     public ResponseEntity atualizar(@PathVariable("id") Long id, @RequestBody LancamentoDTO dto) {
         return service.obterPorId(id).map(entidade -> {
@@ -84,10 +191,13 @@ public class LancamentoResource {
                 Lancamento lancamento = converterLancamentoDTOParaLancamento(dto);
 
                 lancamento.setId(entidade.getId());
+                // O DTO não traz o que é fixado no cadastro; sem isso a resposta sairia sem eles
+                lancamento.setDataCadastro(entidade.getDataCadastro());
+                lancamento.setHashImportacao(entidade.getHashImportacao());
+                lancamento.setIdRecorrencia(entidade.getIdRecorrencia());
+                lancamento.setParcela(entidade.getParcela());
 
-                service.atualizar(lancamento);
-
-                return ResponseEntity.ok(lancamento);
+                return ResponseEntity.ok(service.atualizar(lancamento));
             } catch (RegraNegocioException e) {
                 return ResponseEntity.badRequest().body(e.getMessage());
             }
@@ -138,6 +248,8 @@ public class LancamentoResource {
                 .status(lancamento.getStatus().name())
                 .tipo(lancamento.getTipo().name())
                 .usuario(lancamento.getUsuario().getId())
+                .categoria(lancamento.getCategoria() == null ? null : lancamento.getCategoria().getId())
+                .tags(lancamento.getTags())
                 .build();
     }
 
@@ -156,6 +268,16 @@ public class LancamentoResource {
 
         lancamento.setUsuario(usuario);
 
+        if (dto.getCategoria() != null) {
+            lancamento.setCategoria(categoriaService
+                    .obterPorId(dto.getCategoria())
+                    .orElseThrow(() -> new RegraNegocioException("Categoria não encontrada para o Id informado")));
+        }
+
+        if (dto.getTags() != null) {
+            lancamento.setTags(new HashSet<>(dto.getTags()));
+        }
+
         if (dto.getTipo() != null) {
             lancamento.setTipo(TipoLancamento.valueOf(dto.getTipo()));
         }
@@ -0,0 +1,69 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.api.dto.LimiteGastoDTO;
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.LimiteGasto;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.service.CategoriaService;
+import br.edu.gustavo.minhasfinancas.service.LimiteGastoService;
+import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/limites")
+@RequiredArgsConstructor
+public class LimiteGastoResource {
+
+    private final LimiteGastoService service;
+    private final UsuarioService usuarioService;
+    private final CategoriaService categoriaService;
+
+    @GetMapping
+    public ResponseEntity listar(@RequestParam("usuario") Long idUsuario) {
+        if (usuarioService.obterPorId(idUsuario).isEmpty()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Não foi possível realizar a consulta. Usuario não encontrado para o Id informado");
+        }
+
+        return ResponseEntity.ok(service.listarPorUsuario(idUsuario));
+    }
+
+    @GetMapping("/alertas")
+    public ResponseEntity listarAlertas(@RequestParam("usuario") Long idUsuario) {
+        if (usuarioService.obterPorId(idUsuario).isEmpty()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Não foi possível realizar a consulta. Usuario não encontrado para o Id informado");
+        }
+
+        return ResponseEntity.ok(service.listarAlertas(idUsuario));
+    }
+
+    @PostMapping
+    public ResponseEntity salvar(@RequestBody LimiteGastoDTO dto) {
+        try {
+            Usuario usuario = usuarioService
+                    .obterPorId(dto.getUsuario())
+                    .orElseThrow(() -> new RegraNegocioException("Usuario não encontrado para o Id informado"));
+
+            LimiteGasto limite = LimiteGasto.builder()
+                    .usuario(usuario)
+                    .valor(dto.getValor())
+                    .build();
+
+            if (dto.getCategoria() != null) {
+                limite.setCategoria(categoriaService
+                        .obterPorId(dto.getCategoria())
+                        .orElseThrow(() -> new RegraNegocioException("Categoria não encontrada para o Id informado")));
+            }
+
+            return new ResponseEntity(service.salvar(limite), HttpStatus.CREATED);
+        } catch (RegraNegocioException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
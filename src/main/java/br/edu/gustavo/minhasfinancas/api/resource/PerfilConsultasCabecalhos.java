@@ -0,0 +1,42 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.model.perfil.PerfilConsultas;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Com {@code minhasfinancas.perfil-consultas.cabecalhos=true}, devolve nas respostas das requisições
+ * medidas quantas consultas foram feitas ({@code X-DB-Queries}) e o tempo somado delas no banco em
+ * milissegundos ({@code X-DB-Time}). Os valores são os de antes da serialização do corpo.
+ */
+@RestControllerAdvice
+@ConditionalOnProperty(name = "minhasfinancas.perfil-consultas.cabecalhos", havingValue = "true")
+public class PerfilConsultasCabecalhos implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        PerfilConsultas perfil = PerfilConsultas.atual();
+
+        if (perfil != null) {
+            response.getHeaders().set("X-DB-Queries", String.valueOf(perfil.getQuantidade()));
+            response.getHeaders().set("X-DB-Time", String.valueOf(TimeUnit.NANOSECONDS.toMillis(perfil.getNanos())));
+        }
+
+        return body;
+    }
+}
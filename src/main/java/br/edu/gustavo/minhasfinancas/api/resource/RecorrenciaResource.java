@@ -0,0 +1,59 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.api.dto.RecorrenciaDTO;
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.Recorrencia;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.service.RecorrenciaService;
+import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/recorrencias")
+@RequiredArgsConstructor
+public class RecorrenciaResource {
+
+    private final RecorrenciaService service;
+    private final UsuarioService usuarioService;
+
+    @PostMapping
+    public ResponseEntity salvar(@RequestBody RecorrenciaDTO dto) {
+        try {
+            Recorrencia entidade = converterRecorrenciaDTOParaRecorrencia(dto);
+
+            entidade = service.salvar(entidade);
+
+            return new ResponseEntity(entidade, HttpStatus.CREATED);
+        } catch (RegraNegocioException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private Recorrencia converterRecorrenciaDTOParaRecorrencia(RecorrenciaDTO dto) {
+        Recorrencia recorrencia = new Recorrencia();
+
+        recorrencia.setId(dto.getId());
+        recorrencia.setDescricao(dto.getDescricao());
+        recorrencia.setValor(dto.getValor());
+        recorrencia.setMesInicio(dto.getMesInicio());
+        recorrencia.setAnoInicio(dto.getAnoInicio());
+        recorrencia.setTotalParcelas(dto.getTotalParcelas());
+        recorrencia.setDataFim(dto.getDataFim());
+
+        Usuario usuario = usuarioService
+                .obterPorId(dto.getUsuario())
+                .orElseThrow(() -> new RegraNegocioException("Usuario não encontrado para o Id informado"));
+
+        recorrencia.setUsuario(usuario);
+
+        if (dto.getTipo() != null) {
+            recorrencia.setTipo(TipoLancamento.valueOf(dto.getTipo()));
+        }
+
+        return recorrencia;
+    }
+}
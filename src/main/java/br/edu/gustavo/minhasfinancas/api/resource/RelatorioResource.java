@@ -0,0 +1,75 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusRelatorio;
+import br.edu.gustavo.minhasfinancas.service.RelatorioService;
+import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import br.edu.gustavo.minhasfinancas.service.relatorio.RelatorioAnual;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/usuarios/{id}/relatorios")
+@RequiredArgsConstructor
+public class RelatorioResource {
+
+    private final RelatorioService service;
+    private final UsuarioService usuarioService;
+
+    @PostMapping
+    public ResponseEntity solicitar(@PathVariable("id") Long id, @RequestParam("ano") Integer ano) {
+        if (usuarioService.obterPorId(id).isEmpty()) {
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
+
+        try {
+            RelatorioAnual relatorio = service.solicitarExtratoAnual(id, ano);
+
+            return ResponseEntity
+                    .accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                            .path("/{idRelatorio}")
+                            .buildAndExpand(relatorio.getId())
+                            .toUri())
+                    .body(relatorio);
+        } catch (RegraNegocioException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body("Muitos relatórios em processamento, tente novamente em instantes");
+        }
+    }
+
+    @GetMapping("{idRelatorio}")
+    public ResponseEntity obterStatus(@PathVariable("id") Long id, @PathVariable("idRelatorio") String idRelatorio) {
+        return service.obterPorId(id, idRelatorio)
+                .map(relatorio -> new ResponseEntity(relatorio, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("{idRelatorio}/arquivo")
+    public ResponseEntity baixar(@PathVariable("id") Long id, @PathVariable("idRelatorio") String idRelatorio) {
+        return service.obterPorId(id, idRelatorio).map(relatorio -> {
+            if (relatorio.getStatus() != StatusRelatorio.CONCLUIDO) {
+                return new ResponseEntity("O relatório ainda não está disponível", HttpStatus.CONFLICT);
+            }
+
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"extrato-" + relatorio.getAno() + ".csv\"")
+                    .body(new FileSystemResource(relatorio.getArquivo()));
+        }).orElseGet(() -> new ResponseEntity(HttpStatus.NOT_FOUND));
+    }
+}
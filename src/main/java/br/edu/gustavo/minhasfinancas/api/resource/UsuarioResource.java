@@ -3,15 +3,20 @@ package br.edu.gustavo.minhasfinancas.api.resource;
 import br.edu.gustavo.minhasfinancas.api.dto.UsuarioDTO;
 import br.edu.gustavo.minhasfinancas.exception.ErroAutenticacao;
 import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.exception.TentativasExcedidasException;
 import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
-import br.edu.gustavo.minhasfinancas.service.LancamentoService;
+import br.edu.gustavo.minhasfinancas.service.DashboardService;
+import br.edu.gustavo.minhasfinancas.service.SaldoService;
 import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import br.edu.gustavo.minhasfinancas.service.saldo.SaldoObtido;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
+import javax.servlet.http.HttpServletRequest;
+import java.time.YearMonth;
 import java.util.Optional;
 
 @RestController
@@ -20,14 +25,19 @@ import java.util.Optional;
 public class UsuarioResource {
 
     private final UsuarioService service;
-    private final LancamentoService lancamentoService;
+    private final SaldoService saldoService;
+    private final DashboardService dashboardService;
 
     @PostMapping("/autenticar")
-    public ResponseEntity autenticar(@RequestBody UsuarioDTO dto) {
+    public ResponseEntity autenticar(@RequestBody UsuarioDTO dto, HttpServletRequest request) {
         try {
-            Usuario usuarioAutenticado = service.autenticar(dto.getEmail(), dto.getSenha());
+            Usuario usuarioAutenticado = service.autenticar(dto.getEmail(), dto.getSenha(), request.getRemoteAddr());
 
             return ResponseEntity.ok(usuarioAutenticado);
+        } catch (TentativasExcedidasException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getSegundosParaNovaTentativa()))
+                    .body(e.getMessage());
         } catch (ErroAutenticacao e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -52,14 +62,30 @@ public class UsuarioResource {
 
     @GetMapping("{id}/saldo")
     public ResponseEntity obterSaldo(@PathVariable("id") Long id) {
+        // Um saldo guardado só existe para usuário já conferido; sem ele, confere no banco
+        if (!saldoService.possuiSaldoGuardado(id) && service.obterPorId(id).isEmpty()) {
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
+
+        SaldoObtido saldo = saldoService.obterSaldo(id);
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+                .header(HttpHeaders.AGE, String.valueOf(saldo.getIdadeSegundos()));
+
+        if (saldo.isObsoleto()) {
+            resposta.header(HttpHeaders.WARNING, "110 - \"Response is Stale\"");
+        }
+
+        return resposta.body(saldo.getSaldo());
+    }
+
+    @GetMapping("{id}/dashboard")
+    public ResponseEntity obterDashboard(@PathVariable("id") Long id) {
         Optional<Usuario> usuario = service.obterPorId(id);
 
         if (usuario.isEmpty()) {
             return new ResponseEntity(HttpStatus.NOT_FOUND);
         }
 
-        BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(id);
-
-        return ResponseEntity.ok(saldo);
+        return ResponseEntity.ok(dashboardService.obter(usuario.get(), YearMonth.now()));
     }
 }
@@ -0,0 +1,36 @@
+package br.edu.gustavo.minhasfinancas.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+@Configuration
+public class InicializacaoConfiguration {
+
+    /**
+     * Com {@code spring.main.lazy-initialization=true} (perfil fast-startup) os beans só são criados
+     * no primeiro uso. Pool de conexões e JPA continuam subindo junto com a aplicação, para que um
+     * banco indisponível apareça na inicialização e não na primeira requisição, assim como os beans
+     * com métodos {@link Scheduled}, que de outra forma nunca seriam criados.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter beansCriticosNaInicializacao() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && (
+                DataSource.class.isAssignableFrom(beanType)
+                        || EntityManagerFactory.class.isAssignableFrom(beanType)
+                        || AbstractEntityManagerFactoryBean.class.isAssignableFrom(beanType)
+                        || possuiMetodoAgendado(beanType));
+    }
+
+    private static boolean possuiMetodoAgendado(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Scheduled>) metodo ->
+                AnnotatedElementUtils.findMergedAnnotation(metodo, Scheduled.class)).isEmpty();
+    }
+}
@@ -0,0 +1,59 @@
+package br.edu.gustavo.minhasfinancas.config;
+
+import br.edu.gustavo.minhasfinancas.model.perfil.ConsultasLentas;
+import br.edu.gustavo.minhasfinancas.model.perfil.ConsultasLentasEndpoint;
+import br.edu.gustavo.minhasfinancas.model.perfil.DataSourcePerfilado;
+import br.edu.gustavo.minhasfinancas.model.shard.DataSourceShards;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Medição das consultas ao banco, desligada por padrão e ligada com
+ * {@code minhasfinancas.perfil-consultas.habilitado=true}: os proxies JDBC custam em toda consulta,
+ * então a medição é ligada para investigar e desligada de novo.
+ *
+ * O endpoint {@code consultaslentas} mostra o SQL das consultas e não fica exposto por padrão; para
+ * lê-lo, inclua-o em {@code management.endpoints.web.exposure.include} com o actuator numa porta de
+ * gerência que não seja pública ({@code management.server.port}).
+ *
+ * O data source da aplicação é envolvido pelo {@link DataSourcePerfilado}. Com sharding o
+ * {@link DataSourceShards} continua sendo o bean, já que há quem dependa do tipo dele, e são os
+ * pools de cada shard que ficam envolvidos ({@link ShardingConfiguration}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.perfil-consultas.habilitado", havingValue = "true")
+public class PerfilConsultasConfiguration {
+
+    @Bean
+    static ConsultasLentas consultasLentas(Environment environment) {
+        return new ConsultasLentas(
+                environment.getProperty("minhasfinancas.perfil-consultas.lenta-ms", Long.class, 500L),
+                environment.getProperty("minhasfinancas.perfil-consultas.lentas-guardadas", Integer.class, 1000));
+    }
+
+    @Bean
+    public ConsultasLentasEndpoint consultasLentasEndpoint(ConsultasLentas consultasLentas) {
+        return new ConsultasLentasEndpoint(consultasLentas);
+    }
+
+    @Bean
+    static BeanPostProcessor perfilDoDataSource(ObjectProvider<ConsultasLentas> consultasLentas) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof DataSourcePerfilado)
+                        && !(bean instanceof DataSourceShards) && beanName.equals("dataSource")) {
+                    return new DataSourcePerfilado((DataSource) bean, consultasLentas.getObject());
+                }
+
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package br.edu.gustavo.minhasfinancas.config;
+
+import br.edu.gustavo.minhasfinancas.model.resiliencia.DisjuntorBanco;
+import br.edu.gustavo.minhasfinancas.model.resiliencia.ProtecaoRepositorioInterceptor;
+import br.edu.gustavo.minhasfinancas.model.resiliencia.TempoLimiteConsultas;
+import br.edu.gustavo.minhasfinancas.model.resiliencia.TransacoesComDisjuntor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Proteções da camada de persistência: o gerenciador de transações passa pelo
+ * {@link DisjuntorBanco}, e todo repositório Spring Data ganha o
+ * {@link ProtecaoRepositorioInterceptor}, com disjuntor e tempos limite por método.
+ */
+@Configuration
+public class PersistenciaConfiguration {
+
+    @Bean
+    public JpaTransactionManager transactionManager(
+            DisjuntorBanco disjuntor, ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new TransacoesComDisjuntor(disjuntor);
+        customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+
+        return transactionManager;
+    }
+
+    @Bean
+    static BeanPostProcessor protecaoDosRepositorios(
+            ObjectProvider<DisjuntorBanco> disjuntor,
+            ObjectProvider<EntityManagerFactory> entityManagerFactory,
+            Environment environment) {
+        TempoLimiteConsultas tempos = new TempoLimiteConsultas(environment);
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    // sem índice: entra depois dos interceptores de tradução de exceções e de transação
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxy, informacoes) ->
+                                    proxy.addAdvice(new ProtecaoRepositorioInterceptor(
+                                            informacoes.getRepositoryInterface().getSimpleName(),
+                                            disjuntor.getObject(), tempos, entityManagerFactory))));
+                }
+
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package br.edu.gustavo.minhasfinancas.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Propriedades {@code minhasfinancas.sharding.*}. Exemplo com dois bancos:
+ *
+ * <pre>
+ * minhasfinancas.sharding.habilitado=true
+ * minhasfinancas.sharding.no=0
+ * minhasfinancas.sharding.shards[0].url=jdbc:postgresql://banco-a:5432/minhasfinancas
+ * minhasfinancas.sharding.shards[0].buckets=0-511
+ * minhasfinancas.sharding.shards[1].url=jdbc:postgresql://banco-b:5432/minhasfinancas
+ * minhasfinancas.sharding.shards[1].buckets=512-1023
+ * spring.jpa.open-in-view=false
+ * </pre>
+ */
+@Data
+@ConfigurationProperties("minhasfinancas.sharding")
+public class PropriedadesSharding {
+
+    private boolean habilitado;
+
+    /**
+     * Número desta instância da aplicação, de 0 a 63, distinto entre instâncias que gravam ao mesmo
+     * tempo; faz parte dos ids gerados.
+     */
+    private int no;
+
+    /**
+     * Cria as tabelas em todos os shards além do padrão, que é criado pelo {@code ddl-auto}. Só
+     * para bancos locais de desenvolvimento e testes.
+     */
+    private boolean gerarEsquema;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    private Rebalanceamento rebalanceamento = new Rebalanceamento();
+
+    @Data
+    public static class Shard {
+
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+
+        /**
+         * Faixas de buckets do shard, como {@code 0-511,800}; vazio em todos os shards divide os
+         * buckets igualmente.
+         */
+        private String buckets;
+    }
+
+    @Data
+    public static class Rebalanceamento {
+
+        private boolean habilitado;
+
+        /**
+         * Novas faixas de buckets, uma por shard, na mesma ordem de {@code shards}.
+         */
+        private List<String> buckets = new ArrayList<>();
+    }
+}
@@ -0,0 +1,61 @@
+package br.edu.gustavo.minhasfinancas.config;
+
+import br.edu.gustavo.minhasfinancas.model.shard.DataSourceShards;
+import br.edu.gustavo.minhasfinancas.model.shard.MapaShards;
+import br.edu.gustavo.minhasfinancas.model.shard.RebalanceadorShards;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ferramenta de rebalanceamento: com {@code minhasfinancas.sharding.rebalanceamento.habilitado=true}
+ * a aplicação sobe sem atender requisições, move os buckets do mapa atual
+ * ({@code minhasfinancas.sharding.shards[n].buckets}) para o novo
+ * ({@code minhasfinancas.sharding.rebalanceamento.buckets[n]}) e encerra. Depois basta publicar o
+ * novo mapa na configuração das instâncias. Exemplo:
+ *
+ * <pre>
+ * java -jar minhasfinancas.jar --spring.main.web-application-type=none \
+ *     --minhasfinancas.sharding.rebalanceamento.habilitado=true \
+ *     --minhasfinancas.sharding.rebalanceamento.buckets[0]=0-340 \
+ *     --minhasfinancas.sharding.rebalanceamento.buckets[1]=341-681 \
+ *     --minhasfinancas.sharding.rebalanceamento.buckets[2]=682-1023
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = {"minhasfinancas.sharding.habilitado", "minhasfinancas.sharding.rebalanceamento.habilitado"},
+        havingValue = "true")
+public class RebalanceamentoShards implements ApplicationRunner {
+
+    private final DataSourceShards dataSourceShards;
+    private final MapaShards mapaAtual;
+    private final PropriedadesSharding propriedades;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        MapaShards novo = MapaShards.de(propriedades.getRebalanceamento().getBuckets());
+        int codigo = 0;
+
+        if (novo.getQuantidadeShards() != mapaAtual.getQuantidadeShards()) {
+            log.error("O novo mapa tem {} shards, mas há {} configurados", novo.getQuantidadeShards(),
+                    mapaAtual.getQuantidadeShards());
+            codigo = 1;
+        } else {
+            int movidos = new RebalanceadorShards(dataSourceShards.getShards()).rebalancear(mapaAtual, novo);
+
+            log.info("Rebalanceamento concluído: {} buckets movidos", movidos);
+        }
+
+        int saida = codigo;
+
+        System.exit(SpringApplication.exit(context, () -> saida));
+    }
+}
@@ -0,0 +1,140 @@
+package br.edu.gustavo.minhasfinancas.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relatório com o tempo das principais fases da inicialização, usado pelo perfil fast-startup do
+ * build para acompanhar regressões. Depende de a aplicação ter sido iniciada com
+ * {@link BufferingApplicationStartup}, o que {@code MinhasfinancasApplication} faz quando a
+ * propriedade de sistema {@code minhasfinancas.startup.relatorio} é verdadeira.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "minhasfinancas.startup.relatorio", havingValue = "true")
+public class RelatorioInicializacao {
+
+    private final String arquivo;
+    private final long limiteMillis;
+    private final boolean encerrarAposInicializar;
+
+    private volatile long servidorIniciadoEm;
+
+    public RelatorioInicializacao(
+            @Value("${minhasfinancas.startup.relatorio-arquivo:}") String arquivo,
+            @Value("${minhasfinancas.startup.limite-ms:0}") long limiteMillis,
+            @Value("${minhasfinancas.startup.encerrar-apos-inicializar:false}") boolean encerrarAposInicializar
+    ) {
+        this.arquivo = arquivo;
+        this.limiteMillis = limiteMillis;
+        this.encerrarAposInicializar = encerrarAposInicializar;
+    }
+
+    @EventListener
+    public void aoIniciarServidor(WebServerInitializedEvent evento) {
+        servidorIniciadoEm = ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    @EventListener
+    public void aoFicarPronta(ApplicationReadyEvent evento) {
+        long total = ManagementFactory.getRuntimeMXBean().getUptime();
+        ConfigurableApplicationContext context = evento.getApplicationContext();
+
+        Map<String, Long> fases = new LinkedHashMap<>();
+
+        if (context.getApplicationStartup() instanceof BufferingApplicationStartup) {
+            StartupTimeline timeline = ((BufferingApplicationStartup) context.getApplicationStartup())
+                    .drainBufferedTimeline();
+
+            for (StartupTimeline.TimelineEvent timelineEvent : timeline.getEvents()) {
+                String fase = nomeDaFase(timelineEvent.getStartupStep());
+
+                if (fase != null) {
+                    fases.merge(fase, timelineEvent.getDuration().toMillis(), Long::sum);
+                }
+            }
+        }
+
+        fases.put("tomcat pronto (desde o início da JVM)", servidorIniciadoEm);
+        fases.put("total (desde o início da JVM)", total);
+
+        List<String> linhas = new ArrayList<>();
+        fases.forEach((fase, millis) -> linhas.add(String.format("%-45s %6d ms", fase, millis)));
+
+        log.info("Tempos de inicialização:{}{}", System.lineSeparator(), String.join(System.lineSeparator(), linhas));
+
+        gravar(linhas);
+
+        boolean excedeuLimite = limiteMillis > 0 && total > limiteMillis;
+
+        if (excedeuLimite) {
+            log.error("A inicialização levou {} ms, acima do limite de {} ms", total, limiteMillis);
+        }
+
+        if (encerrarAposInicializar) {
+            int codigo = excedeuLimite ? 1 : 0;
+
+            System.exit(SpringApplication.exit(context, () -> codigo));
+        }
+    }
+
+    private String nomeDaFase(StartupStep step) {
+        switch (step.getName()) {
+            case "spring.context.refresh":
+                return "refresh do contexto";
+            case "spring.data.repository.scanning":
+                return "scan de repositórios JPA";
+            case "spring.boot.webserver.create":
+                return "criação do tomcat";
+            case "spring.beans.instantiate":
+                for (StartupStep.Tag tag : step.getTags()) {
+                    if ("beanName".equals(tag.getKey()) && "entityManagerFactory".equals(tag.getValue())) {
+                        return "JPA (entityManagerFactory e metamodelo)";
+                    }
+                }
+
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private void gravar(List<String> linhas) {
+        if (arquivo.isEmpty()) {
+            return;
+        }
+
+        try {
+            Path destino = Paths.get(arquivo);
+
+            if (destino.getParent() != null) {
+                Files.createDirectories(destino.getParent());
+            }
+
+            Files.write(destino, linhas, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Não foi possível gravar o relatório de inicialização em {}", arquivo, e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package br.edu.gustavo.minhasfinancas.config;
+
+import br.edu.gustavo.minhasfinancas.model.perfil.ConsultasLentas;
+import br.edu.gustavo.minhasfinancas.model.perfil.DataSourcePerfilado;
+import br.edu.gustavo.minhasfinancas.model.shard.ContextoShard;
+import br.edu.gustavo.minhasfinancas.model.shard.CriadorEsquemaShards;
+import br.edu.gustavo.minhasfinancas.model.shard.DataSourceShards;
+import br.edu.gustavo.minhasfinancas.model.shard.GeradorIdGlobal;
+import br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate;
+import br.edu.gustavo.minhasfinancas.model.shard.MapaShards;
+import br.edu.gustavo.minhasfinancas.model.shard.RoteamentoShardInterceptor;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Sharding horizontal por usuário, ativado com {@code minhasfinancas.sharding.habilitado=true}.
+ *
+ * Substitui o data source único pelo {@link DataSourceShards}, com um pool por banco, passa a
+ * gerar os ids na aplicação ({@link GeradorIdGlobal}) e coloca o {@link RoteamentoShardInterceptor}
+ * na frente de todos os repositórios Spring Data, que escolhe o banco de cada chamada. Sem a
+ * propriedade nada disso é criado e a aplicação usa o {@code spring.datasource} normalmente.
+ *
+ * Exige {@code spring.jpa.open-in-view=false}: o shard é escolhido quando a conexão física é aberta,
+ * e com open-in-view a sessão da requisição segura a mesma conexão entre as chamadas de repositório,
+ * de modo que uma segunda chamada para outro shard na mesma requisição iria ao banco errado. Sem
+ * open-in-view cada chamada fora de transação tem a sua sessão e a sua conexão.
+ */
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.sharding.habilitado", havingValue = "true")
+@EnableConfigurationProperties(PropriedadesSharding.class)
+public class ShardingConfiguration {
+
+    public ShardingConfiguration(@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException(
+                    "O sharding exige spring.jpa.open-in-view=false: com a sessão aberta durante a requisição, "
+                            + "chamadas para shards diferentes usariam a mesma conexão");
+        }
+    }
+
+    @Bean
+    public MapaShards mapaShards(PropriedadesSharding propriedades) {
+        MapaShards mapa = MapaShards.de(propriedades.getShards().stream()
+                .map(PropriedadesSharding.Shard::getBuckets)
+                .collect(Collectors.toList()));
+
+        ContextoShard.configurar(mapa.getQuantidadeShards());
+
+        return mapa;
+    }
+
+    @Bean
+    public GeradorIdGlobal geradorIdGlobal(PropriedadesSharding propriedades) {
+        return new GeradorIdGlobal(propriedades.getNo());
+    }
+
+    @Bean
+    public DataSourceShards dataSource(PropriedadesSharding propriedades, ObjectProvider<ConsultasLentas> consultasLentas) {
+        return new DataSourceShards(propriedades.getShards().stream()
+                .map(shard -> perfilado(DataSourceBuilder.create()
+                        .url(shard.getUrl())
+                        .username(shard.getUsername())
+                        .password(shard.getPassword())
+                        .driverClassName(shard.getDriverClassName())
+                        .build(), consultasLentas.getIfAvailable()))
+                .collect(Collectors.toList()));
+    }
+
+    private static DataSource perfilado(DataSource shard, ConsultasLentas consultasLentas) {
+        return consultasLentas == null ? shard : new DataSourcePerfilado(shard, consultasLentas);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer geradorIdNoHibernate(
+            GeradorIdGlobal gerador, MapaShards mapa, PropriedadesSharding propriedades) {
+        return configuracao -> {
+            configuracao.put(GeradorIdHibernate.PROPRIEDADE_GERADOR, gerador);
+
+            if (propriedades.isGerarEsquema()) {
+                configuracao.put("hibernate.integrator_provider", (IntegratorProvider) () ->
+                        List.of(new CriadorEsquemaShards(mapa.getQuantidadeShards())));
+            }
+        };
+    }
+
+    @Bean
+    static BeanPostProcessor roteamentoDosRepositorios(ObjectProvider<MapaShards> mapa) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxy, informacoes) ->
+                                    proxy.addAdvice(0, new RoteamentoShardInterceptor(mapa.getObject()))));
+                }
+
+                return bean;
+            }
+        };
+    }
+}
@@ -1,16 +1,41 @@
 package br.edu.gustavo.minhasfinancas.config;
 
+import br.edu.gustavo.minhasfinancas.api.filter.PerfilConsultasInterceptor;
+import br.edu.gustavo.minhasfinancas.api.filter.PrazoRequisicaoInterceptor;
+import br.edu.gustavo.minhasfinancas.model.resiliencia.TempoLimiteConsultas;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 @EnableWebMvc
 @Configuration
 public class WebConfiguration implements WebMvcConfigurer {
 
+    private final Environment environment;
+
+    public WebConfiguration(Environment environment) {
+        this.environment = environment;
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**").allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS");
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new PrazoRequisicaoInterceptor(new TempoLimiteConsultas(environment)));
+
+        if (environment.getProperty("minhasfinancas.perfil-consultas.habilitado", Boolean.class, false)) {
+            String[] recursos = environment.getProperty("minhasfinancas.perfil-consultas.recursos", String[].class,
+                    new String[]{"LancamentoResource", "UsuarioResource"});
+            registry.addInterceptor(new PerfilConsultasInterceptor(new HashSet<>(Arrays.asList(recursos))));
+        }
+    }
 }
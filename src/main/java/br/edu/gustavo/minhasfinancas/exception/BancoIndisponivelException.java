@@ -0,0 +1,15 @@
+package br.edu.gustavo.minhasfinancas.exception;
+
+public class BancoIndisponivelException extends RuntimeException {
+
+    private final long segundosParaNovaTentativa;
+
+    public BancoIndisponivelException(String mensagem, long segundosParaNovaTentativa) {
+        super(mensagem);
+        this.segundosParaNovaTentativa = segundosParaNovaTentativa;
+    }
+
+    public long getSegundosParaNovaTentativa() {
+        return segundosParaNovaTentativa;
+    }
+}
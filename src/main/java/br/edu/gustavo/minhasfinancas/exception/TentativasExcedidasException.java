@@ -0,0 +1,19 @@
+package br.edu.gustavo.minhasfinancas.exception;
+
+/**
+ * Login recusado antes de consultar o usuário, por excesso de falhas recentes do email ou da
+ * origem.
+ */
+public class TentativasExcedidasException extends ErroAutenticacao {
+
+    private final long segundosParaNovaTentativa;
+
+    public TentativasExcedidasException(String mensagem, long segundosParaNovaTentativa) {
+        super(mensagem);
+        this.segundosParaNovaTentativa = segundosParaNovaTentativa;
+    }
+
+    public long getSegundosParaNovaTentativa() {
+        return segundosParaNovaTentativa;
+    }
+}
@@ -0,0 +1,81 @@
+package br.edu.gustavo.minhasfinancas.model.dinheiro;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores em reais como {@code long} de centavos, a escala fixa das colunas de valor
+ * ({@code numeric(16,2)}). O maior valor que cabe na coluna, {@link #MAXIMO}, tem 16 dígitos em
+ * centavos: cabe em um {@code long} com folga para somar mais de 900 deles. Valores maiores são
+ * recusados na validação, antes de chegar ao banco ou às somas.
+ *
+ * Somas e diferenças usam a aritmética exata de {@link Math}: em vez de dar a volta em silêncio, um
+ * resultado que não cabe em um {@code long} lança {@link ArithmeticException}. A conversão de
+ * {@link BigDecimal} arredonda para centavos ({@link RoundingMode#HALF_EVEN}, como a importação de
+ * extratos) e também falha se o valor não couber.
+ */
+public final class Dinheiro {
+
+    public static final int CASAS_DECIMAIS = 2;
+    public static final int PRECISAO = 16;
+
+    public static final BigDecimal MAXIMO = BigDecimal.TEN.pow(PRECISAO - CASAS_DECIMAIS).subtract(reais(1));
+
+    private Dinheiro() {
+    }
+
+    public static long centavos(BigDecimal valor) {
+        return valor.setScale(CASAS_DECIMAIS, RoundingMode.HALF_EVEN).movePointRight(CASAS_DECIMAIS).longValueExact();
+    }
+
+    /**
+     * Como {@link #centavos(BigDecimal)}, com zero para {@code null} (somas vazias no banco).
+     */
+    public static long centavosOuZero(BigDecimal valor) {
+        return valor == null ? 0 : centavos(valor);
+    }
+
+    public static BigDecimal reais(long centavos) {
+        return BigDecimal.valueOf(centavos, CASAS_DECIMAIS);
+    }
+
+    /**
+     * O valor com exatamente duas casas, arredondado como {@link #centavos(BigDecimal)}.
+     */
+    public static BigDecimal normalizar(BigDecimal valor) {
+        return valor == null ? null : reais(centavos(valor));
+    }
+
+    /**
+     * Se o valor tem no máximo duas casas decimais diferentes de zero, ou seja, se é uma quantia
+     * em centavos sem arredondamento.
+     */
+    public static boolean emCentavos(BigDecimal valor) {
+        return valor.scale() <= CASAS_DECIMAIS || valor.stripTrailingZeros().scale() <= CASAS_DECIMAIS;
+    }
+
+    /**
+     * Se o valor, em módulo, cabe em uma coluna {@code numeric(16,2)}.
+     */
+    public static boolean cabeNaColuna(BigDecimal valor) {
+        return valor.abs().compareTo(MAXIMO) <= 0;
+    }
+
+    public static long somar(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtrair(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long somar(long[] valores) {
+        long soma = 0;
+
+        for (long valor : valores) {
+            soma = Math.addExact(soma, valor);
+        }
+
+        return soma;
+    }
+}
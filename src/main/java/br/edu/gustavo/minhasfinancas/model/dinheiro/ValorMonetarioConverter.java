@@ -0,0 +1,24 @@
+package br.edu.gustavo.minhasfinancas.model.dinheiro;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.math.BigDecimal;
+
+/**
+ * Grava valores monetários sempre com duas casas ({@link Dinheiro#normalizar}), para que todo valor
+ * no banco seja um número exato de centavos. O limite da coluna ({@link Dinheiro#MAXIMO}) é conferido
+ * na validação, não aqui. Na leitura o valor já vem com a escala da coluna.
+ */
+@Converter
+public class ValorMonetarioConverter implements AttributeConverter<BigDecimal, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(BigDecimal valor) {
+        return Dinheiro.normalizar(valor);
+    }
+
+    @Override
+    public BigDecimal convertToEntityAttribute(BigDecimal valor) {
+        return valor;
+    }
+}
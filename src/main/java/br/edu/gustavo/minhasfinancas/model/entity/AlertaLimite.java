@@ -0,0 +1,68 @@
+package br.edu.gustavo.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate;
+
+/**
+ * Registro de que as despesas de um mês passaram de um {@link LimiteGasto}.
+ */
+@Entity
+@Table(name = "alerta_limite", schema = "financas")
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertaLimite implements PertenceAUsuario {
+
+	@Id
+	@GeneratedValue(generator = GeradorIdHibernate.NOME)
+	@GenericGenerator(name = GeradorIdHibernate.NOME, strategy = "br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate")
+	@Column(name = "id")
+	private Long id;
+
+	@ManyToOne
+	@JoinColumn(name = "id_usuario")
+	@JsonIgnore
+	private Usuario usuario;
+
+	@ManyToOne
+	@JoinColumn(name = "id_categoria")
+	private Categoria categoria;
+
+	@Column(name = "ano")
+	private Integer ano;
+
+	@Column(name = "mes")
+	private Integer mes;
+
+	@Column(name = "valor_limite")
+	private BigDecimal valorLimite;
+
+	@Column(name = "valor_gasto")
+	private BigDecimal valorGasto;
+
+	@Column(name = "data_hora")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataHora;
+}
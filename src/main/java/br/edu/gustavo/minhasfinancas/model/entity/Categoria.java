@@ -0,0 +1,42 @@
+package br.edu.gustavo.minhasfinancas.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate;
+
+@Entity
+@Table(name = "categoria", schema = "financas")
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Categoria implements PertenceAUsuario {
+
+	@Id
+	@GeneratedValue(generator = GeradorIdHibernate.NOME)
+	@GenericGenerator(name = GeradorIdHibernate.NOME, strategy = "br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate")
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "nome")
+	private String nome;
+
+	@ManyToOne
+	@JoinColumn(name = "id_usuario")
+	@JsonIgnore
+	private Usuario usuario;
+}
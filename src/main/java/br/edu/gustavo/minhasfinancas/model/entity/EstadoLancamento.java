@@ -0,0 +1,36 @@
+package br.edu.gustavo.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+
+import lombok.Value;
+
+/**
+ * Valores de um {@link Lancamento} como estavam no banco quando ele foi lido ou gravado pela última
+ * vez, para que quem reage a uma escrita saiba o que mudou.
+ */
+@Value
+public class EstadoLancamento {
+
+	Long idUsuario;
+	Integer ano;
+	Integer mes;
+	TipoLancamento tipo;
+	StatusLancamento status;
+	BigDecimal valor;
+	Long idCategoria;
+
+	public static EstadoLancamento de(Lancamento lancamento) {
+		return new EstadoLancamento(
+				lancamento.getUsuario() == null ? null : lancamento.getUsuario().getId(),
+				lancamento.getAno(),
+				lancamento.getMes(),
+				lancamento.getTipo(),
+				lancamento.getStatus(),
+				lancamento.getValor(),
+				lancamento.getCategoria() == null ? null : lancamento.getCategoria().getId()
+		);
+	}
+}
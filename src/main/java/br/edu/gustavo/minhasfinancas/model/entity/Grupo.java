@@ -0,0 +1,62 @@
+package br.edu.gustavo.minhasfinancas.model.entity;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Usuários que dividem as finanças, como uma família. O grupo pertence a quem o criou e fica no
+ * shard dele; os membros são guardados só pelo id, sem chave estrangeira, porque com sharding podem
+ * estar em outros bancos.
+ */
+@Entity
+@Table(name = "grupo", schema = "financas")
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Grupo implements PertenceAUsuario {
+
+	@Id
+	@GeneratedValue(generator = GeradorIdHibernate.NOME)
+	@GenericGenerator(name = GeradorIdHibernate.NOME, strategy = "br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate")
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "nome")
+	private String nome;
+
+	@ManyToOne
+	@JoinColumn(name = "id_usuario")
+	@JsonIgnore
+	private Usuario usuario;
+
+	/**
+	 * Ids dos membros, incluindo o dono.
+	 */
+	@ElementCollection(fetch = FetchType.EAGER)
+	@CollectionTable(name = "grupo_membro", schema = "financas", joinColumns = @JoinColumn(name = "id_grupo"))
+	@Column(name = "id_usuario")
+	@Builder.Default
+	private Set<Long> membros = new HashSet<>();
+}
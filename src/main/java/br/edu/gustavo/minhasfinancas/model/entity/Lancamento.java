@@ -2,39 +2,72 @@ package br.edu.gustavo.minhasfinancas.model.entity;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
 
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.Convert;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.UniqueConstraint;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.GenericGenerator;
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
 
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.dinheiro.ValorMonetarioConverter;
 import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
 import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate;
 
 import lombok.Builder;
 import lombok.Data;
 
 @Entity
-@Table(name = "lancamento", schema = "financas")
+@Table(
+		name = "lancamento",
+		schema = "financas",
+		uniqueConstraints = {
+				@UniqueConstraint(name = "uk_lancamento_recorrencia_parcela", columnNames = {"id_recorrencia", "parcela"}),
+				@UniqueConstraint(name = "uk_lancamento_usuario_hash_importacao", columnNames = {"id_usuario", "hash_importacao"})
+		},
+		indexes = {
+				@Index(name = "idx_lancamento_usuario_periodo", columnList = "id_usuario, ano, mes"),
+				@Index(name = "idx_lancamento_usuario_valor", columnList = "id_usuario, valor"),
+				@Index(name = "idx_lancamento_usuario_data_cadastro", columnList = "id_usuario, data_cadastro")
+		}
+)
 @Builder
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Lancamento {
+public class Lancamento implements PertenceAUsuario {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(generator = GeradorIdHibernate.NOME)
+	@GenericGenerator(name = GeradorIdHibernate.NOME, strategy = "br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate")
 	@Column(name = "id")
 	private Long id;
 	
@@ -51,10 +84,18 @@ public class Lancamento {
 	@JoinColumn(name = "id_usuario")
 	private Usuario usuario;
 	
-	@Column(name = "valor")
+	/**
+	 * Em reais, gravado sempre com duas casas decimais e no máximo {@link Dinheiro#MAXIMO}.
+	 */
+	@Column(name = "valor", precision = Dinheiro.PRECISAO, scale = Dinheiro.CASAS_DECIMAIS)
+	@Convert(converter = ValorMonetarioConverter.class)
 	private BigDecimal valor;
 	
-	@Column(name = "data_cadastro")
+	/**
+	 * Preenchida ao salvar e nunca alterada depois; atualizações montadas a partir do DTO chegam sem
+	 * ela.
+	 */
+	@Column(name = "data_cadastro", updatable = false)
 	@Convert(converter = Jsr310JpaConverters.LocalDateConverter.class)
 	private LocalDate dataCadastro;
 	
@@ -65,4 +106,52 @@ public class Lancamento {
 	@Column(name = "status")
 	@Enumerated(value = EnumType.STRING)
 	private StatusLancamento status;
+
+	@Column(name = "id_recorrencia")
+	private Long idRecorrencia;
+
+	@Column(name = "parcela")
+	private Integer parcela;
+
+	/**
+	 * SHA-256 da transação de extrato que originou o lançamento, em hexadecimal; {@code null} nos
+	 * lançamentos que não vieram de uma importação. Único por usuário, e assim como a data de
+	 * cadastro não é alterado depois.
+	 */
+	@Column(name = "hash_importacao", updatable = false)
+	@JsonIgnore
+	private String hashImportacao;
+
+	@ManyToOne
+	@JoinColumn(name = "id_categoria")
+	private Categoria categoria;
+
+	/**
+	 * Marcadores livres, em minúsculas. Carregados junto com o lançamento em uma consulta por
+	 * resultado ({@link FetchMode#SUBSELECT}), não uma por lançamento.
+	 */
+	@ElementCollection(fetch = FetchType.EAGER)
+	@CollectionTable(name = "lancamento_tag", schema = "financas", joinColumns = @JoinColumn(name = "id_lancamento"))
+	@Column(name = "tag")
+	@Fetch(FetchMode.SUBSELECT)
+	@Builder.Default
+	private Set<String> tags = new HashSet<>();
+
+	/**
+	 * Estado do lançamento no banco, registrado ao ler e ao gravar. Continua com os valores antigos
+	 * enquanto a instância é alterada, até o próximo flush; é {@code null} em instâncias que não
+	 * vieram do banco.
+	 */
+	@Transient
+	@JsonIgnore
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private EstadoLancamento estadoPersistido;
+
+	@PostLoad
+	@PostPersist
+	@PostUpdate
+	void registrarEstadoPersistido() {
+		estadoPersistido = EstadoLancamento.de(this);
+	}
 }
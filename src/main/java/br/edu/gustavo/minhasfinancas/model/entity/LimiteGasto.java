@@ -0,0 +1,52 @@
+package br.edu.gustavo.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate;
+
+/**
+ * Limite mensal de despesas de um usuário, válido para todos os meses. Sem categoria vale para o
+ * total das despesas do mês; com categoria, só para as despesas dela.
+ */
+@Entity
+@Table(name = "limite_gasto", schema = "financas")
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LimiteGasto implements PertenceAUsuario {
+
+	@Id
+	@GeneratedValue(generator = GeradorIdHibernate.NOME)
+	@GenericGenerator(name = GeradorIdHibernate.NOME, strategy = "br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate")
+	@Column(name = "id")
+	private Long id;
+
+	@ManyToOne
+	@JoinColumn(name = "id_usuario")
+	@JsonIgnore
+	private Usuario usuario;
+
+	@ManyToOne
+	@JoinColumn(name = "id_categoria")
+	private Categoria categoria;
+
+	@Column(name = "valor")
+	private BigDecimal valor;
+}
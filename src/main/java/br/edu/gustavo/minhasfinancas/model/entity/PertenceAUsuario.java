@@ -0,0 +1,10 @@
+package br.edu.gustavo.minhasfinancas.model.entity;
+
+/**
+ * Entidades gravadas junto com o usuário dono: com sharding ficam no mesmo banco que ele e têm o id
+ * gerado no mesmo bucket.
+ */
+public interface PertenceAUsuario {
+
+	Usuario getUsuario();
+}
@@ -0,0 +1,82 @@
+package br.edu.gustavo.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate;
+
+@Entity
+@Table(name = "recorrencia", schema = "financas")
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Recorrencia implements PertenceAUsuario {
+
+	@Id
+	@GeneratedValue(generator = GeradorIdHibernate.NOME)
+	@GenericGenerator(name = GeradorIdHibernate.NOME, strategy = "br.edu.gustavo.minhasfinancas.model.shard.GeradorIdHibernate")
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "descricao")
+	private String descricao;
+
+	@ManyToOne
+	@JoinColumn(name = "id_usuario")
+	private Usuario usuario;
+
+	@Column(name = "valor")
+	private BigDecimal valor;
+
+	@Column(name = "tipo")
+	@Enumerated(value = EnumType.STRING)
+	private TipoLancamento tipo;
+
+	@Column(name = "mes_inicio")
+	private Integer mesInicio;
+
+	@Column(name = "ano_inicio")
+	private Integer anoInicio;
+
+	/**
+	 * Quantidade de parcelas de uma compra parcelada; nulo para recorrências mensais sem fim definido.
+	 */
+	@Column(name = "total_parcelas")
+	private Integer totalParcelas;
+
+	@Column(name = "data_fim")
+	@Convert(converter = Jsr310JpaConverters.LocalDateConverter.class)
+	private LocalDate dataFim;
+
+	/**
+	 * Progresso da materialização: quantas ocorrências já viraram lançamentos.
+	 */
+	@Column(name = "parcelas_geradas")
+	private Integer parcelasGeradas;
+
+	/**
+	 * Falso depois da última parcela ou da data de fim: não há mais ocorrências a gerar.
+	 */
+	@Column(name = "ativa")
+	private Boolean ativa;
+}
@@ -0,0 +1,58 @@
+package br.edu.gustavo.minhasfinancas.model.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import br.edu.gustavo.minhasfinancas.model.enums.ResultadoLogin;
+
+/**
+ * Registro de auditoria de uma tentativa de login. Não pertence a um usuário (o email pode nem
+ * existir), mas guarda o bucket do email: com sharding fica no shard desse bucket, junto do usuário
+ * que o email teria, e muda de shard com ele no rebalanceamento.
+ */
+@Entity
+@Table(name = "tentativa_login", schema = "financas")
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TentativaLogin {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "email")
+	private String email;
+
+	@Column(name = "origem")
+	private String origem;
+
+	@Column(name = "resultado")
+	@Enumerated(value = EnumType.STRING)
+	private ResultadoLogin resultado;
+
+	@Column(name = "bucket")
+	private Integer bucket;
+
+	@Column(name = "data_hora")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataHora;
+}
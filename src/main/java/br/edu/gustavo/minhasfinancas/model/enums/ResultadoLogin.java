@@ -0,0 +1,9 @@
+package br.edu.gustavo.minhasfinancas.model.enums;
+
+public enum ResultadoLogin {
+
+	SUCESSO,
+	SENHA_INVALIDA,
+	USUARIO_INEXISTENTE,
+	BLOQUEADO
+}
@@ -0,0 +1,9 @@
+package br.edu.gustavo.minhasfinancas.model.enums;
+
+public enum StatusRelatorio {
+
+	PENDENTE,
+	PROCESSANDO,
+	CONCLUIDO,
+	ERRO
+}
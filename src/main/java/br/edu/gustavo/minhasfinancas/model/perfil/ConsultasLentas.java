@@ -0,0 +1,147 @@
+package br.edu.gustavo.minhasfinancas.model.perfil;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * As últimas consultas que passaram de {@code lenta-ms}, em um buffer circular de tamanho fixo: a
+ * gravação é uma posição do array, sem trava, e as mais antigas são sobrescritas.
+ *
+ * O agrupamento é feito só na leitura ({@link #piores}), pela impressão digital do SQL: o texto
+ * normalizado, com literais trocados por {@code ?} e listas de parâmetros de qualquer tamanho
+ * reduzidas a {@code (?+)}, para que a mesma consulta com outros valores ou outro número de ids caia
+ * no mesmo grupo.
+ */
+@Slf4j
+public class ConsultasLentas {
+
+    private static final Pattern TEXTO = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERO = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final Pattern LISTA = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern LISTAS = Pattern.compile("\\(\\?\\+\\)(?:\\s*,\\s*\\(\\?\\+\\))+");
+
+    private final long limiteNanos;
+    private final AtomicReferenceArray<Registro> registros;
+    private final AtomicLong proxima = new AtomicLong();
+
+    public ConsultasLentas(long limiteMs, int capacidade) {
+        this.limiteNanos = TimeUnit.MILLISECONDS.toNanos(limiteMs);
+        this.registros = new AtomicReferenceArray<>(capacidade);
+    }
+
+    public void registrar(String sql, long nanos, long linhas, String origem) {
+        if (nanos < limiteNanos || sql == null) {
+            return;
+        }
+
+        long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+        log.warn("Consulta lenta em {}: {} ms, {} linhas: {}", origem, ms, linhas, sql);
+
+        int posicao = (int) (proxima.getAndIncrement() % registros.length());
+        registros.set(posicao, new Registro(sql, nanos, linhas, origem, Instant.now()));
+    }
+
+    /**
+     * Grupos de consultas lentas ainda no buffer, do maior tempo somado para o menor.
+     */
+    public List<Ofensor> piores(int limite) {
+        Map<String, List<Registro>> grupos = new LinkedHashMap<>();
+
+        for (int i = 0; i < registros.length(); i++) {
+            Registro registro = registros.get(i);
+
+            if (registro != null) {
+                grupos.computeIfAbsent(normalizar(registro.sql), sql -> new ArrayList<>()).add(registro);
+            }
+        }
+
+        List<Ofensor> ofensores = new ArrayList<>();
+
+        grupos.forEach((sql, doGrupo) -> {
+            long total = 0;
+            Registro pior = doGrupo.get(0);
+            Instant ultima = pior.momento;
+            Set<String> origens = new TreeSet<>();
+
+            for (Registro registro : doGrupo) {
+                total += registro.nanos;
+                pior = registro.nanos > pior.nanos ? registro : pior;
+                ultima = registro.momento.isAfter(ultima) ? registro.momento : ultima;
+                origens.add(registro.origem);
+            }
+
+            ofensores.add(new Ofensor(
+                    impressao(sql),
+                    sql,
+                    doGrupo.size(),
+                    TimeUnit.NANOSECONDS.toMillis(total),
+                    TimeUnit.NANOSECONDS.toMillis(pior.nanos),
+                    pior.linhas,
+                    pior.sql,
+                    origens,
+                    ultima));
+        });
+
+        ofensores.sort(Comparator.comparingLong(Ofensor::getTempoTotalMs).reversed());
+
+        return ofensores.subList(0, Math.min(limite, ofensores.size()));
+    }
+
+    public static String normalizar(String sql) {
+        String normalizado = TEXTO.matcher(sql).replaceAll("?");
+        normalizado = NUMERO.matcher(normalizado).replaceAll("?");
+        normalizado = ESPACOS.matcher(normalizado).replaceAll(" ").trim().toLowerCase();
+        normalizado = LISTA.matcher(normalizado).replaceAll("(?+)");
+
+        return LISTAS.matcher(normalizado).replaceAll("(?+)");
+    }
+
+    public static String impressao(String sqlNormalizado) {
+        return String.format("%08x", sqlNormalizado.hashCode());
+    }
+
+    @Value
+    public static class Ofensor {
+
+        String impressao;
+        String sql;
+        int execucoes;
+        long tempoTotalMs;
+        long tempoMaximoMs;
+        long linhasNaMaisLenta;
+        String exemploMaisLento;
+        Set<String> origens;
+        Instant ultimaEm;
+    }
+
+    private static final class Registro {
+
+        private final String sql;
+        private final long nanos;
+        private final long linhas;
+        private final String origem;
+        private final Instant momento;
+
+        Registro(String sql, long nanos, long linhas, String origem, Instant momento) {
+            this.sql = sql;
+            this.nanos = nanos;
+            this.linhas = linhas;
+            this.origem = origem;
+            this.momento = momento;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package br.edu.gustavo.minhasfinancas.model.perfil;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/consultaslentas?limite=20}: as consultas lentas mais recentes agrupadas por
+ * impressão digital, das que mais somaram tempo no banco para as que menos somaram.
+ */
+@Endpoint(id = "consultaslentas")
+public class ConsultasLentasEndpoint {
+
+    private static final int LIMITE_PADRAO = 20;
+
+    private final ConsultasLentas consultasLentas;
+
+    public ConsultasLentasEndpoint(ConsultasLentas consultasLentas) {
+        this.consultasLentas = consultasLentas;
+    }
+
+    @ReadOperation
+    public List<ConsultasLentas.Ofensor> piores(@Nullable Integer limite) {
+        return consultasLentas.piores(limite == null ? LIMITE_PADRAO : limite);
+    }
+}
@@ -0,0 +1,272 @@
+package br.edu.gustavo.minhasfinancas.model.perfil;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Mede cada execução de SQL feita pelas conexões do data source: o tempo do {@code execute*} mais o
+ * de percorrer o {@link ResultSet}, e as linhas lidas ou alteradas. Uma consulta é registrada quando
+ * o seu resultado é fechado (ou o statement, se o resultado não for); alterações e lotes, ao fim do
+ * {@code execute*}.
+ *
+ * Cada medida vai para a coleta da requisição atual ({@link PerfilConsultas}) e para as
+ * {@link ConsultasLentas}. Conexões, statements e resultados são proxies dos originais; o resto da
+ * interface JDBC passa direto. Fechar o data source fecha o original, como o pool.
+ */
+public class DataSourcePerfilado extends DelegatingDataSource implements Closeable {
+
+    private final ConsultasLentas lentas;
+
+    public DataSourcePerfilado(DataSource alvo, ConsultasLentas lentas) {
+        super(alvo);
+        this.lentas = lentas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return conexao(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return conexao(super.getConnection(username, password));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable) {
+            ((Closeable) getTargetDataSource()).close();
+        }
+    }
+
+    private Connection conexao(Connection alvo) {
+        return proxy(Connection.class, new Conexao(alvo));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(DataSourcePerfilado.class.getClassLoader(), new Class<?>[]{tipo}, handler);
+    }
+
+    private static Object chamar(Object alvo, Method metodo, Object[] argumentos) throws Throwable {
+        try {
+            return metodo.invoke(alvo, argumentos);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Object identidade(Object proxy, Method metodo, Object[] argumentos) {
+        switch (metodo.getName()) {
+            case "equals":
+                return proxy == argumentos[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return null;
+        }
+    }
+
+    private void registrar(String sql, long nanos, long linhas) {
+        PerfilConsultas.registrar(nanos, linhas);
+        lentas.registrar(sql, nanos, linhas, PerfilConsultas.origemAtual());
+    }
+
+    private final class Conexao implements InvocationHandler {
+
+        private final Connection alvo;
+
+        Conexao(Connection alvo) {
+            this.alvo = alvo;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] argumentos) throws Throwable {
+            Object identidade = identidade(proxy, metodo, argumentos);
+
+            if (identidade != null) {
+                return identidade;
+            }
+
+            Object resultado = chamar(alvo, metodo, argumentos);
+
+            if (resultado instanceof Statement && Statement.class.isAssignableFrom(metodo.getReturnType())) {
+                String sql = argumentos != null && argumentos.length > 0 && argumentos[0] instanceof String
+                        ? (String) argumentos[0] : null;
+
+                return proxy(metodo.getReturnType(), new Comando((Statement) resultado, (Connection) proxy, sql));
+            }
+
+            return resultado;
+        }
+    }
+
+    private final class Comando implements InvocationHandler {
+
+        private final Statement alvo;
+        private final Connection conexao;
+        private String sql;
+        private Leitura pendente;
+
+        Comando(Statement alvo, Connection conexao, String sql) {
+            this.alvo = alvo;
+            this.conexao = conexao;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] argumentos) throws Throwable {
+            Object identidade = identidade(proxy, metodo, argumentos);
+
+            if (identidade != null) {
+                return identidade;
+            }
+
+            String nome = metodo.getName();
+
+            if (nome.equals("getConnection")) {
+                return conexao;
+            }
+
+            if (nome.equals("addBatch") && argumentos != null && argumentos[0] instanceof String) {
+                sql = (String) argumentos[0];
+            }
+
+            if (nome.equals("close")) {
+                encerrarPendente();
+            }
+
+            if (!nome.startsWith("execute")) {
+                return chamar(alvo, metodo, argumentos);
+            }
+
+            encerrarPendente();
+
+            String executado = argumentos != null && argumentos.length > 0 && argumentos[0] instanceof String
+                    ? (String) argumentos[0] : sql;
+            long inicio = System.nanoTime();
+            Object resultado;
+
+            try {
+                resultado = chamar(alvo, metodo, argumentos);
+            } catch (Throwable e) {
+                registrar(executado, System.nanoTime() - inicio, 0);
+                throw e;
+            }
+
+            long nanos = System.nanoTime() - inicio;
+
+            if (resultado instanceof ResultSet) {
+                pendente = new Leitura(executado, nanos);
+                return proxy(ResultSet.class, new Resultado((ResultSet) resultado, proxy, pendente));
+            }
+
+            registrar(executado, nanos, linhas(resultado));
+
+            return resultado;
+        }
+
+        private void encerrarPendente() {
+            if (pendente != null) {
+                pendente.encerrar();
+                pendente = null;
+            }
+        }
+
+        private long linhas(Object resultado) {
+            if (resultado instanceof Number) {
+                return Math.max(0, ((Number) resultado).longValue());
+            }
+
+            long total = 0;
+
+            if (resultado instanceof int[]) {
+                for (int linhas : (int[]) resultado) {
+                    total += Math.max(0, linhas);
+                }
+            } else if (resultado instanceof long[]) {
+                for (long linhas : (long[]) resultado) {
+                    total += Math.max(0, linhas);
+                }
+            }
+
+            return total;
+        }
+    }
+
+    private final class Leitura {
+
+        private final String sql;
+        private long nanos;
+        private long linhas;
+        private boolean encerrada;
+
+        Leitura(String sql, long nanos) {
+            this.sql = sql;
+            this.nanos = nanos;
+        }
+
+        void encerrar() {
+            if (!encerrada) {
+                encerrada = true;
+                registrar(sql, nanos, linhas);
+            }
+        }
+    }
+
+    private static final class Resultado implements InvocationHandler {
+
+        private final ResultSet alvo;
+        private final Object comando;
+        private final Leitura leitura;
+
+        Resultado(ResultSet alvo, Object comando, Leitura leitura) {
+            this.alvo = alvo;
+            this.comando = comando;
+            this.leitura = leitura;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] argumentos) throws Throwable {
+            Object identidade = identidade(proxy, metodo, argumentos);
+
+            if (identidade != null) {
+                return identidade;
+            }
+
+            switch (metodo.getName()) {
+                case "next":
+                    long inicio = System.nanoTime();
+                    Object existe = chamar(alvo, metodo, argumentos);
+                    leitura.nanos += System.nanoTime() - inicio;
+
+                    if (Boolean.TRUE.equals(existe)) {
+                        leitura.linhas++;
+                    }
+
+                    return existe;
+                case "getStatement":
+                    return comando;
+                case "close":
+                    try {
+                        return chamar(alvo, metodo, argumentos);
+                    } finally {
+                        leitura.encerrar();
+                    }
+                default:
+                    return chamar(alvo, metodo, argumentos);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package br.edu.gustavo.minhasfinancas.model.perfil;
+
+/**
+ * Consultas feitas pela requisição atual: quantidade, tempo total no banco e linhas lidas ou
+ * alteradas. A coleta é aberta por requisição, na thread que a atende; consultas feitas fora de uma
+ * coleta (jobs, outras threads) não são somadas a nenhuma.
+ */
+public final class PerfilConsultas {
+
+    private static final ThreadLocal<PerfilConsultas> ATUAL = new ThreadLocal<>();
+
+    private final String origem;
+    private int quantidade;
+    private long nanos;
+    private long linhas;
+
+    private PerfilConsultas(String origem) {
+        this.origem = origem;
+    }
+
+    /**
+     * @param origem o que está sendo atendido, como {@code LancamentoResource.buscar}
+     */
+    public static void iniciar(String origem) {
+        ATUAL.set(new PerfilConsultas(origem));
+    }
+
+    public static PerfilConsultas atual() {
+        return ATUAL.get();
+    }
+
+    public static void encerrar() {
+        ATUAL.remove();
+    }
+
+    static void registrar(long nanos, long linhas) {
+        PerfilConsultas perfil = ATUAL.get();
+
+        if (perfil != null) {
+            perfil.quantidade++;
+            perfil.nanos += nanos;
+            perfil.linhas += linhas;
+        }
+    }
+
+    static String origemAtual() {
+        PerfilConsultas perfil = ATUAL.get();
+
+        return perfil != null ? perfil.origem : Thread.currentThread().getName();
+    }
+
+    public String getOrigem() {
+        return origem;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getLinhas() {
+        return linhas;
+    }
+}
@@ -0,0 +1,12 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.entity.AlertaLimite;
+import br.edu.gustavo.minhasfinancas.model.shard.IdShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface AlertaLimiteRepository extends JpaRepository<AlertaLimite, Long> {
+
+    List<AlertaLimite> findTop50ByUsuarioIdOrderByDataHoraDesc(@IdShard Long idUsuario);
+}
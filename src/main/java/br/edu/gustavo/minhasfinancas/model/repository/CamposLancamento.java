@@ -0,0 +1,194 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Propriedades de lançamento pedidas pelo cliente ({@code fields=}) e as colunas que elas exigem.
+ *
+ * Cada lançamento vira um mapa só com as propriedades pedidas, com os mesmos nomes e formatos da
+ * entidade serializada ({@code categoria} com id e nome, {@code usuario} com id, nome e email). A
+ * seleção em JPQL sempre começa por {@code l.id}, usado para juntar tags e lançamentos arquivados,
+ * mesmo que o id não tenha sido pedido.
+ *
+ * Há uma instância por conjunto de propriedades, reaproveitada entre requisições; como os nomes
+ * possíveis são fixos, o número de conjuntos é limitado.
+ */
+public final class CamposLancamento {
+
+    public static final List<String> DISPONIVEIS = List.of("id", "descricao", "mes", "ano", "usuario", "valor",
+            "dataCadastro", "tipo", "status", "idRecorrencia", "parcela", "categoria", "tags");
+
+    private static final Map<String, Function<Lancamento, Object>> PROPRIEDADES = Map.ofEntries(
+            Map.entry("id", Lancamento::getId),
+            Map.entry("descricao", Lancamento::getDescricao),
+            Map.entry("mes", Lancamento::getMes),
+            Map.entry("ano", Lancamento::getAno),
+            Map.entry("valor", Lancamento::getValor),
+            Map.entry("dataCadastro", Lancamento::getDataCadastro),
+            Map.entry("tipo", Lancamento::getTipo),
+            Map.entry("status", Lancamento::getStatus),
+            Map.entry("idRecorrencia", Lancamento::getIdRecorrencia),
+            Map.entry("parcela", Lancamento::getParcela),
+            Map.entry("tags", lancamento -> new TreeSet<>(lancamento.getTags())),
+            Map.entry("usuario", lancamento -> {
+                Usuario usuario = lancamento.getUsuario();
+                return usuario == null ? null : usuario(usuario.getId(), usuario.getNome(), usuario.getEmail());
+            }),
+            Map.entry("categoria", lancamento -> {
+                Categoria categoria = lancamento.getCategoria();
+                return categoria == null ? null : categoria(categoria.getId(), categoria.getNome());
+            }));
+
+    private static final Map<Set<String>, CamposLancamento> CONJUNTOS = new ConcurrentHashMap<>();
+
+    private final List<String> nomes;
+    private final String selecao;
+    private final String chave;
+
+    private CamposLancamento(Set<String> pedidos) {
+        this.nomes = DISPONIVEIS.stream().filter(pedidos::contains).collect(Collectors.toUnmodifiableList());
+
+        List<String> colunas = new ArrayList<>(List.of("l.id"));
+
+        for (String nome : nomes) {
+            switch (nome) {
+                case "usuario":
+                    colunas.addAll(List.of("u.id", "u.nome", "u.email"));
+                    break;
+                case "categoria":
+                    colunas.addAll(List.of("c.id", "c.nome"));
+                    break;
+                case "id":
+                case "tags":
+                    break;
+                default:
+                    colunas.add("l." + nome);
+            }
+        }
+
+        this.selecao = String.join(", ", colunas);
+        this.chave = String.join(",", nomes);
+    }
+
+    /**
+     * @throws RegraNegocioException se algum nome não for uma propriedade de lançamento
+     */
+    public static CamposLancamento de(Collection<String> pedidos) {
+        Set<String> nomes = pedidos.stream()
+                .map(String::trim)
+                .filter(nome -> !nome.isEmpty())
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        for (String nome : nomes) {
+            if (!DISPONIVEIS.contains(nome)) {
+                throw new RegraNegocioException("Campo desconhecido: " + nome + ". Use " + String.join(", ", DISPONIVEIS));
+            }
+        }
+
+        if (nomes.isEmpty()) {
+            throw new RegraNegocioException("Informe ao menos um campo");
+        }
+
+        return CONJUNTOS.computeIfAbsent(nomes, CamposLancamento::new);
+    }
+
+    public List<String> getNomes() {
+        return nomes;
+    }
+
+    /**
+     * Lista do {@code select}, com {@code l} para o lançamento, {@code u} para o usuário e {@code c}
+     * para a categoria.
+     */
+    public String getSelecao() {
+        return selecao;
+    }
+
+    public String getChave() {
+        return chave;
+    }
+
+    public boolean usaUsuario() {
+        return nomes.contains("usuario");
+    }
+
+    public boolean usaCategoria() {
+        return nomes.contains("categoria");
+    }
+
+    public boolean usaTags() {
+        return nomes.contains("tags");
+    }
+
+    /**
+     * Converte uma linha de {@link #getSelecao()}; a posição 0 é o id.
+     */
+    public Map<String, Object> projetar(Object[] linha) {
+        Map<String, Object> valores = new LinkedHashMap<>();
+        int coluna = 1;
+
+        for (String nome : nomes) {
+            switch (nome) {
+                case "id":
+                    valores.put(nome, linha[0]);
+                    break;
+                case "usuario":
+                    valores.put(nome, usuario(linha[coluna], linha[coluna + 1], linha[coluna + 2]));
+                    coluna += 3;
+                    break;
+                case "categoria":
+                    valores.put(nome, linha[coluna] == null ? null : categoria(linha[coluna], linha[coluna + 1]));
+                    coluna += 2;
+                    break;
+                case "tags":
+                    valores.put(nome, new TreeSet<String>());
+                    break;
+                default:
+                    valores.put(nome, linha[coluna++]);
+            }
+        }
+
+        return valores;
+    }
+
+    public Map<String, Object> projetar(Lancamento lancamento) {
+        Map<String, Object> valores = new LinkedHashMap<>();
+
+        for (String nome : nomes) {
+            valores.put(nome, PROPRIEDADES.get(nome).apply(lancamento));
+        }
+
+        return valores;
+    }
+
+    private static Map<String, Object> usuario(Object id, Object nome, Object email) {
+        Map<String, Object> usuario = new LinkedHashMap<>();
+        usuario.put("id", id);
+        usuario.put("nome", nome);
+        usuario.put("email", email);
+
+        return usuario;
+    }
+
+    private static Map<String, Object> categoria(Object id, Object nome) {
+        Map<String, Object> categoria = new LinkedHashMap<>();
+        categoria.put("id", id);
+        categoria.put("nome", nome);
+
+        return categoria;
+    }
+}
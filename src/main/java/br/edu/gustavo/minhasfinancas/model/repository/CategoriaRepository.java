@@ -0,0 +1,14 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.shard.IdShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface CategoriaRepository extends JpaRepository<Categoria, Long> {
+
+    List<Categoria> findByUsuarioIdOrderByNome(@IdShard Long idUsuario);
+
+    boolean existsByUsuarioIdAndNomeIgnoreCase(@IdShard Long idUsuario, String nome);
+}
@@ -0,0 +1,172 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.PertenceAUsuario;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import lombok.Value;
+import org.springframework.data.domain.Example;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Faixas de valor, de data de cadastro e de período (ano e mês) para buscas de lançamentos. Cada
+ * limite é opcional e inclusivo; lançamentos sem data de cadastro ficam fora de qualquer faixa de
+ * data.
+ *
+ * No banco as faixas viram comparações simples sobre as colunas, que os índices compostos por
+ * usuário ({@code 004-faixas-lancamento.sql}) atendem sem ler as linhas de fora da faixa. Onde as
+ * linhas já estão em memória (índice de bitmaps, arquivos) vale {@link #casa}.
+ */
+@Value
+public class FaixasLancamento {
+
+    public static final FaixasLancamento NENHUMA = new FaixasLancamento(null, null, null, null, null, null);
+
+    BigDecimal valorMinimo;
+    BigDecimal valorMaximo;
+    LocalDate dataCadastroInicio;
+    LocalDate dataCadastroFim;
+    YearMonth periodoInicio;
+    YearMonth periodoFim;
+
+    /**
+     * @throws RegraNegocioException se o início de alguma faixa vier depois do fim
+     */
+    public static FaixasLancamento de(BigDecimal valorMinimo, BigDecimal valorMaximo,
+                                      LocalDate dataCadastroInicio, LocalDate dataCadastroFim,
+                                      YearMonth periodoInicio, YearMonth periodoFim) {
+        if (valorMinimo != null && valorMaximo != null && valorMinimo.compareTo(valorMaximo) > 0) {
+            throw new RegraNegocioException("O valor mínimo deve ser menor ou igual ao valor máximo");
+        }
+
+        if (dataCadastroInicio != null && dataCadastroFim != null && dataCadastroInicio.isAfter(dataCadastroFim)) {
+            throw new RegraNegocioException("A data de cadastro inicial deve ser anterior ou igual à final");
+        }
+
+        if (periodoInicio != null && periodoFim != null && periodoInicio.isAfter(periodoFim)) {
+            throw new RegraNegocioException("O período inicial deve ser anterior ou igual ao final");
+        }
+
+        FaixasLancamento faixas = new FaixasLancamento(valorMinimo, valorMaximo, dataCadastroInicio, dataCadastroFim,
+                periodoInicio, periodoFim);
+
+        return faixas.equals(NENHUMA) ? NENHUMA : faixas;
+    }
+
+    public boolean isVazia() {
+        return equals(NENHUMA);
+    }
+
+    public boolean casa(Lancamento lancamento) {
+        if (valorMinimo != null && (lancamento.getValor() == null || lancamento.getValor().compareTo(valorMinimo) < 0)) {
+            return false;
+        }
+
+        if (valorMaximo != null && (lancamento.getValor() == null || lancamento.getValor().compareTo(valorMaximo) > 0)) {
+            return false;
+        }
+
+        LocalDate dataCadastro = lancamento.getDataCadastro();
+
+        if ((dataCadastroInicio != null || dataCadastroFim != null) && dataCadastro == null) {
+            return false;
+        }
+
+        if ((dataCadastroInicio != null && dataCadastro.isBefore(dataCadastroInicio))
+                || (dataCadastroFim != null && dataCadastro.isAfter(dataCadastroFim))) {
+            return false;
+        }
+
+        YearMonth periodo = YearMonth.of(lancamento.getAno(), lancamento.getMes());
+
+        return (periodoInicio == null || !periodo.isBefore(periodoInicio))
+                && (periodoFim == null || !periodo.isAfter(periodoFim));
+    }
+
+    /**
+     * Os critérios do {@link Example}, como em {@code findAll(Example)}, mais as faixas. A
+     * especificação informa o usuário do exemplo, para que o roteamento de shards a trate como o
+     * próprio exemplo.
+     */
+    public Specification<Lancamento> comExemplo(Example<Lancamento> exemplo) {
+        return new Especificacao(exemplo, this);
+    }
+
+    private static final class Especificacao implements Specification<Lancamento>, PertenceAUsuario {
+
+        private final Example<Lancamento> exemplo;
+        private final FaixasLancamento faixas;
+
+        Especificacao(Example<Lancamento> exemplo, FaixasLancamento faixas) {
+            this.exemplo = exemplo;
+            this.faixas = faixas;
+        }
+
+        @Override
+        public Usuario getUsuario() {
+            return exemplo.getProbe().getUsuario();
+        }
+
+        @Override
+        public Predicate toPredicate(Root<Lancamento> l, CriteriaQuery<?> consulta, CriteriaBuilder cb) {
+            List<Predicate> predicados = new ArrayList<>();
+            Predicate doExemplo = QueryByExamplePredicateBuilder.getPredicate(l, cb, exemplo);
+
+            if (doExemplo != null) {
+                predicados.add(doExemplo);
+            }
+
+            Expression<BigDecimal> valor = l.get("valor");
+            Expression<LocalDate> dataCadastro = l.get("dataCadastro");
+
+            if (faixas.valorMinimo != null) {
+                predicados.add(cb.greaterThanOrEqualTo(valor, faixas.valorMinimo));
+            }
+
+            if (faixas.valorMaximo != null) {
+                predicados.add(cb.lessThanOrEqualTo(valor, faixas.valorMaximo));
+            }
+
+            if (faixas.dataCadastroInicio != null) {
+                predicados.add(cb.greaterThanOrEqualTo(dataCadastro, faixas.dataCadastroInicio));
+            }
+
+            if (faixas.dataCadastroFim != null) {
+                predicados.add(cb.lessThanOrEqualTo(dataCadastro, faixas.dataCadastroFim));
+            }
+
+            // ano >= inicio, e o mês só importa no próprio ano inicial; assim o índice por
+            // (usuário, ano, mês) ainda tem um limite de ano para percorrer
+            Expression<Integer> ano = l.get("ano");
+            Expression<Integer> mes = l.get("mes");
+
+            if (faixas.periodoInicio != null) {
+                int anoInicio = faixas.periodoInicio.getYear();
+                predicados.add(cb.greaterThanOrEqualTo(ano, anoInicio));
+                predicados.add(cb.or(cb.greaterThan(ano, anoInicio),
+                        cb.greaterThanOrEqualTo(mes, faixas.periodoInicio.getMonthValue())));
+            }
+
+            if (faixas.periodoFim != null) {
+                int anoFim = faixas.periodoFim.getYear();
+                predicados.add(cb.lessThanOrEqualTo(ano, anoFim));
+                predicados.add(cb.or(cb.lessThan(ano, anoFim),
+                        cb.lessThanOrEqualTo(mes, faixas.periodoFim.getMonthValue())));
+            }
+
+            return cb.and(predicados.toArray(new Predicate[0]));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Grupo;
+import br.edu.gustavo.minhasfinancas.model.shard.IdShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface GrupoRepository extends JpaRepository<Grupo, Long> {
+
+    List<Grupo> findByUsuarioIdOrderByNome(@IdShard Long idUsuario);
+}
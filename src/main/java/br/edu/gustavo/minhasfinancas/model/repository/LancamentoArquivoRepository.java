@@ -0,0 +1,298 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Lançamentos de anos encerrados, movidos do banco para arquivos {@link SegmentoLancamentos}.
+ *
+ * Há um arquivo por usuário e ano, em {@code <diretorio>/<id % 256>/<id>/<ano>.seg}. Os arquivos
+ * abertos ficam mapeados em memória e são reaproveitados entre consultas. Gravar, confirmar e desfazer
+ * um ano e abrir os arquivos de um usuário são feitos sob o mesmo bloqueio do usuário, e o mapeamento
+ * é descartado antes de soltá-lo: quem abre os arquivos nunca vê a troca pela metade.
+ *
+ * Lançamentos arquivados são somente leitura e não são encontrados por id. Entre a gravação do
+ * arquivo e o commit da remoção no banco, ou depois de um {@link #desfazer} que falhou, o mesmo
+ * lançamento pode estar nos dois lugares; por isso as somas e buscas aceitam os ids que ainda estão
+ * no banco, que valem no lugar da versão arquivada.
+ */
+@Repository
+public class LancamentoArquivoRepository {
+
+    private static final String EXTENSAO = ".seg";
+    private static final String EXTENSAO_ANTERIOR = ".seg.anterior";
+    private static final int BLOQUEIOS = 64;
+
+    private final Path diretorio;
+
+    private final Map<Long, List<SegmentoLancamentos>> segmentosPorUsuario = new ConcurrentHashMap<>();
+
+    private final Object[] bloqueios = new Object[BLOQUEIOS];
+
+    public LancamentoArquivoRepository(
+            @Value("${minhasfinancas.arquivamento.diretorio:${java.io.tmpdir}/minhasfinancas-arquivo}") String diretorio
+    ) {
+        this.diretorio = Paths.get(diretorio);
+
+        for (int i = 0; i < BLOQUEIOS; i++) {
+            bloqueios[i] = new Object();
+        }
+    }
+
+    /**
+     * Segmentos do usuário, ordenados por ano.
+     */
+    public List<SegmentoLancamentos> segmentos(Long idUsuario) {
+        List<SegmentoLancamentos> segmentos = segmentosPorUsuario.get(idUsuario);
+
+        if (segmentos != null) {
+            return segmentos;
+        }
+
+        synchronized (bloqueio(idUsuario)) {
+            return segmentosPorUsuario.computeIfAbsent(idUsuario, this::abrirSegmentos);
+        }
+    }
+
+    /**
+     * Anos arquivados do usuário, em ordem.
+     */
+    public List<Integer> anos(Long idUsuario) {
+        return segmentos(idUsuario).stream().map(SegmentoLancamentos::getAno).collect(Collectors.toList());
+    }
+
+    public List<Lancamento> buscar(Usuario usuario, Integer ano, Predicate<Lancamento> filtro) {
+        return buscar(usuario, Lancamento.builder().ano(ano).build(), Set.of(), filtro);
+    }
+
+    /**
+     * Lê apenas as linhas cujo id não está em {@code ignorados} e que batem com os campos preenchidos
+     * do exemplo guardados em colunas de tamanho fixo (id, ano, mês, tipo e status), sem montar as
+     * demais; o filtro é aplicado às linhas lidas.
+     */
+    public List<Lancamento> buscar(Usuario usuario, Lancamento exemplo, Set<Long> ignorados,
+                                   Predicate<Lancamento> filtro) {
+        List<Lancamento> lancamentos = new ArrayList<>();
+        int tipo = exemplo.getTipo() == null ? -1 : exemplo.getTipo().ordinal();
+        int status = exemplo.getStatus() == null ? -1 : exemplo.getStatus().ordinal();
+
+        for (SegmentoLancamentos segmento : segmentos(usuario.getId())) {
+            if (exemplo.getAno() != null && exemplo.getAno() != segmento.getAno()) {
+                continue;
+            }
+
+            for (int linha = 0; linha < segmento.getTamanho(); linha++) {
+                if ((exemplo.getId() != null && exemplo.getId() != segmento.getId(linha))
+                        || (exemplo.getMes() != null && exemplo.getMes() != segmento.getMes(linha))
+                        || (tipo >= 0 && tipo != segmento.getTipo(linha))
+                        || (status >= 0 && status != segmento.getStatus(linha))
+                        || (!ignorados.isEmpty() && ignorados.contains(segmento.getId(linha)))) {
+                    continue;
+                }
+
+                Lancamento lancamento = segmento.ler(linha, usuario);
+
+                if (filtro.test(lancamento)) {
+                    lancamentos.add(lancamento);
+                }
+            }
+        }
+
+        return lancamentos;
+    }
+
+    public long somarCentavos(Long idUsuario, TipoLancamento tipo, StatusLancamento status) {
+        return somarCentavos(idUsuario, tipo, status, Set.of());
+    }
+
+    /**
+     * Como {@link #somarCentavos(Long, TipoLancamento, StatusLancamento)}, sem as linhas cujo id está
+     * em {@code ignorados}. Sem ids a ignorar usa só os totais dos segmentos; com eles, percorre as
+     * colunas de id, tipo e status.
+     */
+    public long somarCentavos(Long idUsuario, TipoLancamento tipo, StatusLancamento status, Set<Long> ignorados) {
+        long soma = 0;
+
+        for (SegmentoLancamentos segmento : segmentos(idUsuario)) {
+            soma = Dinheiro.somar(soma, segmento.somar(tipo, status));
+
+            if (ignorados.isEmpty()) {
+                continue;
+            }
+
+            for (int linha = 0; linha < segmento.getTamanho(); linha++) {
+                if (segmento.getTipo(linha) == tipo.ordinal() && segmento.getStatus(linha) == status.ordinal()
+                        && ignorados.contains(segmento.getId(linha))) {
+                    soma = Dinheiro.subtrair(soma, segmento.getCentavos(linha));
+                }
+            }
+        }
+
+        return soma;
+    }
+
+    public Stream<Object[]> streamExtrato(Long idUsuario, Integer ano) {
+        return streamExtrato(idUsuario, ano, Set.of());
+    }
+
+    /**
+     * Linhas do ano no mesmo formato de {@link LancamentoRepository#streamExtratoPorUsuarioEAno},
+     * ordenadas por mês, sem as linhas cujo id está em {@code ignorados}.
+     */
+    public Stream<Object[]> streamExtrato(Long idUsuario, Integer ano, Set<Long> ignorados) {
+        return segmentos(idUsuario).stream()
+                .filter(segmento -> ano.equals(segmento.getAno()))
+                .flatMap(segmento -> IntStream.range(0, segmento.getTamanho())
+                        .filter(linha -> ignorados.isEmpty() || !ignorados.contains(segmento.getId(linha)))
+                        .mapToObj(linha -> {
+                            Lancamento lancamento = segmento.ler(linha, null);
+
+                            return new Object[]{lancamento.getMes(), lancamento.getDescricao(), lancamento.getTipo(),
+                                    lancamento.getStatus(), lancamento.getValor(), lancamento.getDataCadastro()};
+                        }));
+    }
+
+    /**
+     * Grava os lançamentos no arquivo do ano, somando-os aos já arquivados (o mesmo id substitui a
+     * versão anterior). A versão anterior do arquivo é mantida até {@link #confirmar} ou
+     * {@link #desfazer}, para que quem grava possa voltar atrás se não conseguir remover as linhas
+     * do banco.
+     */
+    public void gravar(Long idUsuario, int ano, List<Lancamento> lancamentos) {
+        Path arquivo = arquivo(idUsuario, ano);
+        Path anterior = arquivo.resolveSibling(ano + EXTENSAO_ANTERIOR);
+
+        synchronized (bloqueio(idUsuario)) {
+            try {
+                gravar(idUsuario, ano, arquivo, anterior, lancamentos);
+            } finally {
+                segmentosPorUsuario.remove(idUsuario);
+            }
+        }
+    }
+
+    private void gravar(Long idUsuario, int ano, Path arquivo, Path anterior, List<Lancamento> lancamentos) {
+        try {
+            Files.createDirectories(arquivo.getParent());
+
+            Map<Long, Lancamento> porId = new LinkedHashMap<>();
+
+            if (Files.exists(arquivo)) {
+                SegmentoLancamentos existente = SegmentoLancamentos.abrir(arquivo);
+
+                for (int linha = 0; linha < existente.getTamanho(); linha++) {
+                    Lancamento lancamento = existente.ler(linha, null);
+                    porId.put(lancamento.getId(), lancamento);
+                }
+            }
+
+            lancamentos.forEach(lancamento -> porId.put(lancamento.getId(), lancamento));
+
+            Path temporario = Files.createTempFile(arquivo.getParent(), String.valueOf(ano), ".tmp");
+
+            try {
+                SegmentoLancamentos.escrever(temporario, idUsuario, ano, new ArrayList<>(porId.values()));
+
+                if (Files.exists(arquivo)) {
+                    Files.move(arquivo, anterior, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+
+                Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporario);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void confirmar(Long idUsuario, int ano) {
+        synchronized (bloqueio(idUsuario)) {
+            try {
+                Files.deleteIfExists(arquivo(idUsuario, ano).resolveSibling(ano + EXTENSAO_ANTERIOR));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Volta o arquivo do ano para a versão anterior à última chamada de {@link #gravar}.
+     */
+    public void desfazer(Long idUsuario, int ano) {
+        Path arquivo = arquivo(idUsuario, ano);
+        Path anterior = arquivo.resolveSibling(ano + EXTENSAO_ANTERIOR);
+
+        synchronized (bloqueio(idUsuario)) {
+            try {
+                if (Files.exists(anterior)) {
+                    Files.move(anterior, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.deleteIfExists(arquivo);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                segmentosPorUsuario.remove(idUsuario);
+            }
+        }
+    }
+
+    private List<SegmentoLancamentos> abrirSegmentos(Long idUsuario) {
+        Path pasta = pasta(idUsuario);
+
+        if (!Files.isDirectory(pasta)) {
+            return List.of();
+        }
+
+        try (Stream<Path> arquivos = Files.list(pasta)) {
+            List<SegmentoLancamentos> segmentos = new ArrayList<>();
+
+            for (Path arquivo : arquivos.filter(arquivo -> arquivo.toString().endsWith(EXTENSAO))
+                    .collect(Collectors.toList())) {
+                segmentos.add(SegmentoLancamentos.abrir(arquivo));
+            }
+
+            segmentos.sort(Comparator.comparingInt(SegmentoLancamentos::getAno));
+
+            return List.copyOf(segmentos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Object bloqueio(Long idUsuario) {
+        return bloqueios[(int) Math.floorMod(idUsuario, (long) BLOQUEIOS)];
+    }
+
+    private Path arquivo(Long idUsuario, int ano) {
+        return pasta(idUsuario).resolve(ano + EXTENSAO);
+    }
+
+    private Path pasta(Long idUsuario) {
+        return diretorio.resolve(String.format("%02x", idUsuario % 256)).resolve(String.valueOf(idUsuario));
+    }
+}
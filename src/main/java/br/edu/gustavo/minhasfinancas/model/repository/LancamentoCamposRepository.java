@@ -0,0 +1,23 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.shard.IdShard;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Consultas de lançamentos que leem só as colunas de um {@link CamposLancamento}.
+ */
+public interface LancamentoCamposRepository {
+
+    /**
+     * Mesmos critérios da busca por {@code Example} em {@code LancamentoService#buscar}: usuário,
+     * ano, mês, tipo e status iguais quando informados e descrição contida, sem diferenciar
+     * maiúsculas, dentro das {@link FaixasLancamento}. O resultado é indexado pelo id, na ordem do
+     * banco.
+     */
+    Map<Long, Map<String, Object>> buscarCampos(Lancamento filtro, FaixasLancamento faixas, CamposLancamento campos);
+
+    Optional<Map<String, Object>> obterCamposPorId(@IdShard Long id, CamposLancamento campos);
+}
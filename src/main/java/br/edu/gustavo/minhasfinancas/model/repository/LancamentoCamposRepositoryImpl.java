@@ -0,0 +1,213 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * O JPQL de cada combinação de campos e critérios é montado uma vez e guardado; como o texto é
+ * sempre o mesmo, o Hibernate também reaproveita o plano da consulta no seu cache.
+ *
+ * Tags ficam em outra tabela e são lidas em uma segunda consulta, só quando pedidas.
+ */
+public class LancamentoCamposRepositoryImpl implements LancamentoCamposRepository {
+
+    private static final int IDS_POR_CONSULTA = 1000;
+
+    private static final int ANO = 1;
+    private static final int MES = 2;
+    private static final int TIPO = 4;
+    private static final int STATUS = 8;
+    private static final int DESCRICAO = 16;
+    private static final int POR_ID = 32;
+    private static final int VALOR_MINIMO = 64;
+    private static final int VALOR_MAXIMO = 128;
+    private static final int DATA_CADASTRO_INICIO = 256;
+    private static final int DATA_CADASTRO_FIM = 512;
+    private static final int PERIODO_INICIO = 1024;
+    private static final int PERIODO_FIM = 2048;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<String, String> consultas = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<Long, Map<String, Object>> buscarCampos(Lancamento filtro, FaixasLancamento faixas,
+                                                      CamposLancamento campos) {
+        int criterios = (filtro.getAno() != null ? ANO : 0)
+                | (filtro.getMes() != null ? MES : 0)
+                | (filtro.getTipo() != null ? TIPO : 0)
+                | (filtro.getStatus() != null ? STATUS : 0)
+                | (filtro.getDescricao() != null ? DESCRICAO : 0)
+                | (faixas.getValorMinimo() != null ? VALOR_MINIMO : 0)
+                | (faixas.getValorMaximo() != null ? VALOR_MAXIMO : 0)
+                | (faixas.getDataCadastroInicio() != null ? DATA_CADASTRO_INICIO : 0)
+                | (faixas.getDataCadastroFim() != null ? DATA_CADASTRO_FIM : 0)
+                | (faixas.getPeriodoInicio() != null ? PERIODO_INICIO : 0)
+                | (faixas.getPeriodoFim() != null ? PERIODO_FIM : 0);
+
+        Query consulta = entityManager.createQuery(consulta(campos, criterios))
+                .setParameter("usuario", filtro.getUsuario().getId());
+
+        if ((criterios & ANO) != 0) {
+            consulta.setParameter("ano", filtro.getAno());
+        }
+
+        if ((criterios & MES) != 0) {
+            consulta.setParameter("mes", filtro.getMes());
+        }
+
+        if ((criterios & TIPO) != 0) {
+            consulta.setParameter("tipo", filtro.getTipo());
+        }
+
+        if ((criterios & STATUS) != 0) {
+            consulta.setParameter("status", filtro.getStatus());
+        }
+
+        if ((criterios & DESCRICAO) != 0) {
+            String escapada = filtro.getDescricao().toLowerCase()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            consulta.setParameter("descricao", "%" + escapada + "%");
+        }
+
+        if ((criterios & VALOR_MINIMO) != 0) {
+            consulta.setParameter("valorMinimo", faixas.getValorMinimo());
+        }
+
+        if ((criterios & VALOR_MAXIMO) != 0) {
+            consulta.setParameter("valorMaximo", faixas.getValorMaximo());
+        }
+
+        if ((criterios & DATA_CADASTRO_INICIO) != 0) {
+            consulta.setParameter("dataCadastroInicio", faixas.getDataCadastroInicio());
+        }
+
+        if ((criterios & DATA_CADASTRO_FIM) != 0) {
+            consulta.setParameter("dataCadastroFim", faixas.getDataCadastroFim());
+        }
+
+        if ((criterios & PERIODO_INICIO) != 0) {
+            consulta.setParameter("anoInicio", faixas.getPeriodoInicio().getYear());
+            consulta.setParameter("mesInicio", faixas.getPeriodoInicio().getMonthValue());
+        }
+
+        if ((criterios & PERIODO_FIM) != 0) {
+            consulta.setParameter("anoFim", faixas.getPeriodoFim().getYear());
+            consulta.setParameter("mesFim", faixas.getPeriodoFim().getMonthValue());
+        }
+
+        return ler(consulta, campos);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> obterCamposPorId(Long id, CamposLancamento campos) {
+        Query consulta = entityManager.createQuery(consulta(campos, POR_ID)).setParameter("id", id);
+
+        return ler(consulta, campos).values().stream().findFirst();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Map<String, Object>> ler(Query consulta, CamposLancamento campos) {
+        Map<Long, Map<String, Object>> porId = new LinkedHashMap<>();
+
+        for (Object resultado : consulta.getResultList()) {
+            Object[] linha = resultado instanceof Object[] ? (Object[]) resultado : new Object[]{resultado};
+            porId.put((Long) linha[0], campos.projetar(linha));
+        }
+
+        if (campos.usaTags() && !porId.isEmpty()) {
+            List<Long> ids = new ArrayList<>(porId.keySet());
+
+            for (int inicio = 0; inicio < ids.size(); inicio += IDS_POR_CONSULTA) {
+                List<?> tags = entityManager
+                        .createQuery("select l.id, t from Lancamento l join l.tags t where l.id in :ids")
+                        .setParameter("ids", ids.subList(inicio, Math.min(inicio + IDS_POR_CONSULTA, ids.size())))
+                        .getResultList();
+
+                for (Object tag : tags) {
+                    Object[] linha = (Object[]) tag;
+                    ((Set<String>) porId.get((Long) linha[0]).get("tags")).add((String) linha[1]);
+                }
+            }
+        }
+
+        return porId;
+    }
+
+    private String consulta(CamposLancamento campos, int criterios) {
+        return consultas.computeIfAbsent(campos.getChave() + "|" + criterios, chave -> {
+            StringBuilder jpql = new StringBuilder("select ").append(campos.getSelecao()).append(" from Lancamento l");
+
+            if (campos.usaUsuario()) {
+                jpql.append(" join l.usuario u");
+            }
+
+            if (campos.usaCategoria()) {
+                jpql.append(" left join l.categoria c");
+            }
+
+            if ((criterios & POR_ID) != 0) {
+                return jpql.append(" where l.id = :id").toString();
+            }
+
+            jpql.append(" where l.usuario.id = :usuario");
+
+            if ((criterios & ANO) != 0) {
+                jpql.append(" and l.ano = :ano");
+            }
+
+            if ((criterios & MES) != 0) {
+                jpql.append(" and l.mes = :mes");
+            }
+
+            if ((criterios & TIPO) != 0) {
+                jpql.append(" and l.tipo = :tipo");
+            }
+
+            if ((criterios & STATUS) != 0) {
+                jpql.append(" and l.status = :status");
+            }
+
+            if ((criterios & DESCRICAO) != 0) {
+                jpql.append(" and lower(l.descricao) like :descricao escape '\\'");
+            }
+
+            if ((criterios & VALOR_MINIMO) != 0) {
+                jpql.append(" and l.valor >= :valorMinimo");
+            }
+
+            if ((criterios & VALOR_MAXIMO) != 0) {
+                jpql.append(" and l.valor <= :valorMaximo");
+            }
+
+            if ((criterios & DATA_CADASTRO_INICIO) != 0) {
+                jpql.append(" and l.dataCadastro >= :dataCadastroInicio");
+            }
+
+            if ((criterios & DATA_CADASTRO_FIM) != 0) {
+                jpql.append(" and l.dataCadastro <= :dataCadastroFim");
+            }
+
+            if ((criterios & PERIODO_INICIO) != 0) {
+                jpql.append(" and l.ano >= :anoInicio and (l.ano > :anoInicio or l.mes >= :mesInicio)");
+            }
+
+            if ((criterios & PERIODO_FIM) != 0) {
+                jpql.append(" and l.ano <= :anoFim and (l.ano < :anoFim or l.mes <= :mesFim)");
+            }
+
+            return jpql.toString();
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.shard.GeradorIdGlobal;
+import br.edu.gustavo.minhasfinancas.model.shard.MapaShards;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Inserções de lançamentos em lote via JDBC.
+ *
+ * Como o id é gerado por IDENTITY o Hibernate não agrupa os inserts, então os caminhos
+ * que gravam muitos lançamentos de uma vez passam por aqui em vez de {@code saveAll}. Com sharding
+ * os ids vêm do {@link GeradorIdGlobal}, como nas inserções pelo Hibernate.
+ */
+@Repository
+public class LancamentoLoteRepository {
+
+    private static final String INSERT =
+            "insert into financas.lancamento " +
+            "(descricao, mes, ano, id_usuario, valor, data_cadastro, tipo, status, id_recorrencia, parcela, hash_importacao) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_COM_ID =
+            "insert into financas.lancamento " +
+            "(descricao, mes, ano, id_usuario, valor, data_cadastro, tipo, status, id_recorrencia, parcela, hash_importacao, id) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GeradorIdGlobal geradorId;
+
+    public LancamentoLoteRepository(JdbcTemplate jdbcTemplate, ObjectProvider<GeradorIdGlobal> geradorId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.geradorId = geradorId.getIfAvailable();
+    }
+
+    public void inserir(List<Lancamento> lancamentos, int tamanhoLote) {
+        jdbcTemplate.batchUpdate(geradorId == null ? INSERT : INSERT_COM_ID, lancamentos, tamanhoLote, (ps, lancamento) -> {
+            ps.setString(1, lancamento.getDescricao());
+            ps.setInt(2, lancamento.getMes());
+            ps.setInt(3, lancamento.getAno());
+            ps.setLong(4, lancamento.getUsuario().getId());
+            ps.setBigDecimal(5, Dinheiro.normalizar(lancamento.getValor()));
+            ps.setDate(6, lancamento.getDataCadastro() == null ? null : Date.valueOf(lancamento.getDataCadastro()));
+            ps.setString(7, lancamento.getTipo().name());
+            ps.setString(8, lancamento.getStatus().name());
+
+            if (lancamento.getIdRecorrencia() == null) {
+                ps.setNull(9, Types.BIGINT);
+                ps.setNull(10, Types.INTEGER);
+            } else {
+                ps.setLong(9, lancamento.getIdRecorrencia());
+                ps.setInt(10, lancamento.getParcela());
+            }
+
+            ps.setString(11, lancamento.getHashImportacao());
+
+            if (geradorId != null) {
+                ps.setLong(12, geradorId.proximo(MapaShards.bucketDoId(lancamento.getUsuario().getId())));
+            }
+        });
+    }
+}
@@ -2,22 +2,172 @@ package br.edu.gustavo.minhasfinancas.model.repository;
 
 import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
 import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 
 import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.shard.IdShard;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface LancamentoRepository extends JpaRepository<Lancamento, Long> {
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface LancamentoRepository extends JpaRepository<Lancamento, Long>, JpaSpecificationExecutor<Lancamento>,
+        LancamentoCamposRepository {
 
     @Query( value =
             "select sum(l.valor) from Lancamento l join l.usuario u " +
             "where u.id = :idUsuario and l.tipo = :tipo and l.status = :status group by u")
     BigDecimal obterSaldoPorTipoLancamentoEUsuarioEStatus(
-            @Param("idUsuario") Long idUsuario,
+            @IdShard @Param("idUsuario") Long idUsuario,
             @Param("tipo") TipoLancamento tipo,
             @Param("status")StatusLancamento status
     );
+
+    /**
+     * Soma por usuário e tipo, em uma consulta só para todos os ids. Fora de transação o roteamento
+     * de shards divide os ids por shard e junta as linhas.
+     */
+    @Query( value =
+            "select l.usuario.id, l.tipo, sum(l.valor) from Lancamento l " +
+            "where l.usuario.id in :idsUsuarios and l.status = :status group by l.usuario.id, l.tipo")
+    List<Object[]> obterSomasPorUsuarios(
+            @IdShard @Param("idsUsuarios") Collection<Long> idsUsuarios,
+            @Param("status") StatusLancamento status
+    );
+
+    @Query( value =
+            "select l.usuario.id, l.mes, l.tipo, sum(l.valor) from Lancamento l " +
+            "where l.usuario.id in :idsUsuarios and l.ano = :ano and l.status = :status " +
+            "group by l.usuario.id, l.mes, l.tipo")
+    List<Object[]> obterSomasMensaisPorUsuarios(
+            @IdShard @Param("idsUsuarios") Collection<Long> idsUsuarios,
+            @Param("ano") Integer ano,
+            @Param("status") StatusLancamento status
+    );
+
+    @Query( value =
+            "select l.id, l.ano, l.mes, l.tipo, l.status, l.valor from Lancamento l " +
+            "where l.usuario.id = :idUsuario order by l.id")
+    List<Object[]> obterColunasPorUsuario(@IdShard @Param("idUsuario") Long idUsuario);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query( value =
+            "select l.mes, l.descricao, l.tipo, l.status, l.valor, l.dataCadastro from Lancamento l " +
+            "where l.usuario.id = :idUsuario and l.ano = :ano order by l.mes, l.id")
+    Stream<Object[]> streamExtratoPorUsuarioEAno(@IdShard @Param("idUsuario") Long idUsuario, @Param("ano") Integer ano);
+
+    @Query( value =
+            "select distinct l.usuario.id, l.ano from Lancamento l where l.ano <= :ano order by l.usuario.id, l.ano")
+    List<Object[]> obterUsuariosEAnosAte(@Param("ano") Integer ano);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query( value = "select l from Lancamento l where l.usuario.id = :idUsuario and l.ano = :ano")
+    List<Lancamento> obterParaArquivamento(@IdShard @Param("idUsuario") Long idUsuario, @Param("ano") Integer ano);
+
+    @Query( value = "select l.id from Lancamento l where l.usuario.id = :idUsuario and l.ano in :anos")
+    Set<Long> obterIdsPorUsuarioEAnos(@IdShard @Param("idUsuario") Long idUsuario, @Param("anos") Collection<Integer> anos);
+
+    /**
+     * Usuário, ano e id dos lançamentos dos usuários em qualquer dos anos, em uma consulta só para
+     * todos os ids; quem chama descarta os anos que não interessam a cada usuário.
+     */
+    @Query( value =
+            "select l.usuario.id, l.ano, l.id from Lancamento l " +
+            "where l.usuario.id in :idsUsuarios and l.ano in :anos")
+    List<Object[]> obterIdsPorUsuariosEAnos(
+            @IdShard @Param("idsUsuarios") Collection<Long> idsUsuarios,
+            @Param("anos") Collection<Integer> anos
+    );
+
+    @Query( value =
+            "select l.id, l.ano, l.mes, l.tipo, l.status, c.id from Lancamento l left join l.categoria c " +
+            "where l.usuario.id = :idUsuario order by l.id")
+    List<Object[]> obterAtributosIndicePorUsuario(@IdShard @Param("idUsuario") Long idUsuario);
+
+    @Query( value = "select l.id, t from Lancamento l join l.tags t where l.usuario.id = :idUsuario")
+    List<Object[]> obterTagsPorUsuario(@IdShard @Param("idUsuario") Long idUsuario);
+
+    @Query( value =
+            "select c.id, sum(l.valor) from Lancamento l left join l.categoria c " +
+            "where l.usuario.id = :idUsuario and l.ano = :ano and l.mes = :mes " +
+            "and l.tipo = :tipo and l.status <> :statusIgnorado group by c.id")
+    List<Object[]> obterSomaPorCategoriaNoMes(
+            @IdShard @Param("idUsuario") Long idUsuario,
+            @Param("ano") Integer ano,
+            @Param("mes") Integer mes,
+            @Param("tipo") TipoLancamento tipo,
+            @Param("statusIgnorado") StatusLancamento statusIgnorado
+    );
+
+    @Query( value =
+            "select l from Lancamento l " +
+            "where l.usuario.id = :idUsuario and l.ano = :ano and l.mes = :mes order by l.id desc")
+    List<Lancamento> obterUltimosDoMes(
+            @IdShard @Param("idUsuario") Long idUsuario,
+            @Param("ano") Integer ano,
+            @Param("mes") Integer mes,
+            Pageable pagina
+    );
+
+    @Query( value =
+            "select l.status, count(l) from Lancamento l " +
+            "where l.usuario.id = :idUsuario and l.ano = :ano and l.mes = :mes group by l.status")
+    List<Object[]> contarPorStatusNoMes(
+            @IdShard @Param("idUsuario") Long idUsuario,
+            @Param("ano") Integer ano,
+            @Param("mes") Integer mes
+    );
+
+    @Query( value =
+            "select count(l) from Lancamento l where l.usuario.id = :idUsuario and l.hashImportacao is not null")
+    long contarImportadosPorUsuario(@IdShard @Param("idUsuario") Long idUsuario);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query( value =
+            "select l.hashImportacao from Lancamento l " +
+            "where l.usuario.id = :idUsuario and l.hashImportacao is not null")
+    Stream<String> streamHashesImportacaoPorUsuario(@IdShard @Param("idUsuario") Long idUsuario);
+
+    @Query( value =
+            "select l.hashImportacao from Lancamento l " +
+            "where l.usuario.id = :idUsuario and l.hashImportacao in :hashes")
+    List<String> obterHashesImportacaoExistentes(
+            @IdShard @Param("idUsuario") Long idUsuario,
+            @Param("hashes") Collection<String> hashes
+    );
+
+    @Query( value = "select l from Lancamento l where l.id in :ids order by l.id")
+    List<Lancamento> obterPorIds(@IdShard @Param("ids") Collection<Long> ids);
+
+    /**
+     * Remove os lançamentos sem passar pelo contexto de persistência; apaga antes as tags, que o
+     * delete em massa não remove.
+     */
+    default int deletarPorIds(@IdShard Collection<Long> ids) {
+        deletarTagsPorIds(ids);
+
+        return deletarLancamentosPorIds(ids);
+    }
+
+    @Modifying
+    @Query( value = "delete from financas.lancamento_tag where id_lancamento in :ids", nativeQuery = true)
+    int deletarTagsPorIds(@IdShard @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query( value = "delete from Lancamento l where l.id in :ids")
+    int deletarLancamentosPorIds(@IdShard @Param("ids") Collection<Long> ids);
 }
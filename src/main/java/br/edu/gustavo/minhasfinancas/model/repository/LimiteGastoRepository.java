@@ -0,0 +1,12 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.entity.LimiteGasto;
+import br.edu.gustavo.minhasfinancas.model.shard.IdShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface LimiteGastoRepository extends JpaRepository<LimiteGasto, Long> {
+
+    List<LimiteGasto> findByUsuarioId(@IdShard Long idUsuario);
+}
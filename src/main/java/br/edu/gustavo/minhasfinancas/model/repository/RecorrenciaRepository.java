@@ -0,0 +1,25 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Recorrencia;
+import br.edu.gustavo.minhasfinancas.model.shard.IdShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RecorrenciaRepository extends JpaRepository<Recorrencia, Long> {
+
+    @Query(value =
+            "select distinct r.usuario.id from Recorrencia r " +
+            "where r.ativa = true " +
+            "order by r.usuario.id")
+    List<Long> obterUsuariosComRecorrenciasPendentes();
+
+    @Query(value =
+            "select r from Recorrencia r " +
+            "where r.usuario.id in :idsUsuarios " +
+            "and r.ativa = true")
+    List<Recorrencia> obterPendentesPorUsuarios(@IdShard @Param("idsUsuarios") Collection<Long> idsUsuarios);
+}
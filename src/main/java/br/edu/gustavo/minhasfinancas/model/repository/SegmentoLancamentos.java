@@ -0,0 +1,300 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Arquivo imutável com os lançamentos de um usuário em um ano, lido por memória mapeada.
+ *
+ * Cada campo fica em uma coluna contígua de tamanho fixo, depois de um cabeçalho com o usuário, o
+ * ano e a quantidade de linhas; descrições e tags (separadas por vírgula) ficam no fim, em UTF-8,
+ * cada uma indexada por uma coluna de offsets. Arquivos da versão 1 não têm categoria nem tags. As linhas são gravadas ordenadas por mês e id, a ordem do extrato. Valores são guardados
+ * em centavos, e os totais por tipo e status são calculados uma vez ao abrir o arquivo.
+ *
+ * As leituras usam apenas acessos absolutos ao buffer e podem ser feitas por várias threads.
+ */
+public class SegmentoLancamentos {
+
+    static final int MAGICO = 0x4D464C53;
+    static final int VERSAO = 2;
+
+    private static final int CABECALHO = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES * 2;
+    private static final int DATA_NULA = Integer.MIN_VALUE;
+    private static final byte ENUM_NULO = -1;
+    private static final String SEPARADOR_TAGS = ",";
+
+    private static final Comparator<Lancamento> ORDEM =
+            Comparator.comparing(Lancamento::getMes).thenComparing(Lancamento::getId);
+
+    private final ByteBuffer buffer;
+    private final int versao;
+    private final long idUsuario;
+    private final int ano;
+    private final int tamanho;
+
+    private final int inicioIds;
+    private final int inicioMeses;
+    private final int inicioTipos;
+    private final int inicioStatus;
+    private final int inicioCentavos;
+    private final int inicioDatas;
+    private final int inicioRecorrencias;
+    private final int inicioParcelas;
+    private final int inicioCategorias;
+    private final int inicioOffsets;
+    private final int inicioDescricoes;
+    private final int inicioOffsetsTags;
+    private final int inicioTags;
+
+    private final long[][] totais = new long[TipoLancamento.values().length][StatusLancamento.values().length];
+
+    private SegmentoLancamentos(ByteBuffer buffer) {
+        this.versao = buffer.getInt(Integer.BYTES);
+
+        if (buffer.getInt(0) != MAGICO || versao < 1 || versao > VERSAO) {
+            throw new IllegalStateException("Arquivo de lançamentos arquivados inválido");
+        }
+
+        this.buffer = buffer;
+        this.idUsuario = buffer.getLong(Integer.BYTES * 2);
+        this.ano = buffer.getInt(Integer.BYTES * 2 + Long.BYTES);
+        this.tamanho = buffer.getInt(Integer.BYTES * 3 + Long.BYTES);
+
+        inicioIds = CABECALHO;
+        inicioMeses = inicioIds + tamanho * Long.BYTES;
+        inicioTipos = inicioMeses + tamanho;
+        inicioStatus = inicioTipos + tamanho;
+        inicioCentavos = inicioStatus + tamanho;
+        inicioDatas = inicioCentavos + tamanho * Long.BYTES;
+        inicioRecorrencias = inicioDatas + tamanho * Integer.BYTES;
+        inicioParcelas = inicioRecorrencias + tamanho * Long.BYTES;
+        inicioCategorias = inicioParcelas + tamanho * Integer.BYTES;
+        inicioOffsets = inicioCategorias + (versao >= 2 ? tamanho * Long.BYTES : 0);
+        inicioDescricoes = inicioOffsets + (tamanho + 1) * Integer.BYTES;
+        inicioOffsetsTags = inicioDescricoes + buffer.getInt(inicioOffsets + tamanho * Integer.BYTES);
+        inicioTags = inicioOffsetsTags + (tamanho + 1) * Integer.BYTES;
+
+        for (int i = 0; i < tamanho; i++) {
+            int tipo = getTipo(i);
+            int status = getStatus(i);
+
+            if (tipo != ENUM_NULO && status != ENUM_NULO) {
+                totais[tipo][status] = Dinheiro.somar(totais[tipo][status], getCentavos(i));
+            }
+        }
+    }
+
+    public static SegmentoLancamentos abrir(Path arquivo) throws IOException {
+        try (FileChannel channel = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return new SegmentoLancamentos(buffer);
+        }
+    }
+
+    /**
+     * Grava os lançamentos no arquivo informado, sincronizando o conteúdo em disco antes de
+     * retornar. A lista é reordenada por mês e id.
+     */
+    public static void escrever(Path arquivo, long idUsuario, int ano, List<Lancamento> lancamentos) throws IOException {
+        lancamentos.sort(ORDEM);
+
+        int tamanho = lancamentos.size();
+        byte[][] descricoes = new byte[tamanho][];
+        byte[][] tags = new byte[tamanho][];
+        int bytesTextos = 0;
+
+        for (int i = 0; i < tamanho; i++) {
+            Lancamento lancamento = lancamentos.get(i);
+            descricoes[i] = paraBytes(lancamento.getDescricao());
+            tags[i] = paraBytes(lancamento.getTags() == null ? null
+                    : String.join(SEPARADOR_TAGS, lancamento.getTags().stream().sorted().toArray(String[]::new)));
+            bytesTextos += descricoes[i].length + tags[i].length;
+        }
+
+        // id, mês, tipo, status, centavos, data de cadastro, recorrência, parcela, categoria e os
+        // offsets de descrição e tags
+        int bytesPorLinha = Long.BYTES + 3 + Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES
+                + Integer.BYTES * 2;
+        ByteBuffer buffer = ByteBuffer.allocate(CABECALHO + tamanho * bytesPorLinha + Integer.BYTES * 2 + bytesTextos);
+
+        buffer.putInt(MAGICO).putInt(VERSAO).putLong(idUsuario).putInt(ano).putInt(tamanho);
+
+        lancamentos.forEach(lancamento -> buffer.putLong(lancamento.getId()));
+        lancamentos.forEach(lancamento -> buffer.put((byte) lancamento.getMes().intValue()));
+        lancamentos.forEach(lancamento -> buffer.put(ordinal(lancamento.getTipo())));
+        lancamentos.forEach(lancamento -> buffer.put(ordinal(lancamento.getStatus())));
+        lancamentos.forEach(lancamento -> buffer.putLong(Dinheiro.centavos(lancamento.getValor())));
+        lancamentos.forEach(lancamento -> buffer.putInt(lancamento.getDataCadastro() == null
+                ? DATA_NULA : (int) lancamento.getDataCadastro().toEpochDay()));
+        lancamentos.forEach(lancamento -> buffer.putLong(lancamento.getIdRecorrencia() == null
+                ? 0 : lancamento.getIdRecorrencia()));
+        lancamentos.forEach(lancamento -> buffer.putInt(lancamento.getParcela() == null
+                ? 0 : lancamento.getParcela()));
+        lancamentos.forEach(lancamento -> buffer.putLong(lancamento.getCategoria() == null
+                ? 0 : lancamento.getCategoria().getId()));
+
+        escreverTextos(buffer, descricoes);
+        escreverTextos(buffer, tags);
+
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(true);
+        }
+    }
+
+    public long getIdUsuario() {
+        return idUsuario;
+    }
+
+    public int getAno() {
+        return ano;
+    }
+
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    public long getId(int linha) {
+        return buffer.getLong(inicioIds + linha * Long.BYTES);
+    }
+
+    public int getMes(int linha) {
+        return buffer.get(inicioMeses + linha);
+    }
+
+    /**
+     * Ordinal de {@link TipoLancamento}, ou -1 quando o lançamento não tem tipo.
+     */
+    public int getTipo(int linha) {
+        return buffer.get(inicioTipos + linha);
+    }
+
+    /**
+     * Ordinal de {@link StatusLancamento}, ou -1 quando o lançamento não tem status.
+     */
+    public int getStatus(int linha) {
+        return buffer.get(inicioStatus + linha);
+    }
+
+    public long getCentavos(int linha) {
+        return buffer.getLong(inicioCentavos + linha * Long.BYTES);
+    }
+
+    public String getDescricao(int linha) {
+        return lerTexto(inicioOffsets, inicioDescricoes, linha);
+    }
+
+    /**
+     * Id da categoria, ou 0 quando o lançamento não tem categoria.
+     */
+    public long getIdCategoria(int linha) {
+        return versao < 2 ? 0 : buffer.getLong(inicioCategorias + linha * Long.BYTES);
+    }
+
+    public Set<String> getTags(int linha) {
+        String tags = versao < 2 ? "" : lerTexto(inicioOffsetsTags, inicioTags, linha);
+
+        return tags.isEmpty() ? new HashSet<>() : new HashSet<>(Arrays.asList(tags.split(SEPARADOR_TAGS)));
+    }
+
+    public LocalDate getDataCadastro(int linha) {
+        int dia = buffer.getInt(inicioDatas + linha * Integer.BYTES);
+
+        return dia == DATA_NULA ? null : LocalDate.ofEpochDay(dia);
+    }
+
+    /**
+     * Soma, em centavos, os lançamentos do tipo e status informados. Não percorre o arquivo.
+     */
+    public long somar(TipoLancamento tipo, StatusLancamento status) {
+        return totais[tipo.ordinal()][status.ordinal()];
+    }
+
+    /**
+     * Monta a entidade da linha. O usuário não é lido do arquivo, é o informado por parâmetro, e a
+     * categoria vem apenas com o id.
+     */
+    public Lancamento ler(int linha, Usuario usuario) {
+        int tipo = getTipo(linha);
+        int status = getStatus(linha);
+        long idRecorrencia = buffer.getLong(inicioRecorrencias + linha * Long.BYTES);
+        int parcela = buffer.getInt(inicioParcelas + linha * Integer.BYTES);
+        long idCategoria = getIdCategoria(linha);
+
+        return Lancamento.builder()
+                .id(getId(linha))
+                .descricao(getDescricao(linha))
+                .mes(getMes(linha))
+                .ano(ano)
+                .usuario(usuario)
+                .valor(Dinheiro.reais(getCentavos(linha)))
+                .dataCadastro(getDataCadastro(linha))
+                .tipo(tipo == ENUM_NULO ? null : TipoLancamento.values()[tipo])
+                .status(status == ENUM_NULO ? null : StatusLancamento.values()[status])
+                .idRecorrencia(idRecorrencia == 0 ? null : idRecorrencia)
+                .parcela(parcela == 0 ? null : parcela)
+                .categoria(idCategoria == 0 ? null : Categoria.builder().id(idCategoria).build())
+                .tags(getTags(linha))
+                .build();
+    }
+
+    private String lerTexto(int inicioOffsets, int inicioBytes, int linha) {
+        int inicio = buffer.getInt(inicioOffsets + linha * Integer.BYTES);
+        int fim = buffer.getInt(inicioOffsets + (linha + 1) * Integer.BYTES);
+        byte[] bytes = new byte[fim - inicio];
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(inicioBytes + inicio + i);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void escreverTextos(ByteBuffer buffer, byte[][] textos) {
+        int offset = 0;
+
+        for (byte[] texto : textos) {
+            buffer.putInt(offset);
+            offset += texto.length;
+        }
+
+        buffer.putInt(offset);
+
+        for (byte[] texto : textos) {
+            buffer.put(texto);
+        }
+    }
+
+    private static byte[] paraBytes(String texto) {
+        return texto == null ? new byte[0] : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte ordinal(Enum<?> valor) {
+        return valor == null ? ENUM_NULO : (byte) valor.ordinal();
+    }
+}
@@ -0,0 +1,75 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.entity.TentativaLogin;
+import br.edu.gustavo.minhasfinancas.model.shard.ContextoShard;
+import br.edu.gustavo.minhasfinancas.model.shard.MapaShards;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserções da auditoria de login em lote via JDBC, pelo mesmo motivo do
+ * {@link LancamentoLoteRepository}: com id IDENTITY o Hibernate não agrupa os inserts.
+ *
+ * Com sharding cada tentativa vai para o shard do bucket do email, com um lote por shard; sem
+ * bucket (email vazio) fica no shard padrão.
+ */
+@Repository
+public class TentativaLoginLoteRepository {
+
+    private static final String INSERT =
+            "insert into financas.tentativa_login (email, origem, resultado, data_hora, bucket) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<MapaShards> mapaShards;
+
+    public TentativaLoginLoteRepository(JdbcTemplate jdbcTemplate, ObjectProvider<MapaShards> mapaShards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mapaShards = mapaShards;
+    }
+
+    public void inserir(List<TentativaLogin> tentativas) {
+        MapaShards mapa = mapaShards.getIfAvailable();
+
+        if (mapa == null) {
+            inserirNoShardAtual(tentativas);
+            return;
+        }
+
+        Map<Integer, List<TentativaLogin>> porShard = new LinkedHashMap<>();
+
+        for (TentativaLogin tentativa : tentativas) {
+            int shard = tentativa.getBucket() == null ? ContextoShard.PADRAO : mapa.shardDoBucket(tentativa.getBucket());
+            porShard.computeIfAbsent(shard, chave -> new ArrayList<>()).add(tentativa);
+        }
+
+        for (Map.Entry<Integer, List<TentativaLogin>> parte : porShard.entrySet()) {
+            ContextoShard.executarEm(parte.getKey(), () -> {
+                inserirNoShardAtual(parte.getValue());
+                return null;
+            });
+        }
+    }
+
+    private void inserirNoShardAtual(List<TentativaLogin> tentativas) {
+        jdbcTemplate.batchUpdate(INSERT, tentativas, tentativas.size(), (ps, tentativa) -> {
+            ps.setString(1, tentativa.getEmail());
+            ps.setString(2, tentativa.getOrigem());
+            ps.setString(3, tentativa.getResultado().name());
+            ps.setTimestamp(4, Timestamp.valueOf(tentativa.getDataHora()));
+
+            if (tentativa.getBucket() == null) {
+                ps.setNull(5, Types.INTEGER);
+            } else {
+                ps.setInt(5, tentativa.getBucket());
+            }
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Travas de jobs agendados no banco, para que só uma instância da aplicação execute cada job.
+ *
+ * Cada trava é uma linha de {@code financas.trava_agendamento} com o prazo até o qual pertence a
+ * uma instância. Adquirir é um {@code update} condicionado ao prazo vencido (ou o {@code insert} da
+ * primeira vez), então duas instâncias nunca ficam com a mesma trava. O prazo limita quanto tempo a
+ * trava de uma instância que caiu no meio do job bloqueia as outras.
+ */
+@Repository
+public class TravaAgendamentoRepository {
+
+    private static final String ADQUIRIR =
+            "update financas.trava_agendamento set bloqueada_ate = ?, dono = ? " +
+            "where nome = ? and bloqueada_ate <= ?";
+
+    private static final String CRIAR =
+            "insert into financas.trava_agendamento (nome, bloqueada_ate, dono) values (?, ?, ?)";
+
+    private static final String LIBERAR =
+            "update financas.trava_agendamento set bloqueada_ate = ? where nome = ? and dono = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String dono = UUID.randomUUID().toString();
+
+    public TravaAgendamentoRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean adquirir(String nome, Duration prazo) {
+        Instant agora = Instant.now();
+        Timestamp ate = Timestamp.from(agora.plus(prazo));
+
+        if (jdbcTemplate.update(ADQUIRIR, ate, dono, nome, Timestamp.from(agora)) == 1) {
+            return true;
+        }
+
+        try {
+            return jdbcTemplate.update(CRIAR, nome, ate, dono) == 1;
+        } catch (DuplicateKeyException e) {
+            // Outra instância tem a trava dentro do prazo
+            return false;
+        }
+    }
+
+    public void liberar(String nome) {
+        jdbcTemplate.update(LIBERAR, Timestamp.from(Instant.now()), nome, dono);
+    }
+}
@@ -0,0 +1,244 @@
+package br.edu.gustavo.minhasfinancas.model.resiliencia;
+
+import br.edu.gustavo.minhasfinancas.exception.BancoIndisponivelException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import javax.persistence.LockTimeoutException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Disjuntor (circuit breaker) da camada de persistência.
+ *
+ * Fechado, guarda o resultado das últimas {@code janela} chamadas e abre quando, com ao menos
+ * {@code minimo-chamadas} registradas, a fração de falhas do banco ou a de chamadas lentas passa do
+ * limite. Aberto, recusa tudo com {@link BancoIndisponivelException} sem tocar no banco. Passada a
+ * espera, fica meio aberto e deixa passar {@code chamadas-meio-aberto} chamadas de teste: se todas
+ * forem bem-sucedidas e rápidas ele fecha, na primeira falha volta a abrir.
+ *
+ * Só contam como falha erros que indicam problema no banco (conexão, tempo limite, recursos);
+ * violações de constraint e afins são respostas normais do banco.
+ */
+@Slf4j
+@Component
+public class DisjuntorBanco {
+
+    public enum Estado {
+        FECHADO, ABERTO, MEIO_ABERTO
+    }
+
+    private static final byte FALHA = 1;
+    private static final byte LENTA = 2;
+
+    private final boolean habilitado;
+    private final int minimoChamadas;
+    private final double taxaFalhas;
+    private final double taxaLentas;
+    private final long chamadaLentaNanos;
+    private final long esperaAbertoNanos;
+    private final int chamadasMeioAberto;
+    private final LongSupplier relogio;
+
+    private final byte[] janela;
+    private int posicao;
+    private int registradas;
+    private int falhas;
+    private int lentas;
+
+    private volatile Estado estado = Estado.FECHADO;
+    private volatile long abertoAte;
+    private int tentativasEmAndamento;
+    private int tentativasBemSucedidas;
+
+    @Autowired
+    public DisjuntorBanco(
+            @Value("${minhasfinancas.disjuntor.habilitado:true}") boolean habilitado,
+            @Value("${minhasfinancas.disjuntor.janela:20}") int janela,
+            @Value("${minhasfinancas.disjuntor.minimo-chamadas:10}") int minimoChamadas,
+            @Value("${minhasfinancas.disjuntor.taxa-falhas:0.5}") double taxaFalhas,
+            @Value("${minhasfinancas.disjuntor.taxa-lentas:0.8}") double taxaLentas,
+            @Value("${minhasfinancas.disjuntor.chamada-lenta-ms:3000}") long chamadaLentaMs,
+            @Value("${minhasfinancas.disjuntor.espera-aberto-ms:10000}") long esperaAbertoMs,
+            @Value("${minhasfinancas.disjuntor.chamadas-meio-aberto:3}") int chamadasMeioAberto
+    ) {
+        this(habilitado, janela, minimoChamadas, taxaFalhas, taxaLentas, chamadaLentaMs, esperaAbertoMs,
+                chamadasMeioAberto, System::nanoTime);
+    }
+
+    DisjuntorBanco(boolean habilitado, int janela, int minimoChamadas, double taxaFalhas, double taxaLentas,
+                   long chamadaLentaMs, long esperaAbertoMs, int chamadasMeioAberto, LongSupplier relogio) {
+        this.habilitado = habilitado;
+        this.janela = new byte[janela];
+        this.minimoChamadas = Math.min(minimoChamadas, janela);
+        this.taxaFalhas = taxaFalhas;
+        this.taxaLentas = taxaLentas;
+        this.chamadaLentaNanos = TimeUnit.MILLISECONDS.toNanos(chamadaLentaMs);
+        this.esperaAbertoNanos = TimeUnit.MILLISECONDS.toNanos(esperaAbertoMs);
+        this.chamadasMeioAberto = chamadasMeioAberto;
+        this.relogio = relogio;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * Recusa a chamada se o disjuntor estiver aberto e a espera ainda não tiver passado, sem ocupar
+     * vaga de teste. Usado antes de abrir uma transação, para não esperar por uma conexão que não vem.
+     */
+    public void verificar() {
+        if (habilitado && estado == Estado.ABERTO && relogio.getAsLong() < abertoAte) {
+            throw indisponivel();
+        }
+    }
+
+    /**
+     * Autoriza uma chamada ao banco. Devolve {@code true} quando a chamada é uma das de teste do
+     * estado meio aberto; o valor deve ser repassado a {@link #registrar}.
+     */
+    public boolean adquirir() {
+        if (!habilitado || estado == Estado.FECHADO) {
+            return false;
+        }
+
+        synchronized (this) {
+            if (estado == Estado.ABERTO) {
+                if (relogio.getAsLong() < abertoAte) {
+                    throw indisponivel();
+                }
+
+                estado = Estado.MEIO_ABERTO;
+                tentativasEmAndamento = 0;
+                tentativasBemSucedidas = 0;
+                log.info("Disjuntor do banco meio aberto, testando com até {} chamadas", chamadasMeioAberto);
+            }
+
+            if (estado == Estado.FECHADO) {
+                return false;
+            }
+
+            if (tentativasEmAndamento + tentativasBemSucedidas >= chamadasMeioAberto) {
+                throw indisponivel();
+            }
+
+            tentativasEmAndamento++;
+
+            return true;
+        }
+    }
+
+    public void registrar(boolean tentativa, boolean falha, long duracaoNanos) {
+        if (!habilitado) {
+            return;
+        }
+
+        boolean lenta = duracaoNanos >= chamadaLentaNanos;
+
+        synchronized (this) {
+            if (tentativa) {
+                if (estado != Estado.MEIO_ABERTO) {
+                    return;
+                }
+
+                tentativasEmAndamento--;
+
+                if (falha || lenta) {
+                    abrir(falha ? "chamada de teste falhou" : "chamada de teste lenta");
+                } else if (++tentativasBemSucedidas >= chamadasMeioAberto) {
+                    estado = Estado.FECHADO;
+                    log.info("Disjuntor do banco fechado");
+                }
+
+                return;
+            }
+
+            if (estado != Estado.FECHADO) {
+                return;
+            }
+
+            byte resultado = (byte) ((falha ? FALHA : 0) | (lenta ? LENTA : 0));
+
+            if (registradas == janela.length) {
+                falhas -= janela[posicao] & FALHA;
+                lentas -= (janela[posicao] & LENTA) >> 1;
+            } else {
+                registradas++;
+            }
+
+            janela[posicao] = resultado;
+            posicao = (posicao + 1) % janela.length;
+            falhas += falha ? 1 : 0;
+            lentas += lenta ? 1 : 0;
+
+            if (registradas >= minimoChamadas) {
+                if (falhas >= taxaFalhas * registradas) {
+                    abrir(falhas + " falhas nas últimas " + registradas + " chamadas");
+                } else if (lentas >= taxaLentas * registradas) {
+                    abrir(lentas + " chamadas lentas nas últimas " + registradas);
+                }
+            }
+        }
+    }
+
+    /**
+     * Se o erro, ou alguma de suas causas, indica que o banco está inacessível ou sobrecarregado.
+     */
+    public static boolean indicaFalhaDoBanco(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause() == causa ? null : causa.getCause()) {
+            if (causa instanceof DataAccessResourceFailureException
+                    || causa instanceof TransientDataAccessResourceException
+                    || causa instanceof RecoverableDataAccessException
+                    || causa instanceof QueryTimeoutException
+                    || causa instanceof CannotCreateTransactionException
+                    || causa instanceof javax.persistence.QueryTimeoutException
+                    || causa instanceof LockTimeoutException
+                    || causa instanceof SQLTransientException
+                    || causa instanceof SQLRecoverableException
+                    || causa instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+
+            if (causa instanceof SQLException) {
+                String estado = ((SQLException) causa).getSQLState();
+
+                // 08: conexão, 53: recursos insuficientes, 57: intervenção do operador (inclui
+                // cancelamento por statement_timeout), HYT: tempo limite
+                if (estado != null && (estado.startsWith("08") || estado.startsWith("53")
+                        || estado.startsWith("57") || estado.startsWith("HYT"))) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void abrir(String motivo) {
+        estado = Estado.ABERTO;
+        abertoAte = relogio.getAsLong() + esperaAbertoNanos;
+        registradas = 0;
+        posicao = 0;
+        falhas = 0;
+        lentas = 0;
+        log.warn("Disjuntor do banco aberto por {} ms: {}", TimeUnit.NANOSECONDS.toMillis(esperaAbertoNanos), motivo);
+    }
+
+    private BancoIndisponivelException indisponivel() {
+        long restanteNanos = Math.max(abertoAte - relogio.getAsLong(), 0);
+
+        return new BancoIndisponivelException("Banco de dados indisponível, tente novamente em instantes",
+                Math.max(1, TimeUnit.NANOSECONDS.toSeconds(restanteNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+    }
+}
@@ -0,0 +1,76 @@
+package br.edu.gustavo.minhasfinancas.model.resiliencia;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Passa cada chamada de um repositório pelo {@link DisjuntorBanco} e aplica o tempo limite de
+ * {@link TempoLimiteConsultas}.
+ *
+ * Fica depois do interceptor de transação, então o {@link EntityManager} da transação já existe: o
+ * limite é posto nele como {@code javax.persistence.query.timeout}, que o Hibernate repassa a todas
+ * as consultas criadas durante a chamada (e ao {@code Statement.setQueryTimeout} do driver), e
+ * volta ao valor anterior no fim. O Hibernate trabalha em segundos, então o limite é arredondado
+ * para cima.
+ */
+public class ProtecaoRepositorioInterceptor implements MethodInterceptor {
+
+    static final String TEMPO_LIMITE_CONSULTA = "javax.persistence.query.timeout";
+
+    private final String repositorio;
+    private final DisjuntorBanco disjuntor;
+    private final TempoLimiteConsultas tempos;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    public ProtecaoRepositorioInterceptor(String repositorio, DisjuntorBanco disjuntor, TempoLimiteConsultas tempos,
+                                          ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.repositorio = repositorio;
+        this.disjuntor = disjuntor;
+        this.tempos = tempos;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocacao) throws Throwable {
+        long tempoLimiteMs = tempos.tempoLimiteMs(repositorio, invocacao.getMethod().getName());
+        boolean tentativa = disjuntor.adquirir();
+        long inicio = System.nanoTime();
+        boolean falha = false;
+
+        try {
+            return tempoLimiteMs > 0 ? comTempoLimite(invocacao, tempoLimiteMs) : invocacao.proceed();
+        } catch (Throwable e) {
+            falha = DisjuntorBanco.indicaFalhaDoBanco(e);
+            throw e;
+        } finally {
+            disjuntor.registrar(tentativa, falha, System.nanoTime() - inicio);
+        }
+    }
+
+    private Object comTempoLimite(MethodInvocation invocacao, long tempoLimiteMs) throws Throwable {
+        EntityManagerHolder holder = (EntityManagerHolder)
+                TransactionSynchronizationManager.getResource(entityManagerFactory.getObject());
+
+        if (holder == null) {
+            return invocacao.proceed();
+        }
+
+        EntityManager entityManager = holder.getEntityManager();
+        Object anterior = entityManager.getProperties().get(TEMPO_LIMITE_CONSULTA);
+
+        entityManager.setProperty(TEMPO_LIMITE_CONSULTA, (int) (Math.max(1, (tempoLimiteMs + 999) / 1000) * 1000));
+
+        try {
+            return invocacao.proceed();
+        } finally {
+            // o Hibernate ignora null em setProperty; 0 é "sem limite" para o driver
+            entityManager.setProperty(TEMPO_LIMITE_CONSULTA, anterior != null ? anterior : 0);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package br.edu.gustavo.minhasfinancas.model.resiliencia;
+
+import org.springframework.core.env.Environment;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempos limite configurados por método, em milissegundos, com a chave
+ * {@code minhasfinancas.tempo-limite.<Classe>.<metodo>} (por exemplo
+ * {@code minhasfinancas.tempo-limite.LancamentoRepository.findAll} ou
+ * {@code minhasfinancas.tempo-limite.LancamentoResource.buscar}). Métodos de repositório sem chave
+ * própria usam {@code minhasfinancas.tempo-limite.padrao-ms}; 0 desliga o limite.
+ *
+ * Esses limites valem para as requisições HTTP. Fora delas (jobs {@code @Scheduled}, relatórios e
+ * outras threads de fundo, que percorrem muitos usuários de propósito) toda chamada usa só
+ * {@code minhasfinancas.tempo-limite.fora-de-requisicao-ms}, por padrão sem limite.
+ *
+ * O limite de um endpoint vira um prazo da requisição, guardado na thread: cada consulta feita
+ * durante a requisição recebe o menor entre o seu próprio limite e o que ainda resta do prazo, e
+ * esgotado o prazo as consultas seguintes nem chegam ao banco.
+ */
+public class TempoLimiteConsultas {
+
+    public static final String PREFIXO = "minhasfinancas.tempo-limite.";
+
+    private static final ThreadLocal<Long> PRAZO = new ThreadLocal<>();
+
+    private final Environment environment;
+    private final long padraoMs;
+    private final long foraDeRequisicaoMs;
+
+    private final Map<String, Long> configurados = new ConcurrentHashMap<>();
+
+    public TempoLimiteConsultas(Environment environment) {
+        this.environment = environment;
+        this.padraoMs = environment.getProperty(PREFIXO + "padrao-ms", Long.class, 0L);
+        this.foraDeRequisicaoMs = environment.getProperty(PREFIXO + "fora-de-requisicao-ms", Long.class, 0L);
+    }
+
+    /**
+     * Limite configurado para o método, ou -1 se não houver.
+     */
+    public long configuradoMs(String classe, String metodo) {
+        return configurados.computeIfAbsent(classe + "." + metodo,
+                chave -> environment.getProperty(PREFIXO + chave, Long.class, -1L));
+    }
+
+    /**
+     * Limite a aplicar na chamada ao repositório, já descontado o prazo da requisição; 0 é sem
+     * limite.
+     */
+    public long tempoLimiteMs(String repositorio, String metodo) {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return foraDeRequisicaoMs;
+        }
+
+        long configurado = configuradoMs(repositorio, metodo);
+        long limite = configurado >= 0 ? configurado : padraoMs;
+
+        Long prazo = PRAZO.get();
+
+        if (prazo == null) {
+            return limite;
+        }
+
+        long restante = TimeUnit.NANOSECONDS.toMillis(prazo - System.nanoTime());
+
+        if (restante <= 0) {
+            throw new QueryTimeoutException("Tempo limite da requisição esgotado antes de " + repositorio + "." + metodo);
+        }
+
+        return limite > 0 ? Math.min(limite, restante) : restante;
+    }
+
+    public static void iniciarPrazo(long tempoLimiteMs) {
+        PRAZO.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tempoLimiteMs));
+    }
+
+    public static void encerrarPrazo() {
+        PRAZO.remove();
+    }
+}
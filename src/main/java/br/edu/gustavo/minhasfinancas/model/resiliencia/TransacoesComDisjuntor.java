@@ -0,0 +1,33 @@
+package br.edu.gustavo.minhasfinancas.model.resiliencia;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+/**
+ * {@link JpaTransactionManager} que consulta o {@link DisjuntorBanco} antes de abrir a transação
+ * (que pega a conexão do pool) e avisa o disjuntor quando não consegue abri-la. Sem isso, com o
+ * banco fora do ar cada requisição esperaria o tempo limite do pool antes de chegar ao repositório.
+ */
+public class TransacoesComDisjuntor extends JpaTransactionManager {
+
+    private final DisjuntorBanco disjuntor;
+
+    public TransacoesComDisjuntor(DisjuntorBanco disjuntor) {
+        this.disjuntor = disjuntor;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        disjuntor.verificar();
+
+        try {
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException e) {
+            if (DisjuntorBanco.indicaFalhaDoBanco(e)) {
+                disjuntor.registrar(false, true, 0);
+            }
+
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Shard usado pela thread atual, lido pelo {@link DataSourceShards} quando uma conexão é aberta.
+ *
+ * Normalmente é definido a cada chamada de repositório pelo {@link RoteamentoShardInterceptor}, a
+ * partir dos argumentos, só durante a chamada. Dentro de uma transação o shard da primeira chamada
+ * fica associado a ela até o fim, para os comandos que o Hibernate só executa no flush. Jobs que percorrem todos os usuários não têm um usuário por chamada; eles
+ * rodam uma vez por shard com o shard fixado ({@link #somarEmCadaShard}), e nesse período os
+ * repositórios não trocam de shard.
+ */
+public final class ContextoShard {
+
+    public static final int PADRAO = 0;
+
+    private static final Object CHAVE_TRANSACAO = ContextoShard.class.getName() + ".transacao";
+
+    private static final ThreadLocal<Integer> ATUAL = new ThreadLocal<>();
+    private static final ThreadLocal<Integer> FIXADO = new ThreadLocal<>();
+
+    private static volatile int quantidadeShards = 1;
+
+    private ContextoShard() {
+    }
+
+    public static void configurar(int quantidade) {
+        quantidadeShards = quantidade;
+    }
+
+    public static Integer atual() {
+        Integer fixado = FIXADO.get();
+
+        if (fixado != null) {
+            return fixado;
+        }
+
+        Integer atual = ATUAL.get();
+
+        return atual != null ? atual : daTransacao();
+    }
+
+    static Integer fixado() {
+        return FIXADO.get();
+    }
+
+    static void definir(int shard) {
+        ATUAL.set(shard);
+    }
+
+    static void limpar() {
+        ATUAL.remove();
+    }
+
+    static Integer daTransacao() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                ? (Integer) TransactionSynchronizationManager.getResource(CHAVE_TRANSACAO)
+                : null;
+    }
+
+    static void associarATransacao(int shard) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.bindResource(CHAVE_TRANSACAO, shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CHAVE_TRANSACAO);
+            }
+        });
+    }
+
+    public static <T> T executarEm(int shard, Supplier<T> tarefa) {
+        Integer anterior = FIXADO.get();
+        FIXADO.set(shard);
+
+        try {
+            return tarefa.get();
+        } finally {
+            if (anterior == null) {
+                FIXADO.remove();
+            } else {
+                FIXADO.set(anterior);
+            }
+        }
+    }
+
+    /**
+     * Executa a tarefa uma vez em cada shard, com o shard fixado, e soma os resultados. Sem sharding
+     * executa uma vez, sem fixar nada.
+     */
+    public static int somarEmCadaShard(IntSupplier tarefa) {
+        if (quantidadeShards <= 1) {
+            return tarefa.getAsInt();
+        }
+
+        int total = 0;
+
+        for (int shard = 0; shard < quantidadeShards; shard++) {
+            total += executarEm(shard, tarefa::getAsInt);
+        }
+
+        return total;
+    }
+}
@@ -0,0 +1,42 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaExport;
+import org.hibernate.tool.schema.TargetType;
+
+import java.util.EnumSet;
+
+/**
+ * Cria as tabelas do mapeamento JPA nos shards além do padrão, que recebe o esquema pelo
+ * {@code ddl-auto} como sem sharding. Para bancos locais de desenvolvimento e testes.
+ */
+public class CriadorEsquemaShards implements Integrator {
+
+    private final int quantidadeShards;
+
+    public CriadorEsquemaShards(int quantidadeShards) {
+        this.quantidadeShards = quantidadeShards;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        for (int shard = 0; shard < quantidadeShards; shard++) {
+            if (shard == ContextoShard.PADRAO) {
+                continue;
+            }
+
+            ContextoShard.executarEm(shard, () -> {
+                new SchemaExport().create(EnumSet.of(TargetType.DATABASE), metadata);
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
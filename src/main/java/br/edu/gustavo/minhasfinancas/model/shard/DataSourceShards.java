@@ -0,0 +1,62 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data source da aplicação com sharding: entrega conexões do shard do {@link ContextoShard} da
+ * thread e, sem shard definido, do {@link ContextoShard#PADRAO}.
+ *
+ * O shard é escolhido quando a conexão física é aberta, e a conexão física só é aberta no primeiro
+ * comando SQL, não no início da transação. Até lá o repositório já definiu o shard pelos argumentos
+ * da chamada.
+ */
+public class DataSourceShards extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final List<DataSource> shards;
+
+    public DataSourceShards(List<DataSource> shards) {
+        super(new Roteador(shards));
+        this.shards = List.copyOf(shards);
+    }
+
+    public List<DataSource> getShards() {
+        return shards;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource shard : shards) {
+            if (shard instanceof Closeable) {
+                ((Closeable) shard).close();
+            }
+        }
+    }
+
+    private static class Roteador extends AbstractRoutingDataSource {
+
+        Roteador(List<DataSource> shards) {
+            Map<Object, Object> alvos = new HashMap<>();
+
+            for (int shard = 0; shard < shards.size(); shard++) {
+                alvos.put(shard, shards.get(shard));
+            }
+
+            setTargetDataSources(alvos);
+            setDefaultTargetDataSource(shards.get(ContextoShard.PADRAO));
+            afterPropertiesSet();
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return ContextoShard.atual();
+        }
+    }
+}
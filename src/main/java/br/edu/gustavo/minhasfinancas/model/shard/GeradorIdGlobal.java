@@ -0,0 +1,63 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import java.time.Instant;
+
+/**
+ * Ids únicos entre todos os shards, gerados na aplicação em vez do IDENTITY de cada banco.
+ *
+ * Um id tem 63 bits: 41 de milissegundos desde {@link #EPOCA}, 6 do número do nó que gerou, 6 de
+ * sequência dentro do milissegundo e 10 do bucket do usuário dono ({@link MapaShards#bucketDoId}).
+ * Cada nó gera até 64 ids por milissegundo; ao esgotar a sequência espera o próximo milissegundo.
+ * Os ids crescem com o tempo, o que mantém os inserts no fim dos índices.
+ */
+public class GeradorIdGlobal {
+
+    static final long EPOCA = Instant.parse("2021-01-01T00:00:00Z").toEpochMilli();
+
+    private static final int BITS_BUCKET = 10;
+    private static final int BITS_SEQUENCIA = 6;
+    private static final int BITS_NO = 6;
+
+    private static final long SEQUENCIA_MAXIMA = (1L << BITS_SEQUENCIA) - 1;
+
+    private final long no;
+
+    private long ultimoMilissegundo = -1;
+    private long sequencia;
+
+    public GeradorIdGlobal(int no) {
+        if (no < 0 || no >= 1 << BITS_NO) {
+            throw new IllegalArgumentException("Número do nó deve estar entre 0 e " + ((1 << BITS_NO) - 1));
+        }
+
+        this.no = no;
+    }
+
+    public synchronized long proximo(int bucket) {
+        long agora = System.currentTimeMillis();
+
+        // Relógio voltou (ajuste de NTP): continua do último milissegundo usado para não repetir ids
+        if (agora < ultimoMilissegundo) {
+            agora = ultimoMilissegundo;
+        }
+
+        if (agora == ultimoMilissegundo) {
+            sequencia = (sequencia + 1) & SEQUENCIA_MAXIMA;
+
+            if (sequencia == 0) {
+                while (agora <= ultimoMilissegundo) {
+                    agora = System.currentTimeMillis();
+                }
+            }
+        } else {
+            sequencia = 0;
+        }
+
+        ultimoMilissegundo = agora;
+
+        return ((agora - EPOCA) << (BITS_NO + BITS_SEQUENCIA + BITS_BUCKET))
+                | (no << (BITS_SEQUENCIA + BITS_BUCKET))
+                | (sequencia << BITS_BUCKET)
+                | (bucket & (MapaShards.BUCKETS - 1));
+    }
+}
@@ -0,0 +1,51 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import br.edu.gustavo.minhasfinancas.model.entity.PertenceAUsuario;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentityGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * Gerador de ids das entidades. Sem sharding se comporta como IDENTITY; com sharding, o
+ * {@link GeradorIdGlobal} registrado nas propriedades do Hibernate em {@link #PROPRIEDADE_GERADOR}
+ * gera o id antes do insert, no bucket do usuário dono da entidade.
+ */
+public class GeradorIdHibernate extends IdentityGenerator implements Configurable {
+
+    public static final String NOME = "id-global";
+    public static final String PROPRIEDADE_GERADOR = "minhasfinancas.sharding.gerador-id";
+
+    private GeradorIdGlobal gerador;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        Object configurado = serviceRegistry.getService(ConfigurationService.class)
+                .getSettings().get(PROPRIEDADE_GERADOR);
+
+        gerador = configurado instanceof GeradorIdGlobal ? (GeradorIdGlobal) configurado : null;
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object entidade) {
+        if (gerador == null) {
+            return super.generate(session, entidade);
+        }
+
+        return gerador.proximo(bucket(entidade));
+    }
+
+    private static int bucket(Object entidade) {
+        if (entidade instanceof Usuario) {
+            return MapaShards.bucketDoEmail(((Usuario) entidade).getEmail());
+        }
+
+        return MapaShards.bucketDoId(((PertenceAUsuario) entidade).getUsuario().getId());
+    }
+}
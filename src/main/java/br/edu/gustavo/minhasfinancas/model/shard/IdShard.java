@@ -0,0 +1,19 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca um parâmetro de repositório que é o id (ou uma coleção de ids) de um registro de usuário,
+ * de onde o {@link RoteamentoShardInterceptor} tira o bucket. Os parâmetros do tipo {@code ID} dos
+ * repositórios do Spring Data ({@code findById}, {@code findAllById}...) já são ids sem a marca;
+ * qualquer outro {@code Long} dos argumentos (anos, valores, contagens) não escolhe shard.
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IdShard {
+}
@@ -0,0 +1,101 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Distribuição dos usuários entre os bancos.
+ *
+ * Cada usuário pertence a um de {@link #BUCKETS} buckets, calculado pelo hash do email no cadastro
+ * e gravado nos bits baixos do id dele e de todo registro que pertence a ele (ver
+ * {@link GeradorIdGlobal}). Assim tanto um id quanto o email levam ao bucket sem consulta, e o mapa
+ * só diz em qual shard está cada bucket. Mudar um bucket de shard exige mover as linhas antes, com o
+ * {@link RebalanceadorShards}.
+ */
+public class MapaShards {
+
+    public static final int BUCKETS = 1024;
+
+    private final int[] shardPorBucket;
+    private final int quantidadeShards;
+
+    private MapaShards(int[] shardPorBucket, int quantidadeShards) {
+        this.shardPorBucket = shardPorBucket;
+        this.quantidadeShards = quantidadeShards;
+    }
+
+    /**
+     * Monta o mapa a partir das faixas de buckets de cada shard, no formato {@code "0-511,800"}.
+     * Shards sem faixas recebem uma divisão contínua e igual dos buckets; todo bucket precisa ficar
+     * em exatamente um shard.
+     */
+    public static MapaShards de(List<String> faixasPorShard) {
+        int quantidade = faixasPorShard.size();
+        int[] shardPorBucket = new int[BUCKETS];
+        Arrays.fill(shardPorBucket, -1);
+
+        boolean semFaixas = faixasPorShard.stream().allMatch(faixas -> faixas == null || faixas.trim().isEmpty());
+
+        for (int shard = 0; shard < quantidade; shard++) {
+            if (semFaixas) {
+                Arrays.fill(shardPorBucket, shard * BUCKETS / quantidade, (shard + 1) * BUCKETS / quantidade, shard);
+                continue;
+            }
+
+            for (String faixa : faixasPorShard.get(shard).split(",")) {
+                if (faixa.trim().isEmpty()) {
+                    continue;
+                }
+
+                String[] limites = faixa.trim().split("-");
+                int inicio = Integer.parseInt(limites[0].trim());
+                int fim = limites.length > 1 ? Integer.parseInt(limites[1].trim()) : inicio;
+
+                for (int bucket = inicio; bucket <= fim; bucket++) {
+                    if (shardPorBucket[bucket] != -1) {
+                        throw new IllegalArgumentException("Bucket " + bucket + " atribuído a mais de um shard");
+                    }
+
+                    shardPorBucket[bucket] = shard;
+                }
+            }
+        }
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (shardPorBucket[bucket] == -1) {
+                throw new IllegalArgumentException("Bucket " + bucket + " não atribuído a nenhum shard");
+            }
+        }
+
+        return new MapaShards(shardPorBucket, quantidade);
+    }
+
+    public int getQuantidadeShards() {
+        return quantidadeShards;
+    }
+
+    public int shardDoBucket(int bucket) {
+        return shardPorBucket[bucket];
+    }
+
+    public int shardDoId(long id) {
+        return shardPorBucket[bucketDoId(id)];
+    }
+
+    public int shardDoEmail(String email) {
+        return shardPorBucket[bucketDoEmail(email)];
+    }
+
+    public static int bucketDoId(long id) {
+        return (int) (id & (BUCKETS - 1));
+    }
+
+    public static int bucketDoEmail(String email) {
+        CRC32 crc = new CRC32();
+        crc.update(email.trim().toLowerCase().getBytes(StandardCharsets.UTF_8));
+
+        return (int) (crc.getValue() & (BUCKETS - 1));
+    }
+}
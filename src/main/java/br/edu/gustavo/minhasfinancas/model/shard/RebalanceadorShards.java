@@ -0,0 +1,171 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Move buckets de usuários entre shards, para ser executado com a aplicação parada, antes de
+ * publicar o novo {@link MapaShards}.
+ *
+ * Para cada bucket que muda de shard as linhas de todas as tabelas do usuário são copiadas para o
+ * destino em uma transação e depois removidas da origem em outra. Se a execução parar no meio, rodar
+ * de novo com os mesmos mapas refaz a cópia: o destino é limpo antes de copiar, e um bucket já
+ * removido da origem não tem mais o que copiar.
+ */
+@Slf4j
+public class RebalanceadorShards {
+
+    /**
+     * Tabelas com linhas dos usuários, na ordem das chaves estrangeiras, e a coluna cujo bucket
+     * identifica o dono de cada linha. Os membros de um grupo ficam com o grupo, no bucket do dono,
+     * mesmo quando o membro está em outro shard. Uma terceira coluna, quando há, é um id IDENTITY
+     * próprio de cada banco: não é copiada, e o destino gera outro.
+     */
+    private static final List<String[]> TABELAS = List.of(
+            new String[]{"financas.usuario", "id"},
+            new String[]{"financas.categoria", "id_usuario"},
+            new String[]{"financas.recorrencia", "id_usuario"},
+            new String[]{"financas.lancamento", "id_usuario"},
+            new String[]{"financas.lancamento_tag", "id_lancamento"},
+            new String[]{"financas.limite_gasto", "id_usuario"},
+            new String[]{"financas.alerta_limite", "id_usuario"},
+            new String[]{"financas.grupo", "id_usuario"},
+            new String[]{"financas.grupo_membro", "id_grupo"},
+            new String[]{"financas.tentativa_login", "bucket", "id"}
+    );
+
+    private static final int LINHAS_POR_LOTE = 500;
+
+    private final List<DataSource> shards;
+
+    public RebalanceadorShards(List<DataSource> shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * @return quantidade de buckets movidos
+     */
+    public int rebalancear(MapaShards atual, MapaShards novo) {
+        int movidos = 0;
+
+        for (int bucket = 0; bucket < MapaShards.BUCKETS; bucket++) {
+            int origem = atual.shardDoBucket(bucket);
+            int destino = novo.shardDoBucket(bucket);
+
+            if (origem != destino) {
+                mover(bucket, origem, destino);
+                movidos++;
+            }
+        }
+
+        return movidos;
+    }
+
+    private void mover(int bucket, int origem, int destino) {
+        try (Connection conexaoOrigem = shards.get(origem).getConnection();
+             Connection conexaoDestino = shards.get(destino).getConnection()) {
+            conexaoOrigem.setAutoCommit(false);
+            conexaoDestino.setAutoCommit(false);
+
+            for (int i = TABELAS.size() - 1; i >= 0; i--) {
+                remover(conexaoDestino, TABELAS.get(i), bucket);
+            }
+
+            long linhas = 0;
+
+            for (String[] tabela : TABELAS) {
+                linhas += copiar(conexaoOrigem, conexaoDestino, tabela, bucket);
+            }
+
+            conexaoDestino.commit();
+
+            for (int i = TABELAS.size() - 1; i >= 0; i--) {
+                remover(conexaoOrigem, TABELAS.get(i), bucket);
+            }
+
+            conexaoOrigem.commit();
+
+            log.info("Rebalanceamento: bucket {} movido do shard {} para o {} ({} linhas)", bucket, origem, destino, linhas);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Falha ao mover o bucket " + bucket + " do shard " + origem
+                    + " para o " + destino, e);
+        }
+    }
+
+    private long copiar(Connection origem, Connection destino, String[] tabela, int bucket) throws SQLException {
+        long copiadas = 0;
+
+        try (PreparedStatement consulta = origem.prepareStatement(
+                "select * from " + tabela[0] + " where " + condicao(tabela))) {
+            consulta.setInt(1, bucket);
+
+            try (ResultSet linhas = consulta.executeQuery()) {
+                ResultSetMetaData colunas = linhas.getMetaData();
+
+                String gerada = tabela.length > 2 ? tabela[2] : null;
+
+                try (PreparedStatement insercao = destino.prepareStatement(insert(tabela[0], colunas, gerada))) {
+                    while (linhas.next()) {
+                        int parametro = 1;
+
+                        for (int i = 1; i <= colunas.getColumnCount(); i++) {
+                            if (!colunas.getColumnName(i).equalsIgnoreCase(gerada)) {
+                                insercao.setObject(parametro++, linhas.getObject(i));
+                            }
+                        }
+
+                        insercao.addBatch();
+
+                        if (++copiadas % LINHAS_POR_LOTE == 0) {
+                            insercao.executeBatch();
+                        }
+                    }
+
+                    insercao.executeBatch();
+                }
+            }
+        }
+
+        return copiadas;
+    }
+
+    private void remover(Connection conexao, String[] tabela, int bucket) throws SQLException {
+        try (PreparedStatement delete = conexao.prepareStatement(
+                "delete from " + tabela[0] + " where " + condicao(tabela))) {
+            delete.setInt(1, bucket);
+            delete.executeUpdate();
+        }
+    }
+
+    private static String condicao(String[] tabela) {
+        return "mod(" + tabela[1] + ", " + MapaShards.BUCKETS + ") = ?";
+    }
+
+    private static String insert(String tabela, ResultSetMetaData colunas, String gerada) throws SQLException {
+        StringBuilder nomes = new StringBuilder();
+        StringBuilder parametros = new StringBuilder();
+
+        for (int i = 1; i <= colunas.getColumnCount(); i++) {
+            if (colunas.getColumnName(i).equalsIgnoreCase(gerada)) {
+                continue;
+            }
+
+            if (nomes.length() > 0) {
+                nomes.append(", ");
+                parametros.append(", ");
+            }
+
+            nomes.append(colunas.getColumnName(i));
+            parametros.append('?');
+        }
+
+        return "insert into " + tabela + " (" + nomes + ") values (" + parametros + ")";
+    }
+}
@@ -0,0 +1,222 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import br.edu.gustavo.minhasfinancas.model.entity.PertenceAUsuario;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.data.domain.Example;
+import org.springframework.data.repository.Repository;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Escolhe o shard de cada chamada de repositório pelos argumentos: parâmetros de id (marcados com
+ * {@link IdShard} ou do tipo {@code ID} do repositório) e entidades levam ao bucket gravado no id,
+ * usuários ainda sem id e emails levam ao bucket do email, e {@link Example}s e coleções são
+ * resolvidos pelo conteúdo. Chamadas sem nada disso (consultas de jobs sobre todos os usuários)
+ * ficam no shard fixado pelo job ou, sem job, no {@link ContextoShard#PADRAO}.
+ *
+ * O shard vale só durante a chamada. Dentro de uma transação o primeiro shard usado fica associado
+ * a ela até o fim, já que a conexão aberta é desse banco; uma chamada que pertence a outro shard na
+ * mesma transação é recusada. Fora de transação, uma coleção com elementos de vários shards é
+ * dividida e o método é executado uma vez por shard, somando listas e contagens.
+ */
+public class RoteamentoShardInterceptor implements MethodInterceptor {
+
+    private final MapaShards mapa;
+    private final Map<Method, boolean[]> parametrosDeId = new ConcurrentHashMap<>();
+
+    public RoteamentoShardInterceptor(MapaShards mapa) {
+        this.mapa = mapa;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocacao) throws Throwable {
+        Object[] argumentos = invocacao.getArguments();
+        boolean[] ids = parametrosDeId.computeIfAbsent(invocacao.getMethod(), RoteamentoShardInterceptor::marcarIds);
+        boolean buscaPorEmail = invocacao.getMethod().getName().contains("Email");
+
+        Set<Integer> shards = new TreeSet<>();
+
+        for (int i = 0; i < argumentos.length; i++) {
+            resolver(argumentos[i], ids[i], buscaPorEmail, shards);
+        }
+
+        Integer vigente = ContextoShard.fixado();
+
+        if (vigente == null) {
+            vigente = ContextoShard.daTransacao();
+        }
+
+        if (vigente != null) {
+            if (shards.size() > 1 || (shards.size() == 1 && !shards.contains(vigente))) {
+                throw new IllegalStateException("A chamada " + invocacao.getMethod().getName() + " usa os shards "
+                        + shards + ", mas a execução atual está no shard " + vigente);
+            }
+
+            return executarEm(vigente, invocacao);
+        }
+
+        if (shards.size() > 1) {
+            return dividir(invocacao, ids);
+        }
+
+        int shard = shards.isEmpty() ? ContextoShard.PADRAO : shards.iterator().next();
+
+        ContextoShard.associarATransacao(shard);
+
+        return executarEm(shard, invocacao);
+    }
+
+    private static Object executarEm(int shard, MethodInvocation invocacao) throws Throwable {
+        ContextoShard.definir(shard);
+
+        try {
+            return invocacao.proceed();
+        } finally {
+            ContextoShard.limpar();
+        }
+    }
+
+    private void resolver(Object argumento, boolean id, boolean buscaPorEmail, Set<Integer> shards) {
+        if (argumento instanceof Long) {
+            if (id) {
+                shards.add(mapa.shardDoId((Long) argumento));
+            }
+        } else if (argumento instanceof String && buscaPorEmail) {
+            shards.add(mapa.shardDoEmail((String) argumento));
+        } else if (argumento instanceof Usuario) {
+            Usuario usuario = (Usuario) argumento;
+
+            if (usuario.getId() != null) {
+                shards.add(mapa.shardDoId(usuario.getId()));
+            } else if (usuario.getEmail() != null) {
+                shards.add(mapa.shardDoEmail(usuario.getEmail()));
+            }
+        } else if (argumento instanceof PertenceAUsuario) {
+            resolver(((PertenceAUsuario) argumento).getUsuario(), false, false, shards);
+        } else if (argumento instanceof Example) {
+            resolver(((Example<?>) argumento).getProbe(), false, false, shards);
+        } else if (argumento instanceof Iterable) {
+            for (Object elemento : (Iterable<?>) argumento) {
+                resolver(elemento, id, buscaPorEmail, shards);
+            }
+        }
+    }
+
+    /**
+     * Quais parâmetros do método são ids: os marcados com {@link IdShard} e os declarados com o tipo
+     * {@code ID} de um repositório, sozinho ou em uma coleção.
+     */
+    private static boolean[] marcarIds(Method metodo) {
+        Annotation[][] anotacoes = metodo.getParameterAnnotations();
+        Type[] tipos = metodo.getGenericParameterTypes();
+        boolean[] ids = new boolean[tipos.length];
+
+        for (int i = 0; i < tipos.length; i++) {
+            ids[i] = tipoId(tipos[i]);
+
+            for (Annotation anotacao : anotacoes[i]) {
+                ids[i] |= anotacao instanceof IdShard;
+            }
+        }
+
+        return ids;
+    }
+
+    private static boolean tipoId(Type tipo) {
+        if (tipo instanceof ParameterizedType) {
+            Type[] argumentos = ((ParameterizedType) tipo).getActualTypeArguments();
+
+            return argumentos.length == 1 && tipoId(argumentos[0]);
+        }
+
+        if (!(tipo instanceof TypeVariable)) {
+            return false;
+        }
+
+        TypeVariable<?> variavel = (TypeVariable<?>) tipo;
+
+        return "ID".equals(variavel.getName()) && variavel.getGenericDeclaration() instanceof Class
+                && Repository.class.isAssignableFrom((Class<?>) variavel.getGenericDeclaration());
+    }
+
+    private Object dividir(MethodInvocation invocacao, boolean[] ids) throws Throwable {
+        Object[] argumentos = invocacao.getArguments();
+        int indice = -1;
+
+        for (int i = 0; i < argumentos.length; i++) {
+            if (argumentos[i] instanceof Collection) {
+                if (indice != -1) {
+                    indice = -1;
+                    break;
+                }
+
+                indice = i;
+            }
+        }
+
+        if (indice == -1 || !(invocacao instanceof ProxyMethodInvocation)) {
+            throw new IllegalStateException("A chamada " + invocacao.getMethod().getName()
+                    + " envolve mais de um shard e não pode ser dividida");
+        }
+
+        Map<Integer, List<Object>> porShard = new LinkedHashMap<>();
+
+        for (Object elemento : (Collection<?>) argumentos[indice]) {
+            Set<Integer> shardDoElemento = new TreeSet<>();
+            resolver(elemento, ids[indice], invocacao.getMethod().getName().contains("Email"), shardDoElemento);
+
+            int shard = shardDoElemento.isEmpty() ? ContextoShard.PADRAO : shardDoElemento.iterator().next();
+            porShard.computeIfAbsent(shard, chave -> new ArrayList<>()).add(elemento);
+        }
+
+        Object resultado = null;
+
+        for (Map.Entry<Integer, List<Object>> parte : porShard.entrySet()) {
+            Object[] argumentosDaParte = argumentos.clone();
+            argumentosDaParte[indice] = parte.getValue();
+
+            resultado = juntar(resultado, executarEm(parte.getKey(),
+                    ((ProxyMethodInvocation) invocacao).invocableClone(argumentosDaParte)));
+        }
+
+        return resultado;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object juntar(Object acumulado, Object parcial) {
+        if (acumulado == null) {
+            return parcial instanceof List ? new ArrayList<>((List<Object>) parcial) : parcial;
+        }
+
+        if (acumulado instanceof List) {
+            ((List<Object>) acumulado).addAll((List<Object>) parcial);
+            return acumulado;
+        }
+
+        if (acumulado instanceof Integer) {
+            return (Integer) acumulado + (Integer) parcial;
+        }
+
+        if (acumulado instanceof Long) {
+            return (Long) acumulado + (Long) parcial;
+        }
+
+        throw new IllegalStateException("Resultado do tipo " + acumulado.getClass().getSimpleName()
+                + " não pode ser juntado entre shards");
+    }
+}
@@ -0,0 +1,25 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+
+import java.time.YearMonth;
+
+/**
+ * Agregações sobre os lançamentos de um usuário respondidas em memória.
+ *
+ * Valores são retornados em centavos; critérios nulos não filtram. Os agrupamentos acumulam no
+ * array recebido, indexado pelo mês (0 a 11) ou pelo ordinal do enum.
+ */
+public interface AnaliseLancamentoService {
+
+    long somar(Long idUsuario, YearMonth inicio, YearMonth fim, TipoLancamento tipo, StatusLancamento status);
+
+    int contar(Long idUsuario, YearMonth inicio, YearMonth fim, TipoLancamento tipo, StatusLancamento status);
+
+    void somarPorMes(Long idUsuario, int ano, TipoLancamento tipo, StatusLancamento status, long[] destino);
+
+    void somarPorTipo(Long idUsuario, YearMonth inicio, YearMonth fim, StatusLancamento status, long[] destino);
+
+    void somarPorStatus(Long idUsuario, YearMonth inicio, YearMonth fim, TipoLancamento tipo, long[] destino);
+}
@@ -0,0 +1,8 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+public interface ArquivamentoService {
+
+    int arquivarAnosEncerrados();
+
+    int arquivar(Long idUsuario, Integer ano);
+}
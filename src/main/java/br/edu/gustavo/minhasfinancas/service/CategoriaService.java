@@ -0,0 +1,17 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CategoriaService {
+
+    Categoria salvar(Categoria categoria);
+
+    void validar(Categoria categoria);
+
+    List<Categoria> listarPorUsuario(Long idUsuario);
+
+    Optional<Categoria> obterPorId(Long id);
+}
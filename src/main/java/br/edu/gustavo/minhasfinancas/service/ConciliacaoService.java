@@ -0,0 +1,8 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.service.conciliacao.ResultadoConciliacao;
+
+public interface ConciliacaoService {
+
+    ResultadoConciliacao conciliarSaldos();
+}
@@ -0,0 +1,11 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.service.dashboard.Dashboard;
+
+import java.time.YearMonth;
+
+public interface DashboardService {
+
+    Dashboard obter(Usuario usuario, YearMonth mes);
+}
@@ -0,0 +1,14 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface EventoUsuarioService {
+
+    /**
+     * Abre um fluxo de eventos do usuário: o saldo atual logo de início e, depois de cada escrita
+     * confirmada nos lançamentos dele, o novo saldo e os ids alterados.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException se o limite de assinantes foi atingido
+     */
+    SseEmitter assinar(Long idUsuario);
+}
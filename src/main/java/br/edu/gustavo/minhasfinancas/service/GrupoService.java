@@ -0,0 +1,27 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Grupo;
+import br.edu.gustavo.minhasfinancas.service.grupo.SaldoGrupo;
+import br.edu.gustavo.minhasfinancas.service.grupo.SaldoMensalGrupo;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface GrupoService {
+
+    Grupo salvar(Grupo grupo);
+
+    Grupo adicionarMembro(Grupo grupo, Long idUsuario);
+
+    Grupo removerMembro(Grupo grupo, Long idUsuario);
+
+    void validar(Grupo grupo);
+
+    List<Grupo> listarPorUsuario(Long idUsuario);
+
+    Optional<Grupo> obterPorId(Long id);
+
+    SaldoGrupo obterSaldo(Grupo grupo);
+
+    List<SaldoMensalGrupo> obterSaldoMensal(Grupo grupo, Integer ano);
+}
@@ -0,0 +1,12 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.service.importacao.ResultadoImportacao;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImportacaoService {
+
+    ResultadoImportacao importarOfx(Usuario usuario, InputStream arquivo) throws IOException;
+}
@@ -0,0 +1,19 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Filtros por ano, mês, tipo, status, categorias e tags respondidos por um índice de bitmaps em
+ * memória, sem consultar a tabela. Os demais campos do filtro são ignorados.
+ *
+ * Considera apenas lançamentos que estão no banco; os arquivados ficam de fora.
+ */
+public interface IndiceLancamentoService {
+
+    List<Long> filtrar(Long idUsuario, Lancamento filtro, Collection<Long> categorias, Collection<String> tags);
+
+    int contar(Long idUsuario, Lancamento filtro, Collection<Long> categorias, Collection<String> tags);
+}
@@ -2,9 +2,13 @@ package br.edu.gustavo.minhasfinancas.service;
 
 import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
 import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.CamposLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.FaixasLancamento;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface LancamentoService {
@@ -15,13 +19,42 @@ public interface LancamentoService {
 
     void deletar(Lancamento lancamento);
 
+    /**
+     * O resultado pode ser compartilhado com outras buscas iguais e deve ser tratado como somente
+     * leitura.
+     */
     List<Lancamento> buscar(Lancamento lancamentoFiltro);
 
+    /**
+     * Como {@link #buscar(Lancamento)}, restringindo também a lançamentos de uma das categorias e
+     * com ao menos uma das tags informadas (coleções vazias não restringem).
+     */
+    List<Lancamento> buscar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags);
+
+    /**
+     * Como {@link #buscar(Lancamento, Collection, Collection)}, restringindo também às faixas de
+     * valor, data de cadastro e período informadas.
+     */
+    List<Lancamento> buscar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags,
+                            FaixasLancamento faixas);
+
+    /**
+     * Como {@link #buscar(Lancamento, Collection, Collection, FaixasLancamento)}, devolvendo só as
+     * propriedades pedidas e, quando possível, lendo só as colunas delas.
+     */
+    List<Map<String, Object>> buscar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags,
+                                     FaixasLancamento faixas, CamposLancamento campos);
+
+    long contar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags,
+                FaixasLancamento faixas);
+
     void atualizarStatus(Lancamento lancamento, StatusLancamento status);
 
     void validar(Lancamento lancamento);
 
     Optional<Lancamento> obterPorId(Long id);
 
+    Optional<Map<String, Object>> obterPorId(Long id, CamposLancamento campos);
+
     BigDecimal obterSaldoPorUsuario(Long id);
 }
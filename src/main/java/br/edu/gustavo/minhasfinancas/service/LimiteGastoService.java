@@ -0,0 +1,21 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.AlertaLimite;
+import br.edu.gustavo.minhasfinancas.model.entity.LimiteGasto;
+
+import java.util.List;
+
+public interface LimiteGastoService {
+
+    /**
+     * Grava o limite; se o usuário já tiver um limite para a mesma categoria (ou o limite geral),
+     * substitui o valor dele.
+     */
+    LimiteGasto salvar(LimiteGasto limite);
+
+    void validar(LimiteGasto limite);
+
+    List<LimiteGasto> listarPorUsuario(Long idUsuario);
+
+    List<AlertaLimite> listarAlertas(Long idUsuario);
+}
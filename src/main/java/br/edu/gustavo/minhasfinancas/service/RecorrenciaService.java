@@ -0,0 +1,12 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Recorrencia;
+
+public interface RecorrenciaService {
+
+    Recorrencia salvar(Recorrencia recorrencia);
+
+    void validar(Recorrencia recorrencia);
+
+    int materializarPendentes();
+}
@@ -0,0 +1,12 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.service.relatorio.RelatorioAnual;
+
+import java.util.Optional;
+
+public interface RelatorioService {
+
+    RelatorioAnual solicitarExtratoAnual(Long idUsuario, Integer ano);
+
+    Optional<RelatorioAnual> obterPorId(Long idUsuario, String id);
+}
@@ -0,0 +1,34 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.service.saldo.SaldoObtido;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Optional;
+
+public interface SaldoService {
+
+    SaldoObtido obterSaldo(Long idUsuario);
+
+    /**
+     * Usuários com um saldo guardado, válido ou não.
+     */
+    Collection<Long> usuariosComSaldoGuardado();
+
+    /**
+     * Se há um saldo guardado para o usuário, válido ou não. Só se guarda saldo de usuário que
+     * existe, então um saldo guardado dispensa conferir o usuário no banco.
+     */
+    boolean possuiSaldoGuardado(Long idUsuario);
+
+    /**
+     * O saldo guardado que seria devolvido como fresco, ou vazio se não há um ou se uma escrita já o
+     * invalidou. Não vai ao banco.
+     */
+    Optional<BigDecimal> obterSaldoGuardado(Long idUsuario);
+
+    /**
+     * Remove o saldo guardado do usuário; a próxima leitura calcula de novo.
+     */
+    void descartarSaldoGuardado(Long idUsuario);
+}
@@ -7,6 +7,8 @@ import java.util.Optional;
 public interface UsuarioService {
 
 	Usuario autenticar(String email, String senha);
+
+	Usuario autenticar(String email, String senha, String origem);
 	
 	Usuario salvarUsuario(Usuario usuario);
 	
@@ -0,0 +1,191 @@
+package br.edu.gustavo.minhasfinancas.service.analise;
+
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Lançamentos de um usuário guardados em colunas de tipos primitivos.
+ *
+ * A competência é guardada como {@code ano * 12 + (mes - 1)}, o que permite filtrar faixas de
+ * meses com uma única comparação; tipo e status são os ordinais dos enums e o valor fica em
+ * centavos. As linhas são mantidas ordenadas por id para que atualizações e exclusões achem a
+ * posição por busca binária. As consultas não alocam objetos: agrupamentos escrevem no array
+ * recebido por parâmetro.
+ *
+ * Não é thread-safe; quem compartilha uma instância entre threads precisa sincronizar o acesso.
+ */
+public class ColunasLancamento {
+
+    public static final int QUALQUER = -1;
+
+    static final int BYTES_POR_LINHA = Long.BYTES + Integer.BYTES + Byte.BYTES + Byte.BYTES + Long.BYTES;
+
+    private long[] ids;
+    private int[] competencias;
+    private byte[] tipos;
+    private byte[] status;
+    private long[] centavos;
+    private int tamanho;
+
+    public ColunasLancamento(int capacidadeInicial) {
+        int capacidade = Math.max(capacidadeInicial, 8);
+
+        ids = new long[capacidade];
+        competencias = new int[capacidade];
+        tipos = new byte[capacidade];
+        status = new byte[capacidade];
+        centavos = new long[capacidade];
+    }
+
+    public static int competencia(int ano, int mes) {
+        return ano * 12 + (mes - 1);
+    }
+
+    /**
+     * O mesmo que {@link Dinheiro#centavos(BigDecimal)}.
+     */
+    public static long paraCentavos(BigDecimal valor) {
+        return Dinheiro.centavos(valor);
+    }
+
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    public long bytesOcupados() {
+        return (long) ids.length * BYTES_POR_LINHA;
+    }
+
+    /**
+     * Insere a linha ou, se o id já existir, substitui seus valores.
+     */
+    public void gravar(long id, int competencia, int tipo, int statusLancamento, long valorCentavos) {
+        int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+
+        if (posicao < 0) {
+            posicao = -(posicao + 1);
+            abrirEspaco(posicao);
+            ids[posicao] = id;
+        }
+
+        competencias[posicao] = competencia;
+        tipos[posicao] = (byte) tipo;
+        status[posicao] = (byte) statusLancamento;
+        centavos[posicao] = valorCentavos;
+    }
+
+    public void remover(long id) {
+        int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+
+        if (posicao < 0) {
+            return;
+        }
+
+        int aMover = tamanho - posicao - 1;
+
+        System.arraycopy(ids, posicao + 1, ids, posicao, aMover);
+        System.arraycopy(competencias, posicao + 1, competencias, posicao, aMover);
+        System.arraycopy(tipos, posicao + 1, tipos, posicao, aMover);
+        System.arraycopy(status, posicao + 1, status, posicao, aMover);
+        System.arraycopy(centavos, posicao + 1, centavos, posicao, aMover);
+
+        tamanho--;
+    }
+
+    /**
+     * Soma, em centavos, as linhas da faixa de competências [inicio, fim] que casam com o tipo e o
+     * status informados ({@link #QUALQUER} ignora o critério).
+     */
+    public long somar(int competenciaInicio, int competenciaFim, int tipo, int statusLancamento) {
+        long soma = 0;
+
+        for (int i = 0; i < tamanho; i++) {
+            if (casa(i, competenciaInicio, competenciaFim, tipo, statusLancamento)) {
+                soma += centavos[i];
+            }
+        }
+
+        return soma;
+    }
+
+    public int contar(int competenciaInicio, int competenciaFim, int tipo, int statusLancamento) {
+        int quantidade = 0;
+
+        for (int i = 0; i < tamanho; i++) {
+            if (casa(i, competenciaInicio, competenciaFim, tipo, statusLancamento)) {
+                quantidade++;
+            }
+        }
+
+        return quantidade;
+    }
+
+    /**
+     * Acumula em {@code destino[mes - 1]} a soma de cada mês do ano informado.
+     */
+    public void somarPorMes(int ano, int tipo, int statusLancamento, long[] destino) {
+        int inicio = competencia(ano, 1);
+        int fim = competencia(ano, 12);
+
+        for (int i = 0; i < tamanho; i++) {
+            if (casa(i, inicio, fim, tipo, statusLancamento)) {
+                destino[competencias[i] - inicio] += centavos[i];
+            }
+        }
+    }
+
+    /**
+     * Acumula em {@code destino[ordinal do tipo]} a soma de cada tipo de lançamento.
+     */
+    public void somarPorTipo(int competenciaInicio, int competenciaFim, int statusLancamento, long[] destino) {
+        for (int i = 0; i < tamanho; i++) {
+            if (casa(i, competenciaInicio, competenciaFim, QUALQUER, statusLancamento)) {
+                destino[tipos[i]] += centavos[i];
+            }
+        }
+    }
+
+    /**
+     * Acumula em {@code destino[ordinal do status]} a soma de cada status de lançamento.
+     */
+    public void somarPorStatus(int competenciaInicio, int competenciaFim, int tipo, long[] destino) {
+        for (int i = 0; i < tamanho; i++) {
+            if (casa(i, competenciaInicio, competenciaFim, tipo, QUALQUER)) {
+                destino[status[i]] += centavos[i];
+            }
+        }
+    }
+
+    private boolean casa(int i, int competenciaInicio, int competenciaFim, int tipo, int statusLancamento) {
+        int competencia = competencias[i];
+
+        return competencia >= competenciaInicio
+                && competencia <= competenciaFim
+                && (tipo == QUALQUER || tipos[i] == tipo)
+                && (statusLancamento == QUALQUER || status[i] == statusLancamento);
+    }
+
+    private void abrirEspaco(int posicao) {
+        if (tamanho == ids.length) {
+            int capacidade = ids.length * 2;
+
+            ids = Arrays.copyOf(ids, capacidade);
+            competencias = Arrays.copyOf(competencias, capacidade);
+            tipos = Arrays.copyOf(tipos, capacidade);
+            status = Arrays.copyOf(status, capacidade);
+            centavos = Arrays.copyOf(centavos, capacidade);
+        }
+
+        int aMover = tamanho - posicao;
+
+        System.arraycopy(ids, posicao, ids, posicao + 1, aMover);
+        System.arraycopy(competencias, posicao, competencias, posicao + 1, aMover);
+        System.arraycopy(tipos, posicao, tipos, posicao + 1, aMover);
+        System.arraycopy(status, posicao, status, posicao + 1, aMover);
+        System.arraycopy(centavos, posicao, centavos, posicao + 1, aMover);
+
+        tamanho++;
+    }
+}
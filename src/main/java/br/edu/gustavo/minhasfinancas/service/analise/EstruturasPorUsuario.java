@@ -0,0 +1,202 @@
+package br.edu.gustavo.minhasfinancas.service.analise;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Uma estrutura em memória por usuário ativo, derivada dos lançamentos dele: as colunas da análise
+ * e o índice de bitmaps usam o mesmo ciclo de vida.
+ *
+ * A estrutura é carregada na primeira consulta do usuário e atualizada pelos eventos de escrita
+ * depois do commit. Uma escrita durante o carregamento invalida o que foi lido: o resultado atende
+ * só a consulta que carregou e a próxima carrega de novo. Escritas em lote descartam a estrutura, e
+ * um lançamento que muda de usuário sai da estrutura do dono anterior. Quando o total ocupado passa
+ * do orçamento de memória, as estruturas são descartadas na ordem do uso menos recente.
+ *
+ * As leituras recebem a {@link Entrada} com a trava de leitura já adquirida e a liberam com
+ * {@link Entrada#liberar()}, sem lambda por consulta.
+ *
+ * @param <T> a estrutura, que não precisa ser thread-safe
+ */
+public class EstruturasPorUsuario<T> {
+
+    private final Function<Long, T> carregador;
+    private final ToLongFunction<T> medidor;
+    private final BiConsumer<T, Lancamento> gravacao;
+    private final ObjLongConsumer<T> remocao;
+    private final long memoriaMaxima;
+
+    private final LinkedHashMap<Long, Entrada<T>> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, AtomicBoolean> carregando = new ConcurrentHashMap<>();
+    private final AtomicLong bytesOcupados = new AtomicLong();
+
+    /**
+     * @param carregador lê do banco a estrutura de um usuário
+     * @param medidor    bytes ocupados por uma estrutura
+     * @param gravacao   insere ou substitui um lançamento na estrutura
+     * @param remocao    tira o lançamento de id informado da estrutura
+     */
+    public EstruturasPorUsuario(Function<Long, T> carregador, ToLongFunction<T> medidor,
+                                BiConsumer<T, Lancamento> gravacao, ObjLongConsumer<T> remocao, long memoriaMaxima) {
+        this.carregador = carregador;
+        this.medidor = medidor;
+        this.gravacao = gravacao;
+        this.remocao = remocao;
+        this.memoriaMaxima = memoriaMaxima;
+    }
+
+    /**
+     * A estrutura do usuário, carregada se preciso, com a trava de leitura adquirida; quem chama
+     * libera com {@link Entrada#liberar()}.
+     */
+    public Entrada<T> ler(Long idUsuario) {
+        Entrada<T> entrada = obter(idUsuario);
+
+        entrada.lock.readLock().lock();
+
+        return entrada;
+    }
+
+    public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+        Long donoAnterior = evento.getAnterior() == null ? null : evento.getAnterior().getIdUsuario();
+
+        if (donoAnterior != null && !donoAnterior.equals(evento.getIdUsuario())) {
+            // O lançamento mudou de usuário: sai da estrutura do dono anterior
+            aplicar(donoAnterior, evento.getLancamento(), LancamentoAlteradoEvent.Operacao.DELETADO);
+        }
+
+        aplicar(evento.getIdUsuario(), evento.getLancamento(), evento.getOperacao());
+    }
+
+    private void aplicar(Long idUsuario, Lancamento lancamento, LancamentoAlteradoEvent.Operacao operacao) {
+        AtomicBoolean carregamentoEmAndamento = carregando.get(idUsuario);
+
+        if (carregamentoEmAndamento != null) {
+            carregamentoEmAndamento.set(true);
+        }
+
+        Entrada<T> entrada;
+
+        synchronized (entradas) {
+            entrada = entradas.get(idUsuario);
+        }
+
+        if (entrada == null) {
+            return;
+        }
+
+        if (operacao == LancamentoAlteradoEvent.Operacao.LOTE) {
+            descartar(idUsuario, entrada);
+            return;
+        }
+
+        entrada.lock.writeLock().lock();
+
+        try {
+            long bytesAntes = medidor.applyAsLong(entrada.estrutura);
+
+            if (operacao == LancamentoAlteradoEvent.Operacao.DELETADO) {
+                remocao.accept(entrada.estrutura, lancamento.getId());
+            } else {
+                gravacao.accept(entrada.estrutura, lancamento);
+            }
+
+            bytesOcupados.addAndGet(medidor.applyAsLong(entrada.estrutura) - bytesAntes);
+        } finally {
+            entrada.lock.writeLock().unlock();
+        }
+    }
+
+    private Entrada<T> obter(Long idUsuario) {
+        synchronized (entradas) {
+            Entrada<T> entrada = entradas.get(idUsuario);
+
+            if (entrada != null) {
+                return entrada;
+            }
+        }
+
+        AtomicBoolean invalidado = new AtomicBoolean();
+        carregando.put(idUsuario, invalidado);
+
+        Entrada<T> carregada;
+
+        try {
+            carregada = new Entrada<>(carregador.apply(idUsuario));
+        } finally {
+            carregando.remove(idUsuario, invalidado);
+        }
+
+        if (invalidado.get()) {
+            return carregada;
+        }
+
+        synchronized (entradas) {
+            Entrada<T> existente = entradas.putIfAbsent(idUsuario, carregada);
+
+            if (existente != null) {
+                return existente;
+            }
+
+            bytesOcupados.addAndGet(medidor.applyAsLong(carregada.estrutura));
+
+            liberarMemoria(idUsuario);
+        }
+
+        return carregada;
+    }
+
+    private void liberarMemoria(Long idUsuarioAtual) {
+        Iterator<Map.Entry<Long, Entrada<T>>> iterator = entradas.entrySet().iterator();
+
+        while (bytesOcupados.get() > memoriaMaxima && iterator.hasNext()) {
+            Map.Entry<Long, Entrada<T>> maisAntiga = iterator.next();
+
+            if (maisAntiga.getKey().equals(idUsuarioAtual)) {
+                continue;
+            }
+
+            iterator.remove();
+            bytesOcupados.addAndGet(-medidor.applyAsLong(maisAntiga.getValue().estrutura));
+        }
+    }
+
+    private void descartar(Long idUsuario, Entrada<T> entrada) {
+        synchronized (entradas) {
+            if (entradas.remove(idUsuario, entrada)) {
+                bytesOcupados.addAndGet(-medidor.applyAsLong(entrada.estrutura));
+            }
+        }
+    }
+
+    public static class Entrada<T> {
+
+        private final T estrutura;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private Entrada(T estrutura) {
+            this.estrutura = estrutura;
+        }
+
+        public T getEstrutura() {
+            return estrutura;
+        }
+
+        public void liberar() {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package br.edu.gustavo.minhasfinancas.service.analise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice de bitmaps sobre os lançamentos de um usuário.
+ *
+ * Cada lançamento recebe uma posição sequencial no índice, e cada valor de ano, mês, tipo, status,
+ * categoria e tag tem um {@link BitSet} com as posições dos lançamentos que o possuem. Como as
+ * posições são densas, os bitmaps ocupam um bit por lançamento do usuário e não precisam de
+ * compressão. Um filtro com vários critérios vira AND entre critérios e OR entre os valores aceitos
+ * de um mesmo critério; só as posições resultantes são convertidas em ids.
+ *
+ * Cada posição guarda também os valores que a colocaram nos bitmaps, então remover ou substituir
+ * um lançamento limpa só os bitmaps dele, sem percorrer os demais. Posições liberadas vão para uma
+ * pilha e são reaproveitadas pelos próximos lançamentos, e os bitmaps de ano, categoria e tag que
+ * ficam vazios saem do índice.
+ *
+ * Não é thread-safe; quem compartilha uma instância entre threads precisa sincronizar o acesso.
+ */
+public class IndiceBitmapLancamentos {
+
+    private static final int BYTES_POR_ENTRADA_DE_ID = 56;
+    private static final int BYTES_POR_POSICAO = Long.BYTES + Integer.BYTES + Byte.BYTES * 3 + 2 * 8;
+
+    private static final String[] SEM_TAGS = new String[0];
+
+    private final Map<Long, Integer> posicoes = new HashMap<>();
+    private long[] ids;
+    private int tamanho;
+
+    private int[] anos;
+    private byte[] meses;
+    private byte[] tipos;
+    private byte[] statusPorPosicao;
+    private Long[] categorias;
+    private String[][] tagsPorPosicao;
+
+    private int[] livres = new int[8];
+    private int quantidadeLivres;
+
+    private final BitSet vivos = new BitSet();
+    private final BitSet[] porTipo;
+    private final BitSet[] porStatus;
+    private final BitSet[] porMes = novosBitmaps(12);
+    private final Map<Integer, BitSet> porAno = new HashMap<>();
+    private final Map<Long, BitSet> porCategoria = new HashMap<>();
+    private final Map<String, BitSet> porTag = new HashMap<>();
+
+    public IndiceBitmapLancamentos(int capacidadeInicial, int quantidadeTipos, int quantidadeStatus) {
+        int capacidade = Math.max(capacidadeInicial, 8);
+
+        ids = new long[capacidade];
+        anos = new int[capacidade];
+        meses = new byte[capacidade];
+        tipos = new byte[capacidade];
+        statusPorPosicao = new byte[capacidade];
+        categorias = new Long[capacidade];
+        tagsPorPosicao = new String[capacidade][];
+        porTipo = novosBitmaps(quantidadeTipos);
+        porStatus = novosBitmaps(quantidadeStatus);
+    }
+
+    public int getTamanho() {
+        return vivos.cardinality();
+    }
+
+    /**
+     * Insere o lançamento ou, se o id já existir, substitui seus valores. Tipo, status e categoria
+     * nulos são informados como -1 ({@link ColunasLancamento#QUALQUER}) e {@code null}.
+     */
+    public void gravar(long id, int ano, int mes, int tipo, int status, Long idCategoria, Set<String> tags) {
+        Integer posicao = posicoes.get(id);
+
+        if (posicao == null) {
+            posicao = novaPosicao();
+            posicoes.put(id, posicao);
+            ids[posicao] = id;
+        } else {
+            limpar(posicao);
+        }
+
+        anos[posicao] = ano;
+        meses[posicao] = (byte) mes;
+        tipos[posicao] = (byte) tipo;
+        statusPorPosicao[posicao] = (byte) status;
+        categorias[posicao] = idCategoria;
+        tagsPorPosicao[posicao] = tags.isEmpty() ? SEM_TAGS : tags.toArray(SEM_TAGS);
+
+        vivos.set(posicao);
+        porAno.computeIfAbsent(ano, chave -> new BitSet()).set(posicao);
+        porMes[mes - 1].set(posicao);
+
+        if (tipo >= 0) {
+            porTipo[tipo].set(posicao);
+        }
+
+        if (status >= 0) {
+            porStatus[status].set(posicao);
+        }
+
+        if (idCategoria != null) {
+            porCategoria.computeIfAbsent(idCategoria, chave -> new BitSet()).set(posicao);
+        }
+
+        for (String tag : tags) {
+            porTag.computeIfAbsent(tag, chave -> new BitSet()).set(posicao);
+        }
+    }
+
+    public void remover(long id) {
+        Integer posicao = posicoes.remove(id);
+
+        if (posicao != null) {
+            limpar(posicao);
+            categorias[posicao] = null;
+            tagsPorPosicao[posicao] = null;
+
+            if (quantidadeLivres == livres.length) {
+                livres = Arrays.copyOf(livres, livres.length * 2);
+            }
+
+            livres[quantidadeLivres++] = posicao;
+        }
+    }
+
+    /**
+     * Posições que atendem a todos os critérios informados; critérios nulos ou vazios são
+     * ignorados, e basta um dos valores de {@code categorias} e um dos de {@code tags}.
+     */
+    public BitSet filtrar(Integer ano, Integer mes, int tipo, int status,
+                          Collection<Long> categorias, Collection<String> tags) {
+        BitSet resultado = (BitSet) vivos.clone();
+
+        if (ano != null) {
+            resultado.and(porAno.getOrDefault(ano, new BitSet()));
+        }
+
+        if (mes != null) {
+            resultado.and(mes >= 1 && mes <= 12 ? porMes[mes - 1] : new BitSet());
+        }
+
+        if (tipo >= 0) {
+            resultado.and(porTipo[tipo]);
+        }
+
+        if (status >= 0) {
+            resultado.and(porStatus[status]);
+        }
+
+        if (categorias != null && !categorias.isEmpty()) {
+            resultado.and(uniao(porCategoria, categorias));
+        }
+
+        if (tags != null && !tags.isEmpty()) {
+            resultado.and(uniao(porTag, tags));
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Ids das posições informadas, na ordem das posições.
+     */
+    public List<Long> ids(BitSet selecao) {
+        List<Long> resultado = new ArrayList<>(selecao.cardinality());
+
+        for (int posicao = selecao.nextSetBit(0); posicao >= 0; posicao = selecao.nextSetBit(posicao + 1)) {
+            resultado.add(ids[posicao]);
+        }
+
+        return resultado;
+    }
+
+    public long bytesOcupados() {
+        long bytes = (long) ids.length * BYTES_POR_POSICAO + (long) posicoes.size() * BYTES_POR_ENTRADA_DE_ID;
+        long bytesPorBitmap = tamanho / Byte.SIZE + Long.BYTES;
+        int bitmaps = 1 + porTipo.length + porStatus.length + porMes.length
+                + porAno.size() + porCategoria.size() + porTag.size();
+
+        return bytes + bitmaps * bytesPorBitmap;
+    }
+
+    private int novaPosicao() {
+        if (quantidadeLivres > 0) {
+            return livres[--quantidadeLivres];
+        }
+
+        if (tamanho == ids.length) {
+            int capacidade = ids.length * 2;
+
+            ids = Arrays.copyOf(ids, capacidade);
+            anos = Arrays.copyOf(anos, capacidade);
+            meses = Arrays.copyOf(meses, capacidade);
+            tipos = Arrays.copyOf(tipos, capacidade);
+            statusPorPosicao = Arrays.copyOf(statusPorPosicao, capacidade);
+            categorias = Arrays.copyOf(categorias, capacidade);
+            tagsPorPosicao = Arrays.copyOf(tagsPorPosicao, capacidade);
+        }
+
+        return tamanho++;
+    }
+
+    /**
+     * Tira a posição só dos bitmaps em que ela foi marcada, pelos valores guardados na gravação.
+     */
+    private void limpar(int posicao) {
+        vivos.clear(posicao);
+        porMes[meses[posicao] - 1].clear(posicao);
+
+        if (tipos[posicao] >= 0) {
+            porTipo[tipos[posicao]].clear(posicao);
+        }
+
+        if (statusPorPosicao[posicao] >= 0) {
+            porStatus[statusPorPosicao[posicao]].clear(posicao);
+        }
+
+        limpar(porAno, anos[posicao], posicao);
+
+        if (categorias[posicao] != null) {
+            limpar(porCategoria, categorias[posicao], posicao);
+        }
+
+        for (String tag : tagsPorPosicao[posicao]) {
+            limpar(porTag, tag, posicao);
+        }
+    }
+
+    private static <T> void limpar(Map<T, BitSet> bitmaps, T valor, int posicao) {
+        BitSet bitmap = bitmaps.get(valor);
+
+        bitmap.clear(posicao);
+
+        if (bitmap.isEmpty()) {
+            bitmaps.remove(valor);
+        }
+    }
+
+    private static <T> BitSet uniao(Map<T, BitSet> bitmaps, Collection<T> valores) {
+        BitSet uniao = new BitSet();
+
+        for (T valor : valores) {
+            BitSet bitmap = bitmaps.get(valor);
+
+            if (bitmap != null) {
+                uniao.or(bitmap);
+            }
+        }
+
+        return uniao;
+    }
+
+    private static BitSet[] novosBitmaps(int quantidade) {
+        BitSet[] bitmaps = new BitSet[quantidade];
+
+        for (int i = 0; i < quantidade; i++) {
+            bitmaps[i] = new BitSet();
+        }
+
+        return bitmaps;
+    }
+}
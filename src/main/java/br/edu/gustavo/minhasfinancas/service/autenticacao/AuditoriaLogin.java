@@ -0,0 +1,138 @@
+package br.edu.gustavo.minhasfinancas.service.autenticacao;
+
+import br.edu.gustavo.minhasfinancas.model.entity.TentativaLogin;
+import br.edu.gustavo.minhasfinancas.model.enums.ResultadoLogin;
+import br.edu.gustavo.minhasfinancas.model.repository.TentativaLoginLoteRepository;
+import br.edu.gustavo.minhasfinancas.model.shard.MapaShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Auditoria das tentativas de login sem E/S no caminho do login: a tentativa entra em uma
+ * {@link FilaCircular} e a thread "auditoria-login" grava até {@code lote} delas por vez, com um
+ * insert em lote. Com a fila vazia a thread dorme {@code intervalo-ms}.
+ *
+ * Se a fila encher (banco fora do ar durante uma rajada, por exemplo) as tentativas excedentes são
+ * descartadas e contadas em {@code minhasfinancas.login.auditoria.descartadas}; o login nunca espera
+ * pela auditoria. Um lote que falha ao gravar é registrado no log e também descartado.
+ */
+@Slf4j
+@Component
+public class AuditoriaLogin {
+
+    private static final int TAMANHO_EMAIL = 255;
+    private static final int TAMANHO_ORIGEM = 64;
+
+    private final TentativaLoginLoteRepository repository;
+    private final boolean habilitada;
+    private final int lote;
+    private final long intervaloNanos;
+    private final FilaCircular<TentativaLogin> fila;
+    private final Counter descartadas;
+
+    private Thread gravador;
+
+    public AuditoriaLogin(
+            TentativaLoginLoteRepository repository,
+            MeterRegistry registry,
+            @Value("${minhasfinancas.login.auditoria.habilitada:true}") boolean habilitada,
+            @Value("${minhasfinancas.login.auditoria.capacidade:10000}") int capacidade,
+            @Value("${minhasfinancas.login.auditoria.lote:500}") int lote,
+            @Value("${minhasfinancas.login.auditoria.intervalo-ms:200}") long intervaloMs
+    ) {
+        this.repository = repository;
+        this.habilitada = habilitada;
+        this.lote = lote;
+        this.intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        this.fila = new FilaCircular<>(capacidade);
+        this.descartadas = Counter.builder("minhasfinancas.login.auditoria.descartadas").register(registry);
+
+        Gauge.builder("minhasfinancas.login.auditoria.pendentes", fila, FilaCircular::tamanho).register(registry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+
+        gravador = new Thread(this::gravar, "auditoria-login");
+        gravador.setDaemon(true);
+        gravador.start();
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        if (gravador == null) {
+            return;
+        }
+
+        gravador.interrupt();
+        gravador.join(TimeUnit.SECONDS.toMillis(5));
+
+        // a fila só admite um consumidor: se o gravador ainda estiver preso em um lote, o resto fica
+        if (gravador.isAlive()) {
+            log.warn("Auditoria de login encerrada com {} tentativas não gravadas", fila.tamanho());
+            return;
+        }
+
+        // o que ficou na fila é gravado na thread do encerramento
+        for (List<TentativaLogin> tentativas = fila.drenar(lote); !tentativas.isEmpty(); tentativas = fila.drenar(lote)) {
+            inserir(tentativas);
+        }
+    }
+
+    public void registrar(String email, String origem, ResultadoLogin resultado) {
+        if (!habilitada) {
+            return;
+        }
+
+        TentativaLogin tentativa = TentativaLogin.builder()
+                .email(truncar(email, TAMANHO_EMAIL))
+                .origem(truncar(origem, TAMANHO_ORIGEM))
+                .bucket(email == null ? null : MapaShards.bucketDoEmail(email))
+                .resultado(resultado)
+                .dataHora(LocalDateTime.now())
+                .build();
+
+        if (!fila.oferecer(tentativa)) {
+            descartadas.increment();
+        }
+    }
+
+    private void gravar() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<TentativaLogin> tentativas = fila.drenar(lote);
+
+            if (tentativas.isEmpty()) {
+                LockSupport.parkNanos(this, intervaloNanos);
+            } else {
+                inserir(tentativas);
+            }
+        }
+    }
+
+    private void inserir(List<TentativaLogin> tentativas) {
+        try {
+            repository.inserir(tentativas);
+        } catch (RuntimeException e) {
+            descartadas.increment(tentativas.size());
+            log.error("Falha ao gravar {} tentativas de login na auditoria", tentativas.size(), e);
+        }
+    }
+
+    private static String truncar(String valor, int tamanho) {
+        return valor == null || valor.length() <= tamanho ? valor : valor.substring(0, tamanho);
+    }
+}
@@ -0,0 +1,81 @@
+package br.edu.gustavo.minhasfinancas.service.autenticacao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fila circular de capacidade fixa para vários produtores e um único consumidor, sem travas.
+ *
+ * Um produtor reserva a próxima posição com um compare-and-set na cauda, só se ainda houver espaço,
+ * e depois publica o elemento na posição. O consumidor lê a partir da cabeça até encontrar uma
+ * posição ainda não publicada, limpa as posições lidas e só então avança a cabeça, liberando-as
+ * para os produtores. Com a fila cheia {@link #oferecer} devolve {@code false} em vez de esperar.
+ */
+class FilaCircular<T> {
+
+    private final AtomicReferenceArray<T> posicoes;
+    private final int capacidade;
+    private final AtomicLong cauda = new AtomicLong();
+    private final AtomicLong cabeca = new AtomicLong();
+
+    FilaCircular(int capacidade) {
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("A capacidade deve ser positiva");
+        }
+
+        this.posicoes = new AtomicReferenceArray<>(capacidade);
+        this.capacidade = capacidade;
+    }
+
+    boolean oferecer(T elemento) {
+        long reservada;
+
+        do {
+            reservada = cauda.get();
+
+            if (reservada - cabeca.get() >= capacidade) {
+                return false;
+            }
+        } while (!cauda.compareAndSet(reservada, reservada + 1));
+
+        posicoes.set(posicao(reservada), elemento);
+
+        return true;
+    }
+
+    /**
+     * Retira até {@code maximo} elementos, na ordem das reservas. Só pode ser chamado por uma
+     * thread de cada vez.
+     */
+    List<T> drenar(int maximo) {
+        long inicio = cabeca.get();
+        List<T> drenados = new ArrayList<>(Math.min(maximo, tamanho()));
+
+        while (drenados.size() < maximo) {
+            int posicao = posicao(inicio + drenados.size());
+            T elemento = posicoes.get(posicao);
+
+            // reservada mas ainda não publicada, ou fila vazia
+            if (elemento == null) {
+                break;
+            }
+
+            posicoes.set(posicao, null);
+            drenados.add(elemento);
+        }
+
+        cabeca.set(inicio + drenados.size());
+
+        return drenados;
+    }
+
+    int tamanho() {
+        return (int) Math.max(0, cauda.get() - cabeca.get());
+    }
+
+    private int posicao(long sequencia) {
+        return (int) (sequencia % capacidade);
+    }
+}
@@ -0,0 +1,308 @@
+package br.edu.gustavo.minhasfinancas.service.autenticacao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Contadores de falhas de login por email e por origem (IP), com espera exponencial.
+ *
+ * Depois de {@code falhas-livres} falhas seguidas de um email (ou {@code falhas-livres-origem} de
+ * uma origem), cada nova falha dobra a espera até a próxima tentativa aceita, de
+ * {@code espera-inicial-ms} até {@code espera-maxima-ms}. Enquanto a espera não passa a tentativa é
+ * recusada sem consultar o banco. Um login bem-sucedido zera o contador do email; o da origem só
+ * zera depois de {@code janela-ms} sem falhas, já que uma origem pode estar testando muitos emails.
+ *
+ * A origem é o endereço remoto da requisição. Atrás de um proxy reverso ele seria o do proxy, e
+ * todos os clientes dividiriam um contador; por isso {@code server.forward-headers-strategy=native}
+ * faz o Tomcat usar o {@code X-Forwarded-For} quando a conexão vem de um proxy interno confiável
+ * ({@code server.tomcat.remoteip.internal-proxies}).
+ *
+ * A tentativa aceita já conta como falha ({@link #reservarTentativa}): a verificação e o registro
+ * são uma única troca atômica ({@code compareAndSet}) do contador, então uma rajada de tentativas
+ * simultâneas não passa inteira pela verificação antes de a primeira falha ser registrada, e nenhuma
+ * tentativa espera por trava. O login bem-sucedido devolve a reserva ({@link #registrarSucesso}).
+ *
+ * Cada contador guarda a quantidade de falhas nos 16 bits altos e o momento da última falha, em
+ * milissegundos, nos 48 baixos. Um contador que sai do mapa é antes marcado como
+ * {@code REMOVIDO}, e quem o encontrar assim busca ou cria outro, de modo que nenhuma falha é
+ * registrada num contador fora do mapa. Com mais de {@code chaves-maximas} contadores de um tipo, a
+ * primeira tentativa que perceber o excesso remove os de falha mais antiga, até sobrarem 90% do
+ * máximo, e as demais seguem sem esperar; encher os contadores não
+ * desliga o limite. Os que não bloqueiam mais são removidos periodicamente.
+ */
+@Component
+public class LimitadorLogin {
+
+    private static final double FRACAO_APOS_REMOCAO = 0.9;
+
+    private static final int BITS_MOMENTO = 48;
+    private static final long MASCARA_MOMENTO = (1L << BITS_MOMENTO) - 1;
+    private static final int FALHAS_MAXIMAS = 0xFFFF;
+
+    /**
+     * Contador já retirado do mapa; como estado seria o máximo de falhas no último milissegundo
+     * representável, que nenhum contador alcança.
+     */
+    private static final long REMOVIDO = -1L;
+
+    private final int falhasLivres;
+    private final int falhasLivresOrigem;
+    private final long esperaInicialMs;
+    private final long esperaMaximaMs;
+    private final long janelaMs;
+    private final LongSupplier relogio;
+
+    private final Contadores porEmail;
+    private final Contadores porOrigem;
+
+    @Autowired
+    public LimitadorLogin(
+            @Value("${minhasfinancas.login.falhas-livres:5}") int falhasLivres,
+            @Value("${minhasfinancas.login.falhas-livres-origem:20}") int falhasLivresOrigem,
+            @Value("${minhasfinancas.login.espera-inicial-ms:1000}") long esperaInicialMs,
+            @Value("${minhasfinancas.login.espera-maxima-ms:900000}") long esperaMaximaMs,
+            @Value("${minhasfinancas.login.janela-ms:900000}") long janelaMs,
+            @Value("${minhasfinancas.login.chaves-maximas:100000}") int chavesMaximas
+    ) {
+        this(falhasLivres, falhasLivresOrigem, esperaInicialMs, esperaMaximaMs, janelaMs, chavesMaximas,
+                System::currentTimeMillis);
+    }
+
+    LimitadorLogin(int falhasLivres, int falhasLivresOrigem, long esperaInicialMs, long esperaMaximaMs,
+                   long janelaMs, int chavesMaximas, LongSupplier relogio) {
+        this.falhasLivres = falhasLivres;
+        this.falhasLivresOrigem = falhasLivresOrigem;
+        this.esperaInicialMs = esperaInicialMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.janelaMs = janelaMs;
+        this.relogio = relogio;
+        this.porEmail = new Contadores(chavesMaximas);
+        this.porOrigem = new Contadores(chavesMaximas);
+    }
+
+    /**
+     * Segundos que faltam para o email e a origem poderem tentar de novo, sem mudar nada; ou zero,
+     * com a tentativa já contada como falha dos dois até {@link #registrarSucesso} ou
+     * {@link #cancelarReserva}.
+     */
+    public long reservarTentativa(String email, String origem) {
+        long agora = relogio.getAsLong();
+        String chaveEmail = chave(email);
+        long liberadoEm = reservar(porEmail, chaveEmail, agora, falhasLivres);
+
+        if (liberadoEm <= agora) {
+            liberadoEm = reservar(porOrigem, chave(origem), agora, falhasLivresOrigem);
+
+            if (liberadoEm > agora) {
+                devolver(porEmail, chaveEmail);
+            }
+        }
+
+        return liberadoEm <= agora ? 0 : TimeUnit.MILLISECONDS.toSeconds(liberadoEm - agora + 999);
+    }
+
+    public void registrarSucesso(String email, String origem) {
+        String chaveEmail = chave(email);
+
+        if (chaveEmail != null) {
+            AtomicLong contador = porEmail.mapa.get(chaveEmail);
+
+            if (contador != null) {
+                contador.set(REMOVIDO);
+                porEmail.mapa.remove(chaveEmail, contador);
+            }
+        }
+
+        devolver(porOrigem, chave(origem));
+    }
+
+    /**
+     * Devolve a reserva de uma tentativa que não chegou a conferir a senha, como numa falha do banco.
+     */
+    public void cancelarReserva(String email, String origem) {
+        devolver(porEmail, chave(email));
+        devolver(porOrigem, chave(origem));
+    }
+
+    @Scheduled(fixedDelayString = "${minhasfinancas.login.limpeza-ms:60000}")
+    public void removerContadoresExpirados() {
+        long agora = relogio.getAsLong();
+
+        removerExpirados(porEmail, agora, falhasLivres);
+        removerExpirados(porOrigem, agora, falhasLivresOrigem);
+    }
+
+    private long reservar(Contadores contadores, String chave, long agora, int livres) {
+        if (chave == null) {
+            return 0;
+        }
+
+        while (true) {
+            AtomicLong contador = contadores.obter(chave);
+            long atual = contador.get();
+
+            if (atual == REMOVIDO) {
+                contadores.mapa.remove(chave, contador);
+                continue;
+            }
+
+            if (liberadoEm(atual, livres) > agora) {
+                return liberadoEm(atual, livres);
+            }
+
+            int falhas = atual == 0 || agora - momento(atual) > janelaMs ? 0 : falhas(atual);
+
+            if (contador.compareAndSet(atual,
+                    (long) Math.min(falhas + 1, FALHAS_MAXIMAS) << BITS_MOMENTO | (agora & MASCARA_MOMENTO))) {
+                if (atual == 0) {
+                    contadores.limitar(chave);
+                }
+
+                return 0;
+            }
+        }
+    }
+
+    private static void devolver(Contadores contadores, String chave) {
+        if (chave == null) {
+            return;
+        }
+
+        AtomicLong contador = contadores.mapa.get(chave);
+
+        if (contador == null) {
+            return;
+        }
+
+        while (true) {
+            long atual = contador.get();
+
+            if (atual == REMOVIDO) {
+                return;
+            }
+
+            if (falhas(atual) <= 1) {
+                if (contador.compareAndSet(atual, REMOVIDO)) {
+                    contadores.mapa.remove(chave, contador);
+                    return;
+                }
+            } else if (contador.compareAndSet(atual, atual - (1L << BITS_MOMENTO))) {
+                return;
+            }
+        }
+    }
+
+    private void removerExpirados(Contadores contadores, long agora, int livres) {
+        contadores.mapa.forEach((chave, contador) -> {
+            long atual = contador.get();
+
+            if (atual != 0 && atual != REMOVIDO && expirado(atual, agora, livres)
+                    && contador.compareAndSet(atual, REMOVIDO)) {
+                contadores.mapa.remove(chave, contador);
+            }
+        });
+    }
+
+    private long liberadoEm(long estado, int livres) {
+        int excedentes = falhas(estado) - livres;
+
+        if (excedentes <= 0) {
+            return 0;
+        }
+
+        long espera = esperaInicialMs << Math.min(excedentes - 1, 30);
+
+        return momento(estado) + Math.min(espera, esperaMaximaMs);
+    }
+
+    private boolean expirado(long estado, long agora, int livres) {
+        return agora - momento(estado) > janelaMs && liberadoEm(estado, livres) <= agora;
+    }
+
+    private static int falhas(long estado) {
+        return (int) (estado >>> BITS_MOMENTO);
+    }
+
+    private static long momento(long estado) {
+        return estado & MASCARA_MOMENTO;
+    }
+
+    private static String chave(String valor) {
+        return valor == null ? null : valor.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Contadores de um tipo. Um contador novo começa em zero até a primeira reserva gravar nele.
+     */
+    private static final class Contadores {
+
+        final ConcurrentHashMap<String, AtomicLong> mapa = new ConcurrentHashMap<>();
+
+        private final int chavesMaximas;
+        private final AtomicBoolean removendo = new AtomicBoolean();
+
+        Contadores(int chavesMaximas) {
+            this.chavesMaximas = Math.max(1, chavesMaximas);
+        }
+
+        AtomicLong obter(String chave) {
+            AtomicLong contador = mapa.get(chave);
+
+            return contador != null ? contador : mapa.computeIfAbsent(chave, c -> new AtomicLong());
+        }
+
+        /**
+         * Acima do máximo, remove os contadores de falha mais antiga, fora o da chave que acabou de
+         * entrar e os que ainda não receberam a primeira reserva. Só uma thread remove por vez; as
+         * outras não esperam por ela.
+         */
+        void limitar(String nova) {
+            if (mapa.size() <= chavesMaximas || !removendo.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                int excedentes = mapa.size() - (int) (chavesMaximas * FRACAO_APOS_REMOCAO);
+                List<Map.Entry<String, Long>> candidatos = new ArrayList<>(mapa.size());
+
+                mapa.forEach((chave, contador) -> {
+                    long estado = contador.get();
+
+                    if (estado != 0 && estado != REMOVIDO && !chave.equals(nova)) {
+                        candidatos.add(Map.entry(chave, estado));
+                    }
+                });
+
+                candidatos.sort(Comparator.comparingLong(candidato -> momento(candidato.getValue())));
+
+                for (Map.Entry<String, Long> candidato : candidatos) {
+                    if (excedentes <= 0) {
+                        break;
+                    }
+
+                    AtomicLong contador = mapa.get(candidato.getKey());
+
+                    if (contador != null && contador.compareAndSet(candidato.getValue(), REMOVIDO)) {
+                        mapa.remove(candidato.getKey(), contador);
+                        excedentes--;
+                    }
+                }
+            } finally {
+                removendo.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package br.edu.gustavo.minhasfinancas.service.busca;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Resultados recentes de {@code buscar}, por usuário e filtro normalizado, limitados pelo tamanho
+ * estimado em memória.
+ *
+ * As entradas ficam em {@value #SEGMENTOS} segmentos, escolhidos pelo usuário, cada um com uma trava,
+ * uma ordem de acesso (LRU) e {@code 1/}{@value #SEGMENTOS} de {@code bytes-maximos}. Ao guardar um
+ * resultado que passa do limite do segmento, os menos usados recentemente saem até caber; um resultado
+ * maior que o segmento inteiro não é guardado. O tamanho de cada resultado é uma estimativa feita ao
+ * guardar, pela quantidade de lançamentos e pelo tamanho dos textos deles.
+ *
+ * Entradas guardam instantâneos somente leitura dos resultados ({@link CopiasBusca}), feitos por quem
+ * guarda, e cada leitura devolve o próprio instantâneo, sem copiar: nenhum chamador consegue alterar
+ * o que outro recebe.
+ *
+ * A invalidação é por usuário: {@link #invalidar} remove todas as entradas dele e nada mais. Quem
+ * guarda informa se o resultado ainda vale ({@code valido}), e a conferência é feita sob a mesma trava
+ * da invalidação, então um resultado lido antes de uma escrita e guardado depois dela não fica no
+ * cache. Escritas feitas por outras instâncias não invalidam nada aqui: nenhuma entrada é servida
+ * depois de {@code validade-ms}, curta por isso, e esse é o atraso máximo para enxergá-las.
+ *
+ * Métricas: {@code minhasfinancas.busca-cache.consultas} (por resultado: acerto ou falta),
+ * {@code minhasfinancas.busca-cache.taxa-acerto}, {@code minhasfinancas.busca-cache.remocoes} (por
+ * motivo: tamanho, validade ou invalidacao), {@code minhasfinancas.busca-cache.entradas} e
+ * {@code minhasfinancas.busca-cache.bytes}.
+ */
+@Component
+public class CacheBuscaLancamentos {
+
+    static final int SEGMENTOS = 16;
+
+    private static final long PESO_LISTA = 40;
+    private static final long PESO_REFERENCIA = 8;
+    private static final long PESO_LANCAMENTO = 360;
+    private static final long PESO_TAG = 64;
+    private static final long PESO_USUARIO = 40;
+    private static final long PESO_CATEGORIA = 32;
+    private static final long PESO_MAPA = 64;
+    private static final long PESO_PROPRIEDADE = 48;
+    private static final long PESO_TEXTO = 40;
+    private static final long PESO_VALOR = 24;
+
+    private final boolean habilitado;
+    private final long bytesPorSegmento;
+    private final long validadeMs;
+    private final LongSupplier relogio;
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong quantidade = new AtomicLong();
+
+    private final Counter acertos;
+    private final Counter faltas;
+    private final Counter removidasPorTamanho;
+    private final Counter removidasPorValidade;
+    private final Counter removidasPorInvalidacao;
+
+    @Autowired
+    public CacheBuscaLancamentos(
+            MeterRegistry registry,
+            @Value("${minhasfinancas.busca-cache.habilitado:true}") boolean habilitado,
+            @Value("${minhasfinancas.busca-cache.bytes-maximos:67108864}") long bytesMaximos,
+            @Value("${minhasfinancas.busca-cache.validade-ms:5000}") long validadeMs
+    ) {
+        this(registry, habilitado, bytesMaximos, validadeMs, System::currentTimeMillis);
+    }
+
+    CacheBuscaLancamentos(MeterRegistry registry, boolean habilitado, long bytesMaximos, long validadeMs,
+                          LongSupplier relogio) {
+        this.habilitado = habilitado;
+        this.bytesPorSegmento = bytesMaximos / SEGMENTOS;
+        this.validadeMs = validadeMs;
+        this.relogio = relogio;
+
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento();
+        }
+
+        this.acertos = consultas(registry, "acerto");
+        this.faltas = consultas(registry, "falta");
+        this.removidasPorTamanho = remocoes(registry, "tamanho");
+        this.removidasPorValidade = remocoes(registry, "validade");
+        this.removidasPorInvalidacao = remocoes(registry, "invalidacao");
+
+        Gauge.builder("minhasfinancas.busca-cache.taxa-acerto", this, CacheBuscaLancamentos::taxaAcerto)
+                .register(registry);
+        Gauge.builder("minhasfinancas.busca-cache.entradas", quantidade, AtomicLong::get).register(registry);
+        Gauge.builder("minhasfinancas.busca-cache.bytes", bytes, AtomicLong::get)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * O instantâneo guardado para o usuário e o filtro, ou {@code null}.
+     */
+    public Object obter(Long idUsuario, List<Object> filtro) {
+        if (!habilitado) {
+            return null;
+        }
+
+        Segmento segmento = segmento(idUsuario);
+        Chave chave = new Chave(idUsuario, filtro);
+        long agora = relogio.getAsLong();
+
+        synchronized (segmento) {
+            Entrada entrada = segmento.entradas.get(chave);
+
+            if (entrada != null && agora - entrada.guardadaEm >= validadeMs) {
+                segmento.remover(chave);
+                removidasPorValidade.increment();
+                entrada = null;
+            }
+
+            if (entrada == null) {
+                faltas.increment();
+                return null;
+            }
+
+            acertos.increment();
+            return entrada.resultado;
+        }
+    }
+
+    /**
+     * Guarda o instantâneo somente leitura de um resultado ({@link CopiasBusca}) se {@code valido}
+     * ainda devolver {@code true} sob a trava do segmento.
+     */
+    public void guardar(Long idUsuario, List<Object> filtro, Object instantaneo, BooleanSupplier valido) {
+        if (!habilitado) {
+            return;
+        }
+
+        long peso = peso(instantaneo);
+
+        if (peso > bytesPorSegmento) {
+            return;
+        }
+
+        Segmento segmento = segmento(idUsuario);
+        Chave chave = new Chave(idUsuario, filtro);
+
+        synchronized (segmento) {
+            if (!valido.getAsBoolean()) {
+                return;
+            }
+
+            segmento.remover(chave);
+            segmento.adicionar(chave, new Entrada(instantaneo, peso, relogio.getAsLong()));
+
+            Iterator<Map.Entry<Chave, Entrada>> antigas = segmento.entradas.entrySet().iterator();
+
+            while (segmento.bytes > bytesPorSegmento && antigas.hasNext()) {
+                Map.Entry<Chave, Entrada> antiga = antigas.next();
+                antigas.remove();
+                segmento.desindexar(antiga.getKey());
+                segmento.descontar(antiga.getValue());
+                removidasPorTamanho.increment();
+            }
+        }
+    }
+
+    public void invalidar(Long idUsuario) {
+        Segmento segmento = segmento(idUsuario);
+
+        synchronized (segmento) {
+            Set<Chave> chaves = segmento.porUsuario.remove(idUsuario);
+
+            if (chaves == null) {
+                return;
+            }
+
+            for (Chave chave : chaves) {
+                Entrada entrada = segmento.entradas.remove(chave);
+                segmento.descontar(entrada);
+            }
+
+            removidasPorInvalidacao.increment(chaves.size());
+        }
+    }
+
+    double taxaAcerto() {
+        double total = acertos.count() + faltas.count();
+
+        return total == 0 ? 0 : acertos.count() / total;
+    }
+
+    /**
+     * Estimativa dos bytes ocupados por um resultado de {@code buscar}: a lista de lançamentos ou a
+     * lista de mapas da busca por campos. Usuários e categorias entram uma vez por instância, já que
+     * os lançamentos do resultado dividem as mesmas.
+     */
+    static long peso(Object valor) {
+        return peso(valor, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static long peso(Object valor, Set<Object> contados) {
+        if (valor instanceof Collection) {
+            long peso = PESO_LISTA;
+
+            for (Object elemento : (Collection<?>) valor) {
+                peso += PESO_REFERENCIA + peso(elemento, contados);
+            }
+
+            return peso;
+        }
+
+        if (valor instanceof Lancamento) {
+            Lancamento lancamento = (Lancamento) valor;
+
+            return PESO_LANCAMENTO
+                    + peso(lancamento.getDescricao(), contados)
+                    + (lancamento.getTags() == null ? 0 : lancamento.getTags().size() * PESO_TAG)
+                    + peso(lancamento.getUsuario(), contados)
+                    + peso(lancamento.getCategoria(), contados);
+        }
+
+        if ((valor instanceof Usuario || valor instanceof Categoria) && !contados.add(valor)) {
+            return 0;
+        }
+
+        if (valor instanceof Usuario) {
+            Usuario usuario = (Usuario) valor;
+
+            return PESO_USUARIO + peso(usuario.getNome(), contados) + peso(usuario.getEmail(), contados);
+        }
+
+        if (valor instanceof Categoria) {
+            Categoria categoria = (Categoria) valor;
+
+            return PESO_CATEGORIA + peso(categoria.getNome(), contados) + peso(categoria.getUsuario(), contados);
+        }
+
+        if (valor instanceof Map) {
+            long peso = PESO_MAPA;
+
+            for (Map.Entry<?, ?> propriedade : ((Map<?, ?>) valor).entrySet()) {
+                peso += PESO_PROPRIEDADE + peso(propriedade.getValue(), contados);
+            }
+
+            return peso;
+        }
+
+        if (valor instanceof CharSequence) {
+            return PESO_TEXTO + 2L * ((CharSequence) valor).length();
+        }
+
+        return valor == null ? 0 : PESO_VALOR;
+    }
+
+    private Segmento segmento(Long idUsuario) {
+        return segmentos[Math.floorMod(Long.hashCode(idUsuario), SEGMENTOS)];
+    }
+
+    private static Counter consultas(MeterRegistry registry, String resultado) {
+        return Counter.builder("minhasfinancas.busca-cache.consultas")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    private static Counter remocoes(MeterRegistry registry, String motivo) {
+        return Counter.builder("minhasfinancas.busca-cache.remocoes")
+                .tag("motivo", motivo)
+                .register(registry);
+    }
+
+    @Data
+    private static class Chave {
+
+        private final Long idUsuario;
+        private final List<Object> filtro;
+    }
+
+    private static final class Entrada {
+
+        private final Object resultado;
+        private final long peso;
+        private final long guardadaEm;
+
+        Entrada(Object resultado, long peso, long guardadaEm) {
+            this.resultado = resultado;
+            this.peso = peso;
+            this.guardadaEm = guardadaEm;
+        }
+    }
+
+    /**
+     * Só é acessado sob a trava do próprio segmento.
+     */
+    private final class Segmento {
+
+        private final LinkedHashMap<Chave, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<Long, Set<Chave>> porUsuario = new HashMap<>();
+        private long bytes;
+
+        void adicionar(Chave chave, Entrada entrada) {
+            entradas.put(chave, entrada);
+            porUsuario.computeIfAbsent(chave.getIdUsuario(), id -> new HashSet<>()).add(chave);
+            this.bytes += entrada.peso;
+            CacheBuscaLancamentos.this.bytes.addAndGet(entrada.peso);
+            quantidade.incrementAndGet();
+        }
+
+        void remover(Chave chave) {
+            Entrada entrada = entradas.remove(chave);
+
+            if (entrada != null) {
+                desindexar(chave);
+                descontar(entrada);
+            }
+        }
+
+        void desindexar(Chave chave) {
+            Set<Chave> chaves = porUsuario.get(chave.getIdUsuario());
+
+            if (chaves != null && chaves.remove(chave) && chaves.isEmpty()) {
+                porUsuario.remove(chave.getIdUsuario());
+            }
+        }
+
+        void descontar(Entrada entrada) {
+            this.bytes -= entrada.peso;
+            CacheBuscaLancamentos.this.bytes.addAndGet(-entrada.peso);
+            quantidade.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package br.edu.gustavo.minhasfinancas.service.busca;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.entity.EstadoLancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Instantâneos somente leitura de resultados de busca, para os resultados compartilhados entre
+ * chamadores (coalescência e {@link CacheBuscaLancamentos}). O instantâneo é feito uma vez, a partir
+ * do resultado de quem executou a consulta, e entregue como está a todos os outros: listas, mapas e
+ * tags não podem ser alterados, e os setters de lançamentos, usuários e categorias lançam
+ * {@link UnsupportedOperationException}. Assim ninguém altera o que outro recebe, sem uma cópia por
+ * chamador.
+ *
+ * Dentro de um instantâneo, os lançamentos do mesmo usuário ou da mesma categoria dividem uma única
+ * cópia dele, como na sessão que os leu. A cópia do usuário não traz a senha, que a busca não devolve.
+ */
+public final class CopiasBusca {
+
+    private CopiasBusca() {
+    }
+
+    public static List<Lancamento> lancamentos(List<Lancamento> lancamentos) {
+        List<Lancamento> copia = new ArrayList<>(lancamentos.size());
+        Map<Long, Usuario> usuarios = new HashMap<>();
+        Map<Long, Categoria> categorias = new HashMap<>();
+
+        for (Lancamento lancamento : lancamentos) {
+            copia.add(new LancamentoSomenteLeitura(lancamento, usuario(lancamento.getUsuario(), usuarios),
+                    categoria(lancamento.getCategoria(), usuarios, categorias)));
+        }
+
+        return Collections.unmodifiableList(copia);
+    }
+
+    public static List<Map<String, Object>> campos(List<Map<String, Object>> lancamentos) {
+        List<Map<String, Object>> copia = new ArrayList<>(lancamentos.size());
+
+        for (Map<String, Object> lancamento : lancamentos) {
+            copia.add(mapa(lancamento));
+        }
+
+        return Collections.unmodifiableList(copia);
+    }
+
+    private static Usuario usuario(Usuario usuario, Map<Long, Usuario> usuarios) {
+        if (usuario == null) {
+            return null;
+        }
+
+        if (usuario.getId() == null) {
+            return new UsuarioSomenteLeitura(usuario);
+        }
+
+        return usuarios.computeIfAbsent(usuario.getId(), id -> new UsuarioSomenteLeitura(usuario));
+    }
+
+    private static Categoria categoria(Categoria categoria, Map<Long, Usuario> usuarios,
+                                       Map<Long, Categoria> categorias) {
+        if (categoria == null) {
+            return null;
+        }
+
+        if (categoria.getId() == null) {
+            return new CategoriaSomenteLeitura(categoria, usuario(categoria.getUsuario(), usuarios));
+        }
+
+        return categorias.computeIfAbsent(categoria.getId(),
+                id -> new CategoriaSomenteLeitura(categoria, usuario(categoria.getUsuario(), usuarios)));
+    }
+
+    /**
+     * Os valores de {@code CamposLancamento} são escalares imutáveis, mapas (usuário e categoria) ou
+     * conjuntos de tags.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> mapa(Map<String, Object> mapa) {
+        Map<String, Object> copia = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Object> entrada : mapa.entrySet()) {
+            Object valor = entrada.getValue();
+
+            if (valor instanceof Map) {
+                valor = mapa((Map<String, Object>) valor);
+            } else if (valor instanceof Set) {
+                valor = Collections.unmodifiableSet(new TreeSet<>((Set<String>) valor));
+            }
+
+            copia.put(entrada.getKey(), valor);
+        }
+
+        return Collections.unmodifiableMap(copia);
+    }
+
+    private static UnsupportedOperationException somenteLeitura() {
+        return new UnsupportedOperationException("Resultado de busca compartilhado é somente leitura");
+    }
+
+    private static final class LancamentoSomenteLeitura extends Lancamento {
+
+        LancamentoSomenteLeitura(Lancamento lancamento, Usuario usuario, Categoria categoria) {
+            super.setId(lancamento.getId());
+            super.setDescricao(lancamento.getDescricao());
+            super.setMes(lancamento.getMes());
+            super.setAno(lancamento.getAno());
+            super.setUsuario(usuario);
+            super.setValor(lancamento.getValor());
+            super.setDataCadastro(lancamento.getDataCadastro());
+            super.setTipo(lancamento.getTipo());
+            super.setStatus(lancamento.getStatus());
+            super.setIdRecorrencia(lancamento.getIdRecorrencia());
+            super.setParcela(lancamento.getParcela());
+            super.setHashImportacao(lancamento.getHashImportacao());
+            super.setCategoria(categoria);
+            super.setTags(lancamento.getTags() == null ? null
+                    : Collections.unmodifiableSet(new HashSet<>(lancamento.getTags())));
+            super.setEstadoPersistido(lancamento.getEstadoPersistido());
+        }
+
+        @Override
+        public void setId(Long id) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setDescricao(String descricao) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setMes(Integer mes) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setAno(Integer ano) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setUsuario(Usuario usuario) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setValor(BigDecimal valor) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setDataCadastro(LocalDate dataCadastro) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setTipo(TipoLancamento tipo) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setStatus(StatusLancamento status) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setIdRecorrencia(Long idRecorrencia) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setParcela(Integer parcela) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setHashImportacao(String hashImportacao) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setCategoria(Categoria categoria) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setTags(Set<String> tags) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setEstadoPersistido(EstadoLancamento estadoPersistido) {
+            throw somenteLeitura();
+        }
+    }
+
+    private static final class UsuarioSomenteLeitura extends Usuario {
+
+        UsuarioSomenteLeitura(Usuario usuario) {
+            super.setId(usuario.getId());
+            super.setNome(usuario.getNome());
+            super.setEmail(usuario.getEmail());
+        }
+
+        @Override
+        public void setId(Long id) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setNome(String nome) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setEmail(String email) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setSenha(String senha) {
+            throw somenteLeitura();
+        }
+    }
+
+    private static final class CategoriaSomenteLeitura extends Categoria {
+
+        CategoriaSomenteLeitura(Categoria categoria, Usuario usuario) {
+            super.setId(categoria.getId());
+            super.setNome(categoria.getNome());
+            super.setUsuario(usuario);
+        }
+
+        @Override
+        public void setId(Long id) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setNome(String nome) {
+            throw somenteLeitura();
+        }
+
+        @Override
+        public void setUsuario(Usuario usuario) {
+            throw somenteLeitura();
+        }
+    }
+}
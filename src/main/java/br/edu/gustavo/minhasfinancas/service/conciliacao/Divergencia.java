@@ -0,0 +1,16 @@
+package br.edu.gustavo.minhasfinancas.service.conciliacao;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Saldo guardado de um usuário que não bate com o recalculado a partir dos lançamentos.
+ */
+@Value
+public class Divergencia {
+
+    Long idUsuario;
+    BigDecimal servido;
+    BigDecimal calculado;
+}
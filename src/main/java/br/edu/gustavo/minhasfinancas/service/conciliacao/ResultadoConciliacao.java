@@ -0,0 +1,21 @@
+package br.edu.gustavo.minhasfinancas.service.conciliacao;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Resumo de uma conciliação. {@code divergencias} traz no máximo as primeiras 100; o total está em
+ * {@code quantidadeDivergencias}. {@code corrigidas} indica se os saldos divergentes foram
+ * descartados do cache.
+ */
+@Value
+public class ResultadoConciliacao {
+
+    int usuariosConciliados;
+    int faixas;
+    int quantidadeDivergencias;
+    List<Divergencia> divergencias;
+    boolean corrigidas;
+    long duracaoMs;
+}
@@ -0,0 +1,25 @@
+package br.edu.gustavo.minhasfinancas.service.dashboard;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.service.saldo.SaldoObtido;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tela inicial de um usuário: o saldo, os lançamentos mais recentes do mês (no máximo
+ * {@code lancamentos-maximos}, do mais novo para o mais antigo) e quantos lançamentos o mês tem em
+ * cada status. {@code quantidadeNoMes} é o total do mês, mesmo quando a lista vem cortada.
+ */
+@Value
+public class Dashboard {
+
+    SaldoObtido saldo;
+    int ano;
+    int mes;
+    List<Lancamento> lancamentos;
+    long quantidadeNoMes;
+    Map<StatusLancamento, Long> quantidadePorStatus;
+}
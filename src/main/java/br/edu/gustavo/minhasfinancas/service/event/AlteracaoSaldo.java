@@ -0,0 +1,18 @@
+package br.edu.gustavo.minhasfinancas.service.event;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Conteúdo do evento enviado aos assinantes de um usuário. Quando {@code recarregar} é verdadeiro
+ * os ids não cabem no evento (ou a escrita foi em lote) e o cliente deve refazer a busca.
+ */
+@Value
+public class AlteracaoSaldo {
+
+    BigDecimal saldo;
+    List<Long> lancamentos;
+    boolean recarregar;
+}
@@ -0,0 +1,45 @@
+package br.edu.gustavo.minhasfinancas.service.event;
+
+import br.edu.gustavo.minhasfinancas.model.entity.EstadoLancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Publicado pelo {@code LancamentoService} a cada escrita, para que caches e índices derivados
+ * dos lançamentos de um usuário possam se atualizar.
+ *
+ * Em escritas em lote ({@link Operacao#LOTE}) não há um lançamento específico: quem escuta deve
+ * descartar o que tiver guardado para o usuário.
+ *
+ * Em atualizações e remoções, {@code anterior} traz os valores que o lançamento tinha no banco
+ * antes da escrita, quando conhecidos.
+ */
+@Getter
+@AllArgsConstructor
+public class LancamentoAlteradoEvent {
+
+    public enum Operacao {
+        SALVO,
+        ATUALIZADO,
+        DELETADO,
+        LOTE
+    }
+
+    private final Long idUsuario;
+    private final Lancamento lancamento;
+    private final Operacao operacao;
+    private final EstadoLancamento anterior;
+
+    public static LancamentoAlteradoEvent de(Lancamento lancamento, Operacao operacao) {
+        return de(lancamento, operacao, null);
+    }
+
+    public static LancamentoAlteradoEvent de(Lancamento lancamento, Operacao operacao, EstadoLancamento anterior) {
+        return new LancamentoAlteradoEvent(lancamento.getUsuario().getId(), lancamento, operacao, anterior);
+    }
+
+    public static LancamentoAlteradoEvent lote(Long idUsuario) {
+        return new LancamentoAlteradoEvent(idUsuario, null, Operacao.LOTE, null);
+    }
+}
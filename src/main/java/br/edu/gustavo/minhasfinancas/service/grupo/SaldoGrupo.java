@@ -0,0 +1,19 @@
+package br.edu.gustavo.minhasfinancas.service.grupo;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Saldo combinado do grupo e o de cada membro, ordenados por id do usuário.
+ */
+@Value
+public class SaldoGrupo {
+
+    Long idGrupo;
+    BigDecimal receitas;
+    BigDecimal despesas;
+    BigDecimal saldo;
+    List<SaldoMembro> membros;
+}
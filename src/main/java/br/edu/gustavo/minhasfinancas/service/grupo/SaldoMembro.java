@@ -0,0 +1,17 @@
+package br.edu.gustavo.minhasfinancas.service.grupo;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Receitas e despesas efetivadas de um membro do grupo, incluindo os lançamentos arquivados.
+ */
+@Value
+public class SaldoMembro {
+
+    Long idUsuario;
+    BigDecimal receitas;
+    BigDecimal despesas;
+    BigDecimal saldo;
+}
@@ -0,0 +1,20 @@
+package br.edu.gustavo.minhasfinancas.service.grupo;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Totais de um mês do grupo. Membros sem lançamentos efetivados no mês não aparecem.
+ */
+@Value
+public class SaldoMensalGrupo {
+
+    Integer ano;
+    Integer mes;
+    BigDecimal receitas;
+    BigDecimal despesas;
+    BigDecimal saldo;
+    List<SaldoMembro> membros;
+}
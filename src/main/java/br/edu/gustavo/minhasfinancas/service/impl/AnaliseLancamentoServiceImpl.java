@@ -0,0 +1,166 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.SegmentoLancamentos;
+import br.edu.gustavo.minhasfinancas.service.AnaliseLancamentoService;
+import br.edu.gustavo.minhasfinancas.service.analise.ColunasLancamento;
+import br.edu.gustavo.minhasfinancas.service.analise.EstruturasPorUsuario;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Mantém um {@link ColunasLancamento} por usuário ativo, com o ciclo de vida de
+ * {@link EstruturasPorUsuario}: carregado na primeira consulta, atualizado pelos eventos de escrita
+ * depois do commit e descartado pelo uso menos recente quando passa do orçamento de memória.
+ */
+@Service
+@ConditionalOnProperty(name = "minhasfinancas.analise.habilitada", havingValue = "true")
+public class AnaliseLancamentoServiceImpl implements AnaliseLancamentoService {
+
+    private final LancamentoRepository repository;
+    private final LancamentoArquivoRepository arquivoRepository;
+    private final EstruturasPorUsuario<ColunasLancamento> colunas;
+
+    public AnaliseLancamentoServiceImpl(
+            LancamentoRepository repository,
+            LancamentoArquivoRepository arquivoRepository,
+            @Value("${minhasfinancas.analise.memoria-maxima-bytes:67108864}") long memoriaMaxima
+    ) {
+        this.repository = repository;
+        this.arquivoRepository = arquivoRepository;
+        this.colunas = new EstruturasPorUsuario<>(this::carregar, ColunasLancamento::bytesOcupados,
+                AnaliseLancamentoServiceImpl::gravar, ColunasLancamento::remover, memoriaMaxima);
+    }
+
+    @Override
+    public long somar(Long idUsuario, YearMonth inicio, YearMonth fim, TipoLancamento tipo, StatusLancamento status) {
+        EstruturasPorUsuario.Entrada<ColunasLancamento> entrada = colunas.ler(idUsuario);
+
+        try {
+            return entrada.getEstrutura().somar(competencia(inicio, Integer.MIN_VALUE),
+                    competencia(fim, Integer.MAX_VALUE), ordinal(tipo), ordinal(status));
+        } finally {
+            entrada.liberar();
+        }
+    }
+
+    @Override
+    public int contar(Long idUsuario, YearMonth inicio, YearMonth fim, TipoLancamento tipo, StatusLancamento status) {
+        EstruturasPorUsuario.Entrada<ColunasLancamento> entrada = colunas.ler(idUsuario);
+
+        try {
+            return entrada.getEstrutura().contar(competencia(inicio, Integer.MIN_VALUE),
+                    competencia(fim, Integer.MAX_VALUE), ordinal(tipo), ordinal(status));
+        } finally {
+            entrada.liberar();
+        }
+    }
+
+    @Override
+    public void somarPorMes(Long idUsuario, int ano, TipoLancamento tipo, StatusLancamento status, long[] destino) {
+        EstruturasPorUsuario.Entrada<ColunasLancamento> entrada = colunas.ler(idUsuario);
+
+        try {
+            entrada.getEstrutura().somarPorMes(ano, ordinal(tipo), ordinal(status), destino);
+        } finally {
+            entrada.liberar();
+        }
+    }
+
+    @Override
+    public void somarPorTipo(Long idUsuario, YearMonth inicio, YearMonth fim, StatusLancamento status, long[] destino) {
+        EstruturasPorUsuario.Entrada<ColunasLancamento> entrada = colunas.ler(idUsuario);
+
+        try {
+            entrada.getEstrutura().somarPorTipo(competencia(inicio, Integer.MIN_VALUE),
+                    competencia(fim, Integer.MAX_VALUE), ordinal(status), destino);
+        } finally {
+            entrada.liberar();
+        }
+    }
+
+    @Override
+    public void somarPorStatus(Long idUsuario, YearMonth inicio, YearMonth fim, TipoLancamento tipo, long[] destino) {
+        EstruturasPorUsuario.Entrada<ColunasLancamento> entrada = colunas.ler(idUsuario);
+
+        try {
+            entrada.getEstrutura().somarPorStatus(competencia(inicio, Integer.MIN_VALUE),
+                    competencia(fim, Integer.MAX_VALUE), ordinal(tipo), destino);
+        } finally {
+            entrada.liberar();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+        colunas.aoAlterarLancamento(evento);
+    }
+
+    private ColunasLancamento carregar(Long idUsuario) {
+        List<Object[]> linhas = repository.obterColunasPorUsuario(idUsuario);
+        List<SegmentoLancamentos> segmentos = arquivoRepository.segmentos(idUsuario);
+        ColunasLancamento colunas = new ColunasLancamento(
+                linhas.size() + segmentos.stream().mapToInt(SegmentoLancamentos::getTamanho).sum());
+
+        for (SegmentoLancamentos segmento : segmentos) {
+            for (int linha = 0; linha < segmento.getTamanho(); linha++) {
+                if (segmento.getTipo(linha) < 0 || segmento.getStatus(linha) < 0) {
+                    continue;
+                }
+
+                colunas.gravar(
+                        segmento.getId(linha),
+                        ColunasLancamento.competencia(segmento.getAno(), segmento.getMes(linha)),
+                        segmento.getTipo(linha),
+                        segmento.getStatus(linha),
+                        segmento.getCentavos(linha)
+                );
+            }
+        }
+
+        for (Object[] linha : linhas) {
+            if (linha[3] == null || linha[4] == null || linha[5] == null) {
+                continue;
+            }
+
+            colunas.gravar(
+                    (Long) linha[0],
+                    ColunasLancamento.competencia((Integer) linha[1], (Integer) linha[2]),
+                    ((TipoLancamento) linha[3]).ordinal(),
+                    ((StatusLancamento) linha[4]).ordinal(),
+                    ColunasLancamento.paraCentavos((BigDecimal) linha[5])
+            );
+        }
+
+        return colunas;
+    }
+
+    private static void gravar(ColunasLancamento colunas, Lancamento lancamento) {
+        colunas.gravar(
+                lancamento.getId(),
+                ColunasLancamento.competencia(lancamento.getAno(), lancamento.getMes()),
+                lancamento.getTipo().ordinal(),
+                lancamento.getStatus().ordinal(),
+                ColunasLancamento.paraCentavos(lancamento.getValor())
+        );
+    }
+
+    private static int competencia(YearMonth anoMes, int padrao) {
+        return anoMes == null ? padrao : ColunasLancamento.competencia(anoMes.getYear(), anoMes.getMonthValue());
+    }
+
+    private static int ordinal(Enum<?> valor) {
+        return valor == null ? ColunasLancamento.QUALQUER : valor.ordinal();
+    }
+}
@@ -0,0 +1,132 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.shard.ContextoShard;
+import br.edu.gustavo.minhasfinancas.service.ArquivamentoService;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Year;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Move os lançamentos de anos encerrados do banco para o {@link LancamentoArquivoRepository}.
+ *
+ * Cada usuário e ano é arquivado em uma transação: as linhas são lidas com lock, gravadas no
+ * arquivo do ano e removidas da tabela. Se a transação não for confirmada o arquivo volta à versão
+ * anterior. Lançamentos incluídos depois em um ano já arquivado ficam no banco até a próxima
+ * execução, que os junta ao arquivo existente.
+ *
+ * Até o commit, ou para sempre se o processo cair antes dele, as linhas ficam nos dois lugares;
+ * buscas e somas usam a versão do banco no lugar da arquivada com o mesmo id, e a próxima execução
+ * as remove do banco.
+ */
+@Slf4j
+@Service
+public class ArquivamentoServiceImpl implements ArquivamentoService {
+
+    private static final int IDS_POR_DELETE = 1000;
+
+    private final LancamentoRepository repository;
+    private final LancamentoArquivoRepository arquivoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean habilitado;
+    private final int anosNoBanco;
+
+    public ArquivamentoServiceImpl(
+            LancamentoRepository repository,
+            LancamentoArquivoRepository arquivoRepository,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${minhasfinancas.arquivamento.habilitado:false}") boolean habilitado,
+            @Value("${minhasfinancas.arquivamento.anos-no-banco:2}") int anosNoBanco
+    ) {
+        this.repository = repository;
+        this.arquivoRepository = arquivoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.habilitado = habilitado;
+        this.anosNoBanco = anosNoBanco;
+    }
+
+    /**
+     * Arquiva, para todos os usuários, os anos anteriores aos {@code anos-no-banco} mais recentes.
+     * Uma falha em um usuário e ano é registrada e não interrompe os demais. Com sharding percorre
+     * um shard de cada vez.
+     */
+    @Override
+    @Scheduled(cron = "${minhasfinancas.arquivamento.cron:0 30 4 * * *}")
+    public int arquivarAnosEncerrados() {
+        if (!habilitado) {
+            return 0;
+        }
+
+        return ContextoShard.somarEmCadaShard(this::arquivarAnosEncerradosNoShard);
+    }
+
+    private int arquivarAnosEncerradosNoShard() {
+        int anoLimite = Year.now().getValue() - anosNoBanco;
+        int total = 0;
+
+        for (Object[] usuarioEAno : repository.obterUsuariosEAnosAte(anoLimite)) {
+            Long idUsuario = (Long) usuarioEAno[0];
+            Integer ano = (Integer) usuarioEAno[1];
+
+            try {
+                total += arquivar(idUsuario, ano);
+            } catch (RuntimeException e) {
+                log.error("Falha ao arquivar os lançamentos de {} do usuário {}", ano, idUsuario, e);
+            }
+        }
+
+        log.info("Arquivamento: {} lançamentos de anos até {} movidos para o arquivo", total, anoLimite);
+
+        return total;
+    }
+
+    @Override
+    public int arquivar(Long idUsuario, Integer ano) {
+        return transactionTemplate.execute(status -> {
+            List<Lancamento> lancamentos = repository.obterParaArquivamento(idUsuario, ano);
+
+            if (lancamentos.isEmpty()) {
+                return 0;
+            }
+
+            arquivoRepository.gravar(idUsuario, ano, lancamentos);
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int situacao) {
+                    if (situacao == STATUS_COMMITTED) {
+                        arquivoRepository.confirmar(idUsuario, ano);
+                    } else {
+                        arquivoRepository.desfazer(idUsuario, ano);
+                    }
+                }
+            });
+
+            List<Long> ids = lancamentos.stream().map(Lancamento::getId).collect(Collectors.toList());
+
+            for (int inicio = 0; inicio < ids.size(); inicio += IDS_POR_DELETE) {
+                repository.deletarPorIds(ids.subList(inicio, Math.min(inicio + IDS_POR_DELETE, ids.size())));
+            }
+
+            eventPublisher.publishEvent(LancamentoAlteradoEvent.lote(idUsuario));
+
+            return lancamentos.size();
+        });
+    }
+}
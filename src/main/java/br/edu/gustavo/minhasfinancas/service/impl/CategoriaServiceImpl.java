@@ -0,0 +1,56 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.repository.CategoriaRepository;
+import br.edu.gustavo.minhasfinancas.service.CategoriaService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class CategoriaServiceImpl implements CategoriaService {
+
+    private CategoriaRepository repository;
+
+    public CategoriaServiceImpl(CategoriaRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    @Transactional
+    public Categoria salvar(Categoria categoria) {
+        validar(categoria);
+
+        categoria.setNome(categoria.getNome().trim());
+
+        return repository.save(categoria);
+    }
+
+    @Override
+    public void validar(Categoria categoria) {
+        if (categoria.getNome() == null || categoria.getNome().trim().equals("") || categoria.getNome().trim().length() > 50) {
+            throw new RegraNegocioException("Informe um Nome válido");
+        }
+
+        if (categoria.getUsuario() == null || categoria.getUsuario().getId() == null) {
+            throw new RegraNegocioException("Informe um Usuário");
+        }
+
+        if (repository.existsByUsuarioIdAndNomeIgnoreCase(categoria.getUsuario().getId(), categoria.getNome().trim())) {
+            throw new RegraNegocioException("Já existe uma categoria com este nome");
+        }
+    }
+
+    @Override
+    public List<Categoria> listarPorUsuario(Long idUsuario) {
+        return repository.findByUsuarioIdOrderByNome(idUsuario);
+    }
+
+    @Override
+    public Optional<Categoria> obterPorId(Long id) {
+        return repository.findById(id);
+    }
+}
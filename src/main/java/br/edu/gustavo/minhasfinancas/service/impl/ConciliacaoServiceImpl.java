@@ -0,0 +1,309 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.ConciliacaoService;
+import br.edu.gustavo.minhasfinancas.service.SaldoService;
+import br.edu.gustavo.minhasfinancas.service.conciliacao.Divergencia;
+import br.edu.gustavo.minhasfinancas.service.conciliacao.ResultadoConciliacao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Confere periodicamente se os saldos guardados pelo {@link SaldoService} batem com os lançamentos.
+ *
+ * Os usuários com saldo guardado são ordenados por id e divididos em faixas de
+ * {@code usuarios-por-faixa}. Cada faixa é recalculada com uma consulta agrupada por usuário e tipo
+ * (a mesma soma do {@link LancamentoServiceImpl#obterSaldoPorUsuario}, incluindo os arquivados), e
+ * as faixas são distribuídas entre {@code threads} threads "conciliacao-N", que as pegam de uma
+ * lista comum até acabar. O tempo total cai com o número de threads até o banco virar o gargalo.
+ *
+ * Para não disputar o banco com as requisições, cada thread fica parada depois de cada consulta por
+ * um tempo proporcional ao que a consulta levou, de modo a ocupar o banco só uma fração
+ * {@code fracao-banco} do tempo; somadas, as threads ocupam em média no máximo
+ * {@code threads × fracao-banco} conexões.
+ *
+ * O saldo guardado é lido antes e depois da consulta, e só conta como divergente se não mudou nesse
+ * meio-tempo; uma escrita concorrente invalida o saldo e o tira da comparação. Divergências vão para
+ * o log e para a métrica {@code minhasfinancas.conciliacao.divergencias}. Só com {@code corrigir},
+ * desligado por padrão, o saldo divergente é descartado e a próxima leitura o calcula de novo.
+ */
+@Slf4j
+@Service
+public class ConciliacaoServiceImpl implements ConciliacaoService {
+
+    private static final int DIVERGENCIAS_NO_RESULTADO = 100;
+
+    private final SaldoService saldoService;
+    private final LancamentoRepository lancamentoRepository;
+    private final LancamentoArquivoRepository arquivoRepository;
+    private final boolean habilitada;
+    private final boolean corrigir;
+    private final int usuariosPorFaixa;
+    private final int threads;
+    private final double fracaoBanco;
+    private final ThreadPoolExecutor executor;
+    private final Counter divergencias;
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+
+    public ConciliacaoServiceImpl(
+            SaldoService saldoService,
+            LancamentoRepository lancamentoRepository,
+            LancamentoArquivoRepository arquivoRepository,
+            MeterRegistry registry,
+            @Value("${minhasfinancas.conciliacao.habilitada:true}") boolean habilitada,
+            @Value("${minhasfinancas.conciliacao.corrigir:false}") boolean corrigir,
+            @Value("${minhasfinancas.conciliacao.usuarios-por-faixa:500}") int usuariosPorFaixa,
+            @Value("${minhasfinancas.conciliacao.threads:4}") int threads,
+            @Value("${minhasfinancas.conciliacao.fracao-banco:0.25}") double fracaoBanco
+    ) {
+        if (fracaoBanco <= 0 || fracaoBanco > 1) {
+            throw new IllegalArgumentException("minhasfinancas.conciliacao.fracao-banco deve estar entre 0 (exclusive) e 1");
+        }
+
+        this.saldoService = saldoService;
+        this.lancamentoRepository = lancamentoRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.habilitada = habilitada;
+        this.corrigir = corrigir;
+        this.usuariosPorFaixa = usuariosPorFaixa;
+        this.threads = threads;
+        this.fracaoBanco = fracaoBanco;
+
+        AtomicInteger contador = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads), runnable -> {
+                    Thread thread = new Thread(runnable, "conciliacao-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.divergencias = Counter.builder("minhasfinancas.conciliacao.divergencias").register(registry);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(
+            initialDelayString = "${minhasfinancas.conciliacao.intervalo-ms:900000}",
+            fixedDelayString = "${minhasfinancas.conciliacao.intervalo-ms:900000}"
+    )
+    public void conciliarPeriodicamente() {
+        if (habilitada) {
+            conciliarSaldos();
+        }
+    }
+
+    /**
+     * Devolve um resultado vazio se outra conciliação ainda estiver rodando.
+     */
+    @Override
+    public ResultadoConciliacao conciliarSaldos() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            log.info("Conciliação de saldos já em andamento; nada a fazer");
+            return new ResultadoConciliacao(0, 0, 0, List.of(), corrigir, 0);
+        }
+
+        try {
+            return conciliar();
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    private ResultadoConciliacao conciliar() {
+        long inicio = System.currentTimeMillis();
+        List<Long> usuarios = saldoService.usuariosComSaldoGuardado().stream()
+                .sorted()
+                .collect(Collectors.toList());
+
+        List<List<Long>> faixas = new ArrayList<>();
+
+        for (int i = 0; i < usuarios.size(); i += usuariosPorFaixa) {
+            faixas.add(usuarios.subList(i, Math.min(i + usuariosPorFaixa, usuarios.size())));
+        }
+
+        AtomicInteger proximaFaixa = new AtomicInteger();
+        AtomicInteger conciliados = new AtomicInteger();
+        Queue<Divergencia> encontradas = new ConcurrentLinkedQueue<>();
+        List<Future<?>> trabalhadores = new ArrayList<>();
+
+        for (int i = 0; i < Math.min(threads, faixas.size()); i++) {
+            trabalhadores.add(executor.submit(() -> {
+                int faixa;
+
+                while (!Thread.currentThread().isInterrupted()
+                        && (faixa = proximaFaixa.getAndIncrement()) < faixas.size()) {
+                    conciliarFaixa(faixas.get(faixa), conciliados, encontradas);
+                }
+            }));
+        }
+
+        for (Future<?> trabalhador : trabalhadores) {
+            try {
+                trabalhador.get();
+            } catch (ExecutionException e) {
+                log.error("Falha na conciliação de saldos", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                trabalhadores.forEach(emAndamento -> emAndamento.cancel(true));
+                break;
+            }
+        }
+
+        long duracao = System.currentTimeMillis() - inicio;
+
+        log.info("Conciliação de saldos: {} usuários em {} faixas, {} divergências, {} ms",
+                conciliados.get(), faixas.size(), encontradas.size(), duracao);
+
+        return new ResultadoConciliacao(conciliados.get(), faixas.size(), encontradas.size(),
+                encontradas.stream().limit(DIVERGENCIAS_NO_RESULTADO).collect(Collectors.toList()), corrigir, duracao);
+    }
+
+    private void conciliarFaixa(List<Long> faixa, AtomicInteger conciliados, Queue<Divergencia> encontradas) {
+        Map<Long, BigDecimal> servidos = new HashMap<>();
+
+        for (Long idUsuario : faixa) {
+            saldoService.obterSaldoGuardado(idUsuario).ifPresent(saldo -> servidos.put(idUsuario, saldo));
+        }
+
+        if (servidos.isEmpty()) {
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        Map<Long, Long> calculados = calcular(servidos.keySet());
+        long ocupado = System.nanoTime() - inicio;
+
+        servidos.forEach((idUsuario, servido) -> {
+            Optional<BigDecimal> depois = saldoService.obterSaldoGuardado(idUsuario);
+
+            if (depois.isEmpty() || depois.get().compareTo(servido) != 0) {
+                return;
+            }
+
+            conciliados.incrementAndGet();
+
+            BigDecimal calculado = Dinheiro.reais(calculados.getOrDefault(idUsuario, 0L));
+
+            if (calculado.compareTo(servido) != 0) {
+                log.warn("Saldo do usuário {} divergente: servido {}, calculado {}", idUsuario, servido, calculado);
+                encontradas.add(new Divergencia(idUsuario, servido, calculado));
+                divergencias.increment();
+
+                if (corrigir) {
+                    saldoService.descartarSaldoGuardado(idUsuario);
+                }
+            }
+        });
+
+        pausar(ocupado);
+    }
+
+    /**
+     * Receitas menos despesas efetivadas de cada usuário, do banco e dos arquivos.
+     */
+    private Map<Long, Long> calcular(Collection<Long> idsUsuarios) {
+        Map<Long, Long> saldos = new HashMap<>();
+
+        for (Object[] linha : lancamentoRepository.obterSomasPorUsuarios(idsUsuarios, StatusLancamento.EFETIVADO)) {
+            long centavos = Dinheiro.centavos((BigDecimal) linha[2]);
+
+            saldos.merge((Long) linha[0], linha[1] == TipoLancamento.RECEITA ? centavos : -centavos, Dinheiro::somar);
+        }
+
+        Map<Long, Set<Long>> arquivadosNoBanco = idsArquivadosNoBanco(idsUsuarios);
+
+        for (Long idUsuario : idsUsuarios) {
+            // Linhas arquivadas que ainda estão no banco já entraram na soma acima
+            Set<Long> idsNoBanco = arquivadosNoBanco.getOrDefault(idUsuario, Set.of());
+
+            long arquivado = Dinheiro.subtrair(
+                    arquivoRepository.somarCentavos(idUsuario, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, idsNoBanco),
+                    arquivoRepository.somarCentavos(idUsuario, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, idsNoBanco));
+
+            if (arquivado != 0) {
+                saldos.merge(idUsuario, arquivado, Dinheiro::somar);
+            }
+        }
+
+        return saldos;
+    }
+
+    /**
+     * Ids dos lançamentos de anos arquivados que ainda estão no banco, por usuário, em uma consulta
+     * só para a faixa inteira.
+     */
+    private Map<Long, Set<Long>> idsArquivadosNoBanco(Collection<Long> idsUsuarios) {
+        Map<Long, Set<Integer>> anosPorUsuario = new HashMap<>();
+        Set<Integer> anos = new HashSet<>();
+
+        for (Long idUsuario : idsUsuarios) {
+            List<Integer> arquivados = arquivoRepository.anos(idUsuario);
+
+            if (!arquivados.isEmpty()) {
+                anosPorUsuario.put(idUsuario, new HashSet<>(arquivados));
+                anos.addAll(arquivados);
+            }
+        }
+
+        Map<Long, Set<Long>> idsNoBanco = new HashMap<>();
+
+        if (anosPorUsuario.isEmpty()) {
+            return idsNoBanco;
+        }
+
+        for (Object[] linha : lancamentoRepository.obterIdsPorUsuariosEAnos(anosPorUsuario.keySet(), anos)) {
+            Long idUsuario = (Long) linha[0];
+
+            if (anosPorUsuario.get(idUsuario).contains((Integer) linha[1])) {
+                idsNoBanco.computeIfAbsent(idUsuario, id -> new HashSet<>()).add((Long) linha[2]);
+            }
+        }
+
+        return idsNoBanco;
+    }
+
+    private void pausar(long ocupadoNanos) {
+        if (fracaoBanco >= 1) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep((long) (ocupadoNanos * (1 - fracaoBanco) / fracaoBanco));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
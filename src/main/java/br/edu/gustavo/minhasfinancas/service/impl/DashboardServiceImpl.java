@@ -0,0 +1,138 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.DashboardService;
+import br.edu.gustavo.minhasfinancas.service.SaldoService;
+import br.edu.gustavo.minhasfinancas.service.dashboard.Dashboard;
+import br.edu.gustavo.minhasfinancas.service.saldo.SaldoObtido;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Monta a tela inicial em uma requisição só, no lugar das chamadas separadas de saldo, lançamentos
+ * do mês e contagens.
+ *
+ * O usuário é resolvido uma vez pelo chamador. As duas consultas de lançamentos rodam ao mesmo tempo
+ * nas threads "dashboard-N", cada uma em sua própria transação somente leitura, enquanto a thread da
+ * requisição obtém o saldo; a resposta sai quando a mais lenta termina. O saldo passa pelo
+ * {@link SaldoService} sem transação: quase sempre vem do cache, sem ocupar conexão, e numa falta
+ * passa pela coalescência e pelo disjuntor dele como as demais leituras de saldo. O pool tem
+ * {@code threads} threads e uma fila de {@code fila} tarefas; com a fila cheia a consulta roda na
+ * thread da requisição, como antes, em vez de recusar a tela.
+ */
+@Service
+public class DashboardServiceImpl implements DashboardService {
+
+    private final SaldoService saldoService;
+    private final LancamentoRepository lancamentoRepository;
+    private final TransactionTemplate leitura;
+    private final int lancamentosMaximos;
+    private final ThreadPoolExecutor executor;
+
+    public DashboardServiceImpl(
+            SaldoService saldoService,
+            LancamentoRepository lancamentoRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${minhasfinancas.dashboard.lancamentos-maximos:20}") int lancamentosMaximos,
+            @Value("${minhasfinancas.dashboard.threads:8}") int threads,
+            @Value("${minhasfinancas.dashboard.fila:100}") int fila
+    ) {
+        this.saldoService = saldoService;
+        this.lancamentoRepository = lancamentoRepository;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+        this.lancamentosMaximos = lancamentosMaximos;
+
+        AtomicInteger contador = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fila), runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public Dashboard obter(Usuario usuario, YearMonth mes) {
+        Long idUsuario = usuario.getId();
+
+        CompletableFuture<List<Lancamento>> lancamentos = consultar(() -> lancamentoRepository.obterUltimosDoMes(
+                idUsuario, mes.getYear(), mes.getMonthValue(), PageRequest.of(0, lancamentosMaximos)));
+        CompletableFuture<Map<StatusLancamento, Long>> quantidades = consultar(() ->
+                contarPorStatus(idUsuario, mes));
+
+        SaldoObtido saldo = saldoService.obterSaldo(idUsuario);
+
+        try {
+            Map<StatusLancamento, Long> quantidadePorStatus = quantidades.join();
+
+            return new Dashboard(
+                    saldo,
+                    mes.getYear(),
+                    mes.getMonthValue(),
+                    lancamentos.join(),
+                    quantidadePorStatus.values().stream().mapToLong(Long::longValue).sum(),
+                    quantidadePorStatus);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    private Map<StatusLancamento, Long> contarPorStatus(Long idUsuario, YearMonth mes) {
+        Map<StatusLancamento, Long> quantidades = new EnumMap<>(StatusLancamento.class);
+
+        for (StatusLancamento status : StatusLancamento.values()) {
+            quantidades.put(status, 0L);
+        }
+
+        for (Object[] linha : lancamentoRepository.contarPorStatusNoMes(idUsuario, mes.getYear(), mes.getMonthValue())) {
+            quantidades.put((StatusLancamento) linha[0], (Long) linha[1]);
+        }
+
+        return quantidades;
+    }
+
+    private <T> CompletableFuture<T> consultar(Supplier<T> consulta) {
+        Supplier<T> emTransacao = () -> leitura.execute(status -> consulta.get());
+
+        try {
+            return CompletableFuture.supplyAsync(emTransacao, executor);
+        } catch (RejectedExecutionException e) {
+            try {
+                return CompletableFuture.completedFuture(emTransacao.get());
+            } catch (RuntimeException erro) {
+                return CompletableFuture.failedFuture(erro);
+            }
+        }
+    }
+}
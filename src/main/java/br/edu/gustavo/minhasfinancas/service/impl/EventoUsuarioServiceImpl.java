@@ -0,0 +1,438 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.service.EventoUsuarioService;
+import br.edu.gustavo.minhasfinancas.service.LancamentoService;
+import br.edu.gustavo.minhasfinancas.service.event.AlteracaoSaldo;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Eventos de saldo por usuário, entregues por Server-Sent Events.
+ *
+ * O {@link SseEmitter} usa o processamento assíncrono do servlet: a thread da requisição volta ao
+ * pool logo depois de {@link #assinar}, e uma conexão ociosa custa apenas o emitter e uma fila
+ * pequena. Escritas confirmadas só marcam o usuário como pendente; o pool "eventos-saldo" junta as
+ * alterações acumuladas de cada usuário, calcula o saldo uma vez e distribui o evento. Usuários
+ * diferentes são calculados em paralelo, e o mesmo usuário nunca em duas threads ao mesmo tempo,
+ * para os eventos saírem na ordem.
+ *
+ * O envio em si é feito pelo pool "eventos-envio", um assinante por vez. Quem deixa a fila encher
+ * (cliente que não lê) é desconectado e precisa reconectar. Um {@code send} preso no socket de um
+ * cliente lento por mais de {@code tempo-envio-ms} também desconecta o assinante: a thread presa é
+ * interrompida e, enquanto não volta, o pool ganha uma thread extra (até dobrar), para os outros
+ * assinantes não esperarem por ela.
+ *
+ * Comentários periódicos ({@code heartbeat-ms}) mantêm a conexão viva em proxies e revelam clientes
+ * que já foram embora.
+ */
+@Slf4j
+@Service
+public class EventoUsuarioServiceImpl implements EventoUsuarioService {
+
+    private static final int IDS_POR_EVENTO = 200;
+
+    private final LancamentoService lancamentoService;
+    private final long tempoConexaoMs;
+    private final int assinantesMaximos;
+    private final int filaPorAssinante;
+    private final int threadsEnvio;
+    private final long tempoEnvioNanos;
+    private final LongSupplier relogio;
+    private final ThreadPoolExecutor envio;
+    private final ExecutorService calculo;
+
+    private final Map<Long, Set<Assinante>> assinantes = new ConcurrentHashMap<>();
+    private final AtomicInteger quantidadeAssinantes = new AtomicInteger();
+
+    private final Map<Long, Pendencia> pendencias = new ConcurrentHashMap<>();
+    private final Set<Long> publicando = ConcurrentHashMap.newKeySet();
+    private final Set<Assinante> enviando = ConcurrentHashMap.newKeySet();
+
+    private int threadsExtras;
+
+    @Autowired
+    public EventoUsuarioServiceImpl(
+            LancamentoService lancamentoService,
+            @Value("${minhasfinancas.eventos.tempo-conexao-ms:1800000}") long tempoConexaoMs,
+            @Value("${minhasfinancas.eventos.assinantes-maximos:10000}") int assinantesMaximos,
+            @Value("${minhasfinancas.eventos.fila-por-assinante:16}") int filaPorAssinante,
+            @Value("${minhasfinancas.eventos.threads-envio:4}") int threadsEnvio,
+            @Value("${minhasfinancas.eventos.tempo-envio-ms:5000}") long tempoEnvioMs,
+            @Value("${minhasfinancas.eventos.threads-saldo:4}") int threadsSaldo
+    ) {
+        this(lancamentoService, tempoConexaoMs, assinantesMaximos, filaPorAssinante, threadsEnvio, tempoEnvioMs,
+                threadsSaldo, System::nanoTime);
+    }
+
+    EventoUsuarioServiceImpl(LancamentoService lancamentoService, long tempoConexaoMs, int assinantesMaximos,
+                             int filaPorAssinante, int threadsEnvio, long tempoEnvioMs, int threadsSaldo,
+                             LongSupplier relogio) {
+        this.lancamentoService = lancamentoService;
+        this.tempoConexaoMs = tempoConexaoMs;
+        this.assinantesMaximos = assinantesMaximos;
+        this.filaPorAssinante = filaPorAssinante;
+        this.threadsEnvio = threadsEnvio;
+        this.tempoEnvioNanos = TimeUnit.MILLISECONDS.toNanos(tempoEnvioMs);
+        this.relogio = relogio;
+
+        this.envio = new ThreadPoolExecutor(threadsEnvio, threadsEnvio, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threads("eventos-envio-"));
+        this.calculo = Executors.newFixedThreadPool(threadsSaldo, threads("eventos-saldo-"));
+    }
+
+    private static ThreadFactory threads(String prefixo) {
+        AtomicInteger contador = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefixo + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        calculo.shutdownNow();
+        calculo.awaitTermination(5, TimeUnit.SECONDS);
+        assinantes.values().forEach(doUsuario -> doUsuario.forEach(Assinante::encerrar));
+        envio.shutdown();
+    }
+
+    @Override
+    public SseEmitter assinar(Long idUsuario) {
+        if (quantidadeAssinantes.incrementAndGet() > assinantesMaximos) {
+            quantidadeAssinantes.decrementAndGet();
+            throw new RejectedExecutionException("Limite de " + assinantesMaximos + " assinantes atingido");
+        }
+
+        Assinante assinante = new Assinante(idUsuario, criarEmitter());
+        assinantes.computeIfAbsent(idUsuario, id -> ConcurrentHashMap.newKeySet()).add(assinante);
+
+        assinante.emitter.onCompletion(assinante::remover);
+        assinante.emitter.onTimeout(assinante::remover);
+        assinante.emitter.onError(erro -> assinante.remover());
+
+        // o primeiro evento traz o saldo atual, para o cliente não precisar consultá-lo à parte
+        marcarPendente(idUsuario, null, false);
+
+        return assinante.emitter;
+    }
+
+    SseEmitter criarEmitter() {
+        return new SseEmitter(tempoConexaoMs);
+    }
+
+    /**
+     * Um lançamento que mudou de usuário altera o saldo dos dois, então os assinantes do dono
+     * anterior também recebem o evento.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+        boolean lote = evento.getOperacao() == LancamentoAlteradoEvent.Operacao.LOTE;
+        Long idLancamento = lote ? null : evento.getLancamento().getId();
+
+        marcarSeAssinado(evento.getIdUsuario(), idLancamento, lote);
+
+        Long anterior = evento.getAnterior() == null ? null : evento.getAnterior().getIdUsuario();
+
+        if (anterior != null && !anterior.equals(evento.getIdUsuario())) {
+            marcarSeAssinado(anterior, idLancamento, lote);
+        }
+    }
+
+    private void marcarSeAssinado(Long idUsuario, Long idLancamento, boolean recarregar) {
+        if (assinantes.containsKey(idUsuario)) {
+            marcarPendente(idUsuario, idLancamento, recarregar);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${minhasfinancas.eventos.heartbeat-ms:15000}")
+    public void enviarHeartbeat() {
+        assinantes.values().forEach(doUsuario ->
+                doUsuario.forEach(assinante -> assinante.enviar(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    /**
+     * Desconecta os assinantes com um {@code send} em andamento há mais de {@code tempo-envio-ms}.
+     */
+    @Scheduled(fixedDelayString = "${minhasfinancas.eventos.verificacao-envio-ms:1000}")
+    public void desconectarAssinantesLentos() {
+        long agora = relogio.getAsLong();
+
+        // inclui quem já saiu dos assinantes (fila cheia) mas segue preso no send
+        enviando.forEach(assinante -> assinante.verificarEnvio(agora));
+    }
+
+    private void marcarPendente(Long idUsuario, Long idLancamento, boolean recarregar) {
+        AtomicBoolean nova = new AtomicBoolean();
+
+        pendencias.compute(idUsuario, (id, pendencia) -> {
+            if (pendencia == null) {
+                pendencia = new Pendencia();
+                nova.set(true);
+            }
+
+            pendencia.acumular(idLancamento, recarregar);
+
+            return pendencia;
+        });
+
+        if (nova.get()) {
+            try {
+                calculo.execute(() -> publicar(idUsuario));
+            } catch (RejectedExecutionException e) {
+                // encerrando
+                pendencias.remove(idUsuario);
+            }
+        }
+    }
+
+    /**
+     * Publica as pendências do usuário até não restar nenhuma. Se outra thread já está publicando
+     * para ele, ela mesma encontra a pendência nova ao terminar.
+     */
+    private void publicar(Long idUsuario) {
+        while (publicando.add(idUsuario)) {
+            try {
+                for (Pendencia pendencia = pendencias.remove(idUsuario); pendencia != null;
+                     pendencia = pendencias.remove(idUsuario)) {
+                    publicar(idUsuario, pendencia);
+                }
+            } finally {
+                publicando.remove(idUsuario);
+            }
+
+            if (!pendencias.containsKey(idUsuario)) {
+                return;
+            }
+        }
+    }
+
+    private void publicar(Long idUsuario, Pendencia pendencia) {
+        Set<Assinante> doUsuario = assinantes.get(idUsuario);
+
+        if (doUsuario == null || doUsuario.isEmpty()) {
+            return;
+        }
+
+        BigDecimal saldo;
+
+        try {
+            saldo = lancamentoService.obterSaldoPorUsuario(idUsuario);
+        } catch (RuntimeException e) {
+            log.warn("Não foi possível calcular o saldo do usuário {} para os assinantes", idUsuario, e);
+            return;
+        }
+
+        AlteracaoSaldo alteracao = new AlteracaoSaldo(saldo, new ArrayList<>(pendencia.ids), pendencia.recarregar);
+
+        for (Assinante assinante : doUsuario) {
+            assinante.enviar(SseEmitter.event().name("saldo").data(alteracao));
+        }
+    }
+
+    /**
+     * Põe uma thread extra no pool de envio no lugar de uma presa em um cliente lento, até dobrar o
+     * tamanho do pool.
+     */
+    private boolean acrescentarThreadDeEnvio() {
+        synchronized (envio) {
+            if (threadsExtras >= threadsEnvio) {
+                return false;
+            }
+
+            threadsExtras++;
+            envio.setMaximumPoolSize(threadsEnvio + threadsExtras);
+            envio.setCorePoolSize(threadsEnvio + threadsExtras);
+
+            return true;
+        }
+    }
+
+    private void retirarThreadDeEnvio() {
+        synchronized (envio) {
+            threadsExtras--;
+            envio.setCorePoolSize(threadsEnvio + threadsExtras);
+            envio.setMaximumPoolSize(threadsEnvio + threadsExtras);
+        }
+    }
+
+    int getThreadsDeEnvio() {
+        return envio.getCorePoolSize();
+    }
+
+    private static final class Pendencia {
+
+        private final Set<Long> ids = new LinkedHashSet<>();
+        private boolean recarregar;
+
+        void acumular(Long idLancamento, boolean recarregar) {
+            this.recarregar |= recarregar;
+
+            if (idLancamento != null && !this.recarregar) {
+                ids.add(idLancamento);
+            }
+
+            if (this.recarregar || ids.size() > IDS_POR_EVENTO) {
+                this.recarregar = true;
+                ids.clear();
+            }
+        }
+    }
+
+    private final class Assinante {
+
+        private final Long idUsuario;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> fila = new ArrayBlockingQueue<>(filaPorAssinante);
+        private final AtomicBoolean agendado = new AtomicBoolean();
+        private final AtomicBoolean removido = new AtomicBoolean();
+        private volatile boolean encerrado;
+
+        // guardados com a trava do assinante: a thread do send em andamento e se ela foi substituída
+        private Thread remetente;
+        private long envioIniciadoEm;
+        private boolean substituida;
+
+        Assinante(Long idUsuario, SseEmitter emitter) {
+            this.idUsuario = idUsuario;
+            this.emitter = emitter;
+        }
+
+        void enviar(SseEmitter.SseEventBuilder evento) {
+            if (encerrado) {
+                return;
+            }
+
+            if (!fila.offer(evento)) {
+                log.info("Assinante do usuário {} desconectado por não acompanhar os eventos", idUsuario);
+                encerrar();
+                return;
+            }
+
+            agendar();
+        }
+
+        /**
+         * Fecha a conexão. O {@code complete} é feito pela tarefa de envio, para não esperar por um
+         * {@code send} que esteja bloqueado no socket de um cliente lento.
+         */
+        void encerrar() {
+            encerrado = true;
+            remover();
+            agendar();
+        }
+
+        void remover() {
+            if (removido.compareAndSet(false, true)) {
+                assinantes.computeIfPresent(idUsuario, (id, doUsuario) -> {
+                    doUsuario.remove(this);
+                    return doUsuario.isEmpty() ? null : doUsuario;
+                });
+                quantidadeAssinantes.decrementAndGet();
+            }
+        }
+
+        synchronized void verificarEnvio(long agora) {
+            if (remetente == null || substituida || agora - envioIniciadoEm <= tempoEnvioNanos) {
+                return;
+            }
+
+            log.info("Assinante do usuário {} desconectado por um envio que passou de {} ms", idUsuario,
+                    TimeUnit.NANOSECONDS.toMillis(tempoEnvioNanos));
+
+            encerrado = true;
+            remover();
+            substituida = acrescentarThreadDeEnvio();
+            remetente.interrupt();
+        }
+
+        private void agendar() {
+            if (agendado.compareAndSet(false, true)) {
+                try {
+                    envio.execute(this::drenar);
+                } catch (RejectedExecutionException e) {
+                    agendado.set(false);
+                }
+            }
+        }
+
+        private void drenar() {
+            boolean falhou = false;
+
+            try {
+                SseEmitter.SseEventBuilder evento;
+
+                while (!encerrado && (evento = fila.poll()) != null) {
+                    iniciarEnvio();
+
+                    try {
+                        emitter.send(evento);
+                    } finally {
+                        terminarEnvio();
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // o contêiner encerra a requisição com erro; resta parar de enviar
+                falhou = true;
+                encerrado = true;
+                remover();
+            } finally {
+                agendado.set(false);
+            }
+
+            if (encerrado) {
+                fila.clear();
+
+                if (!falhou) {
+                    emitter.complete();
+                }
+            } else if (!fila.isEmpty()) {
+                agendar();
+            }
+        }
+
+        private synchronized void iniciarEnvio() {
+            remetente = Thread.currentThread();
+            envioIniciadoEm = relogio.getAsLong();
+            enviando.add(this);
+        }
+
+        private synchronized void terminarEnvio() {
+            remetente = null;
+            enviando.remove(this);
+
+            if (substituida) {
+                substituida = false;
+                retirarThreadDeEnvio();
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.shard.MapaShards;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gravação agrupada (group commit) de lançamentos novos: inserções de requisições simultâneas
+ * entram em uma fila e a thread "gravacao-agrupada" grava até {@code max-linhas} delas em uma única
+ * transação, esperando no máximo {@code janela-ms} depois da primeira. O custo do commit, dominado
+ * pelo fsync do banco, passa a ser dividido pelo lote, e a vazão cresce com a concorrência.
+ *
+ * Cada requisição espera pelo seu próprio resultado: o lançamento com o id gerado ou o seu erro. A
+ * validação acontece antes da fila, na thread da requisição. Se a transação do lote falhar, cada
+ * lançamento é gravado de novo na sua própria transação, para que o erro de um não vire o erro dos
+ * outros. Com sharding, o lote é dividido por shard, já que uma transação fica em um banco só.
+ *
+ * Os eventos de alteração são publicados depois do commit, ainda na thread de gravação, e só então
+ * as requisições são liberadas; quem gravou lê o que gravou.
+ *
+ * Com o open-in-view, a sessão da requisição segura a conexão que abriu (ao buscar o usuário, por
+ * exemplo) até o fim da requisição. Antes de esperar, a requisição devolve essa conexão ao pool;
+ * senão as requisições paradas na fila ocupariam o pool inteiro e o lote não teria conexão para
+ * gravar. Se a sessão precisar do banco de novo, o Hibernate obtém outra conexão.
+ */
+@Slf4j
+@Component
+public class GravacaoAgrupadaLancamentos {
+
+    private final LancamentoServiceImpl servico;
+    private final TransactionTemplate transacao;
+    private final ObjectProvider<MapaShards> mapaShards;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final boolean habilitada;
+    private final int maxLinhas;
+    private final long janelaNanos;
+    private final BlockingQueue<Pendente> fila;
+    private final DistributionSummary linhasPorLote;
+
+    private Thread gravador;
+
+    public GravacaoAgrupadaLancamentos(
+            LancamentoServiceImpl servico,
+            PlatformTransactionManager transactionManager,
+            ObjectProvider<MapaShards> mapaShards,
+            ObjectProvider<EntityManagerFactory> entityManagerFactory,
+            MeterRegistry registry,
+            @Value("${minhasfinancas.gravacao-agrupada.habilitada:false}") boolean habilitada,
+            @Value("${minhasfinancas.gravacao-agrupada.max-linhas:100}") int maxLinhas,
+            @Value("${minhasfinancas.gravacao-agrupada.janela-ms:2}") long janelaMs,
+            @Value("${minhasfinancas.gravacao-agrupada.fila:10000}") int capacidadeFila
+    ) {
+        this.servico = servico;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.mapaShards = mapaShards;
+        this.entityManagerFactory = entityManagerFactory;
+        this.habilitada = habilitada;
+        this.maxLinhas = maxLinhas;
+        this.janelaNanos = TimeUnit.MILLISECONDS.toNanos(janelaMs);
+        this.fila = new LinkedBlockingQueue<>(capacidadeFila);
+        this.linhasPorLote = DistributionSummary.builder("minhasfinancas.gravacao-agrupada.linhas-por-lote")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+
+        gravador = new Thread(this::gravar, "gravacao-agrupada");
+        gravador.setDaemon(true);
+        gravador.start();
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        if (gravador == null) {
+            return;
+        }
+
+        gravador.interrupt();
+        gravador.join(TimeUnit.SECONDS.toMillis(5));
+
+        // o que ficou na fila ainda tem requisições esperando
+        List<Pendente> restantes = new ArrayList<>();
+        fila.drainTo(restantes);
+        restantes.forEach(this::gravarSozinho);
+    }
+
+    /**
+     * Dentro de uma transação a inserção precisa fazer parte dela, e com a fila cheia não vale a
+     * pena esperar; nesses casos o lançamento é salvo direto.
+     */
+    public Lancamento salvar(Lancamento lancamento) {
+        if (!habilitada || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return servico.salvar(lancamento);
+        }
+
+        servico.prepararNovo(lancamento);
+
+        Pendente pendente = new Pendente(lancamento);
+
+        if (!fila.offer(pendente)) {
+            return servico.salvar(lancamento);
+        }
+
+        liberarConexao();
+
+        try {
+            return pendente.resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    private void gravar() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Pendente> lote = new ArrayList<>(maxLinhas);
+
+            try {
+                lote.add(fila.take());
+
+                long limite = System.nanoTime() + janelaNanos;
+
+                while (lote.size() < maxLinhas) {
+                    Pendente proximo = fila.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+                    if (proximo == null) {
+                        break;
+                    }
+
+                    lote.add(proximo);
+                    fila.drainTo(lote, maxLinhas - lote.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                if (lote.isEmpty()) {
+                    break;
+                }
+            }
+
+            for (List<Pendente> doShard : porShard(lote)) {
+                gravarLote(doShard);
+            }
+        }
+    }
+
+    private void gravarLote(List<Pendente> lote) {
+        linhasPorLote.record(lote.size());
+
+        if (lote.size() == 1) {
+            gravarSozinho(lote.get(0));
+            return;
+        }
+
+        List<Lancamento> salvos;
+
+        try {
+            salvos = transacao.execute(status -> {
+                List<Lancamento> resultado = new ArrayList<>(lote.size());
+
+                for (Pendente pendente : lote) {
+                    resultado.add(servico.salvar(pendente.lancamento));
+                }
+
+                return resultado;
+            });
+        } catch (RuntimeException | Error e) {
+            log.debug("Lote de {} lançamentos desfeito; gravando um a um", lote.size(), e);
+
+            for (Pendente pendente : lote) {
+                desfazer(pendente.lancamento);
+                gravarSozinho(pendente);
+            }
+
+            return;
+        }
+
+        for (int i = 0; i < lote.size(); i++) {
+            lote.get(i).resultado.complete(salvos.get(i));
+        }
+    }
+
+    private void gravarSozinho(Pendente pendente) {
+        try {
+            pendente.resultado.complete(servico.salvar(pendente.lancamento));
+        } catch (RuntimeException | Error e) {
+            pendente.resultado.completeExceptionally(e);
+        }
+    }
+
+    private void liberarConexao() {
+        EntityManagerFactory fabrica = entityManagerFactory.getIfAvailable();
+        EntityManagerHolder holder = fabrica == null ? null
+                : (EntityManagerHolder) TransactionSynchronizationManager.getResource(fabrica);
+
+        if (holder != null) {
+            holder.getEntityManager().unwrap(Session.class).disconnect();
+        }
+    }
+
+    private List<List<Pendente>> porShard(List<Pendente> lote) {
+        MapaShards mapa = mapaShards.getIfAvailable();
+
+        if (mapa == null || mapa.getQuantidadeShards() <= 1) {
+            return List.of(lote);
+        }
+
+        Map<Integer, List<Pendente>> grupos = new LinkedHashMap<>();
+
+        for (Pendente pendente : lote) {
+            int shard = mapa.shardDoId(pendente.lancamento.getUsuario().getId());
+            grupos.computeIfAbsent(shard, s -> new ArrayList<>()).add(pendente);
+        }
+
+        return new ArrayList<>(grupos.values());
+    }
+
+    /**
+     * Volta o lançamento ao estado de antes da transação desfeita: sem o id atribuído na inserção e
+     * com as tags fora da coleção do Hibernate, ligada à sessão que já foi fechada.
+     */
+    private static void desfazer(Lancamento lancamento) {
+        lancamento.setId(null);
+        if (lancamento.getTags() != null) {
+            lancamento.setTags(new HashSet<>(lancamento.getTags()));
+        }
+    }
+
+    private static final class Pendente {
+
+        private final Lancamento lancamento;
+        private final CompletableFuture<Lancamento> resultado = new CompletableFuture<>();
+
+        Pendente(Lancamento lancamento) {
+            this.lancamento = lancamento;
+        }
+    }
+}
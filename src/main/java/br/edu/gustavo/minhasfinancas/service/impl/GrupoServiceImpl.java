@@ -0,0 +1,377 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.entity.Grupo;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.GrupoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.UsuarioRepository;
+import br.edu.gustavo.minhasfinancas.model.shard.MapaShards;
+import br.edu.gustavo.minhasfinancas.service.GrupoService;
+import br.edu.gustavo.minhasfinancas.service.grupo.SaldoGrupo;
+import br.edu.gustavo.minhasfinancas.service.grupo.SaldoMembro;
+import br.edu.gustavo.minhasfinancas.service.grupo.SaldoMensalGrupo;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Grupos de usuários e o saldo combinado deles.
+ *
+ * As somas de todos os membros saem de uma consulta agrupada por usuário e tipo. Em grupos de até
+ * {@code membros-por-particao} membros é uma consulta só, na thread da requisição. Acima disso os
+ * membros são divididos em partições (separadas por shard, quando há sharding) e as partições são
+ * somadas em paralelo em um {@link ForkJoinPool} próprio de {@code paralelismo} threads, uma
+ * consulta por partição. Os lançamentos arquivados de cada membro entram na soma da partição dele.
+ *
+ * Nenhuma soma roda em transação: os membros podem estar em shards diferentes, e uma transação fica
+ * presa ao shard em que começou. Pelo mesmo motivo o grupo é validado e gravado em passos separados.
+ */
+@Service
+public class GrupoServiceImpl implements GrupoService {
+
+    private static final int TAMANHO_MAXIMO_NOME = 50;
+    private static final int TOTAL = 0;
+
+    private final GrupoRepository repository;
+    private final UsuarioRepository usuarioRepository;
+    private final LancamentoRepository lancamentoRepository;
+    private final LancamentoArquivoRepository arquivoRepository;
+    private final ObjectProvider<MapaShards> mapaShards;
+    private final int membrosMaximos;
+    private final int membrosPorParticao;
+    private final ForkJoinPool pool;
+
+    public GrupoServiceImpl(
+            GrupoRepository repository,
+            UsuarioRepository usuarioRepository,
+            LancamentoRepository lancamentoRepository,
+            LancamentoArquivoRepository arquivoRepository,
+            ObjectProvider<MapaShards> mapaShards,
+            @Value("${minhasfinancas.grupo.membros-maximos:1000}") int membrosMaximos,
+            @Value("${minhasfinancas.grupo.membros-por-particao:50}") int membrosPorParticao,
+            @Value("${minhasfinancas.grupo.paralelismo:4}") int paralelismo
+    ) {
+        this.repository = repository;
+        this.usuarioRepository = usuarioRepository;
+        this.lancamentoRepository = lancamentoRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.mapaShards = mapaShards;
+        this.membrosMaximos = membrosMaximos;
+        this.membrosPorParticao = membrosPorParticao;
+        this.pool = new ForkJoinPool(paralelismo, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("saldo-grupo-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public Grupo salvar(Grupo grupo) {
+        if (grupo.getUsuario() != null && grupo.getUsuario().getId() != null) {
+            Set<Long> membros = new HashSet<>(grupo.getMembros());
+            membros.add(grupo.getUsuario().getId());
+            grupo.setMembros(membros);
+        }
+
+        validar(grupo);
+
+        grupo.setNome(grupo.getNome().trim());
+
+        return repository.save(grupo);
+    }
+
+    @Override
+    public Grupo adicionarMembro(Grupo grupo, Long idUsuario) {
+        if (grupo.getMembros().contains(idUsuario)) {
+            return grupo;
+        }
+
+        if (grupo.getMembros().size() >= membrosMaximos) {
+            throw new RegraNegocioException("O grupo já tem o número máximo de membros");
+        }
+
+        if (!usuarioRepository.existsById(idUsuario)) {
+            throw new RegraNegocioException("Usuario não encontrado para o Id informado");
+        }
+
+        grupo.getMembros().add(idUsuario);
+
+        return repository.save(grupo);
+    }
+
+    @Override
+    public Grupo removerMembro(Grupo grupo, Long idUsuario) {
+        if (grupo.getUsuario().getId().equals(idUsuario)) {
+            throw new RegraNegocioException("O dono do grupo não pode ser removido");
+        }
+
+        if (!grupo.getMembros().remove(idUsuario)) {
+            return grupo;
+        }
+
+        return repository.save(grupo);
+    }
+
+    @Override
+    public void validar(Grupo grupo) {
+        if (grupo.getNome() == null || grupo.getNome().trim().equals("") || grupo.getNome().trim().length() > TAMANHO_MAXIMO_NOME) {
+            throw new RegraNegocioException("Informe um Nome válido");
+        }
+
+        if (grupo.getUsuario() == null || grupo.getUsuario().getId() == null) {
+            throw new RegraNegocioException("Informe um Usuário");
+        }
+
+        if (grupo.getMembros().size() > membrosMaximos) {
+            throw new RegraNegocioException("Informe no máximo " + membrosMaximos + " membros");
+        }
+
+        if (grupo.getMembros().contains(null)
+                || usuarioRepository.findAllById(grupo.getMembros()).size() != grupo.getMembros().size()) {
+            throw new RegraNegocioException("Há membros que não correspondem a nenhum Usuário");
+        }
+    }
+
+    @Override
+    public List<Grupo> listarPorUsuario(Long idUsuario) {
+        return repository.findByUsuarioIdOrderByNome(idUsuario);
+    }
+
+    @Override
+    public Optional<Grupo> obterPorId(Long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public SaldoGrupo obterSaldo(Grupo grupo) {
+        Map<Long, Totais> porMembro = agregar(grupo.getMembros(), this::somarTotais);
+
+        long[] doGrupo = new long[2];
+        List<SaldoMembro> membros = new ArrayList<>();
+
+        new TreeMap<>(porMembro).forEach((idUsuario, totais) -> {
+            long[] total = totais.doMes(TOTAL);
+            doGrupo[0] = Dinheiro.somar(doGrupo[0], total[0]);
+            doGrupo[1] = Dinheiro.somar(doGrupo[1], total[1]);
+            membros.add(saldoMembro(idUsuario, total));
+        });
+
+        return new SaldoGrupo(grupo.getId(), Dinheiro.reais(doGrupo[0]), Dinheiro.reais(doGrupo[1]),
+                Dinheiro.reais(Dinheiro.subtrair(doGrupo[0], doGrupo[1])), membros);
+    }
+
+    @Override
+    public List<SaldoMensalGrupo> obterSaldoMensal(Grupo grupo, Integer ano) {
+        if (ano == null || ano.toString().length() != 4) {
+            throw new RegraNegocioException("Informe um Ano válido");
+        }
+
+        Map<Long, Totais> porMembro = agregar(grupo.getMembros(), parte -> somarMeses(parte, ano));
+
+        Map<Integer, long[]> doGrupo = new TreeMap<>();
+        Map<Integer, List<SaldoMembro>> membrosPorMes = new HashMap<>();
+
+        new TreeMap<>(porMembro).forEach((idUsuario, totais) -> totais.porMes.forEach((mes, total) -> {
+            long[] doMes = doGrupo.computeIfAbsent(mes, m -> new long[2]);
+            doMes[0] = Dinheiro.somar(doMes[0], total[0]);
+            doMes[1] = Dinheiro.somar(doMes[1], total[1]);
+            membrosPorMes.computeIfAbsent(mes, m -> new ArrayList<>()).add(saldoMembro(idUsuario, total));
+        }));
+
+        List<SaldoMensalGrupo> meses = new ArrayList<>();
+
+        doGrupo.forEach((mes, total) -> meses.add(new SaldoMensalGrupo(ano, mes, Dinheiro.reais(total[0]),
+                Dinheiro.reais(total[1]), Dinheiro.reais(Dinheiro.subtrair(total[0], total[1])),
+                membrosPorMes.get(mes))));
+
+        return meses;
+    }
+
+    /**
+     * Soma as partições dos membros. Uma partição só é somada na thread atual; mais de uma vão para
+     * o pool, divididas ao meio recursivamente até cada tarefa ter uma partição.
+     */
+    private Map<Long, Totais> agregar(Collection<Long> membros, Function<List<Long>, Map<Long, Totais>> somaDaParticao) {
+        List<List<Long>> particoes = particionar(membros);
+
+        if (particoes.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        if (particoes.size() == 1) {
+            return somaDaParticao.apply(particoes.get(0));
+        }
+
+        return pool.invoke(new Agregacao(particoes, 0, particoes.size(), somaDaParticao));
+    }
+
+    /**
+     * Membros em ordem de id, separados por shard e cortados em partições de até
+     * {@code membros-por-particao}, para que cada consulta vá a um banco só.
+     */
+    private List<List<Long>> particionar(Collection<Long> membros) {
+        MapaShards mapa = mapaShards.getIfAvailable();
+        Map<Integer, List<Long>> porShard = new TreeMap<>();
+
+        membros.stream().sorted().forEach(idUsuario -> porShard.computeIfAbsent(
+                mapa == null ? 0 : mapa.shardDoId(idUsuario), shard -> new ArrayList<>()).add(idUsuario));
+
+        List<List<Long>> particoes = new ArrayList<>();
+
+        for (List<Long> doShard : porShard.values()) {
+            for (int inicio = 0; inicio < doShard.size(); inicio += membrosPorParticao) {
+                particoes.add(doShard.subList(inicio, Math.min(inicio + membrosPorParticao, doShard.size())));
+            }
+        }
+
+        return particoes;
+    }
+
+    private Map<Long, Totais> somarTotais(List<Long> parte) {
+        Map<Long, Totais> porMembro = novosTotais(parte);
+
+        for (Object[] linha : lancamentoRepository.obterSomasPorUsuarios(parte, StatusLancamento.EFETIVADO)) {
+            porMembro.get((Long) linha[0]).somar(TOTAL, (TipoLancamento) linha[1],
+                    Dinheiro.centavos((BigDecimal) linha[2]));
+        }
+
+        for (Long idUsuario : parte) {
+            Totais totais = porMembro.get(idUsuario);
+            Set<Long> idsNoBanco = idsNoBanco(idUsuario, arquivoRepository.anos(idUsuario));
+
+            totais.somar(TOTAL, TipoLancamento.RECEITA, arquivoRepository.somarCentavos(
+                    idUsuario, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, idsNoBanco));
+            totais.somar(TOTAL, TipoLancamento.DESPESA, arquivoRepository.somarCentavos(
+                    idUsuario, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, idsNoBanco));
+        }
+
+        return porMembro;
+    }
+
+    private Map<Long, Totais> somarMeses(List<Long> parte, Integer ano) {
+        Map<Long, Totais> porMembro = novosTotais(parte);
+
+        for (Object[] linha : lancamentoRepository.obterSomasMensaisPorUsuarios(parte, ano, StatusLancamento.EFETIVADO)) {
+            porMembro.get((Long) linha[0]).somar((Integer) linha[1], (TipoLancamento) linha[2],
+                    Dinheiro.centavos((BigDecimal) linha[3]));
+        }
+
+        for (Long idUsuario : parte) {
+            Totais totais = porMembro.get(idUsuario);
+
+            Set<Long> idsNoBanco = arquivoRepository.anos(idUsuario).contains(ano)
+                    ? idsNoBanco(idUsuario, List.of(ano)) : Set.of();
+
+            try (Stream<Object[]> arquivados = arquivoRepository.streamExtrato(idUsuario, ano, idsNoBanco)) {
+                arquivados
+                        .filter(linha -> linha[3] == StatusLancamento.EFETIVADO)
+                        .forEach(linha -> totais.somar((Integer) linha[0], (TipoLancamento) linha[2],
+                                Dinheiro.centavos((BigDecimal) linha[4])));
+            }
+        }
+
+        return porMembro;
+    }
+
+    /**
+     * Lançamentos de anos arquivados que ainda estão no banco (arquivamento em andamento ou
+     * desfeito pela metade) entram pela soma do banco, não pela do arquivo.
+     */
+    private Set<Long> idsNoBanco(Long idUsuario, List<Integer> anosArquivados) {
+        return anosArquivados.isEmpty() ? Set.of() : lancamentoRepository.obterIdsPorUsuarioEAnos(idUsuario, anosArquivados);
+    }
+
+    private static Map<Long, Totais> novosTotais(List<Long> parte) {
+        Map<Long, Totais> porMembro = new HashMap<>();
+
+        for (Long idUsuario : parte) {
+            porMembro.put(idUsuario, new Totais());
+        }
+
+        return porMembro;
+    }
+
+    private static SaldoMembro saldoMembro(Long idUsuario, long[] total) {
+        return new SaldoMembro(idUsuario, Dinheiro.reais(total[0]), Dinheiro.reais(total[1]),
+                Dinheiro.reais(Dinheiro.subtrair(total[0], total[1])));
+    }
+
+    /**
+     * Receitas e despesas de um membro em centavos, por mês ({@link #TOTAL} para o saldo geral).
+     */
+    private static final class Totais {
+
+        private final Map<Integer, long[]> porMes = new TreeMap<>();
+
+        void somar(int mes, TipoLancamento tipo, long centavos) {
+            if (centavos != 0) {
+                long[] doMes = doMes(mes);
+                int indice = tipo == TipoLancamento.RECEITA ? 0 : 1;
+
+                doMes[indice] = Dinheiro.somar(doMes[indice], centavos);
+            }
+        }
+
+        long[] doMes(int mes) {
+            return porMes.computeIfAbsent(mes, m -> new long[2]);
+        }
+    }
+
+    private static final class Agregacao extends RecursiveTask<Map<Long, Totais>> {
+
+        private final List<List<Long>> particoes;
+        private final int inicio;
+        private final int fim;
+        private final Function<List<Long>, Map<Long, Totais>> somaDaParticao;
+
+        Agregacao(List<List<Long>> particoes, int inicio, int fim,
+                  Function<List<Long>, Map<Long, Totais>> somaDaParticao) {
+            this.particoes = particoes;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.somaDaParticao = somaDaParticao;
+        }
+
+        @Override
+        protected Map<Long, Totais> compute() {
+            if (fim - inicio == 1) {
+                return somaDaParticao.apply(particoes.get(inicio));
+            }
+
+            int meio = (inicio + fim) >>> 1;
+            Agregacao esquerda = new Agregacao(particoes, inicio, meio, somaDaParticao);
+            esquerda.fork();
+
+            Map<Long, Totais> porMembro = new Agregacao(particoes, meio, fim, somaDaParticao).compute();
+            porMembro.putAll(esquerda.join());
+
+            return porMembro;
+        }
+    }
+}
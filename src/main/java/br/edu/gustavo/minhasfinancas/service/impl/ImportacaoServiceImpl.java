@@ -0,0 +1,302 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoLoteRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.SegmentoLancamentos;
+import br.edu.gustavo.minhasfinancas.model.shard.ContextoShard;
+import br.edu.gustavo.minhasfinancas.model.shard.MapaShards;
+import br.edu.gustavo.minhasfinancas.service.ImportacaoService;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.edu.gustavo.minhasfinancas.service.importacao.FiltroBloom;
+import br.edu.gustavo.minhasfinancas.service.importacao.LeitorOfx;
+import br.edu.gustavo.minhasfinancas.service.importacao.ResultadoImportacao;
+import br.edu.gustavo.minhasfinancas.service.importacao.TransacaoOfx;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Importação de extratos OFX como lançamentos efetivados: receita para valores positivos, despesa
+ * para negativos, com o mês e o ano da data da transação.
+ *
+ * Cada transação tem uma impressão digital SHA-256, gravada em {@code hash_importacao}: a conta e o
+ * {@code FITID} quando o banco o informa; senão a conta, a data, o valor, o nome e o memo, mais a
+ * ordem da transação entre as idênticas do mesmo arquivo (duas compras iguais no mesmo dia). Um
+ * índice único por usuário e hash impede que a mesma transação vire dois lançamentos.
+ *
+ * Para não consultar o banco a cada transação, cada usuário tem um {@link FiltroBloom} com os hashes
+ * já importados, montado na primeira importação dele. As transações são gravadas em lotes de
+ * {@code tamanho-lote}; só os hashes que o filtro diz que talvez existam são conferidos no banco, em
+ * uma consulta por lote, e um lote sem nenhum deles vai direto para o insert. Reimportar um arquivo
+ * custa uma consulta por lote; um arquivo novo, quase nenhuma. Se outra importação do mesmo usuário
+ * (em outra instância, por exemplo) gravar parte do lote nesse meio-tempo, o índice único recusa o
+ * lote e ele é conferido inteiro no banco antes de gravar de novo.
+ *
+ * Transações de anos arquivados são ignoradas, já que esses anos não aceitam lançamentos novos, assim
+ * como as de valor zero ou acima de {@link Dinheiro#MAXIMO}, que não cabe na coluna. Os
+ * lotes são gravados à medida que o arquivo é lido; se o arquivo estiver corrompido no meio, os
+ * lotes anteriores ficam, e importar o arquivo corrigido não os duplica.
+ */
+@Slf4j
+@Service
+public class ImportacaoServiceImpl implements ImportacaoService {
+
+    private static final int TAMANHO_DESCRICAO = 100;
+    private static final String DESCRICAO_PADRAO = "Importado do extrato";
+
+    private final LancamentoRepository lancamentoRepository;
+    private final LancamentoLoteRepository loteRepository;
+    private final LancamentoArquivoRepository arquivoRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<MapaShards> mapaShards;
+    private final TransactionTemplate transacao;
+    private final TransactionTemplate leitura;
+    private final int tamanhoLote;
+    private final int capacidadeMinimaFiltro;
+    private final double falsosPositivosFiltro;
+    private final int usuariosMaximos;
+
+    private final Map<Long, FiltroBloom> filtros = new ConcurrentHashMap<>();
+
+    public ImportacaoServiceImpl(
+            LancamentoRepository lancamentoRepository,
+            LancamentoLoteRepository loteRepository,
+            LancamentoArquivoRepository arquivoRepository,
+            ApplicationEventPublisher eventPublisher,
+            ObjectProvider<MapaShards> mapaShards,
+            PlatformTransactionManager transactionManager,
+            @Value("${minhasfinancas.importacao.tamanho-lote:500}") int tamanhoLote,
+            @Value("${minhasfinancas.importacao.filtro.capacidade-minima:10000}") int capacidadeMinimaFiltro,
+            @Value("${minhasfinancas.importacao.filtro.falsos-positivos:0.01}") double falsosPositivosFiltro,
+            @Value("${minhasfinancas.importacao.filtro.usuarios-maximos:1000}") int usuariosMaximos
+    ) {
+        this.lancamentoRepository = lancamentoRepository;
+        this.loteRepository = loteRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.eventPublisher = eventPublisher;
+        this.mapaShards = mapaShards;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+        this.tamanhoLote = tamanhoLote;
+        this.capacidadeMinimaFiltro = capacidadeMinimaFiltro;
+        this.falsosPositivosFiltro = falsosPositivosFiltro;
+        this.usuariosMaximos = usuariosMaximos;
+    }
+
+    @Override
+    public ResultadoImportacao importarOfx(Usuario usuario, InputStream arquivo) throws IOException {
+        Long idUsuario = usuario.getId();
+        Set<Integer> anosArquivados = arquivoRepository.segmentos(idUsuario).stream()
+                .map(SegmentoLancamentos::getAno)
+                .collect(Collectors.toSet());
+        FiltroBloom filtro = filtro(idUsuario);
+
+        Set<String> vistos = new HashSet<>();
+        Map<String, Integer> ocorrencias = new HashMap<>();
+        Map<String, Lancamento> pendentes = new LinkedHashMap<>();
+        int lidas = 0;
+        int ignoradas = 0;
+        int importadas = 0;
+
+        try (LeitorOfx leitor = new LeitorOfx(arquivo)) {
+            for (TransacaoOfx transacaoOfx = leitor.proxima(); transacaoOfx != null; transacaoOfx = leitor.proxima()) {
+                lidas++;
+
+                if (transacaoOfx.getValor().signum() == 0 || !Dinheiro.cabeNaColuna(transacaoOfx.getValor())
+                        || anosArquivados.contains(transacaoOfx.getData().getYear())) {
+                    ignoradas++;
+                    continue;
+                }
+
+                String hash = hash(transacaoOfx, ocorrencias);
+
+                if (vistos.add(hash)) {
+                    pendentes.put(hash, lancamento(usuario, transacaoOfx, hash));
+                }
+
+                if (pendentes.size() >= tamanhoLote) {
+                    importadas += gravar(idUsuario, pendentes, filtro);
+                    pendentes.clear();
+                }
+            }
+
+            if (!pendentes.isEmpty()) {
+                importadas += gravar(idUsuario, pendentes, filtro);
+            }
+        } finally {
+            if (importadas > 0) {
+                eventPublisher.publishEvent(LancamentoAlteradoEvent.lote(idUsuario));
+            }
+        }
+
+        log.info("Importação OFX do usuário {}: {} transações lidas, {} importadas, {} ignoradas",
+                idUsuario, lidas, importadas, ignoradas);
+
+        return new ResultadoImportacao(lidas, importadas, lidas - ignoradas - importadas, ignoradas);
+    }
+
+    /**
+     * Grava as transações do lote que ainda não existem e devolve quantas foram gravadas.
+     */
+    private int gravar(Long idUsuario, Map<String, Lancamento> pendentes, FiltroBloom filtro) {
+        List<String> talvezExistentes = pendentes.keySet().stream()
+                .filter(filtro::podeConter)
+                .collect(Collectors.toList());
+
+        List<Lancamento> novos;
+
+        try {
+            novos = inserirNovos(idUsuario, pendentes, talvezExistentes);
+        } catch (DataIntegrityViolationException e) {
+            log.info("Lote da importação do usuário {} já gravado em parte por outra importação; conferindo de novo",
+                    idUsuario);
+            novos = inserirNovos(idUsuario, pendentes, pendentes.keySet());
+        }
+
+        novos.forEach(lancamento -> filtro.adicionar(lancamento.getHashImportacao()));
+
+        return novos.size();
+    }
+
+    private List<Lancamento> inserirNovos(Long idUsuario, Map<String, Lancamento> pendentes, Collection<String> conferir) {
+        return noShardDoUsuario(idUsuario, () -> transacao.execute(status -> {
+            Set<String> existentes = conferir.isEmpty()
+                    ? Set.of()
+                    : new HashSet<>(lancamentoRepository.obterHashesImportacaoExistentes(idUsuario, conferir));
+
+            List<Lancamento> novos = pendentes.values().stream()
+                    .filter(lancamento -> !existentes.contains(lancamento.getHashImportacao()))
+                    .collect(Collectors.toList());
+
+            if (!novos.isEmpty()) {
+                loteRepository.inserir(novos, tamanhoLote);
+            }
+
+            return novos;
+        }));
+    }
+
+    /**
+     * O filtro do usuário, montado a partir do banco na primeira importação dele ou quando o atual
+     * passou da capacidade. No máximo {@code usuarios-maximos} filtros ficam guardados; além disso o
+     * filtro é montado a cada importação.
+     */
+    private FiltroBloom filtro(Long idUsuario) {
+        FiltroBloom filtro = filtros.get(idUsuario);
+
+        if (filtro != null && !filtro.saturado()) {
+            return filtro;
+        }
+
+        FiltroBloom montado = noShardDoUsuario(idUsuario, () -> leitura.execute(status -> {
+            long importados = lancamentoRepository.contarImportadosPorUsuario(idUsuario);
+            FiltroBloom novo = new FiltroBloom(
+                    (int) Math.min(Integer.MAX_VALUE / 2, Math.max(capacidadeMinimaFiltro, importados * 2)),
+                    falsosPositivosFiltro);
+
+            try (Stream<String> hashes = lancamentoRepository.streamHashesImportacaoPorUsuario(idUsuario)) {
+                hashes.forEach(novo::adicionar);
+            }
+
+            return novo;
+        }));
+
+        if (filtros.size() < usuariosMaximos || filtros.containsKey(idUsuario)) {
+            filtros.put(idUsuario, montado);
+        }
+
+        return montado;
+    }
+
+    /**
+     * Os inserts em lote são feitos via JDBC, fora do roteamento dos repositórios; o shard do
+     * usuário é fixado para toda a transação.
+     */
+    private <T> T noShardDoUsuario(Long idUsuario, Supplier<T> tarefa) {
+        MapaShards mapa = mapaShards.getIfAvailable();
+
+        return ContextoShard.executarEm(mapa == null ? ContextoShard.PADRAO : mapa.shardDoId(idUsuario), tarefa);
+    }
+
+    private static Lancamento lancamento(Usuario usuario, TransacaoOfx transacaoOfx, String hash) {
+        LocalDate data = transacaoOfx.getData();
+
+        return Lancamento.builder()
+                .descricao(descricao(transacaoOfx))
+                .mes(data.getMonthValue())
+                .ano(data.getYear())
+                .usuario(usuario)
+                .valor(transacaoOfx.getValor().abs().setScale(2, RoundingMode.HALF_EVEN))
+                .tipo(transacaoOfx.getValor().signum() > 0 ? TipoLancamento.RECEITA : TipoLancamento.DESPESA)
+                .status(StatusLancamento.EFETIVADO)
+                .dataCadastro(LocalDate.now())
+                .hashImportacao(hash)
+                .build();
+    }
+
+    private static String descricao(TransacaoOfx transacaoOfx) {
+        String descricao = transacaoOfx.getNome() != null ? transacaoOfx.getNome()
+                : transacaoOfx.getMemo() != null ? transacaoOfx.getMemo()
+                : DESCRICAO_PADRAO;
+
+        return descricao.length() <= TAMANHO_DESCRICAO ? descricao : descricao.substring(0, TAMANHO_DESCRICAO);
+    }
+
+    private static String hash(TransacaoOfx transacaoOfx, Map<String, Integer> ocorrencias) {
+        String impressao;
+
+        if (transacaoOfx.getIdentificador() != null) {
+            impressao = String.join("|", "fitid", transacaoOfx.getConta(), transacaoOfx.getIdentificador());
+        } else {
+            String dados = String.join("|", "dados", transacaoOfx.getConta(), transacaoOfx.getData().toString(),
+                    transacaoOfx.getValor().stripTrailingZeros().toPlainString(), transacaoOfx.getNome(),
+                    transacaoOfx.getMemo());
+
+            impressao = dados + "|" + ocorrencias.merge(dados, 1, Integer::sum);
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(impressao.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hexadecimal = new StringBuilder(digest.length * 2);
+
+            for (byte b : digest) {
+                hexadecimal.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return hexadecimal.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.IndiceLancamentoService;
+import br.edu.gustavo.minhasfinancas.service.analise.ColunasLancamento;
+import br.edu.gustavo.minhasfinancas.service.analise.EstruturasPorUsuario;
+import br.edu.gustavo.minhasfinancas.service.analise.IndiceBitmapLancamentos;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mantém um {@link IndiceBitmapLancamentos} por usuário ativo, com o mesmo ciclo de vida das
+ * colunas de {@link AnaliseLancamentoServiceImpl} ({@link EstruturasPorUsuario}).
+ */
+@Service
+public class IndiceLancamentoServiceImpl implements IndiceLancamentoService {
+
+    private final LancamentoRepository repository;
+    private final EstruturasPorUsuario<IndiceBitmapLancamentos> indices;
+
+    public IndiceLancamentoServiceImpl(
+            LancamentoRepository repository,
+            @Value("${minhasfinancas.indice.memoria-maxima-bytes:33554432}") long memoriaMaxima
+    ) {
+        this.repository = repository;
+        this.indices = new EstruturasPorUsuario<>(this::carregar, IndiceBitmapLancamentos::bytesOcupados,
+                IndiceLancamentoServiceImpl::gravar, IndiceBitmapLancamentos::remover, memoriaMaxima);
+    }
+
+    @Override
+    public List<Long> filtrar(Long idUsuario, Lancamento filtro, Collection<Long> categorias, Collection<String> tags) {
+        EstruturasPorUsuario.Entrada<IndiceBitmapLancamentos> entrada = indices.ler(idUsuario);
+
+        try {
+            return entrada.getEstrutura().ids(selecionar(entrada.getEstrutura(), filtro, categorias, tags));
+        } finally {
+            entrada.liberar();
+        }
+    }
+
+    @Override
+    public int contar(Long idUsuario, Lancamento filtro, Collection<Long> categorias, Collection<String> tags) {
+        EstruturasPorUsuario.Entrada<IndiceBitmapLancamentos> entrada = indices.ler(idUsuario);
+
+        try {
+            return selecionar(entrada.getEstrutura(), filtro, categorias, tags).cardinality();
+        } finally {
+            entrada.liberar();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+        indices.aoAlterarLancamento(evento);
+    }
+
+    private BitSet selecionar(IndiceBitmapLancamentos indice, Lancamento filtro,
+                              Collection<Long> categorias, Collection<String> tags) {
+        return indice.filtrar(filtro.getAno(), filtro.getMes(), ordinal(filtro.getTipo()), ordinal(filtro.getStatus()),
+                categorias, tags);
+    }
+
+    private IndiceBitmapLancamentos carregar(Long idUsuario) {
+        List<Object[]> linhas = repository.obterAtributosIndicePorUsuario(idUsuario);
+        Map<Long, Set<String>> tagsPorId = new HashMap<>();
+
+        for (Object[] linha : repository.obterTagsPorUsuario(idUsuario)) {
+            tagsPorId.computeIfAbsent((Long) linha[0], id -> new HashSet<>()).add((String) linha[1]);
+        }
+
+        IndiceBitmapLancamentos indice = new IndiceBitmapLancamentos(
+                linhas.size(), TipoLancamento.values().length, StatusLancamento.values().length);
+
+        for (Object[] linha : linhas) {
+            Long id = (Long) linha[0];
+
+            indice.gravar(
+                    id,
+                    (Integer) linha[1],
+                    (Integer) linha[2],
+                    ordinal((TipoLancamento) linha[3]),
+                    ordinal((StatusLancamento) linha[4]),
+                    (Long) linha[5],
+                    tagsPorId.getOrDefault(id, Set.of())
+            );
+        }
+
+        return indice;
+    }
+
+    private static void gravar(IndiceBitmapLancamentos indice, Lancamento lancamento) {
+        indice.gravar(
+                lancamento.getId(),
+                lancamento.getAno(),
+                lancamento.getMes(),
+                ordinal(lancamento.getTipo()),
+                ordinal(lancamento.getStatus()),
+                lancamento.getCategoria() == null ? null : lancamento.getCategoria().getId(),
+                lancamento.getTags() == null ? Set.of() : lancamento.getTags()
+        );
+    }
+
+    private static int ordinal(Enum<?> valor) {
+        return valor == null ? ColunasLancamento.QUALQUER : valor.ordinal();
+    }
+}
@@ -0,0 +1,309 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.CamposLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.FaixasLancamento;
+import br.edu.gustavo.minhasfinancas.service.LancamentoService;
+import br.edu.gustavo.minhasfinancas.service.busca.CacheBuscaLancamentos;
+import br.edu.gustavo.minhasfinancas.service.busca.CopiasBusca;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Coalescência (single-flight) das leituras de saldo e de busca: chamadas idênticas e simultâneas
+ * compartilham uma única execução no banco e o seu resultado. As demais operações passam direto para
+ * o {@link LancamentoServiceImpl}.
+ *
+ * A chave é a operação, o usuário, o filtro normalizado e a geração do usuário. A geração avança
+ * depois do commit de cada escrita nos lançamentos dele, então quem chega depois de uma escrita
+ * confirmada nunca pega carona em uma consulta iniciada antes dela: a geração é outra, e portanto a
+ * chave também. Como o avanço acontece antes da resposta da escrita, quem escreveu sempre lê o que
+ * escreveu. As gerações ficam em faixas fixas por hash do usuário; usuários que dividem uma faixa
+ * só perdem algumas coalescências.
+ *
+ * Dentro de uma transação a chamada não é coalescida, porque pode depender de escritas ainda não
+ * confirmadas dessa transação.
+ *
+ * As contagens ficam nas métricas {@code minhasfinancas.coalescencia.chamadas} (por operação e
+ * resultado: executada, compartilhada ou direta) e {@code minhasfinancas.coalescencia.razao}
+ * (fração das chamadas coalescíveis que foram compartilhadas).
+ *
+ * Os resultados de busca também ficam no {@link CacheBuscaLancamentos}, com a chave sem a geração.
+ * Uma busca encontrada lá não vai ao banco nem entra na coalescência; uma busca executada só é guardada
+ * se a geração ainda for a do início da consulta, e cada escrita confirmada remove as buscas guardadas
+ * do usuário (e do dono anterior, se o lançamento mudou de usuário) depois de avançar a geração.
+ *
+ * Inserções passam pela {@link GravacaoAgrupadaLancamentos}, que as grava direto quando a gravação
+ * agrupada está desligada.
+ */
+@Primary
+@Service
+public class LancamentoServiceCoalescente implements LancamentoService {
+
+    private static final int FAIXAS_DE_GERACAO = 4096;
+
+    private final LancamentoServiceImpl servico;
+    private final GravacaoAgrupadaLancamentos gravacaoAgrupada;
+    private final CacheBuscaLancamentos cacheBusca;
+
+    private final AtomicLongArray geracoes = new AtomicLongArray(FAIXAS_DE_GERACAO);
+    private final Map<Chave, CompletableFuture<Object>> emVoo = new ConcurrentHashMap<>();
+
+    private final Operacao saldo;
+    private final Operacao busca;
+
+    public LancamentoServiceCoalescente(LancamentoServiceImpl servico, GravacaoAgrupadaLancamentos gravacaoAgrupada,
+                                        CacheBuscaLancamentos cacheBusca, MeterRegistry registry) {
+        this.servico = servico;
+        this.gravacaoAgrupada = gravacaoAgrupada;
+        this.cacheBusca = cacheBusca;
+        this.saldo = new Operacao("saldo", registry, false);
+        this.busca = new Operacao("buscar", registry, true);
+
+        Gauge.builder("minhasfinancas.coalescencia.em-voo", emVoo, Map::size).register(registry);
+    }
+
+    @Override
+    public BigDecimal obterSaldoPorUsuario(Long id) {
+        return coalescer(saldo, id, List.of(), () -> servico.obterSaldoPorUsuario(id), UnaryOperator.identity());
+    }
+
+    @Override
+    public List<Lancamento> buscar(Lancamento lancamentoFiltro) {
+        return buscar(lancamentoFiltro, List.of(), List.of());
+    }
+
+    @Override
+    public List<Lancamento> buscar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags) {
+        return coalescer(busca, idUsuario(lancamentoFiltro),
+                filtro(lancamentoFiltro, categorias, tags, FaixasLancamento.NENHUMA, null),
+                () -> servico.buscar(lancamentoFiltro, categorias, tags), CopiasBusca::lancamentos);
+    }
+
+    @Override
+    public List<Lancamento> buscar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags,
+                                   FaixasLancamento faixas) {
+        return coalescer(busca, idUsuario(lancamentoFiltro), filtro(lancamentoFiltro, categorias, tags, faixas, null),
+                () -> servico.buscar(lancamentoFiltro, categorias, tags, faixas), CopiasBusca::lancamentos);
+    }
+
+    @Override
+    public List<Map<String, Object>> buscar(Lancamento lancamentoFiltro, Collection<Long> categorias,
+                                            Collection<String> tags, FaixasLancamento faixas,
+                                            CamposLancamento campos) {
+        return coalescer(busca, idUsuario(lancamentoFiltro), filtro(lancamentoFiltro, categorias, tags, faixas, campos),
+                () -> servico.buscar(lancamentoFiltro, categorias, tags, faixas, campos), CopiasBusca::campos);
+    }
+
+    @Override
+    public Lancamento salvar(Lancamento lancamento) {
+        return gravacaoAgrupada.salvar(lancamento);
+    }
+
+    @Override
+    public Lancamento atualizar(Lancamento lancamento) {
+        return servico.atualizar(lancamento);
+    }
+
+    @Override
+    public void deletar(Lancamento lancamento) {
+        servico.deletar(lancamento);
+    }
+
+    @Override
+    public long contar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags,
+                       FaixasLancamento faixas) {
+        return servico.contar(lancamentoFiltro, categorias, tags, faixas);
+    }
+
+    @Override
+    public void atualizarStatus(Lancamento lancamento, StatusLancamento status) {
+        servico.atualizarStatus(lancamento, status);
+    }
+
+    @Override
+    public void validar(Lancamento lancamento) {
+        servico.validar(lancamento);
+    }
+
+    @Override
+    public Optional<Lancamento> obterPorId(Long id) {
+        return servico.obterPorId(id);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> obterPorId(Long id, CamposLancamento campos) {
+        return servico.obterPorId(id, campos);
+    }
+
+    /**
+     * Um lançamento que mudou de usuário altera as consultas dos dois, então a geração do dono
+     * anterior também avança e as buscas guardadas dele também saem do cache.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+        geracoes.incrementAndGet(faixa(evento.getIdUsuario()));
+        cacheBusca.invalidar(evento.getIdUsuario());
+
+        Long anterior = evento.getAnterior() == null ? null : evento.getAnterior().getIdUsuario();
+
+        if (anterior != null && !anterior.equals(evento.getIdUsuario())) {
+            geracoes.incrementAndGet(faixa(anterior));
+            cacheBusca.invalidar(anterior);
+        }
+    }
+
+    /**
+     * Executa a consulta ou espera a que já está em andamento com a mesma chave. Quem executa fica
+     * com o próprio resultado; dele sai um único instantâneo somente leitura ({@code instantaneo}),
+     * entregue como está a quem esperou e guardado no cache de busca, que o devolve nos acertos.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T coalescer(Operacao operacao, Long idUsuario, List<Object> filtro, Supplier<T> consulta,
+                            UnaryOperator<T> instantaneo) {
+        if (idUsuario == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            operacao.diretas.increment();
+            return consulta.get();
+        }
+
+        if (operacao.guardada) {
+            Object guardado = cacheBusca.obter(idUsuario, filtro);
+
+            if (guardado != null) {
+                return (T) guardado;
+            }
+        }
+
+        long geracao = geracoes.get(faixa(idUsuario));
+        Chave chave = new Chave(operacao.nome, idUsuario, filtro, geracao);
+        CompletableFuture<Object> voo = new CompletableFuture<>();
+        CompletableFuture<Object> emAndamento = emVoo.putIfAbsent(chave, voo);
+
+        if (emAndamento != null) {
+            operacao.compartilhadas.increment();
+
+            try {
+                return (T) emAndamento.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+
+                throw e;
+            }
+        }
+
+        operacao.executadas.increment();
+
+        try {
+            T resultado = consulta.get();
+            T compartilhado = instantaneo.apply(resultado);
+            voo.complete(compartilhado);
+
+            if (operacao.guardada) {
+                cacheBusca.guardar(idUsuario, filtro, compartilhado, () -> geracoes.get(faixa(idUsuario)) == geracao);
+            }
+
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            voo.completeExceptionally(e);
+            throw e;
+        } finally {
+            emVoo.remove(chave, voo);
+        }
+    }
+
+    private static Long idUsuario(Lancamento filtro) {
+        return filtro.getUsuario() == null ? null : filtro.getUsuario().getId();
+    }
+
+    /**
+     * Os critérios que {@code buscar} usa, normalizados como ele os interpreta: descrição sem
+     * diferenciar maiúsculas, categorias e tags sem ordem nem repetição.
+     */
+    private static List<Object> filtro(Lancamento filtro, Collection<Long> categorias, Collection<String> tags,
+                                       FaixasLancamento faixas, CamposLancamento campos) {
+        return Arrays.asList(
+                filtro.getAno(),
+                filtro.getMes(),
+                filtro.getDescricao() == null ? null : filtro.getDescricao().toLowerCase(),
+                filtro.getTipo(),
+                filtro.getStatus(),
+                filtro.getValor(),
+                categorias.stream().filter(Objects::nonNull).distinct().sorted().collect(Collectors.toList()),
+                tags.stream().filter(Objects::nonNull).map(tag -> tag.trim().toLowerCase())
+                        .filter(tag -> !tag.isEmpty()).distinct().sorted().collect(Collectors.toList()),
+                faixas,
+                campos == null ? null : campos.getChave());
+    }
+
+    private static int faixa(Long idUsuario) {
+        return Math.floorMod(Long.hashCode(idUsuario), FAIXAS_DE_GERACAO);
+    }
+
+    @Value
+    private static class Chave {
+
+        String operacao;
+        Long idUsuario;
+        List<Object> filtro;
+        long geracao;
+    }
+
+    private static final class Operacao {
+
+        private final String nome;
+        private final boolean guardada;
+        private final Counter executadas;
+        private final Counter compartilhadas;
+        private final Counter diretas;
+
+        Operacao(String nome, MeterRegistry registry, boolean guardada) {
+            this.nome = nome;
+            this.guardada = guardada;
+            this.executadas = contador(registry, nome, "executada");
+            this.compartilhadas = contador(registry, nome, "compartilhada");
+            this.diretas = contador(registry, nome, "direta");
+
+            Gauge.builder("minhasfinancas.coalescencia.razao", this, Operacao::razao)
+                    .tag("operacao", nome)
+                    .register(registry);
+        }
+
+        double razao() {
+            double total = executadas.count() + compartilhadas.count();
+
+            return total == 0 ? 0 : compartilhadas.count() / total;
+        }
+
+        private static Counter contador(MeterRegistry registry, String operacao, String resultado) {
+            return Counter.builder("minhasfinancas.coalescencia.chamadas")
+                    .tag("operacao", operacao)
+                    .tag("resultado", resultado)
+                    .register(registry);
+        }
+    }
+}
@@ -1,38 +1,88 @@
 package br.edu.gustavo.minhasfinancas.service.impl;
 
 import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.entity.EstadoLancamento;
 import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
 import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
 import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.CamposLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.FaixasLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.CategoriaRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
 import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.IndiceLancamentoService;
 import br.edu.gustavo.minhasfinancas.service.LancamentoService;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class LancamentoServiceImpl implements LancamentoService {
 
+    private static final int IDS_POR_CONSULTA = 1000;
+    private static final int TAMANHO_MAXIMO_TAG = 30;
+
     private LancamentoRepository repository;
+    private LancamentoArquivoRepository arquivoRepository;
+    private CategoriaRepository categoriaRepository;
+    private IndiceLancamentoService indiceService;
+    private ApplicationEventPublisher eventPublisher;
 
-    public LancamentoServiceImpl(LancamentoRepository repository) {
+    public LancamentoServiceImpl(
+            LancamentoRepository repository,
+            LancamentoArquivoRepository arquivoRepository,
+            CategoriaRepository categoriaRepository,
+            IndiceLancamentoService indiceService,
+            ApplicationEventPublisher eventPublisher
+    ) {
         this.repository = repository;
+        this.arquivoRepository = arquivoRepository;
+        this.categoriaRepository = categoriaRepository;
+        this.indiceService = indiceService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     @Transactional
     public Lancamento salvar(Lancamento lancamento) {
-        validar(lancamento);
+        prepararNovo(lancamento);
 
         lancamento.setStatus(StatusLancamento.PENDENTE);
+        lancamento.setDataCadastro(LocalDate.now());
+
+        Lancamento lancamentoSalvo = repository.save(lancamento);
+
+        publicar(lancamentoSalvo, LancamentoAlteradoEvent.Operacao.SALVO, null);
 
-        return repository.save(lancamento);
+        return lancamentoSalvo;
+    }
+
+    /**
+     * Normaliza e valida um lançamento que ainda vai ser salvo, como {@link #salvar} faz antes de
+     * gravá-lo.
+     */
+    public void prepararNovo(Lancamento lancamento) {
+        lancamento.setTags(normalizarTags(lancamento.getTags()));
+
+        validar(lancamento);
     }
 
     @Override
@@ -40,9 +90,17 @@ public class LancamentoServiceImpl implements LancamentoService {
     public Lancamento atualizar(Lancamento lancamento) {
         Objects.requireNonNull(lancamento.getId());
 
+        lancamento.setTags(normalizarTags(lancamento.getTags()));
+
         validar(lancamento);
 
-        return repository.save(lancamento);
+        EstadoLancamento anterior = estadoAnterior(lancamento);
+
+        Lancamento lancamentoAtualizado = repository.save(lancamento);
+
+        publicar(lancamentoAtualizado, LancamentoAlteradoEvent.Operacao.ATUALIZADO, anterior);
+
+        return lancamentoAtualizado;
     }
 
     @Override
@@ -50,21 +108,144 @@ public class LancamentoServiceImpl implements LancamentoService {
     public void deletar(Lancamento lancamento) {
         Objects.requireNonNull(lancamento.getId());
 
+        EstadoLancamento anterior = estadoAnterior(lancamento);
+
         repository.delete(lancamento);
+
+        publicar(lancamento, LancamentoAlteradoEvent.Operacao.DELETADO,
+                anterior != null ? anterior : EstadoLancamento.de(lancamento));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Lancamento> buscar(Lancamento lancamentoFiltro) {
-        Example<Lancamento> example = Example.of(
-                lancamentoFiltro,
-                ExampleMatcher
-                        .matching()
-                        .withIgnoreCase()
-                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
-        );
+        return buscar(lancamentoFiltro, List.of(), List.of());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Lancamento> buscar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags) {
+        return buscar(lancamentoFiltro, categorias, tags, FaixasLancamento.NENHUMA);
+    }
+
+    /**
+     * Sem categorias e tags a busca continua sendo feita pelo {@link Example}, somado às faixas
+     * quando houver. Com elas, o índice de bitmaps do usuário escolhe os ids e só essas linhas são
+     * lidas; os critérios e as faixas são conferidos nas linhas lidas, já que o índice não guarda
+     * todos e é atualizado depois do commit.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Lancamento> buscar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags,
+                                   FaixasLancamento faixas) {
+        Set<String> tagsFiltro = normalizarTags(tags);
+        boolean semUsuario = lancamentoFiltro.getUsuario() == null || lancamentoFiltro.getUsuario().getId() == null;
+
+        List<Lancamento> lancamentos;
+
+        if (semUsuario || (categorias.isEmpty() && tagsFiltro.isEmpty())) {
+            Example<Lancamento> exemplo = exemplo(lancamentoFiltro);
+
+            lancamentos = faixas.isVazia() ? repository.findAll(exemplo) : repository.findAll(faixas.comExemplo(exemplo));
+        } else {
+            lancamentos = obterPorIds(indiceService.filtrar(
+                    lancamentoFiltro.getUsuario().getId(), lancamentoFiltro, categorias, tagsFiltro));
+            lancamentos.removeIf(lancamento -> !casa(lancamentoFiltro, lancamento) || !faixas.casa(lancamento));
+        }
+
+        if (!categorias.isEmpty() || !tagsFiltro.isEmpty()) {
+            lancamentos.removeIf(lancamento -> !casaCategoriasETags(lancamento, categorias, tagsFiltro));
+        }
+
+        if (semUsuario) {
+            return lancamentos;
+        }
+
+        Long idUsuario = lancamentoFiltro.getUsuario().getId();
+        List<Lancamento> arquivados = arquivoRepository.buscar(
+                lancamentoFiltro.getUsuario(), lancamentoFiltro, idsArquivadosNoBanco(idUsuario, lancamentoFiltro.getAno()),
+                lancamento -> casa(lancamentoFiltro, lancamento) && faixas.casa(lancamento)
+                        && casaCategoriasETags(lancamento, categorias, tagsFiltro));
+
+        if (arquivados.isEmpty()) {
+            return lancamentos;
+        }
+
+        completarCategorias(arquivados);
+
+        // Um arquivamento em andamento ou interrompido pode deixar a mesma linha no banco e no arquivo
+        Set<Long> idsNoBanco = lancamentos.stream().map(Lancamento::getId).collect(Collectors.toSet());
+
+        arquivados.removeIf(lancamento -> idsNoBanco.contains(lancamento.getId()));
+        arquivados.addAll(0, lancamentos);
+
+        return arquivados;
+    }
+
+    /**
+     * No caminho do {@link Example} (sem categorias e tags) a consulta lê só as colunas pedidas; nos
+     * demais os lançamentos são buscados inteiros e reduzidos às propriedades pedidas na resposta.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> buscar(Lancamento lancamentoFiltro, Collection<Long> categorias,
+                                            Collection<String> tags, FaixasLancamento faixas,
+                                            CamposLancamento campos) {
+        boolean semUsuario = lancamentoFiltro.getUsuario() == null || lancamentoFiltro.getUsuario().getId() == null;
+
+        if (semUsuario || !categorias.isEmpty() || !normalizarTags(tags).isEmpty()) {
+            return buscar(lancamentoFiltro, categorias, tags, faixas).stream()
+                    .map(campos::projetar)
+                    .collect(Collectors.toList());
+        }
+
+        Map<Long, Map<String, Object>> noBanco = repository.buscarCampos(lancamentoFiltro, faixas, campos);
+        List<Map<String, Object>> lancamentos = new ArrayList<>(noBanco.values());
+
+        List<Lancamento> arquivados = arquivoRepository.buscar(
+                lancamentoFiltro.getUsuario(), lancamentoFiltro,
+                idsArquivadosNoBanco(lancamentoFiltro.getUsuario().getId(), lancamentoFiltro.getAno()),
+                lancamento -> casa(lancamentoFiltro, lancamento) && faixas.casa(lancamento));
+
+        if (campos.usaCategoria()) {
+            completarCategorias(arquivados);
+        }
+
+        arquivados.stream()
+                .filter(lancamento -> !noBanco.containsKey(lancamento.getId()))
+                .map(campos::projetar)
+                .forEach(lancamentos::add);
+
+        return lancamentos;
+    }
+
+    /**
+     * Quando o filtro usa só campos indexados e não há faixas, a contagem sai do índice de bitmaps,
+     * sem ler as linhas do banco. Com faixas e sem categorias e tags, o banco conta com os mesmos
+     * critérios da busca; só os arquivados são lidos para a contagem.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long contar(Lancamento lancamentoFiltro, Collection<Long> categorias, Collection<String> tags,
+                       FaixasLancamento faixas) {
+        boolean semUsuario = lancamentoFiltro.getUsuario() == null || lancamentoFiltro.getUsuario().getId() == null;
+        Set<String> tagsFiltro = normalizarTags(tags);
+
+        boolean faixasNoBanco = !faixas.isVazia() && categorias.isEmpty() && tagsFiltro.isEmpty();
+
+        if (semUsuario || (!faixasNoBanco && (!faixas.isVazia() || possuiCriteriosForaDoIndice(lancamentoFiltro)))) {
+            return buscar(lancamentoFiltro, categorias, tags, faixas).size();
+        }
 
-        return repository.findAll(example);
+        long noBanco = faixasNoBanco
+                ? repository.count(faixas.comExemplo(exemplo(lancamentoFiltro)))
+                : indiceService.contar(lancamentoFiltro.getUsuario().getId(), lancamentoFiltro, categorias, tagsFiltro);
+        long arquivados = arquivoRepository.buscar(lancamentoFiltro.getUsuario(), lancamentoFiltro,
+                idsArquivadosNoBanco(lancamentoFiltro.getUsuario().getId(), lancamentoFiltro.getAno()), lancamento ->
+                casa(lancamentoFiltro, lancamento) && faixas.casa(lancamento)
+                        && casaCategoriasETags(lancamento, categorias, tagsFiltro)).size();
+
+        return noBanco + arquivados;
     }
 
     @Override
@@ -92,13 +273,31 @@ public class LancamentoServiceImpl implements LancamentoService {
             throw new RegraNegocioException("Informe um Usuário");
         }
 
-        if (lancamento.getValor() == null || lancamento.getValor().compareTo(BigDecimal.ZERO) < 1) {
+        if (lancamento.getValor() == null || lancamento.getValor().signum() <= 0) {
             throw new RegraNegocioException("Informe um Valor válido");
         }
 
+        if (!Dinheiro.emCentavos(lancamento.getValor())) {
+            throw new RegraNegocioException("Informe um Valor com até duas casas decimais");
+        }
+
+        if (!Dinheiro.cabeNaColuna(lancamento.getValor())) {
+            throw new RegraNegocioException("Informe um Valor de até " + Dinheiro.MAXIMO);
+        }
+
         if (lancamento.getTipo() == null) {
             throw new RegraNegocioException("Informe um Tipo de Lançamento");
         }
+
+        if (lancamento.getCategoria() != null && (lancamento.getCategoria().getUsuario() == null
+                || !lancamento.getUsuario().getId().equals(lancamento.getCategoria().getUsuario().getId()))) {
+            throw new RegraNegocioException("A Categoria informada não pertence ao Usuário");
+        }
+
+        if (lancamento.getTags() != null && lancamento.getTags().stream().anyMatch(tag ->
+                tag == null || tag.trim().isEmpty() || tag.length() > TAMANHO_MAXIMO_TAG || tag.contains(","))) {
+            throw new RegraNegocioException("Informe Tags de até 30 caracteres, sem vírgulas");
+        }
     }
 
     @Override
@@ -106,16 +305,161 @@ public class LancamentoServiceImpl implements LancamentoService {
         return repository.findById(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> obterPorId(Long id, CamposLancamento campos) {
+        return repository.obterCamposPorId(id, campos);
+    }
+
     @Override
     @Transactional
     public BigDecimal obterSaldoPorUsuario(Long id) {
-        BigDecimal receitas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO);
-        BigDecimal despesas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO);
+        long receitas = Dinheiro.centavosOuZero(
+                repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO));
+        long despesas = Dinheiro.centavosOuZero(
+                repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO));
+
+        Set<Long> idsNoBanco = idsArquivadosNoBanco(id, null);
+        long arquivado = Dinheiro.subtrair(
+                arquivoRepository.somarCentavos(id, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, idsNoBanco),
+                arquivoRepository.somarCentavos(id, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, idsNoBanco));
+
+        return Dinheiro.reais(Dinheiro.somar(Dinheiro.subtrair(receitas, despesas), arquivado));
+    }
+
+    /**
+     * O {@link Example} das buscas: descrição contida sem diferenciar maiúsculas, demais campos
+     * preenchidos no filtro iguais.
+     */
+    private static Example<Lancamento> exemplo(Lancamento lancamentoFiltro) {
+        return Example.of(
+                lancamentoFiltro,
+                ExampleMatcher
+                        .matching()
+                        .withIgnoreCase()
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
+        );
+    }
+
+    /**
+     * Ids de lançamentos dos anos arquivados (só do ano informado, quando houver) que ainda estão no
+     * banco: a versão do banco vale no lugar da arquivada. Sem anos arquivados não consulta o banco.
+     */
+    private Set<Long> idsArquivadosNoBanco(Long idUsuario, Integer ano) {
+        List<Integer> anos = arquivoRepository.anos(idUsuario);
+
+        if (ano != null) {
+            anos = anos.contains(ano) ? List.of(ano) : List.of();
+        }
+
+        return anos.isEmpty() ? Set.of() : repository.obterIdsPorUsuarioEAnos(idUsuario, anos);
+    }
+
+    /**
+     * Mesmo critério do {@link Example} usado em {@link #buscar}, aplicado aos lançamentos arquivados:
+     * descrição contida sem diferenciar maiúsculas, demais campos preenchidos no filtro iguais.
+     */
+    private boolean casa(Lancamento filtro, Lancamento lancamento) {
+        if (filtro.getDescricao() != null && !lancamento.getDescricao().toLowerCase()
+                .contains(filtro.getDescricao().toLowerCase())) {
+            return false;
+        }
 
-        if (receitas == null) receitas = BigDecimal.ZERO;
+        if (filtro.getValor() != null && filtro.getValor().compareTo(lancamento.getValor()) != 0) {
+            return false;
+        }
+
+        return igualSePreenchido(filtro.getId(), lancamento.getId())
+                && igualSePreenchido(filtro.getMes(), lancamento.getMes())
+                && igualSePreenchido(filtro.getAno(), lancamento.getAno())
+                && igualSePreenchido(filtro.getTipo(), lancamento.getTipo())
+                && igualSePreenchido(filtro.getStatus(), lancamento.getStatus())
+                && igualSePreenchido(filtro.getDataCadastro(), lancamento.getDataCadastro())
+                && igualSePreenchido(filtro.getIdRecorrencia(), lancamento.getIdRecorrencia())
+                && igualSePreenchido(filtro.getParcela(), lancamento.getParcela());
+    }
+
+    private boolean igualSePreenchido(Object filtro, Object valor) {
+        return filtro == null || filtro.equals(valor);
+    }
+
+    private boolean casaCategoriasETags(Lancamento lancamento, Collection<Long> categorias, Set<String> tags) {
+        if (!categorias.isEmpty() && (lancamento.getCategoria() == null
+                || !categorias.contains(lancamento.getCategoria().getId()))) {
+            return false;
+        }
+
+        return tags.isEmpty() || (lancamento.getTags() != null && lancamento.getTags().stream().anyMatch(tags::contains));
+    }
+
+    private boolean possuiCriteriosForaDoIndice(Lancamento filtro) {
+        return filtro.getId() != null || filtro.getDescricao() != null || filtro.getValor() != null
+                || filtro.getDataCadastro() != null || filtro.getIdRecorrencia() != null
+                || filtro.getParcela() != null || filtro.getCategoria() != null;
+    }
+
+    private List<Lancamento> obterPorIds(List<Long> ids) {
+        List<Lancamento> lancamentos = new ArrayList<>(ids.size());
+
+        for (int inicio = 0; inicio < ids.size(); inicio += IDS_POR_CONSULTA) {
+            lancamentos.addAll(repository.obterPorIds(ids.subList(inicio, Math.min(inicio + IDS_POR_CONSULTA, ids.size()))));
+        }
+
+        return lancamentos;
+    }
 
-        if (despesas == null) despesas = BigDecimal.ZERO;
+    /**
+     * Lançamentos arquivados guardam só o id da categoria.
+     */
+    private void completarCategorias(List<Lancamento> lancamentos) {
+        Set<Long> ids = lancamentos.stream()
+                .filter(lancamento -> lancamento.getCategoria() != null)
+                .map(lancamento -> lancamento.getCategoria().getId())
+                .collect(Collectors.toSet());
 
-        return receitas.subtract(despesas);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Categoria> categorias = categoriaRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Categoria::getId, Function.identity()));
+
+        lancamentos.stream()
+                .filter(lancamento -> lancamento.getCategoria() != null)
+                .forEach(lancamento -> lancamento.setCategoria(
+                        categorias.getOrDefault(lancamento.getCategoria().getId(), lancamento.getCategoria())));
+    }
+
+    private Set<String> normalizarTags(Collection<String> tags) {
+        Set<String> normalizadas = new HashSet<>();
+
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag != null && !tag.trim().isEmpty()) {
+                    normalizadas.add(tag.trim().toLowerCase());
+                }
+            }
+        }
+
+        return normalizadas;
+    }
+
+    /**
+     * Valores do lançamento no banco antes desta escrita. A instância que o recurso leu traz o estado
+     * de quando foi carregada; uma instância montada a partir do DTO é procurada pelo id, o que dentro
+     * da mesma sessão devolve a entidade já carregada sem ir ao banco.
+     */
+    private EstadoLancamento estadoAnterior(Lancamento lancamento) {
+        if (lancamento.getEstadoPersistido() != null) {
+            return lancamento.getEstadoPersistido();
+        }
+
+        return repository.findById(lancamento.getId()).map(Lancamento::getEstadoPersistido).orElse(null);
+    }
+
+    private void publicar(Lancamento lancamento, LancamentoAlteradoEvent.Operacao operacao, EstadoLancamento anterior) {
+        if (lancamento != null && lancamento.getUsuario() != null) {
+            eventPublisher.publishEvent(LancamentoAlteradoEvent.de(lancamento, operacao, anterior));
+        }
     }
 }
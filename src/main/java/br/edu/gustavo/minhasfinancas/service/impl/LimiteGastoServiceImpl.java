@@ -0,0 +1,425 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.entity.AlertaLimite;
+import br.edu.gustavo.minhasfinancas.model.entity.EstadoLancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.LimiteGasto;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.AlertaLimiteRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LimiteGastoRepository;
+import br.edu.gustavo.minhasfinancas.service.LimiteGastoService;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Confere os limites mensais de despesas a cada escrita de lançamento, sem somar a tabela de
+ * lançamentos a cada vez.
+ *
+ * Para cada usuário, ano e mês tocado há um contador com o total das despesas não canceladas do mês
+ * e o total por categoria. O contador é carregado do banco uma vez, na primeira escrita do mês, e
+ * depois só recebe a diferença entre o estado anterior e o novo de cada lançamento, depois do commit.
+ * Um alerta é gerado quando a escrita leva o total de dentro do limite para acima dele, e é
+ * entregue por uma thread própria que grava os alertas em lotes.
+ *
+ * Cada escrita recebe um número de geração assim que o evento chega, e o contador guarda a geração
+ * de quando foi carregado: uma escrita numerada até ali já estava commitada antes da leitura do banco
+ * e não é somada de novo. Os contadores ainda expiram e são recarregados de tempos em tempos, o que
+ * corrige qualquer diferença restante.
+ *
+ * Cada contador é alterado sob o bloqueio do usuário dono do mês, que pode não ser o usuário do
+ * evento quando o lançamento mudou de dono. Os limites de cada usuário ficam guardados por no máximo
+ * o mesmo tempo dos contadores e para no máximo {@code usuarios-maximos} usuários.
+ */
+@Slf4j
+@Service
+public class LimiteGastoServiceImpl implements LimiteGastoService {
+
+    private static final int BLOQUEIOS = 64;
+    private static final int ALERTAS_POR_LOTE = 100;
+
+    private final LimiteGastoRepository repository;
+    private final AlertaLimiteRepository alertaRepository;
+    private final LancamentoRepository lancamentoRepository;
+    private final int contadoresMaximos;
+    private final int usuariosMaximos;
+    private final long ttlContadorMs;
+
+    private final Map<Long, LimitesCarregados> limitesPorUsuario = new ConcurrentHashMap<>();
+    private final AtomicLong geracoes = new AtomicLong();
+    private final Map<ChaveMes, Contador> contadores = new ConcurrentHashMap<>();
+    private final Object[] bloqueios = new Object[BLOQUEIOS];
+    private final BlockingQueue<AlertaLimite> alertasPendentes;
+
+    private Thread entregador;
+
+    public LimiteGastoServiceImpl(
+            LimiteGastoRepository repository,
+            AlertaLimiteRepository alertaRepository,
+            LancamentoRepository lancamentoRepository,
+            @Value("${minhasfinancas.limite.contadores-maximos:100000}") int contadoresMaximos,
+            @Value("${minhasfinancas.limite.usuarios-maximos:100000}") int usuariosMaximos,
+            @Value("${minhasfinancas.limite.contador-ttl-minutos:10}") long ttlContadorMinutos,
+            @Value("${minhasfinancas.limite.fila-alertas:1000}") int filaAlertas
+    ) {
+        this.repository = repository;
+        this.alertaRepository = alertaRepository;
+        this.lancamentoRepository = lancamentoRepository;
+        this.contadoresMaximos = contadoresMaximos;
+        this.usuariosMaximos = usuariosMaximos;
+        this.ttlContadorMs = TimeUnit.MINUTES.toMillis(ttlContadorMinutos);
+        this.alertasPendentes = new ArrayBlockingQueue<>(filaAlertas);
+
+        for (int i = 0; i < BLOQUEIOS; i++) {
+            bloqueios[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        entregador = new Thread(this::entregarAlertas, "alertas-limite");
+        entregador.setDaemon(true);
+        entregador.start();
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        entregador.interrupt();
+        entregador.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Override
+    @Transactional
+    public LimiteGasto salvar(LimiteGasto limite) {
+        validar(limite);
+
+        Long idUsuario = limite.getUsuario().getId();
+        Long idCategoria = limite.getCategoria() == null ? null : limite.getCategoria().getId();
+
+        LimiteGasto gravado = repository.findByUsuarioId(idUsuario).stream()
+                .filter(existente -> Objects.equals(idCategoria,
+                        existente.getCategoria() == null ? null : existente.getCategoria().getId()))
+                .findFirst()
+                .map(existente -> {
+                    existente.setValor(limite.getValor());
+                    return existente;
+                })
+                .orElse(limite);
+
+        LimiteGasto limiteSalvo = repository.save(gravado);
+
+        descartarLimitesAposCommit(idUsuario);
+
+        return limiteSalvo;
+    }
+
+    @Override
+    public void validar(LimiteGasto limite) {
+        if (limite.getUsuario() == null || limite.getUsuario().getId() == null) {
+            throw new RegraNegocioException("Informe um Usuário");
+        }
+
+        if (limite.getValor() == null || limite.getValor().compareTo(BigDecimal.ZERO) < 1) {
+            throw new RegraNegocioException("Informe um Valor válido");
+        }
+
+        if (!Dinheiro.cabeNaColuna(limite.getValor())) {
+            throw new RegraNegocioException("Informe um Valor de até " + Dinheiro.MAXIMO);
+        }
+
+        if (limite.getCategoria() != null && (limite.getCategoria().getUsuario() == null
+                || !limite.getUsuario().getId().equals(limite.getCategoria().getUsuario().getId()))) {
+            throw new RegraNegocioException("A Categoria informada não pertence ao Usuário");
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<LimiteGasto> listarPorUsuario(Long idUsuario) {
+        return repository.findByUsuarioId(idUsuario);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AlertaLimite> listarAlertas(Long idUsuario) {
+        return alertaRepository.findTop50ByUsuarioIdOrderByDataHoraDesc(idUsuario);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+        // Numerada antes de qualquer leitura: um contador carregado depois já inclui esta escrita
+        long geracao = geracoes.incrementAndGet();
+        Long idUsuario = evento.getIdUsuario();
+
+        if (evento.getOperacao() == LancamentoAlteradoEvent.Operacao.LOTE) {
+            synchronized (bloqueio(idUsuario)) {
+                contadores.keySet().removeIf(chave -> chave.getIdUsuario().equals(idUsuario));
+            }
+            return;
+        }
+
+        Map<ChaveMes, Map<Long, Long>> variacoes = new HashMap<>();
+
+        acumular(variacoes, evento.getAnterior(), -1);
+
+        if (evento.getOperacao() != LancamentoAlteradoEvent.Operacao.DELETADO) {
+            acumular(variacoes, EstadoLancamento.de(evento.getLancamento()), 1);
+        }
+
+        variacoes.forEach((chave, porCategoria) -> {
+            List<LimiteGasto> limites = limites(chave.getIdUsuario());
+
+            if (limites.isEmpty()) {
+                return;
+            }
+
+            synchronized (bloqueio(chave.getIdUsuario())) {
+                aplicar(chave, porCategoria, limites, geracao);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${minhasfinancas.limite.limpeza-ms:60000}")
+    public void removerContadoresExpirados() {
+        long agora = System.currentTimeMillis();
+
+        contadores.values().removeIf(contador -> contador.expirado(agora, ttlContadorMs));
+        limitesPorUsuario.values().removeIf(limites -> agora - limites.carregadosEm > ttlContadorMs);
+    }
+
+    private List<LimiteGasto> limites(Long idUsuario) {
+        LimitesCarregados carregados = limitesPorUsuario.get(idUsuario);
+
+        if (carregados != null) {
+            return carregados.limites;
+        }
+
+        if (limitesPorUsuario.size() >= usuariosMaximos) {
+            return repository.findByUsuarioId(idUsuario);
+        }
+
+        return limitesPorUsuario.computeIfAbsent(idUsuario, id ->
+                new LimitesCarregados(repository.findByUsuarioId(id), System.currentTimeMillis())).limites;
+    }
+
+    /**
+     * Soma ao mapa a contribuição do lançamento para o gasto do seu mês, por categoria. Receitas e
+     * lançamentos cancelados não contam.
+     */
+    private void acumular(Map<ChaveMes, Map<Long, Long>> variacoes, EstadoLancamento estado, int sinal) {
+        if (estado == null || estado.getTipo() != TipoLancamento.DESPESA
+                || estado.getStatus() == StatusLancamento.CANCELADO || estado.getValor() == null) {
+            return;
+        }
+
+        variacoes.computeIfAbsent(new ChaveMes(estado.getIdUsuario(), estado.getAno(), estado.getMes()),
+                        chave -> new HashMap<>())
+                .merge(estado.getIdCategoria(), sinal * Dinheiro.centavos(estado.getValor()), Dinheiro::somar);
+    }
+
+    private void aplicar(ChaveMes chave, Map<Long, Long> variacoes, List<LimiteGasto> limites, long geracao) {
+        if (variacoes.values().stream().allMatch(variacao -> variacao == 0)) {
+            return;
+        }
+
+        Contador existente = contadores.get(chave);
+        Contador contador;
+
+        if (existente != null && !existente.expirado(System.currentTimeMillis(), ttlContadorMs)) {
+            if (geracao <= existente.geracao) {
+                // Commitada antes da carga do contador: o total lido do banco já a inclui
+                return;
+            }
+
+            contador = existente;
+        } else {
+            contador = carregar(chave);
+
+            // O total lido já inclui esta escrita; volta ao estado anterior para aplicá-la abaixo
+            variacoes.forEach((idCategoria, variacao) -> contador.somar(idCategoria, -variacao));
+
+            if (existente != null || contadores.size() < contadoresMaximos) {
+                contadores.put(chave, contador);
+            }
+        }
+
+        long totalAntes = contador.total;
+        Map<Long, Long> categoriasAntes = new HashMap<>();
+
+        variacoes.forEach((idCategoria, variacao) -> {
+            categoriasAntes.put(idCategoria, contador.total(idCategoria));
+            contador.somar(idCategoria, variacao);
+        });
+
+        for (LimiteGasto limite : limites) {
+            long limiteCentavos = Dinheiro.centavos(limite.getValor());
+
+            if (limite.getCategoria() == null) {
+                alertarSeUltrapassou(chave, limite, limiteCentavos, totalAntes, contador.total);
+            } else if (categoriasAntes.containsKey(limite.getCategoria().getId())) {
+                Long idCategoria = limite.getCategoria().getId();
+
+                alertarSeUltrapassou(chave, limite, limiteCentavos, categoriasAntes.get(idCategoria),
+                        contador.total(idCategoria));
+            }
+        }
+    }
+
+    private Contador carregar(ChaveMes chave) {
+        Contador contador = new Contador(System.currentTimeMillis(), geracoes.get());
+
+        for (Object[] linha : lancamentoRepository.obterSomaPorCategoriaNoMes(chave.getIdUsuario(), chave.getAno(),
+                chave.getMes(), TipoLancamento.DESPESA, StatusLancamento.CANCELADO)) {
+            contador.somar((Long) linha[0], Dinheiro.centavos((BigDecimal) linha[1]));
+        }
+
+        return contador;
+    }
+
+    private void alertarSeUltrapassou(ChaveMes chave, LimiteGasto limite, long limiteCentavos, long antes, long depois) {
+        if (antes > limiteCentavos || depois <= limiteCentavos) {
+            return;
+        }
+
+        AlertaLimite alerta = AlertaLimite.builder()
+                .usuario(limite.getUsuario())
+                .categoria(limite.getCategoria())
+                .ano(chave.getAno())
+                .mes(chave.getMes())
+                .valorLimite(limite.getValor())
+                .valorGasto(Dinheiro.reais(depois))
+                .dataHora(LocalDateTime.now())
+                .build();
+
+        if (!alertasPendentes.offer(alerta)) {
+            log.warn("Fila de alertas de limite cheia; alerta do usuário {} em {}/{} descartado",
+                    chave.getIdUsuario(), chave.getMes(), chave.getAno());
+        }
+    }
+
+    private void entregarAlertas() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<AlertaLimite> lote = new ArrayList<>(ALERTAS_POR_LOTE);
+
+            try {
+                lote.add(alertasPendentes.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            alertasPendentes.drainTo(lote, ALERTAS_POR_LOTE - 1);
+
+            entregar(lote);
+        }
+
+        List<AlertaLimite> restantes = new ArrayList<>();
+        alertasPendentes.drainTo(restantes);
+
+        if (!restantes.isEmpty()) {
+            entregar(restantes);
+        }
+    }
+
+    private void entregar(List<AlertaLimite> alertas) {
+        try {
+            alertaRepository.saveAll(alertas);
+
+            for (AlertaLimite alerta : alertas) {
+                log.info("Limite de gasto ultrapassado: usuário {}, {}/{}, gasto {} de {}",
+                        alerta.getUsuario().getId(), alerta.getMes(), alerta.getAno(),
+                        alerta.getValorGasto(), alerta.getValorLimite());
+            }
+        } catch (RuntimeException e) {
+            log.error("Falha ao gravar {} alertas de limite", alertas.size(), e);
+        }
+    }
+
+    private void descartarLimitesAposCommit(Long idUsuario) {
+        limitesPorUsuario.remove(idUsuario);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    limitesPorUsuario.remove(idUsuario);
+                }
+            });
+        }
+    }
+
+    private Object bloqueio(Long idUsuario) {
+        return bloqueios[(int) Math.floorMod(idUsuario, (long) BLOQUEIOS)];
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class ChaveMes {
+        private final Long idUsuario;
+        private final Integer ano;
+        private final Integer mes;
+    }
+
+    @AllArgsConstructor
+    private static class LimitesCarregados {
+        private final List<LimiteGasto> limites;
+        private final long carregadosEm;
+    }
+
+    /**
+     * Gastos de um mês em centavos. Só é alterado sob o bloqueio do usuário dono do mês.
+     */
+    private static class Contador {
+
+        private final long carregadoEm;
+        private final long geracao;
+        private final Map<Long, Long> porCategoria = new HashMap<>();
+        private long total;
+
+        Contador(long carregadoEm, long geracao) {
+            this.carregadoEm = carregadoEm;
+            this.geracao = geracao;
+        }
+
+        void somar(Long idCategoria, long centavos) {
+            total = Dinheiro.somar(total, centavos);
+            porCategoria.merge(idCategoria, centavos, Dinheiro::somar);
+        }
+
+        long total(Long idCategoria) {
+            return porCategoria.getOrDefault(idCategoria, 0L);
+        }
+
+        boolean expirado(long agora, long ttlMs) {
+            return agora - carregadoEm > ttlMs;
+        }
+    }
+}
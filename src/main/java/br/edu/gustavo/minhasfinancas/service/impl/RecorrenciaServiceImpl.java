@@ -0,0 +1,264 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.dinheiro.Dinheiro;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Recorrencia;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoLoteRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.RecorrenciaRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.TravaAgendamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.shard.ContextoShard;
+import br.edu.gustavo.minhasfinancas.service.RecorrenciaService;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class RecorrenciaServiceImpl implements RecorrenciaService {
+
+    private static final String TRAVA = "recorrencia.materializar-pendentes";
+
+    private final RecorrenciaRepository repository;
+    private final LancamentoLoteRepository loteRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TravaAgendamentoRepository travaRepository;
+    private final Duration prazoTrava;
+    private final int horizonteMeses;
+    private final int tamanhoParticao;
+    private final int tamanhoLote;
+
+    public RecorrenciaServiceImpl(
+            RecorrenciaRepository repository,
+            LancamentoLoteRepository loteRepository,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            TravaAgendamentoRepository travaRepository,
+            @Value("${minhasfinancas.recorrencia.trava-minutos:120}") long minutosTrava,
+            @Value("${minhasfinancas.recorrencia.horizonte-meses:3}") int horizonteMeses,
+            @Value("${minhasfinancas.recorrencia.usuarios-por-particao:200}") int tamanhoParticao,
+            @Value("${minhasfinancas.recorrencia.tamanho-lote:500}") int tamanhoLote
+    ) {
+        this.repository = repository;
+        this.loteRepository = loteRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.travaRepository = travaRepository;
+        this.prazoTrava = Duration.ofMinutes(minutosTrava);
+        this.horizonteMeses = horizonteMeses;
+        this.tamanhoParticao = tamanhoParticao;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    @Override
+    @Transactional
+    public Recorrencia salvar(Recorrencia recorrencia) {
+        validar(recorrencia);
+
+        recorrencia.setParcelasGeradas(0);
+        recorrencia.setAtiva(true);
+
+        Recorrencia recorrenciaSalva = repository.save(recorrencia);
+
+        materializar(List.of(recorrenciaSalva), limiteMaterializacao());
+
+        return recorrenciaSalva;
+    }
+
+    @Override
+    public void validar(Recorrencia recorrencia) {
+        if (recorrencia.getDescricao() == null || recorrencia.getDescricao().trim().equals("")) {
+            throw new RegraNegocioException("Informe uma Descrição válida");
+        }
+
+        if (recorrencia.getMesInicio() == null || recorrencia.getMesInicio() < 1 || recorrencia.getMesInicio() > 12) {
+            throw new RegraNegocioException("Informe um Mês de início válido");
+        }
+
+        if (recorrencia.getAnoInicio() == null || recorrencia.getAnoInicio().toString().length() != 4) {
+            throw new RegraNegocioException("Informe um Ano de início válido");
+        }
+
+        if (recorrencia.getUsuario() == null || recorrencia.getUsuario().getId() == null) {
+            throw new RegraNegocioException("Informe um Usuário");
+        }
+
+        if (recorrencia.getValor() == null || recorrencia.getValor().signum() <= 0) {
+            throw new RegraNegocioException("Informe um Valor válido");
+        }
+
+        if (!Dinheiro.emCentavos(recorrencia.getValor())) {
+            throw new RegraNegocioException("Informe um Valor com até duas casas decimais");
+        }
+
+        if (!Dinheiro.cabeNaColuna(recorrencia.getValor())) {
+            throw new RegraNegocioException("Informe um Valor de até " + Dinheiro.MAXIMO);
+        }
+
+        if (recorrencia.getTipo() == null) {
+            throw new RegraNegocioException("Informe um Tipo de Lançamento");
+        }
+
+        if (recorrencia.getTotalParcelas() != null && recorrencia.getTotalParcelas() < 1) {
+            throw new RegraNegocioException("Informe uma quantidade de parcelas válida");
+        }
+
+        if (recorrencia.getDataFim() != null && YearMonth.from(recorrencia.getDataFim())
+                .isBefore(YearMonth.of(recorrencia.getAnoInicio(), recorrencia.getMesInicio()))) {
+            throw new RegraNegocioException("A data de fim não pode ser anterior ao início da recorrência");
+        }
+    }
+
+    /**
+     * Gera as ocorrências que vencem até o horizonte configurado para todos os usuários.
+     *
+     * Os usuários são processados em partições, cada uma em sua própria transação e com um único
+     * insert em lote. O progresso fica em {@code parcelasGeradas}, atualizado na mesma transação
+     * dos inserts, então reexecutar o job não duplica lançamentos. Com sharding o job roda uma vez
+     * em cada shard.
+     *
+     * Com várias instâncias da aplicação só a que adquirir a trava no banco executa o job; as outras
+     * devolvem zero. Uma partição que falha é registrada no log e o job segue para a próxima, que não
+     * depende dela; a partição que falhou é refeita na execução seguinte.
+     */
+    @Override
+    @Scheduled(cron = "${minhasfinancas.recorrencia.cron:0 0 3 * * *}")
+    public int materializarPendentes() {
+        if (!travaRepository.adquirir(TRAVA, prazoTrava)) {
+            log.info("Recorrências: job já em execução em outra instância");
+            return 0;
+        }
+
+        try {
+            return ContextoShard.somarEmCadaShard(this::materializarPendentesNoShard);
+        } finally {
+            travaRepository.liberar(TRAVA);
+        }
+    }
+
+    private int materializarPendentesNoShard() {
+        List<Long> usuarios = repository.obterUsuariosComRecorrenciasPendentes();
+        YearMonth limite = limiteMaterializacao();
+        int total = 0;
+
+        for (int inicio = 0; inicio < usuarios.size(); inicio += tamanhoParticao) {
+            List<Long> particao = usuarios.subList(inicio, Math.min(inicio + tamanhoParticao, usuarios.size()));
+
+            Integer geradas;
+
+            try {
+                geradas = transactionTemplate.execute(status ->
+                        materializar(repository.obterPendentesPorUsuarios(particao), limite));
+            } catch (RuntimeException e) {
+                log.error("Recorrências: falha na partição {}-{} de {} usuários",
+                        inicio, inicio + particao.size(), usuarios.size(), e);
+                continue;
+            }
+
+            total += geradas;
+
+            log.info("Recorrências: partição {}-{} de {} usuários concluída, {} lançamentos gerados",
+                    inicio, inicio + particao.size(), usuarios.size(), geradas);
+        }
+
+        return total;
+    }
+
+    public List<Lancamento> gerarOcorrencias(Recorrencia recorrencia, YearMonth limite) {
+        List<Lancamento> ocorrencias = new ArrayList<>();
+        YearMonth inicio = YearMonth.of(recorrencia.getAnoInicio(), recorrencia.getMesInicio());
+        Integer totalParcelas = recorrencia.getTotalParcelas();
+        int geradas = recorrencia.getParcelasGeradas() == null ? 0 : recorrencia.getParcelasGeradas();
+
+        for (int parcela = geradas + 1; totalParcelas == null || parcela <= totalParcelas; parcela++) {
+            YearMonth competencia = inicio.plusMonths(parcela - 1);
+
+            if (competencia.isAfter(limite)) {
+                break;
+            }
+
+            if (recorrencia.getDataFim() != null && competencia.isAfter(YearMonth.from(recorrencia.getDataFim()))) {
+                break;
+            }
+
+            String descricao = totalParcelas == null
+                    ? recorrencia.getDescricao()
+                    : recorrencia.getDescricao() + " (" + parcela + "/" + totalParcelas + ")";
+
+            ocorrencias.add(Lancamento.builder()
+                    .descricao(descricao)
+                    .mes(competencia.getMonthValue())
+                    .ano(competencia.getYear())
+                    .usuario(recorrencia.getUsuario())
+                    .valor(recorrencia.getValor())
+                    .tipo(recorrencia.getTipo())
+                    .status(StatusLancamento.PENDENTE)
+                    .dataCadastro(LocalDate.now())
+                    .idRecorrencia(recorrencia.getId())
+                    .parcela(parcela)
+                    .build());
+        }
+
+        return ocorrencias;
+    }
+
+    /**
+     * Se todas as ocorrências da recorrência já foram geradas: a última parcela, ou a próxima
+     * competência passaria da data de fim.
+     */
+    public boolean encerrada(Recorrencia recorrencia) {
+        int geradas = recorrencia.getParcelasGeradas() == null ? 0 : recorrencia.getParcelasGeradas();
+
+        if (recorrencia.getTotalParcelas() != null && geradas >= recorrencia.getTotalParcelas()) {
+            return true;
+        }
+
+        YearMonth proxima = YearMonth.of(recorrencia.getAnoInicio(), recorrencia.getMesInicio()).plusMonths(geradas);
+
+        return recorrencia.getDataFim() != null && proxima.isAfter(YearMonth.from(recorrencia.getDataFim()));
+    }
+
+    private int materializar(List<Recorrencia> recorrencias, YearMonth limite) {
+        List<Lancamento> novos = new ArrayList<>();
+
+        for (Recorrencia recorrencia : recorrencias) {
+            List<Lancamento> ocorrencias = gerarOcorrencias(recorrencia, limite);
+
+            if (!ocorrencias.isEmpty()) {
+                novos.addAll(ocorrencias);
+                recorrencia.setParcelasGeradas(ocorrencias.get(ocorrencias.size() - 1).getParcela());
+            }
+
+            recorrencia.setAtiva(!encerrada(recorrencia));
+        }
+
+        if (!novos.isEmpty()) {
+            loteRepository.inserir(novos, tamanhoLote);
+
+            novos.stream()
+                    .map(lancamento -> lancamento.getUsuario().getId())
+                    .distinct()
+                    .forEach(idUsuario -> eventPublisher.publishEvent(LancamentoAlteradoEvent.lote(idUsuario)));
+        }
+
+        return novos.size();
+    }
+
+    private YearMonth limiteMaterializacao() {
+        return YearMonth.now().plusMonths(horizonteMeses);
+    }
+}
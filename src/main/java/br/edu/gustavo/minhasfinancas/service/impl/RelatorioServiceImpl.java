@@ -0,0 +1,323 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.RelatorioService;
+import br.edu.gustavo.minhasfinancas.service.relatorio.RelatorioAnual;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Gera extratos anuais em CSV fora da thread da requisição.
+ *
+ * Os pedidos entram em um pool com número fixo de threads e fila limitada; quando a fila está
+ * cheia o pedido é recusado com {@link java.util.concurrent.RejectedExecutionException}. Cada
+ * extrato percorre os lançamentos do ano com um cursor do banco e escreve direto no arquivo, então
+ * a memória usada por job não depende da quantidade de lançamentos.
+ *
+ * Enquanto o extrato de um usuário e ano está em andamento, novos pedidos recebem o mesmo relatório
+ * em vez de enfileirar outro job: o pedido é registrado com {@code computeIfAbsent} antes de ir ao
+ * pool, então pedidos simultâneos não geram jobs duplicados.
+ */
+@Slf4j
+@Service
+public class RelatorioServiceImpl implements RelatorioService {
+
+    private static final String SEPARADOR = ";";
+
+    private final LancamentoRepository lancamentoRepository;
+    private final LancamentoArquivoRepository arquivoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Path diretorio;
+    private final long retencaoMinutos;
+
+    private final Map<String, RelatorioAnual> relatorios = new ConcurrentHashMap<>();
+    private final Map<String, RelatorioAnual> emAndamento = new ConcurrentHashMap<>();
+
+    public RelatorioServiceImpl(
+            LancamentoRepository lancamentoRepository,
+            LancamentoArquivoRepository arquivoRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${minhasfinancas.relatorio.threads:2}") int threads,
+            @Value("${minhasfinancas.relatorio.fila:20}") int fila,
+            @Value("${minhasfinancas.relatorio.diretorio:${java.io.tmpdir}/minhasfinancas-relatorios}") String diretorio,
+            @Value("${minhasfinancas.relatorio.retencao-minutos:60}") long retencaoMinutos
+    ) {
+        this.lancamentoRepository = lancamentoRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.diretorio = Paths.get(diretorio);
+        this.retencaoMinutos = retencaoMinutos;
+
+        AtomicInteger contador = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fila), runnable -> {
+                    Thread thread = new Thread(runnable, "relatorio-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public RelatorioAnual solicitarExtratoAnual(Long idUsuario, Integer ano) {
+        if (ano == null || ano.toString().length() != 4) {
+            throw new RegraNegocioException("Informe um Ano válido");
+        }
+
+        String chave = chaveEmAndamento(idUsuario, ano);
+        RelatorioAnual novo = new RelatorioAnual(idUsuario, ano);
+        RelatorioAnual relatorio = emAndamento.computeIfAbsent(chave, k -> novo);
+
+        if (relatorio != novo) {
+            return relatorio;
+        }
+
+        relatorios.put(relatorio.getId(), relatorio);
+
+        try {
+            executor.execute(() -> gerar(relatorio));
+        } catch (RejectedExecutionException e) {
+            emAndamento.remove(chave, relatorio);
+            relatorios.remove(relatorio.getId());
+            throw e;
+        }
+
+        return relatorio;
+    }
+
+    @Override
+    public Optional<RelatorioAnual> obterPorId(Long idUsuario, String id) {
+        return Optional.ofNullable(relatorios.get(id))
+                .filter(relatorio -> relatorio.getIdUsuario().equals(idUsuario));
+    }
+
+    @Scheduled(fixedDelayString = "${minhasfinancas.relatorio.limpeza-ms:300000}")
+    public void removerExpirados() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(retencaoMinutos);
+        Iterator<RelatorioAnual> iterator = relatorios.values().iterator();
+
+        while (iterator.hasNext()) {
+            RelatorioAnual relatorio = iterator.next();
+
+            if (!relatorio.isEmAndamento() && relatorio.getConcluidoEm().isBefore(limite)) {
+                iterator.remove();
+                excluirArquivo(relatorio.getArquivo());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private void gerar(RelatorioAnual relatorio) {
+        relatorio.iniciar();
+
+        Path temporario = null;
+
+        try {
+            Files.createDirectories(diretorio);
+
+            temporario = Files.createTempFile(diretorio, relatorio.getId(), ".tmp");
+
+            try (BufferedWriter writer = Files.newBufferedWriter(temporario, StandardCharsets.UTF_8)) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Linhas ainda no banco durante um arquivamento saem do banco, não do arquivo
+                    Set<Long> idsNoBanco = arquivoRepository.anos(relatorio.getIdUsuario()).contains(relatorio.getAno())
+                            ? lancamentoRepository.obterIdsPorUsuarioEAnos(relatorio.getIdUsuario(), List.of(relatorio.getAno()))
+                            : Set.of();
+
+                    try (Stream<Object[]> linhas = lancamentoRepository
+                            .streamExtratoPorUsuarioEAno(relatorio.getIdUsuario(), relatorio.getAno());
+                         Stream<Object[]> arquivadas = arquivoRepository
+                                 .streamExtrato(relatorio.getIdUsuario(), relatorio.getAno(), idsNoBanco)) {
+                        escreverExtrato(relatorio.getAno(), intercalarPorMes(linhas.iterator(), arquivadas.iterator()), writer);
+                    }
+                });
+            }
+
+            Path arquivo = diretorio.resolve(relatorio.getId() + ".csv");
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            relatorio.concluir(arquivo);
+        } catch (Exception e) {
+            log.error("Falha ao gerar o extrato {} do usuário {}", relatorio.getId(), relatorio.getIdUsuario(), e);
+
+            relatorio.falhar("Não foi possível gerar o extrato");
+
+            excluirArquivo(temporario);
+        } finally {
+            emAndamento.remove(chaveEmAndamento(relatorio.getIdUsuario(), relatorio.getAno()), relatorio);
+        }
+    }
+
+    private static String chaveEmAndamento(Long idUsuario, Integer ano) {
+        return idUsuario + ":" + ano;
+    }
+
+    /**
+     * Escreve os lançamentos, já ordenados por mês, com um subtotal ao fim de cada mês e o total do
+     * ano na última linha. Subtotais consideram apenas lançamentos efetivados, como o saldo.
+     */
+    public void escreverExtrato(Integer ano, Iterator<Object[]> linhas, BufferedWriter writer) {
+        try {
+            writer.write(String.join(SEPARADOR, "mes", "descricao", "tipo", "status", "valor", "data_cadastro"));
+            writer.newLine();
+
+            Integer mesAtual = null;
+            BigDecimal receitasMes = BigDecimal.ZERO;
+            BigDecimal despesasMes = BigDecimal.ZERO;
+            BigDecimal receitasAno = BigDecimal.ZERO;
+            BigDecimal despesasAno = BigDecimal.ZERO;
+
+            while (linhas.hasNext()) {
+                Object[] linha = linhas.next();
+                Integer mes = (Integer) linha[0];
+                TipoLancamento tipo = (TipoLancamento) linha[2];
+                StatusLancamento status = (StatusLancamento) linha[3];
+                BigDecimal valor = (BigDecimal) linha[4];
+
+                if (mesAtual != null && !mesAtual.equals(mes)) {
+                    escreverSubtotal(writer, "Subtotal " + mesAtual + "/" + ano, receitasMes, despesasMes);
+                    receitasMes = BigDecimal.ZERO;
+                    despesasMes = BigDecimal.ZERO;
+                }
+
+                mesAtual = mes;
+
+                writer.write(String.join(SEPARADOR,
+                        String.valueOf(mes),
+                        escapar((String) linha[1]),
+                        tipo == null ? "" : tipo.name(),
+                        status == null ? "" : status.name(),
+                        valor == null ? "" : valor.toPlainString(),
+                        linha[5] == null ? "" : ((LocalDate) linha[5]).toString()));
+                writer.newLine();
+
+                if (status == StatusLancamento.EFETIVADO && valor != null) {
+                    if (tipo == TipoLancamento.RECEITA) {
+                        receitasMes = receitasMes.add(valor);
+                        receitasAno = receitasAno.add(valor);
+                    } else if (tipo == TipoLancamento.DESPESA) {
+                        despesasMes = despesasMes.add(valor);
+                        despesasAno = despesasAno.add(valor);
+                    }
+                }
+            }
+
+            if (mesAtual != null) {
+                escreverSubtotal(writer, "Subtotal " + mesAtual + "/" + ano, receitasMes, despesasMes);
+            }
+
+            escreverSubtotal(writer, "Total " + ano, receitasAno, despesasAno);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Junta duas sequências já ordenadas por mês (primeira coluna) mantendo a ordem.
+     */
+    private Iterator<Object[]> intercalarPorMes(Iterator<Object[]> primeiras, Iterator<Object[]> segundas) {
+        return new Iterator<>() {
+
+            private Object[] proximaPrimeira = primeiras.hasNext() ? primeiras.next() : null;
+            private Object[] proximaSegunda = segundas.hasNext() ? segundas.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return proximaPrimeira != null || proximaSegunda != null;
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Object[] linha;
+
+                if (proximaSegunda == null || (proximaPrimeira != null
+                        && (Integer) proximaPrimeira[0] <= (Integer) proximaSegunda[0])) {
+                    linha = proximaPrimeira;
+                    proximaPrimeira = primeiras.hasNext() ? primeiras.next() : null;
+                } else {
+                    linha = proximaSegunda;
+                    proximaSegunda = segundas.hasNext() ? segundas.next() : null;
+                }
+
+                return linha;
+            }
+        };
+    }
+
+    private void escreverSubtotal(BufferedWriter writer, String rotulo, BigDecimal receitas, BigDecimal despesas)
+            throws IOException {
+        writer.write(String.join(SEPARADOR, rotulo,
+                "receitas=" + receitas.toPlainString(),
+                "despesas=" + despesas.toPlainString(),
+                "saldo=" + receitas.subtract(despesas).toPlainString()));
+        writer.newLine();
+    }
+
+    private String escapar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+
+        if (texto.contains(SEPARADOR) || texto.contains("\"") || texto.contains("\n")) {
+            return "\"" + texto.replace("\"", "\"\"") + "\"";
+        }
+
+        return texto;
+    }
+
+    private void excluirArquivo(Path arquivo) {
+        if (arquivo == null) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            log.warn("Não foi possível remover o extrato {}", arquivo, e);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.service.LancamentoService;
+import br.edu.gustavo.minhasfinancas.service.SaldoService;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.edu.gustavo.minhasfinancas.service.saldo.SaldoObtido;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Guarda o último saldo calculado de cada usuário, para que o saldo continue disponível quando o
+ * banco está lento.
+ *
+ * Dentro de {@code fresco-ms} o saldo guardado é devolvido sem ir ao banco. Depois disso ele é
+ * recalculado em uma thread própria (uma atualização por usuário de cada vez) e a requisição espera
+ * até {@code espera-ms}; se a atualização não termina a tempo ou falha, o saldo guardado é devolvido
+ * como obsoleto, com a sua idade. Um saldo guardado há mais de {@code obsoleto-maximo-ms} não serve
+ * mais nem como alternativa: a requisição calcula e espera o que for preciso, como sem o cache.
+ *
+ * Escritas nos lançamentos de um usuário invalidam o saldo dele depois do commit. O valor continua
+ * guardado para o caso de o banco não responder, mas não é mais considerado fresco. Como na
+ * coalescência, uma geração por faixa de usuários impede que um cálculo iniciado antes da escrita
+ * seja guardado depois dela.
+ *
+ * No máximo {@code usuarios-maximos} saldos ficam guardados; os que passam do tempo máximo são
+ * removidos periodicamente.
+ */
+@Slf4j
+@Service
+public class SaldoServiceImpl implements SaldoService {
+
+    private static final int FAIXAS_DE_GERACAO = 4096;
+
+    private final LancamentoService lancamentoService;
+    private final boolean habilitado;
+    private final long frescoMs;
+    private final long esperaMs;
+    private final long obsoletoMaximoMs;
+    private final int usuariosMaximos;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<Long, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<BigDecimal>> atualizacoes = new ConcurrentHashMap<>();
+    private final AtomicLongArray geracoes = new AtomicLongArray(FAIXAS_DE_GERACAO);
+
+    private final Counter frescos;
+    private final Counter atualizados;
+    private final Counter obsoletos;
+    private final Counter calculados;
+
+    public SaldoServiceImpl(
+            LancamentoService lancamentoService,
+            MeterRegistry registry,
+            @Value("${minhasfinancas.saldo-cache.habilitado:true}") boolean habilitado,
+            @Value("${minhasfinancas.saldo-cache.fresco-ms:5000}") long frescoMs,
+            @Value("${minhasfinancas.saldo-cache.espera-ms:1000}") long esperaMs,
+            @Value("${minhasfinancas.saldo-cache.obsoleto-maximo-ms:600000}") long obsoletoMaximoMs,
+            @Value("${minhasfinancas.saldo-cache.usuarios-maximos:100000}") int usuariosMaximos,
+            @Value("${minhasfinancas.saldo-cache.threads:2}") int threads,
+            @Value("${minhasfinancas.saldo-cache.fila:100}") int fila
+    ) {
+        this.lancamentoService = lancamentoService;
+        this.habilitado = habilitado;
+        this.frescoMs = frescoMs;
+        this.esperaMs = esperaMs;
+        this.obsoletoMaximoMs = obsoletoMaximoMs;
+        this.usuariosMaximos = usuariosMaximos;
+
+        AtomicInteger contador = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fila), runnable -> {
+                    Thread thread = new Thread(runnable, "saldo-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.frescos = contador(registry, "fresco");
+        this.atualizados = contador(registry, "atualizado");
+        this.obsoletos = contador(registry, "obsoleto");
+        this.calculados = contador(registry, "calculado");
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public SaldoObtido obterSaldo(Long idUsuario) {
+        if (!habilitado) {
+            return new SaldoObtido(lancamentoService.obterSaldoPorUsuario(idUsuario), 0, false);
+        }
+
+        long agora = System.currentTimeMillis();
+        Entrada entrada = entradas.get(idUsuario);
+
+        if (entrada == null || agora - entrada.calculadoEm > obsoletoMaximoMs) {
+            long geracao = geracoes.get(faixa(idUsuario));
+            BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(idUsuario);
+            guardar(idUsuario, geracao, saldo);
+            calculados.increment();
+
+            return new SaldoObtido(saldo, 0, false);
+        }
+
+        if (entrada.fresca(agora, frescoMs)) {
+            frescos.increment();
+            return entrada.obtido(agora, false);
+        }
+
+        try {
+            BigDecimal saldo = atualizar(idUsuario).get(esperaMs, TimeUnit.MILLISECONDS);
+            atualizados.increment();
+
+            return new SaldoObtido(saldo, 0, false);
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("Saldo do usuário {} devolvido com {} ms de idade: {}", idUsuario, agora - entrada.calculadoEm,
+                    e instanceof TimeoutException ? "atualização demorou mais que " + esperaMs + " ms" : e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        obsoletos.increment();
+
+        return entrada.obtido(agora, true);
+    }
+
+    @Override
+    public Collection<Long> usuariosComSaldoGuardado() {
+        return new ArrayList<>(entradas.keySet());
+    }
+
+    @Override
+    public boolean possuiSaldoGuardado(Long idUsuario) {
+        return entradas.containsKey(idUsuario);
+    }
+
+    @Override
+    public Optional<BigDecimal> obterSaldoGuardado(Long idUsuario) {
+        Entrada entrada = entradas.get(idUsuario);
+
+        return entrada == null || !entrada.valida ? Optional.empty() : Optional.of(entrada.saldo);
+    }
+
+    /**
+     * Como a invalidação por escrita, avança a geração, para que um cálculo em andamento não guarde
+     * de volta o valor descartado.
+     */
+    @Override
+    public void descartarSaldoGuardado(Long idUsuario) {
+        geracoes.incrementAndGet(faixa(idUsuario));
+        entradas.remove(idUsuario);
+    }
+
+    /**
+     * Um lançamento que mudou de usuário altera o saldo dos dois, então o do dono anterior também é
+     * invalidado.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+        invalidar(evento.getIdUsuario());
+
+        Long anterior = evento.getAnterior() == null ? null : evento.getAnterior().getIdUsuario();
+
+        if (anterior != null && !anterior.equals(evento.getIdUsuario())) {
+            invalidar(anterior);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${minhasfinancas.saldo-cache.limpeza-ms:60000}")
+    public void removerSaldosExpirados() {
+        long agora = System.currentTimeMillis();
+
+        entradas.values().removeIf(entrada -> agora - entrada.calculadoEm > obsoletoMaximoMs);
+    }
+
+    private void invalidar(Long idUsuario) {
+        geracoes.incrementAndGet(faixa(idUsuario));
+        atualizacoes.remove(idUsuario);
+        entradas.computeIfPresent(idUsuario, (id, entrada) -> entrada.invalidada());
+    }
+
+    /**
+     * A atualização em andamento do usuário, ou uma nova. Se a fila das threads estiver cheia a
+     * atualização já volta com erro, e quem a pediu fica com o saldo guardado.
+     */
+    private CompletableFuture<BigDecimal> atualizar(Long idUsuario) {
+        CompletableFuture<BigDecimal> atualizacao = new CompletableFuture<>();
+        CompletableFuture<BigDecimal> emAndamento = atualizacoes.putIfAbsent(idUsuario, atualizacao);
+
+        if (emAndamento != null) {
+            return emAndamento;
+        }
+
+        long geracao = geracoes.get(faixa(idUsuario));
+
+        try {
+            executor.execute(() -> {
+                try {
+                    BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(idUsuario);
+                    guardar(idUsuario, geracao, saldo);
+                    atualizacao.complete(saldo);
+                } catch (RuntimeException | Error e) {
+                    atualizacao.completeExceptionally(e);
+                } finally {
+                    atualizacoes.remove(idUsuario, atualizacao);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            atualizacoes.remove(idUsuario, atualizacao);
+            atualizacao.completeExceptionally(e);
+        }
+
+        return atualizacao;
+    }
+
+    /**
+     * Guarda o saldo se nenhuma escrita do usuário (ou da faixa dele) foi confirmada desde que o
+     * cálculo começou. A conferência é feita dentro do {@code compute}, que é serializado com a
+     * invalidação da mesma chave.
+     */
+    private void guardar(Long idUsuario, long geracao, BigDecimal saldo) {
+        if (entradas.size() >= usuariosMaximos && !entradas.containsKey(idUsuario)) {
+            return;
+        }
+
+        entradas.compute(idUsuario, (id, atual) -> geracoes.get(faixa(id)) == geracao
+                ? new Entrada(saldo, System.currentTimeMillis(), true)
+                : atual);
+    }
+
+    private static int faixa(Long idUsuario) {
+        return Math.floorMod(Long.hashCode(idUsuario), FAIXAS_DE_GERACAO);
+    }
+
+    private static Counter contador(MeterRegistry registry, String resultado) {
+        return Counter.builder("minhasfinancas.saldo-cache.respostas")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    private static final class Entrada {
+
+        private final BigDecimal saldo;
+        private final long calculadoEm;
+        private final boolean valida;
+
+        Entrada(BigDecimal saldo, long calculadoEm, boolean valida) {
+            this.saldo = saldo;
+            this.calculadoEm = calculadoEm;
+            this.valida = valida;
+        }
+
+        boolean fresca(long agora, long frescoMs) {
+            return valida && agora - calculadoEm < frescoMs;
+        }
+
+        Entrada invalidada() {
+            return new Entrada(saldo, calculadoEm, false);
+        }
+
+        SaldoObtido obtido(long agora, boolean obsoleto) {
+            return new SaldoObtido(saldo, TimeUnit.MILLISECONDS.toSeconds(agora - calculadoEm), obsoleto);
+        }
+    }
+}
@@ -5,9 +5,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import br.edu.gustavo.minhasfinancas.exception.ErroAutenticacao;
 import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.exception.TentativasExcedidasException;
 import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.ResultadoLogin;
 import br.edu.gustavo.minhasfinancas.model.repository.UsuarioRepository;
 import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import br.edu.gustavo.minhasfinancas.service.autenticacao.AuditoriaLogin;
+import br.edu.gustavo.minhasfinancas.service.autenticacao.LimitadorLogin;
 
 import java.util.Optional;
 
@@ -15,24 +19,59 @@ import java.util.Optional;
 public class UsuarioServiceImpl implements UsuarioService {
 
 	private UsuarioRepository repository;
+	private LimitadorLogin limitador;
+	private AuditoriaLogin auditoria;
 
-	public UsuarioServiceImpl(UsuarioRepository repository) {
+	public UsuarioServiceImpl(UsuarioRepository repository, LimitadorLogin limitador, AuditoriaLogin auditoria) {
 		super();
 		this.repository = repository;
+		this.limitador = limitador;
+		this.auditoria = auditoria;
 	}
 
 	@Override
 	public Usuario autenticar(String email, String senha) {
-		Optional<Usuario> usuario = repository.findByEmail(email);
+		return autenticar(email, senha, null);
+	}
+
+	/**
+	 * Tentativas de um email ou de uma origem com falhas demais são recusadas antes de consultar o
+	 * banco; as aceitas contam como falha até a senha conferir. Toda tentativa, aceita ou não, vai
+	 * para a auditoria.
+	 */
+	@Override
+	public Usuario autenticar(String email, String senha, String origem) {
+		long segundosParaNovaTentativa = limitador.reservarTentativa(email, origem);
+
+		if (segundosParaNovaTentativa > 0) {
+			auditoria.registrar(email, origem, ResultadoLogin.BLOQUEADO);
+			throw new TentativasExcedidasException(
+					"Muitas tentativas de login sem sucesso; tente novamente em alguns instantes",
+					segundosParaNovaTentativa);
+		}
+
+		Optional<Usuario> usuario;
+
+		try {
+			usuario = repository.findByEmail(email);
+		} catch (RuntimeException e) {
+			limitador.cancelarReserva(email, origem);
+			throw e;
+		}
 
 		if (usuario.isEmpty()) {
+			auditoria.registrar(email, origem, ResultadoLogin.USUARIO_INEXISTENTE);
 			throw new ErroAutenticacao("Usuário não encontrado para o email informado");
 		}
 
 		if (!usuario.get().getSenha().equals(senha)) {
+			auditoria.registrar(email, origem, ResultadoLogin.SENHA_INVALIDA);
 			throw new ErroAutenticacao("Senha inválida");
 		}
 
+		limitador.registrarSucesso(email, origem);
+		auditoria.registrar(email, origem, ResultadoLogin.SUCESSO);
+
 		return usuario.get();
 	}
 
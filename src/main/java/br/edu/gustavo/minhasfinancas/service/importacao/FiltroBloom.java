@@ -0,0 +1,71 @@
+package br.edu.gustavo.minhasfinancas.service.importacao;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de hashes SHA-256 em hexadecimal: diz com certeza que um hash nunca foi
+ * adicionado, ou que talvez tenha sido. Como o hash já é uniforme, as posições de cada elemento vêm
+ * dos seus primeiros 128 bits por hash duplo, sem calcular outras funções de hash.
+ *
+ * Dimensionado para {@code capacidade} elementos com a taxa de falsos positivos pedida; passando da
+ * capacidade continua correto, mas a taxa sobe, e {@link #saturado()} indica que é hora de montar
+ * outro maior. Os bits são atualizados com compare-and-set, então adicionar e consultar podem
+ * acontecer em threads diferentes ao mesmo tempo.
+ */
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long quantidadeBits;
+    private final int funcoes;
+    private final int capacidade;
+    private final AtomicInteger adicionados = new AtomicInteger();
+
+    public FiltroBloom(int capacidade, double taxaFalsosPositivos) {
+        double ln2 = Math.log(2);
+        long quantidadeBits = (long) Math.ceil(-capacidade * Math.log(taxaFalsosPositivos) / (ln2 * ln2));
+
+        this.quantidadeBits = Math.max(64, quantidadeBits);
+        this.bits = new AtomicLongArray((int) ((this.quantidadeBits + 63) / 64));
+        this.funcoes = Math.max(1, (int) Math.round((double) this.quantidadeBits / capacidade * ln2));
+        this.capacidade = capacidade;
+    }
+
+    public void adicionar(String hash) {
+        long h1 = Long.parseUnsignedLong(hash.substring(0, 16), 16);
+        long h2 = Long.parseUnsignedLong(hash.substring(16, 32), 16);
+
+        for (int i = 0; i < funcoes; i++) {
+            long posicao = Long.remainderUnsigned(h1 + i * h2, quantidadeBits);
+            int palavra = (int) (posicao >>> 6);
+            long mascara = 1L << posicao;
+
+            long atual;
+
+            do {
+                atual = bits.get(palavra);
+            } while ((atual & mascara) == 0 && !bits.compareAndSet(palavra, atual, atual | mascara));
+        }
+
+        adicionados.incrementAndGet();
+    }
+
+    public boolean podeConter(String hash) {
+        long h1 = Long.parseUnsignedLong(hash.substring(0, 16), 16);
+        long h2 = Long.parseUnsignedLong(hash.substring(16, 32), 16);
+
+        for (int i = 0; i < funcoes; i++) {
+            long posicao = Long.remainderUnsigned(h1 + i * h2, quantidadeBits);
+
+            if ((bits.get((int) (posicao >>> 6)) & (1L << posicao)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public boolean saturado() {
+        return adicionados.get() > capacidade;
+    }
+}
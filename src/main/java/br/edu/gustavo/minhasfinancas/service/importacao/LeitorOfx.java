@@ -0,0 +1,219 @@
+package br.edu.gustavo.minhasfinancas.service.importacao;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lê as transações de um extrato OFX uma de cada vez, sem carregar o arquivo na memória.
+ *
+ * Aceita as duas versões do formato: a 1.x, em SGML, em que os elementos simples não são fechados
+ * ({@code <TRNAMT>-12.50}), e a 2.x, em XML. O leitor não valida a estrutura do documento; só
+ * acompanha a conta ({@code ACCTID}) e os elementos de cada {@code STMTTRN}. A codificação vem do
+ * cabeçalho: UTF-8 quando declarada, windows-1252 para o {@code CHARSET:1252} dos arquivos 1.x, e
+ * ISO-8859-1 para os demais 1.x.
+ */
+public class LeitorOfx implements Closeable {
+
+    private static final int TAMANHO_CABECALHO = 1024;
+    private static final int TAMANHO_MAXIMO = 4096;
+    private static final DateTimeFormatter DATA = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Reader leitor;
+    private int proximo = -2;
+    private String conta;
+
+    public LeitorOfx(InputStream entrada) throws IOException {
+        BufferedInputStream buffer = new BufferedInputStream(entrada);
+
+        this.leitor = new BufferedReader(new InputStreamReader(buffer, codificacao(buffer)));
+    }
+
+    /**
+     * A próxima transação do extrato, ou {@code null} no fim do arquivo.
+     */
+    public TransacaoOfx proxima() throws IOException {
+        Map<String, String> campos = null;
+        String tag;
+
+        while ((tag = proximaTag()) != null) {
+            if (tag.equals("STMTTRN")) {
+                campos = new HashMap<>();
+            } else if (tag.equals("/STMTTRN")) {
+                if (campos != null) {
+                    return transacao(campos);
+                }
+            } else if (!tag.startsWith("/") && !tag.startsWith("?") && !tag.startsWith("!")) {
+                String valor = texto();
+
+                if (tag.equals("ACCTID")) {
+                    conta = valor;
+                } else if (campos != null && !valor.isEmpty()) {
+                    campos.putIfAbsent(tag, valor);
+                }
+            }
+        }
+
+        if (campos != null) {
+            throw invalido("o arquivo termina no meio de uma transação");
+        }
+
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        leitor.close();
+    }
+
+    private TransacaoOfx transacao(Map<String, String> campos) {
+        String data = campos.get("DTPOSTED");
+        String valor = campos.get("TRNAMT");
+
+        if (data == null || data.length() < 8 || valor == null) {
+            throw invalido("transação sem DTPOSTED ou TRNAMT");
+        }
+
+        try {
+            return new TransacaoOfx(
+                    conta,
+                    campos.get("FITID"),
+                    LocalDate.parse(data.substring(0, 8), DATA),
+                    new BigDecimal(normalizarValor(valor)),
+                    campos.get("NAME"),
+                    campos.get("MEMO"));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw invalido("data ou valor ilegível na transação " + campos.getOrDefault("FITID", ""));
+        }
+    }
+
+    /**
+     * Alguns bancos brasileiros escrevem o valor com vírgula decimal.
+     */
+    private static String normalizarValor(String valor) {
+        String normalizado = valor.replace("+", "");
+
+        return normalizado.indexOf('.') < 0 ? normalizado.replace(',', '.') : normalizado.replace(",", "");
+    }
+
+    /**
+     * Avança até a próxima tag e devolve o nome em maiúsculas, com a barra das tags de fechamento e
+     * sem atributos; {@code null} no fim do arquivo.
+     */
+    private String proximaTag() throws IOException {
+        int c;
+
+        while ((c = ler()) != -1 && c != '<') {
+            // texto fora de elementos simples: cabeçalho 1.x e espaços entre agregados
+        }
+
+        if (c == -1) {
+            return null;
+        }
+
+        StringBuilder nome = new StringBuilder();
+
+        while ((c = ler()) != -1 && c != '>') {
+            if (nome.length() >= TAMANHO_MAXIMO) {
+                throw invalido("tag longa demais");
+            }
+
+            nome.append((char) c);
+        }
+
+        String tag = nome.toString().trim();
+        int espaco = tag.indexOf(' ');
+
+        if (espaco > 0) {
+            tag = tag.substring(0, espaco);
+        }
+
+        if (tag.endsWith("/")) {
+            tag = tag.substring(0, tag.length() - 1);
+        }
+
+        return tag.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * O texto até a próxima tag, que não é consumida.
+     */
+    private String texto() throws IOException {
+        StringBuilder texto = new StringBuilder();
+        int c;
+
+        while ((c = espiar()) != -1 && c != '<') {
+            if (texto.length() >= TAMANHO_MAXIMO) {
+                throw invalido("valor longo demais");
+            }
+
+            texto.append((char) ler());
+        }
+
+        return texto.toString().trim()
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+
+    private int ler() throws IOException {
+        if (proximo != -2) {
+            int c = proximo;
+            proximo = -2;
+            return c;
+        }
+
+        return leitor.read();
+    }
+
+    private int espiar() throws IOException {
+        if (proximo == -2) {
+            proximo = leitor.read();
+        }
+
+        return proximo;
+    }
+
+    private static Charset codificacao(BufferedInputStream entrada) throws IOException {
+        byte[] inicio = new byte[TAMANHO_CABECALHO];
+
+        entrada.mark(TAMANHO_CABECALHO);
+        int lidos = entrada.readNBytes(inicio, 0, TAMANHO_CABECALHO);
+        entrada.reset();
+
+        String cabecalho = new String(inicio, 0, lidos, StandardCharsets.ISO_8859_1)
+                .toUpperCase(Locale.ROOT)
+                .replaceAll("\\s", "");
+
+        if (cabecalho.contains("ENCODING:UTF-8") || cabecalho.contains("ENCODING=\"UTF-8\"")) {
+            return StandardCharsets.UTF_8;
+        }
+
+        if (!cabecalho.contains("OFXHEADER:")) {
+            return StandardCharsets.UTF_8;
+        }
+
+        return cabecalho.contains("CHARSET:1252") ? Charset.forName("windows-1252") : StandardCharsets.ISO_8859_1;
+    }
+
+    private static RegraNegocioException invalido(String motivo) {
+        return new RegraNegocioException("Arquivo OFX inválido: " + motivo);
+    }
+}
@@ -0,0 +1,17 @@
+package br.edu.gustavo.minhasfinancas.service.importacao;
+
+import lombok.Value;
+
+/**
+ * Contagem das transações de um arquivo importado. {@code duplicadas} já existiam como lançamentos
+ * (ou se repetiam no próprio arquivo); {@code ignoradas} têm valor zero ou caem em um ano
+ * arquivado, que não aceita lançamentos novos.
+ */
+@Value
+public class ResultadoImportacao {
+
+    int lidas;
+    int importadas;
+    int duplicadas;
+    int ignoradas;
+}
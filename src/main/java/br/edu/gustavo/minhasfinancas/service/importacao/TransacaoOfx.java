@@ -0,0 +1,22 @@
+package br.edu.gustavo.minhasfinancas.service.importacao;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Uma transação ({@code STMTTRN}) de um extrato OFX. {@code identificador} é o {@code FITID}, que o
+ * banco deveria manter estável entre extratos da mesma conta mas que alguns bancos omitem;
+ * {@code conta} é o {@code ACCTID} do extrato em que a transação apareceu.
+ */
+@Value
+public class TransacaoOfx {
+
+    String conta;
+    String identificador;
+    LocalDate data;
+    BigDecimal valor;
+    String nome;
+    String memo;
+}
@@ -0,0 +1,55 @@
+package br.edu.gustavo.minhasfinancas.service.relatorio;
+
+import br.edu.gustavo.minhasfinancas.model.enums.StatusRelatorio;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Situação de um pedido de extrato anual. Fica apenas em memória; o arquivo gerado vai para o
+ * diretório configurado e é removido junto com o pedido quando este expira.
+ */
+@Getter
+public class RelatorioAnual {
+
+    private final String id = UUID.randomUUID().toString();
+    private final Long idUsuario;
+    private final Integer ano;
+    private final LocalDateTime criadoEm = LocalDateTime.now();
+
+    private volatile StatusRelatorio status = StatusRelatorio.PENDENTE;
+    private volatile LocalDateTime concluidoEm;
+    private volatile String mensagemErro;
+
+    @JsonIgnore
+    private volatile Path arquivo;
+
+    public RelatorioAnual(Long idUsuario, Integer ano) {
+        this.idUsuario = idUsuario;
+        this.ano = ano;
+    }
+
+    @JsonIgnore
+    public boolean isEmAndamento() {
+        return status == StatusRelatorio.PENDENTE || status == StatusRelatorio.PROCESSANDO;
+    }
+
+    public void iniciar() {
+        status = StatusRelatorio.PROCESSANDO;
+    }
+
+    public void concluir(Path arquivo) {
+        this.arquivo = arquivo;
+        this.concluidoEm = LocalDateTime.now();
+        this.status = StatusRelatorio.CONCLUIDO;
+    }
+
+    public void falhar(String mensagemErro) {
+        this.mensagemErro = mensagemErro;
+        this.concluidoEm = LocalDateTime.now();
+        this.status = StatusRelatorio.ERRO;
+    }
+}
@@ -0,0 +1,18 @@
+package br.edu.gustavo.minhasfinancas.service.saldo;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Saldo de um usuário com a idade do cálculo. {@code obsoleto} indica que o saldo passou da janela de
+ * frescor e não pôde ser recalculado a tempo (banco lento ou indisponível), e foi devolvido assim
+ * mesmo.
+ */
+@Value
+public class SaldoObtido {
+
+    BigDecimal saldo;
+    long idadeSegundos;
+    boolean obsoleto;
+}
@@ -0,0 +1,24 @@
+-- Recorrências mensais e compras parceladas materializadas como lançamentos
+
+CREATE TABLE financas.recorrencia
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  descricao character varying(100) NOT NULL,
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
+  valor numeric(16,2) NOT NULL,
+  tipo character varying(20) NOT NULL CHECK (tipo IN ('RECEITA', 'DESPESA')),
+  mes_inicio integer NOT NULL,
+  ano_inicio integer NOT NULL,
+  total_parcelas integer,
+  data_fim date,
+  parcelas_geradas integer NOT NULL DEFAULT 0
+);
+
+CREATE INDEX idx_recorrencia_usuario ON financas.recorrencia (id_usuario);
+
+ALTER TABLE financas.lancamento
+  ADD COLUMN id_recorrencia bigint REFERENCES financas.recorrencia (id),
+  ADD COLUMN parcela integer;
+
+ALTER TABLE financas.lancamento
+  ADD CONSTRAINT uk_lancamento_recorrencia_parcela UNIQUE (id_recorrencia, parcela);
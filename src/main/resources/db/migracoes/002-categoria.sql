@@ -0,0 +1,20 @@
+-- Categorias por usuário e tags livres nos lançamentos
+
+CREATE TABLE financas.categoria
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  nome character varying(50) NOT NULL,
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id)
+);
+
+CREATE UNIQUE INDEX uk_categoria_usuario_nome ON financas.categoria (id_usuario, lower(nome));
+
+ALTER TABLE financas.lancamento
+  ADD COLUMN id_categoria bigint REFERENCES financas.categoria (id);
+
+CREATE TABLE financas.lancamento_tag
+(
+  id_lancamento bigint NOT NULL REFERENCES financas.lancamento (id),
+  tag character varying(30) NOT NULL,
+  PRIMARY KEY (id_lancamento, tag)
+);
@@ -0,0 +1,25 @@
+-- Limites mensais de despesas, gerais ou por categoria, e os alertas de quando são ultrapassados
+
+CREATE TABLE financas.limite_gasto
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
+  id_categoria bigint REFERENCES financas.categoria (id),
+  valor numeric(16,2) NOT NULL
+);
+
+CREATE UNIQUE INDEX uk_limite_gasto_usuario_categoria ON financas.limite_gasto (id_usuario, coalesce(id_categoria, 0));
+
+CREATE TABLE financas.alerta_limite
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
+  id_categoria bigint REFERENCES financas.categoria (id),
+  ano integer NOT NULL,
+  mes integer NOT NULL,
+  valor_limite numeric(16,2) NOT NULL,
+  valor_gasto numeric(16,2) NOT NULL,
+  data_hora timestamp NOT NULL
+);
+
+CREATE INDEX idx_alerta_limite_usuario ON financas.alerta_limite (id_usuario, data_hora DESC);
@@ -0,0 +1,8 @@
+-- Índices para as buscas de lançamentos por faixa de período, valor e data de cadastro. Todas as
+-- buscas são de um usuário, então ele vem primeiro e a faixa percorre só as linhas dele.
+
+CREATE INDEX idx_lancamento_usuario_periodo ON financas.lancamento (id_usuario, ano, mes);
+
+CREATE INDEX idx_lancamento_usuario_valor ON financas.lancamento (id_usuario, valor);
+
+CREATE INDEX idx_lancamento_usuario_data_cadastro ON financas.lancamento (id_usuario, data_cadastro);
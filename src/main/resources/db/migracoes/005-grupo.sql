@@ -0,0 +1,18 @@
+-- Grupos de usuários (famílias) com saldo combinado. Os membros não referenciam financas.usuario
+-- porque, com sharding, podem estar em outro banco.
+
+CREATE TABLE financas.grupo
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  nome character varying(50) NOT NULL,
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id)
+);
+
+CREATE INDEX idx_grupo_usuario ON financas.grupo (id_usuario);
+
+CREATE TABLE financas.grupo_membro
+(
+  id_grupo bigint NOT NULL REFERENCES financas.grupo (id),
+  id_usuario bigint NOT NULL,
+  PRIMARY KEY (id_grupo, id_usuario)
+);
@@ -0,0 +1,12 @@
+-- Auditoria das tentativas de login, gravada em lotes por uma thread própria
+
+CREATE TABLE financas.tentativa_login
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  email character varying(255),
+  origem character varying(64),
+  resultado character varying(20) NOT NULL CHECK (resultado IN ('SUCESSO', 'SENHA_INVALIDA', 'USUARIO_INEXISTENTE', 'BLOQUEADO')),
+  data_hora timestamp NOT NULL
+);
+
+CREATE INDEX idx_tentativa_login_email ON financas.tentativa_login (email, data_hora DESC);
@@ -0,0 +1,7 @@
+-- Impressão digital das transações importadas de extratos. O índice único impede que a mesma
+-- transação seja importada duas vezes para o usuário; lançamentos criados de outra forma ficam com
+-- a coluna nula e não participam dele.
+
+ALTER TABLE financas.lancamento ADD COLUMN hash_importacao character varying(64);
+
+CREATE UNIQUE INDEX uk_lancamento_usuario_hash_importacao ON financas.lancamento (id_usuario, hash_importacao);
@@ -0,0 +1,6 @@
+-- Valores com escala fixa de centavos e a mesma precisão de recorrencia.valor e limite_gasto.valor,
+-- numeric(16,2). Os lançamentos gravados antes da validação de casas decimais são arredondados para
+-- centavos. A alteração falha se algum valor passar de 99999999999999.99; corrija-o antes. O índice
+-- idx_lancamento_usuario_valor é reconstruído pela própria alteração de tipo.
+
+ALTER TABLE financas.lancamento ALTER COLUMN valor TYPE numeric(16,2) USING round(valor, 2);
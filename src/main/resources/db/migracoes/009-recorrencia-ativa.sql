@@ -0,0 +1,20 @@
+-- Recorrências encerradas saem do job de materialização, e o job roda em uma instância por vez
+
+ALTER TABLE financas.recorrencia
+  ADD COLUMN ativa boolean NOT NULL DEFAULT true;
+
+UPDATE financas.recorrencia
+   SET ativa = false
+ WHERE (total_parcelas IS NOT NULL AND parcelas_geradas >= total_parcelas)
+    OR (data_fim IS NOT NULL
+        AND make_date(ano_inicio, mes_inicio, 1) + parcelas_geradas * interval '1 month'
+            > date_trunc('month', data_fim));
+
+CREATE INDEX idx_recorrencia_usuario_ativa ON financas.recorrencia (id_usuario) WHERE ativa;
+
+CREATE TABLE financas.trava_agendamento
+(
+  nome character varying(100) NOT NULL PRIMARY KEY,
+  bloqueada_ate timestamp NOT NULL,
+  dono character varying(36) NOT NULL
+);
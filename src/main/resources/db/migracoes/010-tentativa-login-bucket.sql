@@ -0,0 +1,7 @@
+-- A auditoria de login passa a ficar no shard do bucket do email, como os dados do usuário. As
+-- tentativas anteriores ficam sem bucket, no shard em que já estão, e o rebalanceamento não as move.
+
+ALTER TABLE financas.tentativa_login
+  ADD COLUMN bucket integer;
+
+CREATE INDEX idx_tentativa_login_bucket ON financas.tentativa_login (bucket);
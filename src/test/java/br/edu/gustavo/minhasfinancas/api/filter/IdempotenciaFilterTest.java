@@ -0,0 +1,74 @@
+package br.edu.gustavo.minhasfinancas.api.filter;
+
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IdempotenciaFilterTest {
+
+    IdempotenciaFilter filter = new IdempotenciaFilter(60, 1_000_000, 1000, 16);
+
+    @Test
+    public void deveRecusarComCorpoGrandeDemaisSemExecutarARequisicao() throws Exception {
+        AtomicBoolean executada = new AtomicBoolean();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(requisicao("{\"descricao\":\"grande demais\"}"), response,
+                (req, resp) -> executada.set(true));
+
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(executada).isFalse();
+    }
+
+    @Test
+    public void deveEntregarOCorpoLidoAUmReadListener() throws Exception {
+        AtomicReference<String> recebido = new AtomicReference<>();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(requisicao("{\"a\":1}"), response, (req, resp) -> {
+            ServletInputStream entrada = req.getInputStream();
+            ByteArrayOutputStream lido = new ByteArrayOutputStream();
+
+            entrada.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[4];
+                    int n;
+
+                    while (entrada.isReady() && (n = entrada.read(buffer)) != -1) {
+                        lido.write(buffer, 0, n);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    recebido.set(lido.toString(StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public void onError(Throwable erro) {
+                    throw new AssertionError(erro);
+                }
+            });
+        });
+
+        assertThat(recebido.get()).isEqualTo("{\"a\":1}");
+    }
+
+    private static MockHttpServletRequest requisicao(String corpo) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/lancamentos");
+        request.addHeader(IdempotenciaFilter.CABECALHO_CHAVE, "chave");
+        request.setContent(corpo.getBytes(StandardCharsets.UTF_8));
+
+        return request;
+    }
+}
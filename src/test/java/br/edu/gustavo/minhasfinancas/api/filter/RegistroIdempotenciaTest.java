@@ -0,0 +1,95 @@
+package br.edu.gustavo.minhasfinancas.api.filter;
+
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RegistroIdempotenciaTest {
+
+    static final byte[] CORPO = {1, 2, 3};
+    static final byte[] OUTRO_CORPO = {4, 5, 6};
+
+    AtomicLong agora = new AtomicLong(1_000);
+
+    @Test
+    public void apenasUmaRequisicaoConcorrenteDeveAssumirAChave() throws Exception {
+        RegistroIdempotencia registro = new RegistroIdempotencia(60, 1_000_000, agora::get);
+        int requisicoes = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(requisicoes);
+        CountDownLatch largada = new CountDownLatch(1);
+
+        try {
+            List<Future<Boolean>> assumidas = new ArrayList<>();
+
+            for (int i = 0; i < requisicoes; i++) {
+                assumidas.add(executor.submit(() -> {
+                    largada.await();
+                    return registro.reservar("chave", CORPO).assumir();
+                }));
+            }
+
+            largada.countDown();
+
+            int total = 0;
+
+            for (Future<Boolean> assumida : assumidas) {
+                total += assumida.get(5, TimeUnit.SECONDS) ? 1 : 0;
+            }
+
+            assertThat(total).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void deveReconhecerOCorpoDaRequisicaoQueCriouAChave() {
+        RegistroIdempotencia registro = new RegistroIdempotencia(60, 1_000_000, agora::get);
+
+        registro.reservar("chave", CORPO);
+        RegistroIdempotencia.Entrada entrada = registro.reservar("chave", OUTRO_CORPO);
+
+        assertThat(entrada.mesmoCorpo(CORPO)).isTrue();
+        assertThat(entrada.mesmoCorpo(OUTRO_CORPO)).isFalse();
+    }
+
+    @Test
+    public void deveDescartarAsConcluidasSemDescartarAsQueAindaEstaoEmAndamento() {
+        RegistroIdempotencia registro = new RegistroIdempotencia(60, 600, agora::get);
+
+        RegistroIdempotencia.Entrada emAndamento = registro.reservar("em-andamento", CORPO);
+        emAndamento.assumir();
+
+        RegistroIdempotencia.Entrada concluida = registro.reservar("concluida", CORPO);
+        concluida.assumir();
+        registro.concluir(concluida, new RespostaArmazenada(201, "application/json", new byte[300]));
+
+        RegistroIdempotencia.Entrada nova = registro.reservar("nova", CORPO);
+        nova.assumir();
+        registro.concluir(nova, new RespostaArmazenada(201, "application/json", new byte[300]));
+
+        assertThat(registro.reservar("em-andamento", OUTRO_CORPO)).isSameAs(emAndamento);
+        assertThat(registro.reservar("concluida", CORPO)).isNotSameAs(concluida);
+    }
+
+    @Test
+    public void deveLiberarAChaveDepoisDoTtl() {
+        RegistroIdempotencia registro = new RegistroIdempotencia(60, 1_000_000, agora::get);
+
+        RegistroIdempotencia.Entrada entrada = registro.reservar("chave", CORPO);
+        entrada.assumir();
+        registro.concluir(entrada, new RespostaArmazenada(201, "application/json", new byte[0]));
+
+        agora.addAndGet(60_000);
+
+        assertThat(registro.reservar("chave", OUTRO_CORPO)).isNotSameAs(entrada);
+    }
+}
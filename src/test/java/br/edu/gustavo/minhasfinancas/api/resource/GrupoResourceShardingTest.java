@@ -0,0 +1,83 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.api.dto.GrupoDTO;
+import br.edu.gustavo.minhasfinancas.model.entity.Grupo;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.shard.MapaShards;
+import br.edu.gustavo.minhasfinancas.service.GrupoService;
+import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.Set;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "sharding-local"})
+public class GrupoResourceShardingTest {
+
+    static final String API = "/api/grupos";
+    static final MediaType JSON = MediaType.APPLICATION_JSON;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    UsuarioService usuarioService;
+
+    @Autowired
+    GrupoService grupoService;
+
+    @Autowired
+    MapaShards mapa;
+
+    @Test
+    public void deveAdicionarAoGrupoUmMembroDeOutroShard() throws Exception {
+        Usuario dono = salvarUsuario(emailNoShard(0, "dono"));
+        Usuario membro = salvarUsuario(emailNoShard(1, "membro"));
+        Grupo grupo = grupoService.salvar(Grupo.builder().nome("familia").usuario(dono).build());
+
+        mvc.perform(MockMvcRequestBuilders.put(API + "/" + grupo.getId() + "/membros/" + membro.getId()).accept(JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        assertThat(grupoService.obterPorId(grupo.getId()).get().getMembros())
+                .containsExactlyInAnyOrder(dono.getId(), membro.getId());
+    }
+
+    @Test
+    public void deveCriarUmGrupoComMembroDeOutroShard() throws Exception {
+        Usuario dono = salvarUsuario(emailNoShard(0, "criador"));
+        Usuario membro = salvarUsuario(emailNoShard(1, "convidado"));
+        GrupoDTO dto = GrupoDTO.builder().nome("viagem").usuario(dono.getId()).membros(Set.of(membro.getId())).build();
+
+        mvc.perform(MockMvcRequestBuilders.post(API)
+                        .accept(JSON)
+                        .contentType(JSON)
+                        .content(new ObjectMapper().writeValueAsString(dto)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("nome").value("viagem"));
+    }
+
+    private Usuario salvarUsuario(String email) {
+        return usuarioService.salvarUsuario(Usuario.builder().nome("usuario").email(email).senha("senha").build());
+    }
+
+    private String emailNoShard(int shard, String prefixo) {
+        for (int i = 0; ; i++) {
+            String email = prefixo + i + "@sharding.com";
+
+            if (mapa.shardDoEmail(email) == shard) {
+                return email;
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package br.edu.gustavo.minhasfinancas.api.resource;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.CategoriaRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoLoteRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.UsuarioRepository;
+import static org.assertj.core.api.Assertions.*;
+import org.assertj.core.api.SoftAssertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Guarda contra regressões de número de consultas (N+1, idas extras ao banco) nos endpoints de
+ * lançamentos e usuários.
+ *
+ * Com uma base sintética grande, cada endpoint é chamado uma vez para aquecer caches e índices e
+ * outra com as estatísticas do Hibernate zeradas; statements preparados, entidades e coleções
+ * carregadas e flushes da segunda chamada não podem passar do orçamento em
+ * {@code orcamento-consultas.properties}. Uma mudança que aumente algum desses números precisa
+ * atualizar o arquivo, o que deixa o custo visível na revisão. Todo endpoint de {@link #RECURSOS}
+ * precisa de orçamento; variantes de um endpoint (filtros diferentes) usam chaves próprias, como
+ * {@code LancamentoResource.buscar.tag}.
+ *
+ * Só o que passa pelo Hibernate é contado; inserções em lote via JDBC ficam de fora.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OrcamentoConsultasTest {
+
+    static final int LANCAMENTOS_POR_USUARIO = 5000;
+    static final int LANCAMENTOS_COM_TAGS = 300;
+    static final int TRANSACOES_POR_EXTRATO = 50;
+    static final String JSON = MediaType.APPLICATION_JSON_VALUE;
+
+    /**
+     * Recursos cujos endpoints precisam ter orçamento.
+     */
+    static final Set<Class<?>> RECURSOS = Set.of(LancamentoResource.class, UsuarioResource.class);
+
+    static final String[] NOMES = {"statements", "entidades", "colecoes", "flushes"};
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    RequestMappingHandlerMapping handlerMapping;
+
+    @Autowired
+    UsuarioRepository usuarioRepository;
+
+    @Autowired
+    CategoriaRepository categoriaRepository;
+
+    @Autowired
+    LancamentoRepository lancamentoRepository;
+
+    @Autowired
+    LancamentoLoteRepository loteRepository;
+
+    Properties orcamento;
+    Statistics estatisticas;
+    Usuario usuario;
+    Categoria categoria;
+    Long idLancamento;
+
+    final AtomicLong sequencia = new AtomicLong();
+
+    @BeforeAll
+    public void popularBase() throws IOException {
+        orcamento = PropertiesLoaderUtils.loadProperties(new ClassPathResource("orcamento-consultas.properties"));
+        estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < 3; i++) {
+            Usuario dono = usuarioRepository.save(Usuario.builder()
+                    .nome("usuario " + i).email("usuario" + i + "@email.com").senha("senha").build());
+
+            List<Lancamento> lancamentos = new ArrayList<>();
+
+            for (int j = 0; j < LANCAMENTOS_POR_USUARIO; j++) {
+                lancamentos.add(lancamento(dono, j));
+            }
+
+            loteRepository.inserir(lancamentos, 500);
+
+            if (i == 0) {
+                usuario = dono;
+            }
+        }
+
+        categoria = categoriaRepository.save(Categoria.builder().nome("Casa").usuario(usuario).build());
+
+        List<Lancamento> comTags = new ArrayList<>();
+
+        for (int j = 0; j < LANCAMENTOS_COM_TAGS; j++) {
+            Lancamento lancamento = lancamento(usuario, j);
+            lancamento.setCategoria(categoria);
+            lancamento.setTags(Set.of("casa", "tag" + (j % 10)));
+            comTags.add(lancamento);
+        }
+
+        idLancamento = lancamentoRepository.saveAll(comTags).get(0).getId();
+    }
+
+    @Test
+    public void lancamentoBuscar() {
+        medir("LancamentoResource.buscar", () -> get("/api/lancamentos").param("ano", "2021"));
+    }
+
+    @Test
+    public void lancamentoBuscarPorDescricao() {
+        medir("LancamentoResource.buscar.descricao", () -> get("/api/lancamentos").param("descricao", "mercado 7"));
+    }
+
+    @Test
+    public void lancamentoBuscarPorTag() {
+        medir("LancamentoResource.buscar.tag", () -> get("/api/lancamentos").param("tag", "tag3"));
+    }
+
+    @Test
+    public void lancamentoBuscarPorPeriodo() {
+        medir("LancamentoResource.buscar.periodo", () -> get("/api/lancamentos")
+                .param("anoInicio", "2020").param("mesInicio", "6").param("anoFim", "2021").param("mesFim", "3"));
+    }
+
+    @Test
+    public void lancamentoBuscarPorValorEData() {
+        medir("LancamentoResource.buscar.valor", () -> get("/api/lancamentos")
+                .param("valorMinimo", "100").param("valorMaximo", "120")
+                .param("dataCadastroInicio", "2020-12-01").param("dataCadastroFim", "2021-01-31"));
+    }
+
+    @Test
+    public void lancamentoBuscarComCampos() {
+        medir("LancamentoResource.buscar.fields", () -> get("/api/lancamentos")
+                .param("ano", "2021").param("fields", "id,descricao,valor,categoria,tags"));
+    }
+
+    @Test
+    public void lancamentoContar() {
+        medir("LancamentoResource.contar", () -> get("/api/lancamentos/contagem").param("categoria", categoria.getId().toString()));
+    }
+
+    @Test
+    public void lancamentoContarPorPeriodoEValor() {
+        medir("LancamentoResource.contar.faixas", () -> get("/api/lancamentos/contagem")
+                .param("anoInicio", "2020").param("anoFim", "2021").param("valorMinimo", "100"));
+    }
+
+    @Test
+    public void lancamentoBuscarPorId() {
+        medir("LancamentoResource.buscarPorId", () -> MockMvcRequestBuilders.get("/api/lancamentos/" + idLancamento));
+    }
+
+    @Test
+    public void lancamentoSalvar() {
+        medir("LancamentoResource.salvar", () -> MockMvcRequestBuilders.post("/api/lancamentos")
+                .contentType(JSON).content(lancamentoJson("Novo")));
+    }
+
+    /**
+     * Cada chamada envia um extrato com FITIDs novos, para medir a importação e não só a
+     * deduplicação.
+     */
+    @Test
+    public void lancamentoImportar() {
+        medir("LancamentoResource.importar", () -> {
+            StringBuilder extrato = new StringBuilder("OFXHEADER:100\nCHARSET:NONE\n\n<OFX><BANKACCTFROM><ACCTID>1"
+                    + "</BANKACCTFROM><BANKTRANLIST>");
+
+            for (int i = 0; i < TRANSACOES_POR_EXTRATO; i++) {
+                extrato.append("<STMTTRN><DTPOSTED>2021031").append(i % 10).append("<TRNAMT>-").append(i + 1)
+                        .append("<FITID>").append(sequencia.incrementAndGet()).append("<NAME>compra ").append(i)
+                        .append("</STMTTRN>\n");
+            }
+
+            MockMultipartFile arquivo = new MockMultipartFile("arquivo", "extrato.ofx", "application/x-ofx",
+                    extrato.append("</BANKTRANLIST></OFX>").toString().getBytes(StandardCharsets.ISO_8859_1));
+
+            return MockMvcRequestBuilders.multipart("/api/lancamentos/importacao").file(arquivo)
+                    .param("usuario", usuario.getId().toString());
+        });
+    }
+
+    @Test
+    public void lancamentoAtualizar() {
+        medir("LancamentoResource.atualizar", () -> MockMvcRequestBuilders.put("/api/lancamentos/" + idLancamento)
+                .contentType(JSON).content(lancamentoJson("Atualizado")));
+    }
+
+    @Test
+    public void lancamentoAtualizarStatus() {
+        medir("LancamentoResource.atualizarStatus", () -> MockMvcRequestBuilders
+                .put("/api/lancamentos/" + idLancamento + "/atualiza-status")
+                .contentType(JSON).content("{\"status\":\"EFETIVADO\"}"));
+    }
+
+    @Test
+    public void lancamentoDeletar() {
+        medir("LancamentoResource.deletar", () -> {
+            Lancamento lancamento = lancamento(usuario, (int) sequencia.incrementAndGet());
+            lancamento.setCategoria(categoria);
+            Long id = lancamentoRepository.save(lancamento).getId();
+
+            return MockMvcRequestBuilders.delete("/api/lancamentos/" + id);
+        });
+    }
+
+    @Test
+    public void usuarioAutenticar() {
+        medir("UsuarioResource.autenticar", () -> MockMvcRequestBuilders.post("/api/usuarios/autenticar")
+                .contentType(JSON).content("{\"email\":\"usuario0@email.com\",\"senha\":\"senha\"}"));
+    }
+
+    @Test
+    public void usuarioSalvar() {
+        medir("UsuarioResource.salvar", () -> MockMvcRequestBuilders.post("/api/usuarios")
+                .contentType(JSON).content("{\"nome\":\"novo\",\"email\":\"novo" + sequencia.incrementAndGet()
+                        + "@email.com\",\"senha\":\"senha\"}"));
+    }
+
+    @Test
+    public void usuarioObterSaldo() {
+        medir("UsuarioResource.obterSaldo", () -> MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/saldo"));
+    }
+
+    @Test
+    public void usuarioObterDashboard() {
+        medir("UsuarioResource.obterDashboard", () -> MockMvcRequestBuilders
+                .get("/api/usuarios/" + usuario.getId() + "/dashboard"));
+    }
+
+    /**
+     * Os endpoints vêm do mapeamento do Spring MVC, não de uma lista mantida à mão: um endpoint novo
+     * nos recursos cobertos sem orçamento, ou um orçamento de endpoint que não existe mais, faz o
+     * teste falhar.
+     */
+    @Test
+    public void todosOsEndpointsDevemTerOrcamento() {
+        Set<String> endpoints = new TreeSet<>();
+
+        for (HandlerMethod handler : handlerMapping.getHandlerMethods().values()) {
+            Class<?> recurso = ClassUtils.getUserClass(handler.getBeanType());
+
+            if (RECURSOS.contains(recurso)) {
+                endpoints.add(recurso.getSimpleName() + "." + handler.getMethod().getName());
+            }
+        }
+
+        assertThat(endpoints).hasSizeGreaterThanOrEqualTo(RECURSOS.size());
+
+        SoftAssertions verificacoes = new SoftAssertions();
+
+        for (String endpoint : endpoints) {
+            for (String nome : NOMES) {
+                verificacoes.assertThat(orcamento.getProperty(endpoint + "." + nome))
+                        .as("Sem orçamento para %s.%s: meça o endpoint neste teste", endpoint, nome)
+                        .isNotNull();
+            }
+        }
+
+        for (String chave : orcamento.stringPropertyNames()) {
+            String[] partes = chave.split("\\.");
+
+            verificacoes.assertThat(endpoints)
+                    .as("Orçamento %s de um endpoint que não existe", chave)
+                    .contains(partes[0] + "." + partes[1]);
+        }
+
+        verificacoes.assertAll();
+    }
+
+    /**
+     * A primeira chamada aquece caches e índices; só a segunda é medida. A requisição é criada de
+     * novo a cada chamada, fora da medição, para endpoints que consomem o que receberam.
+     */
+    private void medir(String endpoint, Supplier<MockHttpServletRequestBuilder> requisicao) {
+        executar(endpoint, requisicao.get());
+
+        MockHttpServletRequestBuilder medida = requisicao.get();
+        estatisticas.clear();
+        executar(endpoint, medida);
+
+        long[] medidos = {
+                estatisticas.getPrepareStatementCount(),
+                estatisticas.getEntityLoadCount(),
+                estatisticas.getCollectionLoadCount(),
+                estatisticas.getFlushCount()
+        };
+
+        SoftAssertions verificacoes = new SoftAssertions();
+
+        for (int i = 0; i < NOMES.length; i++) {
+            String chave = endpoint + "." + NOMES[i];
+            String limite = orcamento.getProperty(chave);
+
+            verificacoes.assertThat(limite)
+                    .as("Sem orçamento para %s (medido: %d)", chave, medidos[i])
+                    .isNotNull();
+
+            if (limite != null) {
+                verificacoes.assertThat(medidos[i])
+                        .as("%s passou do orçamento", chave)
+                        .isLessThanOrEqualTo(Long.parseLong(limite.trim()));
+            }
+        }
+
+        verificacoes.assertAll();
+    }
+
+    private void executar(String endpoint, MockHttpServletRequestBuilder requisicao) {
+        try {
+            MvcResult resultado = mvc.perform(requisicao).andReturn();
+            int status = resultado.getResponse().getStatus();
+
+            if (status >= 300) {
+                throw new AssertionError(endpoint + " respondeu " + status + ": "
+                        + resultado.getResponse().getContentAsString());
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MockHttpServletRequestBuilder get(String caminho) {
+        return MockMvcRequestBuilders.get(caminho).param("usuario", usuario.getId().toString());
+    }
+
+    private String lancamentoJson(String descricao) {
+        return "{\"descricao\":\"" + descricao + "\",\"mes\":3,\"ano\":2021,\"valor\":15,\"tipo\":\"DESPESA\","
+                + "\"usuario\":" + usuario.getId() + ",\"categoria\":" + categoria.getId() + ",\"tags\":[\"casa\"]}";
+    }
+
+    private static Lancamento lancamento(Usuario usuario, int indice) {
+        return Lancamento.builder()
+                .descricao("mercado " + indice)
+                .mes(indice % 12 + 1)
+                .ano(2019 + indice % 3)
+                .valor(BigDecimal.valueOf(indice % 500 + 1))
+                .tipo(indice % 4 == 0 ? TipoLancamento.RECEITA : TipoLancamento.DESPESA)
+                .status(indice % 3 == 0 ? StatusLancamento.EFETIVADO : StatusLancamento.PENDENTE)
+                .dataCadastro(LocalDate.of(2021, 1, 1))
+                .usuario(usuario)
+                .build();
+    }
+}
@@ -1,11 +1,15 @@
 package br.edu.gustavo.minhasfinancas.api.resource;
 
 import br.edu.gustavo.minhasfinancas.api.dto.UsuarioDTO;
+import br.edu.gustavo.minhasfinancas.exception.BancoIndisponivelException;
 import br.edu.gustavo.minhasfinancas.exception.ErroAutenticacao;
 import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.exception.TentativasExcedidasException;
 import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
-import br.edu.gustavo.minhasfinancas.service.LancamentoService;
+import br.edu.gustavo.minhasfinancas.service.DashboardService;
+import br.edu.gustavo.minhasfinancas.service.SaldoService;
 import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import br.edu.gustavo.minhasfinancas.service.saldo.SaldoObtido;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -15,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -23,6 +28,9 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.math.BigDecimal;
+import java.util.Optional;
+
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @WebMvcTest(controllers = UsuarioResource.class)
@@ -39,7 +47,10 @@ public class UsuarioResourceTest {
     UsuarioService service;
 
     @MockBean
-    LancamentoService lancamentoService;
+    SaldoService saldoService;
+
+    @MockBean
+    DashboardService dashboardService;
 
     @Test
     public void deveAutenticarUmUsuario() throws Exception {
@@ -50,7 +61,7 @@ public class UsuarioResourceTest {
 
         Usuario usuario = Usuario.builder().id(1l).email(email).senha(senha).build();
 
-        Mockito.when(service.autenticar(email, senha)).thenReturn(usuario);
+        Mockito.when(service.autenticar(Mockito.eq(email), Mockito.eq(senha), Mockito.any())).thenReturn(usuario);
 
         String json = new ObjectMapper().writeValueAsString(dto);
 
@@ -74,7 +85,7 @@ public class UsuarioResourceTest {
 
         UsuarioDTO dto = UsuarioDTO.builder().email(email).senha(senha).build();
 
-        Mockito.when(service.autenticar(email, senha)).thenThrow(ErroAutenticacao.class);
+        Mockito.when(service.autenticar(Mockito.eq(email), Mockito.eq(senha), Mockito.any())).thenThrow(ErroAutenticacao.class);
 
         String json = new ObjectMapper().writeValueAsString(dto);
 
@@ -87,6 +98,24 @@ public class UsuarioResourceTest {
         mvc.perform(request).andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    @Test
+    public void deveResponderTooManyRequestsQuandoOLoginEstiverBloqueado() throws Exception {
+        UsuarioDTO dto = UsuarioDTO.builder().email("usuario@email.com").senha("1234").build();
+
+        Mockito.when(service.autenticar(Mockito.eq("usuario@email.com"), Mockito.eq("1234"), Mockito.any()))
+                .thenThrow(new TentativasExcedidasException("Muitas tentativas", 8));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(API.concat("/autenticar"))
+                .accept(JSON)
+                .contentType(JSON)
+                .content(new ObjectMapper().writeValueAsString(dto));
+
+        mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "8"));
+    }
+
     @Test
     public void deveCriarUmNovoUsuario() throws Exception {
         String email = "usuario@email.com";
@@ -132,4 +161,121 @@ public class UsuarioResourceTest {
 
         mvc.perform(request).andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
+
+    @Test
+    public void deveReproduzirARespostaAoReenviarComAMesmaChaveDeIdempotencia() throws Exception {
+        String email = "usuario@email.com";
+        String senha = "1234";
+
+        UsuarioDTO dto = UsuarioDTO.builder().email(email).senha(senha).build();
+
+        Usuario usuario = Usuario.builder().id(1l).email(email).senha(senha).build();
+
+        Mockito.when(service.salvarUsuario(Mockito.any(Usuario.class))).thenReturn(usuario);
+
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(API)
+                .header("Idempotency-Key", "chave-reenvio")
+                .accept(JSON)
+                .contentType(JSON)
+                .content(json);
+
+        mvc.perform(request).andExpect(MockMvcResultMatchers.status().isCreated());
+
+        mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.header().string("Idempotent-Replayed", "true"))
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(usuario.getId()));
+
+        Mockito.verify(service, Mockito.times(1)).salvarUsuario(Mockito.any(Usuario.class));
+    }
+
+    @Test
+    public void deveRecusarAMesmaChaveDeIdempotenciaComOutroCorpo() throws Exception {
+        Usuario usuario = Usuario.builder().id(1l).email("usuario@email.com").senha("1234").build();
+
+        Mockito.when(service.salvarUsuario(Mockito.any(Usuario.class))).thenReturn(usuario);
+
+        String json = new ObjectMapper().writeValueAsString(
+                UsuarioDTO.builder().email("usuario@email.com").senha("1234").build());
+        String outroJson = new ObjectMapper().writeValueAsString(
+                UsuarioDTO.builder().email("outro@email.com").senha("1234").build());
+
+        mvc.perform(MockMvcRequestBuilders.post(API).header("Idempotency-Key", "chave-outro-corpo")
+                        .accept(JSON).contentType(JSON).content(json))
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+
+        mvc.perform(MockMvcRequestBuilders.post(API).header("Idempotency-Key", "chave-outro-corpo")
+                        .accept(JSON).contentType(JSON).content(outroJson))
+                .andExpect(MockMvcResultMatchers.status().isUnprocessableEntity());
+
+        Mockito.verify(service, Mockito.times(1)).salvarUsuario(Mockito.any(Usuario.class));
+    }
+
+    @Test
+    public void deveAvisarQuandoOSaldoDevolvidoEstaObsoleto() throws Exception {
+        Mockito.when(service.obterPorId(1l)).thenReturn(Optional.of(Usuario.builder().id(1l).build()));
+        Mockito.when(saldoService.obterSaldo(1l)).thenReturn(new SaldoObtido(BigDecimal.valueOf(150), 42, true));
+
+        mvc.perform(MockMvcRequestBuilders.get(API.concat("/1/saldo")).accept(JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("150"))
+                .andExpect(MockMvcResultMatchers.header().string("Age", "42"))
+                .andExpect(MockMvcResultMatchers.header().string("Warning", "110 - \"Response is Stale\""));
+    }
+
+    @Test
+    public void naoDeveConsultarOUsuarioQuandoOSaldoJaEstaGuardado() throws Exception {
+        Mockito.when(saldoService.possuiSaldoGuardado(2l)).thenReturn(true);
+        Mockito.when(saldoService.obterSaldo(2l)).thenReturn(new SaldoObtido(BigDecimal.valueOf(80), 0, false));
+
+        mvc.perform(MockMvcRequestBuilders.get(API.concat("/2/saldo")).accept(JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("80"));
+
+        Mockito.verify(service, Mockito.never()).obterPorId(2l);
+    }
+
+    @Test
+    public void deveResponderNotFoundNoSaldoDeUmUsuarioInexistente() throws Exception {
+        Mockito.when(service.obterPorId(9l)).thenReturn(Optional.empty());
+
+        mvc.perform(MockMvcRequestBuilders.get(API.concat("/9/saldo")).accept(JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        Mockito.verify(saldoService, Mockito.never()).obterSaldo(9l);
+    }
+
+    @Test
+    public void deveResponderNotFoundNoDashboardDeUmUsuarioInexistente() throws Exception {
+        Mockito.when(service.obterPorId(9l)).thenReturn(Optional.empty());
+
+        mvc.perform(MockMvcRequestBuilders.get(API.concat("/9/dashboard")).accept(JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        Mockito.verifyNoInteractions(dashboardService);
+    }
+
+    @Test
+    public void deveResponderServiceUnavailableComRetryAfterQuandoODisjuntorEstaAberto() throws Exception {
+        Mockito.when(saldoService.possuiSaldoGuardado(3l)).thenReturn(true);
+        Mockito.when(saldoService.obterSaldo(3l)).thenThrow(new BancoIndisponivelException("Banco fora do ar", 7));
+
+        mvc.perform(MockMvcRequestBuilders.get(API.concat("/3/saldo")).accept(JSON))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "7"))
+                .andExpect(MockMvcResultMatchers.content().string("Banco fora do ar"));
+    }
+
+    @Test
+    public void deveResponderServiceUnavailableQuandoAConsultaEstouraOTempoLimite() throws Exception {
+        Mockito.when(saldoService.possuiSaldoGuardado(4l)).thenReturn(true);
+        Mockito.when(saldoService.obterSaldo(4l)).thenThrow(new QueryTimeoutException("cancelada"));
+
+        mvc.perform(MockMvcRequestBuilders.get(API.concat("/4/saldo")).accept(JSON))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("Retry-After"));
+    }
 }
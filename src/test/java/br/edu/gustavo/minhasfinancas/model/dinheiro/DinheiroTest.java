@@ -0,0 +1,58 @@
+package br.edu.gustavo.minhasfinancas.model.dinheiro;
+
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+public class DinheiroTest {
+
+    @Test
+    public void deveConverterParaCentavosArredondandoAoPar() {
+        assertThat(Dinheiro.centavos(new BigDecimal("120.5"))).isEqualTo(12050);
+        assertThat(Dinheiro.centavos(new BigDecimal("-3.10"))).isEqualTo(-310);
+        assertThat(Dinheiro.centavos(new BigDecimal("0.015"))).isEqualTo(2);
+        assertThat(Dinheiro.centavos(new BigDecimal("0.025"))).isEqualTo(2);
+        assertThat(Dinheiro.centavos(new BigDecimal("1E+3"))).isEqualTo(100000);
+        assertThat(Dinheiro.centavosOuZero(null)).isZero();
+    }
+
+    @Test
+    public void deveFalharQuandoOValorNaoCabeEmCentavos() {
+        assertThatThrownBy(() -> Dinheiro.centavos(new BigDecimal("92233720368547758.08")))
+                .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Dinheiro.somar(Long.MAX_VALUE, 1)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Dinheiro.subtrair(Long.MIN_VALUE, 1)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Dinheiro.somar(new long[]{Long.MAX_VALUE - 1, 1, 1}))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void deveSomarESubtrairCentavos() {
+        assertThat(Dinheiro.somar(new long[]{12050, -50, 9999})).isEqualTo(21999);
+        assertThat(Dinheiro.reais(Dinheiro.subtrair(50000, 12050))).isEqualTo(new BigDecimal("379.50"));
+    }
+
+    @Test
+    public void deveReconhecerValoresEmCentavos() {
+        assertThat(Dinheiro.emCentavos(new BigDecimal("10"))).isTrue();
+        assertThat(Dinheiro.emCentavos(new BigDecimal("10.5"))).isTrue();
+        assertThat(Dinheiro.emCentavos(new BigDecimal("10.500"))).isTrue();
+        assertThat(Dinheiro.emCentavos(new BigDecimal("10.005"))).isFalse();
+    }
+
+    @Test
+    public void deveConferirOLimiteDaColuna() {
+        assertThat(Dinheiro.MAXIMO).isEqualTo(new BigDecimal("99999999999999.99"));
+        assertThat(Dinheiro.cabeNaColuna(new BigDecimal("-99999999999999.99"))).isTrue();
+        assertThat(Dinheiro.cabeNaColuna(new BigDecimal("100000000000000"))).isFalse();
+        assertThat(Dinheiro.centavos(Dinheiro.MAXIMO) * 900).isPositive();
+    }
+
+    @Test
+    public void deveNormalizarParaDuasCasas() {
+        assertThat(Dinheiro.normalizar(new BigDecimal("7.5")).scale()).isEqualTo(2);
+        assertThat(Dinheiro.normalizar(new BigDecimal("7.125"))).isEqualTo(new BigDecimal("7.12"));
+        assertThat(Dinheiro.normalizar(null)).isNull();
+    }
+}
@@ -0,0 +1,76 @@
+package br.edu.gustavo.minhasfinancas.model.perfil;
+
+import org.assertj.core.api.Assertions;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class DataSourcePerfiladoTest {
+
+    ConsultasLentas lentas = new ConsultasLentas(0, 100);
+
+    JdbcTemplate jdbc;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:perfil;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(new DataSourcePerfilado(h2, lentas));
+        jdbc.execute("create table conta (id int primary key, nome varchar(20))");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        PerfilConsultas.encerrar();
+        jdbc.execute("drop table conta");
+    }
+
+    @Test
+    public void deveSomarConsultasELinhasDaRequisicao() {
+        PerfilConsultas.iniciar("LancamentoResource.buscar");
+
+        jdbc.update("insert into conta values (1, 'a'), (2, 'b'), (3, 'c')");
+        List<String> nomes = jdbc.queryForList("select nome from conta where id > ?", String.class, 1);
+
+        PerfilConsultas perfil = PerfilConsultas.atual();
+        Assertions.assertThat(nomes).containsExactly("b", "c");
+        Assertions.assertThat(perfil.getQuantidade()).isEqualTo(2);
+        Assertions.assertThat(perfil.getLinhas()).isEqualTo(5);
+        Assertions.assertThat(perfil.getNanos()).isPositive();
+    }
+
+    @Test
+    public void deveAgruparConsultasLentasPelaImpressaoDigital() {
+        PerfilConsultas.iniciar("UsuarioResource.obterSaldo");
+
+        jdbc.queryForList("select nome from conta where id in (1, 2)", String.class);
+        jdbc.queryForList("select nome from conta where id in (4, 5, 6)", String.class);
+        jdbc.queryForList("select nome from conta where nome = 'x'", String.class);
+
+        List<ConsultasLentas.Ofensor> piores = lentas.piores(10);
+
+        Assertions.assertThat(piores).extracting(ConsultasLentas.Ofensor::getSql).contains(
+                "select nome from conta where id in (?+)",
+                "select nome from conta where nome = ?");
+        Assertions.assertThat(piores).filteredOn(ofensor -> ofensor.getSql().contains("in (?+)"))
+                .singleElement()
+                .satisfies(ofensor -> {
+                    Assertions.assertThat(ofensor.getExecucoes()).isEqualTo(2);
+                    Assertions.assertThat(ofensor.getOrigens()).containsExactly("UsuarioResource.obterSaldo");
+                    Assertions.assertThat(ofensor.getImpressao()).hasSize(8);
+                });
+    }
+
+    @Test
+    public void naoDeveGuardarConsultasAbaixoDoLimite() {
+        ConsultasLentas rapidas = new ConsultasLentas(60_000, 100);
+
+        rapidas.registrar("select 1", 1_000_000, 1, "teste");
+
+        Assertions.assertThat(rapidas.piores(10)).isEmpty();
+    }
+}
@@ -0,0 +1,112 @@
+package br.edu.gustavo.minhasfinancas.model.repository;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class LancamentoArquivoRepositoryTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    public void deveLerOsLancamentosGravadosNoArquivo() {
+        LancamentoArquivoRepository repository = new LancamentoArquivoRepository(diretorio.toString());
+        Usuario usuario = Usuario.builder().id(7l).build();
+
+        Lancamento salario = criarLancamento(1l, 3, "Salário", TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, "1500.00");
+        salario.setIdRecorrencia(4l);
+        salario.setParcela(2);
+        salario.setCategoria(Categoria.builder().id(3l).build());
+        salario.setTags(Set.of("trabalho", "fixo"));
+
+        repository.gravar(7l, 2019, new ArrayList<>(List.of(
+                criarLancamento(2l, 1, "Aluguel", TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, "800.50"),
+                salario,
+                criarLancamento(3l, 1, "Mercado", TipoLancamento.DESPESA, StatusLancamento.PENDENTE, "120.10")
+        )));
+
+        List<Lancamento> lancamentos = repository.buscar(usuario, 2019, lancamento -> true);
+
+        assertThat(lancamentos).extracting(Lancamento::getId).containsExactly(2l, 3l, 1l);
+        salario.setUsuario(usuario);
+
+        assertThat(lancamentos.get(2)).isEqualTo(salario);
+        assertThat(repository.buscar(usuario, 2020, lancamento -> true)).isEmpty();
+        assertThat(repository.somarCentavos(7l, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO)).isEqualTo(80050);
+        assertThat(repository.streamExtrato(7l, 2019).map(linha -> linha[0]).collect(Collectors.toList()))
+                .containsExactly(1, 1, 3);
+    }
+
+    @Test
+    public void deveJuntarAoArquivoExistenteEDesfazerAUltimaGravacao() {
+        LancamentoArquivoRepository repository = new LancamentoArquivoRepository(diretorio.toString());
+
+        repository.gravar(7l, 2019, new ArrayList<>(List.of(
+                criarLancamento(1l, 1, "Aluguel", TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, "800.00"))));
+        repository.confirmar(7l, 2019);
+
+        repository.gravar(7l, 2019, new ArrayList<>(List.of(
+                criarLancamento(2l, 2, "Aluguel", TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, "850.00"))));
+
+        assertThat(repository.somarCentavos(7l, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO)).isEqualTo(165000);
+
+        repository.desfazer(7l, 2019);
+
+        assertThat(repository.somarCentavos(7l, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO)).isEqualTo(80000);
+    }
+
+    @Test
+    public void deveIgnorarOsIdsQueAindaEstaoNoBanco() {
+        LancamentoArquivoRepository repository = new LancamentoArquivoRepository(diretorio.toString());
+        Usuario usuario = Usuario.builder().id(7l).build();
+
+        repository.gravar(7l, 2019, new ArrayList<>(List.of(
+                criarLancamento(1l, 1, "Aluguel", TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, "800.00"),
+                criarLancamento(2l, 2, "Aluguel", TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, "850.00"),
+                criarLancamento(3l, 2, "Mercado", TipoLancamento.DESPESA, StatusLancamento.PENDENTE, "90.00"))));
+
+        assertThat(repository.anos(7l)).containsExactly(2019);
+        assertThat(repository.somarCentavos(7l, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, Set.of(2l, 3l)))
+                .isEqualTo(80000);
+        assertThat(repository.streamExtrato(7l, 2019, Set.of(1l)).map(linha -> linha[4]).collect(Collectors.toList()))
+                .containsExactly(new BigDecimal("850.00"), new BigDecimal("90.00"));
+
+        Lancamento exemplo = Lancamento.builder().ano(2019).mes(2).build();
+
+        assertThat(repository.buscar(usuario, exemplo, Set.of(3l), lancamento -> true))
+                .extracting(Lancamento::getId).containsExactly(2l);
+
+        exemplo.setStatus(StatusLancamento.PENDENTE);
+
+        assertThat(repository.buscar(usuario, exemplo, Set.of(), lancamento -> true))
+                .extracting(Lancamento::getId).containsExactly(3l);
+    }
+
+    private Lancamento criarLancamento(Long id, int mes, String descricao, TipoLancamento tipo,
+                                       StatusLancamento status, String valor) {
+        return Lancamento.builder()
+                .id(id)
+                .mes(mes)
+                .ano(2019)
+                .descricao(descricao)
+                .tipo(tipo)
+                .status(status)
+                .valor(new BigDecimal(valor))
+                .dataCadastro(LocalDate.of(2019, mes, 10))
+                .build();
+    }
+}
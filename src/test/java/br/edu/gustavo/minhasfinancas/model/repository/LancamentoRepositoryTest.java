@@ -1,6 +1,7 @@
 package br.edu.gustavo.minhasfinancas.model.repository;
 
 import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
 import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
 import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
 import static org.assertj.core.api.Assertions.*;
@@ -10,12 +11,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Example;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -77,6 +84,108 @@ public class LancamentoRepositoryTest {
         assertThat(lancamentoEncontrado.isPresent()).isTrue();
     }
 
+    @Test
+    public void deveBuscarApenasOsCamposPedidos() {
+        Usuario usuario = entityManager.persist(
+                Usuario.builder().nome("usuario").email("usuario@email.com").senha("senha").build());
+
+        Lancamento lancamento = criarLancamento();
+        lancamento.setUsuario(usuario);
+        lancamento.setTags(new HashSet<>(Set.of("mercado")));
+        entityManager.persist(lancamento);
+
+        Lancamento outro = criarLancamento();
+        outro.setUsuario(usuario);
+        outro.setDescricao("Outro");
+        entityManager.persist(outro);
+
+        entityManager.flush();
+
+        Lancamento filtro = Lancamento.builder().usuario(usuario).descricao("QUALQUER").build();
+
+        Map<Long, Map<String, Object>> resultado =
+                repository.buscarCampos(filtro, FaixasLancamento.NENHUMA, CamposLancamento.de(List.of("valor", "descricao", "tags")));
+
+        assertThat(resultado).containsOnlyKeys(lancamento.getId());
+        assertThat(resultado.get(lancamento.getId()))
+                .containsOnlyKeys("descricao", "valor", "tags")
+                .containsEntry("descricao", "Lançamento qualquer")
+                .containsEntry("tags", Set.of("mercado"));
+    }
+
+    @Test
+    public void deveBuscarPorFaixasDeValorPeriodoEDataDeCadastro() {
+        Usuario usuario = entityManager.persist(
+                Usuario.builder().nome("usuario").email("usuario@email.com").senha("senha").build());
+
+        Lancamento dentro = persistir(usuario, 2021, 3, 600, LocalDate.of(2021, 3, 10));
+        persistir(usuario, 2021, 3, 100, LocalDate.of(2021, 3, 10));
+        persistir(usuario, 2021, 4, 600, LocalDate.of(2021, 4, 10));
+        persistir(usuario, 2020, 12, 600, LocalDate.of(2020, 12, 10));
+        persistir(usuario, 2021, 2, 600, LocalDate.of(2021, 1, 31));
+        entityManager.flush();
+
+        FaixasLancamento faixas = FaixasLancamento.de(BigDecimal.valueOf(500), null,
+                LocalDate.of(2021, 2, 1), null, YearMonth.of(2021, 1), YearMonth.of(2021, 3));
+        Lancamento filtro = Lancamento.builder().usuario(usuario).build();
+
+        assertThat(repository.findAll(faixas.comExemplo(Example.of(filtro))))
+                .extracting(Lancamento::getId)
+                .containsExactly(dentro.getId());
+        assertThat(repository.buscarCampos(filtro, faixas, CamposLancamento.de(List.of("valor"))))
+                .containsOnlyKeys(dentro.getId());
+        assertThat(repository.count(faixas.comExemplo(Example.of(filtro)))).isEqualTo(1);
+    }
+
+    @Test
+    public void deveSomarOsLancamentosEfetivadosDeVariosUsuariosPorTipo() {
+        Usuario primeiro = entityManager.persist(
+                Usuario.builder().nome("primeiro").email("primeiro@email.com").senha("senha").build());
+        Usuario segundo = entityManager.persist(
+                Usuario.builder().nome("segundo").email("segundo@email.com").senha("senha").build());
+
+        persistir(primeiro, 2021, 3, 100, LocalDate.of(2021, 3, 10)).setStatus(StatusLancamento.EFETIVADO);
+        persistir(primeiro, 2021, 4, 50, LocalDate.of(2021, 4, 10)).setStatus(StatusLancamento.EFETIVADO);
+        persistir(primeiro, 2021, 4, 70, LocalDate.of(2021, 4, 10));
+        Lancamento despesa = persistir(segundo, 2021, 3, 30, LocalDate.of(2021, 3, 10));
+        despesa.setTipo(TipoLancamento.DESPESA);
+        despesa.setStatus(StatusLancamento.EFETIVADO);
+        entityManager.flush();
+
+        List<Object[]> somas = repository.obterSomasPorUsuarios(Set.of(primeiro.getId(), segundo.getId()),
+                StatusLancamento.EFETIVADO);
+        List<Object[]> mensais = repository.obterSomasMensaisPorUsuarios(Set.of(primeiro.getId()), 2021,
+                StatusLancamento.EFETIVADO);
+
+        assertThat(somas).extracting(linha -> List.of(linha[0], linha[1], ((BigDecimal) linha[2]).intValue()))
+                .containsExactlyInAnyOrder(
+                        List.of(primeiro.getId(), TipoLancamento.RECEITA, 150),
+                        List.of(segundo.getId(), TipoLancamento.DESPESA, 30));
+        assertThat(mensais).extracting(linha -> List.of(linha[1], ((BigDecimal) linha[3]).intValue()))
+                .containsExactlyInAnyOrder(List.of(3, 100), List.of(4, 50));
+    }
+
+    @Test
+    public void deveObterOsIdsDeVariosUsuariosNosAnosInformados() {
+        Usuario primeiro = entityManager.persist(
+                Usuario.builder().nome("primeiro").email("primeiro@email.com").senha("senha").build());
+        Usuario segundo = entityManager.persist(
+                Usuario.builder().nome("segundo").email("segundo@email.com").senha("senha").build());
+
+        Lancamento doPrimeiro = persistir(primeiro, 2019, 3, 100, LocalDate.of(2019, 3, 10));
+        persistir(primeiro, 2021, 3, 100, LocalDate.of(2021, 3, 10));
+        Lancamento doSegundo = persistir(segundo, 2020, 3, 30, LocalDate.of(2020, 3, 10));
+        entityManager.flush();
+
+        List<Object[]> ids = repository.obterIdsPorUsuariosEAnos(Set.of(primeiro.getId(), segundo.getId()),
+                Set.of(2019, 2020));
+
+        assertThat(ids).extracting(linha -> List.of(linha[0], linha[1], linha[2]))
+                .containsExactlyInAnyOrder(
+                        List.of(primeiro.getId(), 2019, doPrimeiro.getId()),
+                        List.of(segundo.getId(), 2020, doSegundo.getId()));
+    }
+
     public static Lancamento criarLancamento() {
         return Lancamento.builder()
                 .mes(1)
@@ -89,6 +198,17 @@ public class LancamentoRepositoryTest {
                 .build();
     }
 
+    private Lancamento persistir(Usuario usuario, int ano, int mes, int valor, LocalDate dataCadastro) {
+        Lancamento lancamento = criarLancamento();
+        lancamento.setUsuario(usuario);
+        lancamento.setAno(ano);
+        lancamento.setMes(mes);
+        lancamento.setValor(BigDecimal.valueOf(valor));
+        lancamento.setDataCadastro(dataCadastro);
+
+        return entityManager.persist(lancamento);
+    }
+
     private Lancamento criarEPersistirUmLancamento() {
         Lancamento lancamento = criarLancamento();
 
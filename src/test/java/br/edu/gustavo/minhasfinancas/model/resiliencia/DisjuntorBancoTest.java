@@ -0,0 +1,96 @@
+package br.edu.gustavo.minhasfinancas.model.resiliencia;
+
+import br.edu.gustavo.minhasfinancas.exception.BancoIndisponivelException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DisjuntorBancoTest {
+
+    AtomicLong agora = new AtomicLong();
+
+    DisjuntorBanco disjuntor = new DisjuntorBanco(true, 10, 4, 0.5, 0.8, 1000, 5000, 2, agora::get);
+
+    @Test
+    public void deveAbrirQuandoAsFalhasPassamDaTaxaERecusarSemChamarOBanco() {
+        chamar(false);
+        chamar(true);
+        chamar(false);
+
+        Assertions.assertThat(disjuntor.getEstado()).isEqualTo(DisjuntorBanco.Estado.FECHADO);
+
+        chamar(true);
+
+        Assertions.assertThat(disjuntor.getEstado()).isEqualTo(DisjuntorBanco.Estado.ABERTO);
+        Assertions.assertThatThrownBy(disjuntor::adquirir)
+                .isInstanceOf(BancoIndisponivelException.class)
+                .extracting("segundosParaNovaTentativa").isEqualTo(5L);
+        Assertions.assertThatThrownBy(disjuntor::verificar).isInstanceOf(BancoIndisponivelException.class);
+    }
+
+    @Test
+    public void deveAbrirQuandoAsChamadasFicamLentas() {
+        for (int i = 0; i < 4; i++) {
+            disjuntor.registrar(disjuntor.adquirir(), false, TimeUnit.SECONDS.toNanos(2));
+        }
+
+        Assertions.assertThat(disjuntor.getEstado()).isEqualTo(DisjuntorBanco.Estado.ABERTO);
+    }
+
+    @Test
+    public void deveFecharDepoisDasChamadasDeTesteBemSucedidas() {
+        abrir();
+        agora.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+        disjuntor.verificar();
+        boolean primeira = disjuntor.adquirir();
+        boolean segunda = disjuntor.adquirir();
+
+        Assertions.assertThat(primeira).isTrue();
+        Assertions.assertThat(segunda).isTrue();
+        Assertions.assertThat(disjuntor.getEstado()).isEqualTo(DisjuntorBanco.Estado.MEIO_ABERTO);
+        Assertions.assertThatThrownBy(disjuntor::adquirir).isInstanceOf(BancoIndisponivelException.class);
+
+        disjuntor.registrar(primeira, false, 0);
+        disjuntor.registrar(segunda, false, 0);
+
+        Assertions.assertThat(disjuntor.getEstado()).isEqualTo(DisjuntorBanco.Estado.FECHADO);
+        Assertions.assertThat(disjuntor.adquirir()).isFalse();
+    }
+
+    @Test
+    public void deveReabrirQuandoUmaChamadaDeTesteFalha() {
+        abrir();
+        agora.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+        disjuntor.registrar(disjuntor.adquirir(), true, 0);
+
+        Assertions.assertThat(disjuntor.getEstado()).isEqualTo(DisjuntorBanco.Estado.ABERTO);
+        Assertions.assertThatThrownBy(disjuntor::adquirir).isInstanceOf(BancoIndisponivelException.class);
+    }
+
+    @Test
+    public void deveContarComoFalhaApenasErrosDoBanco() {
+        Assertions.assertThat(DisjuntorBanco.indicaFalhaDoBanco(
+                new CannotCreateTransactionException("sem conexão"))).isTrue();
+        Assertions.assertThat(DisjuntorBanco.indicaFalhaDoBanco(
+                new RuntimeException(new SQLException("canceling statement due to statement timeout", "57014")))).isTrue();
+        Assertions.assertThat(DisjuntorBanco.indicaFalhaDoBanco(
+                new DataIntegrityViolationException("duplicado", new SQLException("duplicate key", "23505")))).isFalse();
+    }
+
+    private void abrir() {
+        for (int i = 0; i < 4; i++) {
+            chamar(true);
+        }
+    }
+
+    private void chamar(boolean falha) {
+        disjuntor.registrar(disjuntor.adquirir(), falha, 0);
+    }
+}
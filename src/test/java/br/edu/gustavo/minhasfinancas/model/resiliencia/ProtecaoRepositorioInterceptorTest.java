@@ -0,0 +1,122 @@
+package br.edu.gustavo.minhasfinancas.model.resiliencia;
+
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import org.aopalliance.intercept.MethodInvocation;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ProtecaoRepositorioInterceptorTest {
+
+    static final String TEMPO_LIMITE = ProtecaoRepositorioInterceptor.TEMPO_LIMITE_CONSULTA;
+
+    AtomicLong agora = new AtomicLong();
+
+    DisjuntorBanco disjuntor = new DisjuntorBanco(true, 10, 2, 0.5, 0.8, 1000, 5000, 2, agora::get);
+
+    EntityManagerFactory entityManagerFactory = Mockito.mock(EntityManagerFactory.class);
+    EntityManager entityManager = Mockito.mock(EntityManager.class);
+
+    ProtecaoRepositorioInterceptor interceptor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(TempoLimiteConsultas.PREFIXO + "padrao-ms", "10000")
+                .withProperty(TempoLimiteConsultas.PREFIXO + "LancamentoRepository.findAll", "1500");
+
+        ObjectProvider<EntityManagerFactory> provider = Mockito.mock(ObjectProvider.class);
+        Mockito.when(provider.getObject()).thenReturn(entityManagerFactory);
+        Mockito.when(entityManager.getProperties()).thenReturn(Map.of());
+
+        interceptor = new ProtecaoRepositorioInterceptor("LancamentoRepository", disjuntor,
+                new TempoLimiteConsultas(environment), provider);
+
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+        RequestContextHolder.resetRequestAttributes();
+        TempoLimiteConsultas.encerrarPrazo();
+    }
+
+    @Test
+    public void deveAplicarOTempoLimiteDoMetodoEmSegundosInteirosEVoltarAoAnterior() throws Throwable {
+        MethodInvocation invocacao = invocacao("findAll");
+
+        interceptor.invoke(invocacao);
+
+        InOrder ordem = Mockito.inOrder(entityManager, invocacao);
+        ordem.verify(entityManager).setProperty(TEMPO_LIMITE, 2000);
+        ordem.verify(invocacao).proceed();
+        ordem.verify(entityManager).setProperty(TEMPO_LIMITE, 0);
+    }
+
+    @Test
+    public void deveUsarOPadraoNosMetodosSemTempoLimiteProprio() throws Throwable {
+        interceptor.invoke(invocacao("count"));
+
+        Mockito.verify(entityManager).setProperty(TEMPO_LIMITE, 10000);
+    }
+
+    @Test
+    public void naoDeveAplicarOsLimitesDasRequisicoesForaDelas() throws Throwable {
+        RequestContextHolder.resetRequestAttributes();
+        MethodInvocation invocacao = invocacao("findAll");
+
+        interceptor.invoke(invocacao);
+
+        Mockito.verify(invocacao).proceed();
+        Mockito.verify(entityManager, Mockito.never()).setProperty(Mockito.eq(TEMPO_LIMITE), Mockito.any());
+    }
+
+    @Test
+    public void naoDeveChamarOBancoComOPrazoDaRequisicaoEsgotado() throws Throwable {
+        TempoLimiteConsultas.iniciarPrazo(-1);
+        MethodInvocation invocacao = invocacao("findAll");
+
+        Assertions.assertThatThrownBy(() -> interceptor.invoke(invocacao)).isInstanceOf(QueryTimeoutException.class);
+
+        Mockito.verify(invocacao, Mockito.never()).proceed();
+    }
+
+    @Test
+    public void deveContarOTempoLimiteEstouradoComoFalhaNoDisjuntor() throws Throwable {
+        MethodInvocation invocacao = invocacao("findAll");
+        Mockito.when(invocacao.proceed()).thenThrow(new QueryTimeoutException("cancelada"));
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertThatThrownBy(() -> interceptor.invoke(invocacao)).isInstanceOf(QueryTimeoutException.class);
+        }
+
+        Assertions.assertThat(disjuntor.getEstado()).isEqualTo(DisjuntorBanco.Estado.ABERTO);
+        Mockito.verify(entityManager, Mockito.times(2)).setProperty(TEMPO_LIMITE, 0);
+    }
+
+    private static MethodInvocation invocacao(String metodo) throws Throwable {
+        MethodInvocation invocacao = Mockito.mock(MethodInvocation.class);
+        Mockito.when(invocacao.getMethod()).thenReturn(LancamentoRepository.class.getMethod(metodo));
+
+        return invocacao;
+    }
+}
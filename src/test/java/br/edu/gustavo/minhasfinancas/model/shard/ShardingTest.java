@@ -0,0 +1,210 @@
+package br.edu.gustavo.minhasfinancas.model.shard;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Grupo;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.TentativaLogin;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.ResultadoLogin;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.TentativaLoginLoteRepository;
+import br.edu.gustavo.minhasfinancas.service.GrupoService;
+import br.edu.gustavo.minhasfinancas.service.LancamentoService;
+import br.edu.gustavo.minhasfinancas.service.UsuarioService;
+import static org.assertj.core.api.Assertions.*;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@SpringBootTest
+@ActiveProfiles({"test", "sharding-local"})
+public class ShardingTest {
+
+    @Autowired
+    UsuarioService usuarioService;
+
+    @Autowired
+    LancamentoService lancamentoService;
+
+    @Autowired
+    GrupoService grupoService;
+
+    @Autowired
+    TentativaLoginLoteRepository tentativaLoginLoteRepository;
+
+    @Autowired
+    DataSourceShards dataSourceShards;
+
+    @Autowired
+    MapaShards mapa;
+
+    @Test
+    public void deveGravarCadaUsuarioNoSeuShardEEncontraloPeloEmail() {
+        Usuario usuarioA = salvarUsuario(emailNoShard(0, "a"));
+        Usuario usuarioB = salvarUsuario(emailNoShard(1, "b"));
+
+        lancamentoService.salvar(criarLancamento(usuarioA));
+        lancamentoService.salvar(criarLancamento(usuarioB));
+
+        assertThat(contarLancamentos(0, usuarioA)).isEqualTo(1);
+        assertThat(contarLancamentos(1, usuarioA)).isZero();
+        assertThat(contarLancamentos(1, usuarioB)).isEqualTo(1);
+        assertThat(contarLancamentos(0, usuarioB)).isZero();
+
+        assertThat(usuarioService.autenticar(usuarioB.getEmail(), "senha").getId()).isEqualTo(usuarioB.getId());
+        assertThat(lancamentoService.buscar(Lancamento.builder().usuario(usuarioB).build()))
+                .extracting(lancamento -> lancamento.getUsuario().getId())
+                .containsExactly(usuarioB.getId());
+    }
+
+    @Test
+    public void deveMoverOsLancamentosDoBucketParaONovoShard() {
+        Usuario usuario = salvarUsuario(emailNoShard(1, "c"));
+        lancamentoService.salvar(criarLancamento(usuario));
+
+        RebalanceadorShards rebalanceador = new RebalanceadorShards(dataSourceShards.getShards());
+        MapaShards tudoNoPrimeiro = MapaShards.de(List.of("0-1023", ""));
+
+        assertThat(rebalanceador.rebalancear(mapa, tudoNoPrimeiro)).isEqualTo(512);
+        assertThat(contarLancamentos(0, usuario)).isEqualTo(1);
+        assertThat(contarLancamentos(1, usuario)).isZero();
+
+        rebalanceador.rebalancear(tudoNoPrimeiro, mapa);
+
+        assertThat(contarLancamentos(1, usuario)).isEqualTo(1);
+        assertThat(lancamentoService.buscar(Lancamento.builder().usuario(usuario).build())).hasSize(1);
+    }
+
+    @Test
+    public void deveMoverOsGruposEAsTentativasDeLoginComOBucket() {
+        Usuario dono = salvarUsuario(emailNoShard(1, "d"));
+        Usuario membro = salvarUsuario(emailNoShard(0, "e"));
+
+        Grupo grupo = grupoService.salvar(Grupo.builder().nome("familia").usuario(dono).build());
+        grupoService.adicionarMembro(grupo, membro.getId());
+
+        tentativaLoginLoteRepository.inserir(List.of(TentativaLogin.builder()
+                .email(dono.getEmail())
+                .bucket(MapaShards.bucketDoEmail(dono.getEmail()))
+                .resultado(ResultadoLogin.SUCESSO)
+                .dataHora(LocalDateTime.now())
+                .build()));
+
+        int membros = contar(1, "financas.grupo_membro where id_grupo = ?", grupo.getId());
+
+        assertThat(membros).isPositive();
+        assertThat(contar(1, "financas.tentativa_login where email = ?", dono.getEmail())).isEqualTo(1);
+
+        RebalanceadorShards rebalanceador = new RebalanceadorShards(dataSourceShards.getShards());
+        MapaShards tudoNoPrimeiro = MapaShards.de(List.of("0-1023", ""));
+
+        rebalanceador.rebalancear(mapa, tudoNoPrimeiro);
+
+        assertThat(contar(0, "financas.grupo where id = ?", grupo.getId())).isEqualTo(1);
+        assertThat(contar(0, "financas.grupo_membro where id_grupo = ?", grupo.getId())).isEqualTo(membros);
+        assertThat(contar(0, "financas.tentativa_login where email = ?", dono.getEmail())).isEqualTo(1);
+        assertThat(contar(1, "financas.grupo where id = ?", grupo.getId())).isZero();
+        assertThat(contar(1, "financas.tentativa_login where email = ?", dono.getEmail())).isZero();
+
+        rebalanceador.rebalancear(tudoNoPrimeiro, mapa);
+
+        assertThat(contar(1, "financas.grupo_membro where id_grupo = ?", grupo.getId())).isEqualTo(membros);
+        assertThat(contar(1, "financas.grupo_membro where id_usuario = ?", membro.getId())).isEqualTo(1);
+        assertThat(contar(1, "financas.tentativa_login where email = ?", dono.getEmail())).isEqualTo(1);
+        assertThat(grupoService.obterPorId(grupo.getId()).get().getMembros()).contains(membro.getId());
+    }
+
+    @Test
+    public void deveRotearSoPelosParametrosDeIdSemDeixarOShardNaThread() {
+        long idNoShard1 = idNoShard(1);
+        Consultas consultas = consultas();
+
+        assertThat(consultas.porId(idNoShard1)).isEqualTo(1);
+        assertThat(ContextoShard.atual()).isNull();
+
+        assertThat(consultas.buscarPeloId(idNoShard1)).isEqualTo(1);
+        assertThat(consultas.buscarPelosIds(List.of(idNoShard1))).isEqualTo(1);
+        assertThat(consultas.porAno(idNoShard1)).isEqualTo(ContextoShard.PADRAO);
+        assertThat(consultas.semArgumentos()).isEqualTo(ContextoShard.PADRAO);
+        assertThat(ContextoShard.atual()).isNull();
+    }
+
+    interface ComId<ID> extends Repository<Usuario, ID> {
+
+        Object buscarPeloId(ID id);
+
+        Object buscarPelosIds(Iterable<ID> ids);
+    }
+
+    interface Consultas extends ComId<Long> {
+
+        Object porId(@IdShard Long id);
+
+        Object porAno(Long ano);
+
+        Object semArgumentos();
+    }
+
+    /**
+     * Repositório sem implementação: o roteamento escolhe o shard e a chamada devolve o shard vigente.
+     */
+    private Consultas consultas() {
+        ProxyFactory fabrica = new ProxyFactory();
+        fabrica.addInterface(Consultas.class);
+        fabrica.addAdvice(new RoteamentoShardInterceptor(mapa));
+        fabrica.addAdvice((MethodInterceptor) invocacao -> ContextoShard.atual());
+
+        return (Consultas) fabrica.getProxy();
+    }
+
+    private long idNoShard(int shard) {
+        for (int bucket = 0; ; bucket++) {
+            if (mapa.shardDoBucket(bucket) == shard) {
+                return (1L << 20) | bucket;
+            }
+        }
+    }
+
+    private Integer contar(int shard, String tabelaECondicao, Object parametro) {
+        return new JdbcTemplate(dataSourceShards.getShards().get(shard)).queryForObject(
+                "select count(*) from " + tabelaECondicao, Integer.class, parametro);
+    }
+
+    private Usuario salvarUsuario(String email) {
+        return usuarioService.salvarUsuario(Usuario.builder().nome("usuario").email(email).senha("senha").build());
+    }
+
+    private String emailNoShard(int shard, String prefixo) {
+        for (int i = 0; ; i++) {
+            String email = prefixo + i + "@sharding.com";
+
+            if (mapa.shardDoEmail(email) == shard) {
+                return email;
+            }
+        }
+    }
+
+    private Integer contarLancamentos(int shard, Usuario usuario) {
+        return new JdbcTemplate(dataSourceShards.getShards().get(shard)).queryForObject(
+                "select count(*) from financas.lancamento where id_usuario = ?", Integer.class, usuario.getId());
+    }
+
+    private static Lancamento criarLancamento(Usuario usuario) {
+        return Lancamento.builder()
+                .usuario(usuario)
+                .descricao("lancamento")
+                .ano(2021)
+                .mes(1)
+                .valor(BigDecimal.TEN)
+                .tipo(TipoLancamento.DESPESA)
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.EstadoLancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.edu.gustavo.minhasfinancas.service.impl.AnaliseLancamentoServiceImpl;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "minhasfinancas.analise.habilitada=true")
+public class AnaliseLancamentoServiceTest {
+
+    @SpyBean
+    AnaliseLancamentoServiceImpl service;
+
+    @MockBean
+    LancamentoRepository repository;
+
+    @MockBean
+    LancamentoArquivoRepository arquivoRepository;
+
+    @Test
+    public void deveTirarOLancamentoDasColunasDoDonoAnteriorQuandoMudaDeUsuario() {
+        Mockito.when(repository.obterColunasPorUsuario(5L)).thenReturn(List.<Object[]>of(
+                new Object[]{7L, 2021, 1, TipoLancamento.DESPESA, StatusLancamento.PENDENTE, new BigDecimal("10.00")}));
+        Mockito.when(repository.obterColunasPorUsuario(6L)).thenReturn(List.of());
+        Mockito.when(arquivoRepository.segmentos(Mockito.anyLong())).thenReturn(List.of());
+
+        assertThat(service.somar(5L, null, null, null, null)).isEqualTo(1000);
+        assertThat(service.somar(6L, null, null, null, null)).isZero();
+
+        Lancamento movido = Lancamento.builder().id(7L).usuario(Usuario.builder().id(6L).build())
+                .ano(2021).mes(1).tipo(TipoLancamento.DESPESA).status(StatusLancamento.PENDENTE)
+                .valor(new BigDecimal("10.00")).build();
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(movido, LancamentoAlteradoEvent.Operacao.ATUALIZADO,
+                EstadoLancamento.de(Lancamento.builder().usuario(Usuario.builder().id(5L).build()).build())));
+
+        assertThat(service.somar(5L, null, null, null, null)).isZero();
+        assertThat(service.somar(6L, null, null, null, null)).isEqualTo(1000);
+        assertThat(service.contar(6L, null, null, TipoLancamento.DESPESA, null)).isEqualTo(1);
+    }
+}
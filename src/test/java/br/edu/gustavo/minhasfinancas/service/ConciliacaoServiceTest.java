@@ -0,0 +1,131 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.conciliacao.Divergencia;
+import br.edu.gustavo.minhasfinancas.service.conciliacao.ResultadoConciliacao;
+import br.edu.gustavo.minhasfinancas.service.impl.ConciliacaoServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "minhasfinancas.conciliacao.habilitada=false",
+        "minhasfinancas.conciliacao.corrigir=true",
+        "minhasfinancas.conciliacao.usuarios-por-faixa=2",
+        "minhasfinancas.conciliacao.fracao-banco=1"
+})
+public class ConciliacaoServiceTest {
+
+    @SpyBean
+    ConciliacaoServiceImpl service;
+
+    @SpyBean
+    SimpleMeterRegistry registry;
+
+    @MockBean
+    SaldoService saldoService;
+
+    @MockBean
+    LancamentoRepository lancamentoRepository;
+
+    @MockBean
+    LancamentoArquivoRepository arquivoRepository;
+
+    @Test
+    public void deveRecalcularAsFaixasEmParaleloEDescartarOsSaldosDivergentes() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        Mockito.when(saldoService.usuariosComSaldoGuardado()).thenReturn(List.of(5l, 1l, 3l, 2l, 4l));
+        Mockito.when(saldoService.obterSaldoGuardado(ArgumentMatchers.anyLong()))
+                .thenAnswer(invocacao -> Optional.of(BigDecimal.valueOf(9 * invocacao.<Long>getArgument(0))));
+        Mockito.when(saldoService.obterSaldoGuardado(4l)).thenReturn(Optional.of(BigDecimal.valueOf(100)));
+
+        // cada usuário n tem 10·n de receitas e n de despesas
+        Mockito.when(lancamentoRepository.obterSomasPorUsuarios(ArgumentMatchers.anyCollection(),
+                ArgumentMatchers.eq(StatusLancamento.EFETIVADO))).thenAnswer(invocacao -> {
+            threads.add(Thread.currentThread().getName());
+
+            List<Object[]> linhas = new ArrayList<>();
+
+            for (Long id : invocacao.<Collection<Long>>getArgument(0)) {
+                linhas.add(new Object[]{id, TipoLancamento.RECEITA, BigDecimal.valueOf(10 * id)});
+                linhas.add(new Object[]{id, TipoLancamento.DESPESA, BigDecimal.valueOf(id)});
+            }
+
+            return linhas;
+        });
+
+        ResultadoConciliacao resultado = service.conciliarSaldos();
+
+        assertThat(resultado.getUsuariosConciliados()).isEqualTo(5);
+        assertThat(resultado.getFaixas()).isEqualTo(3);
+        assertThat(resultado.getDivergencias()).containsExactly(
+                new Divergencia(4l, BigDecimal.valueOf(100), new BigDecimal("36.00")));
+        assertThat(threads).allMatch(thread -> thread.startsWith("conciliacao-"));
+        Mockito.verify(lancamentoRepository, Mockito.times(3))
+                .obterSomasPorUsuarios(ArgumentMatchers.anyCollection(), ArgumentMatchers.any());
+        Mockito.verify(saldoService).descartarSaldoGuardado(4l);
+        Mockito.verify(saldoService, Mockito.never()).descartarSaldoGuardado(1l);
+        assertThat(registry.counter("minhasfinancas.conciliacao.divergencias").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void naoDeveSomarDuasVezesOsArquivadosQueAindaEstaoNoBanco() {
+        Mockito.when(saldoService.usuariosComSaldoGuardado()).thenReturn(List.of(7l, 8l, 9l));
+        Mockito.when(saldoService.obterSaldoGuardado(7l)).thenReturn(Optional.of(BigDecimal.TEN));
+        Mockito.when(saldoService.obterSaldoGuardado(8l)).thenReturn(Optional.of(BigDecimal.ZERO));
+        Mockito.when(saldoService.obterSaldoGuardado(9l)).thenReturn(Optional.of(BigDecimal.ZERO));
+        Mockito.when(lancamentoRepository.obterSomasPorUsuarios(ArgumentMatchers.anyCollection(),
+                ArgumentMatchers.any())).thenReturn(List.<Object[]>of(new Object[]{7l, TipoLancamento.RECEITA, BigDecimal.TEN}));
+        Mockito.when(arquivoRepository.anos(7l)).thenReturn(List.of(2019));
+        Mockito.when(arquivoRepository.anos(8l)).thenReturn(List.of(2020));
+        Mockito.when(lancamentoRepository.obterIdsPorUsuariosEAnos(Set.of(7l, 8l), Set.of(2019, 2020))).thenReturn(List.of(
+                new Object[]{7l, 2019, 70l}, new Object[]{7l, 2020, 71l}, new Object[]{8l, 2020, 80l}));
+
+        ResultadoConciliacao resultado = service.conciliarSaldos();
+
+        assertThat(resultado.getQuantidadeDivergencias()).isZero();
+        Mockito.verify(arquivoRepository).somarCentavos(7l, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, Set.of(70l));
+        Mockito.verify(arquivoRepository).somarCentavos(8l, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, Set.of(80l));
+        Mockito.verify(arquivoRepository).somarCentavos(9l, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, Set.of());
+        Mockito.verify(lancamentoRepository).obterIdsPorUsuariosEAnos(ArgumentMatchers.anyCollection(),
+                ArgumentMatchers.anyCollection());
+        Mockito.verify(lancamentoRepository, Mockito.never()).obterIdsPorUsuarioEAnos(ArgumentMatchers.any(),
+                ArgumentMatchers.anyCollection());
+    }
+
+    @Test
+    public void naoDeveApontarDivergenciaQuandoOSaldoMudaDuranteAConsulta() {
+        Mockito.when(saldoService.usuariosComSaldoGuardado()).thenReturn(List.of(7l));
+        Mockito.when(saldoService.obterSaldoGuardado(7l)).thenReturn(Optional.of(BigDecimal.ONE), Optional.empty());
+        Mockito.when(lancamentoRepository.obterSomasPorUsuarios(ArgumentMatchers.anyCollection(),
+                ArgumentMatchers.any())).thenReturn(List.<Object[]>of(new Object[]{7l, TipoLancamento.RECEITA, BigDecimal.TEN}));
+
+        ResultadoConciliacao resultado = service.conciliarSaldos();
+
+        assertThat(resultado.getQuantidadeDivergencias()).isZero();
+        assertThat(resultado.getUsuariosConciliados()).isZero();
+        Mockito.verify(saldoService, Mockito.never()).descartarSaldoGuardado(ArgumentMatchers.any());
+    }
+}
@@ -0,0 +1,103 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.dashboard.Dashboard;
+import br.edu.gustavo.minhasfinancas.service.impl.DashboardServiceImpl;
+import br.edu.gustavo.minhasfinancas.service.saldo.SaldoObtido;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "minhasfinancas.dashboard.lancamentos-maximos=5")
+public class DashboardServiceTest {
+
+    @SpyBean
+    DashboardServiceImpl service;
+
+    @MockBean
+    SaldoService saldoService;
+
+    @MockBean
+    LancamentoRepository lancamentoRepository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void deveExecutarAsConsultasAoMesmoTempoQueOSaldo() {
+        CountDownLatch todasIniciadas = new CountDownLatch(3);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Lancamento lancamento = Lancamento.builder().id(7l).build();
+
+        Mockito.when(saldoService.obterSaldo(1l)).thenAnswer(invocacao -> {
+            esperarAsOutras(todasIniciadas, threads);
+            return new SaldoObtido(BigDecimal.TEN, 0, false);
+        });
+        Mockito.when(lancamentoRepository.obterUltimosDoMes(1l, 2021, 3, PageRequest.of(0, 5))).thenAnswer(invocacao -> {
+            esperarAsOutras(todasIniciadas, threads);
+            return List.of(lancamento);
+        });
+        Mockito.when(lancamentoRepository.contarPorStatusNoMes(1l, 2021, 3)).thenAnswer(invocacao -> {
+            esperarAsOutras(todasIniciadas, threads);
+            return List.<Object[]>of(new Object[]{StatusLancamento.PENDENTE, 3l}, new Object[]{StatusLancamento.EFETIVADO, 4l});
+        });
+
+        Dashboard dashboard = service.obter(Usuario.builder().id(1l).build(), YearMonth.of(2021, 3));
+
+        assertThat(dashboard.getSaldo().getSaldo()).isEqualTo(BigDecimal.TEN);
+        assertThat(dashboard.getLancamentos()).containsExactly(lancamento);
+        assertThat(dashboard.getQuantidadeNoMes()).isEqualTo(7);
+        assertThat(dashboard.getQuantidadePorStatus())
+                .containsEntry(StatusLancamento.PENDENTE, 3l)
+                .containsEntry(StatusLancamento.CANCELADO, 0l);
+        assertThat(threads).hasSize(3).contains(Thread.currentThread().getName())
+                .filteredOn(thread -> thread.startsWith("dashboard-")).hasSize(2);
+        // Só as duas consultas de lançamentos abrem transação; o saldo vai direto ao SaldoService
+        Mockito.verify(transactionManager, Mockito.times(2)).getTransaction(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void deveRepassarOErroDeUmaDasConsultas() {
+        Mockito.when(lancamentoRepository.contarPorStatusNoMes(ArgumentMatchers.eq(2l), ArgumentMatchers.any(),
+                ArgumentMatchers.any())).thenThrow(new IllegalStateException("falhou"));
+
+        assertThatThrownBy(() -> service.obter(Usuario.builder().id(2l).build(), YearMonth.of(2021, 3)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("falhou");
+    }
+
+    /**
+     * Só libera quando o saldo e as duas consultas começaram; se rodassem um depois do outro, nenhum
+     * terminaria.
+     */
+    private static void esperarAsOutras(CountDownLatch todasIniciadas, Set<String> threads) throws InterruptedException {
+        threads.add(Thread.currentThread().getName());
+        todasIniciadas.countDown();
+
+        if (!todasIniciadas.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("As consultas não rodaram ao mesmo tempo");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.service.impl.GravacaoAgrupadaLancamentos;
+import br.edu.gustavo.minhasfinancas.service.impl.LancamentoServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "minhasfinancas.gravacao-agrupada.habilitada=true",
+        "minhasfinancas.gravacao-agrupada.max-linhas=4",
+        "minhasfinancas.gravacao-agrupada.janela-ms=2000"
+})
+public class GravacaoAgrupadaLancamentosTest {
+
+    @SpyBean
+    GravacaoAgrupadaLancamentos gravacao;
+
+    @SpyBean
+    SimpleMeterRegistry registry;
+
+    @MockBean
+    LancamentoServiceImpl servico;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    final AtomicLong ids = new AtomicLong();
+
+    @Test
+    public void deveGravarInsercoesSimultaneasEmUmaTransacao() throws Exception {
+        Mockito.when(servico.salvar(Mockito.any(Lancamento.class))).thenAnswer(invocacao -> gerarId(invocacao.getArgument(0)));
+
+        List<CompletableFuture<Lancamento>> salvos = salvarSimultaneamente("a", "b", "c", "d");
+
+        for (CompletableFuture<Lancamento> salvo : salvos) {
+            assertThat(salvo.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        }
+
+        Mockito.verify(servico, Mockito.times(4)).prepararNovo(Mockito.any(Lancamento.class));
+        Mockito.verify(transactionManager, Mockito.times(1)).getTransaction(Mockito.any());
+        Mockito.verify(transactionManager, Mockito.times(1)).commit(Mockito.any());
+    }
+
+    @Test
+    public void deveDevolverACadaRequisicaoOSeuProprioErro() throws Exception {
+        Mockito.when(servico.salvar(Mockito.any(Lancamento.class))).thenAnswer(invocacao -> {
+            Lancamento lancamento = invocacao.getArgument(0);
+
+            if (lancamento.getDescricao().equals("ruim")) {
+                throw new RegraNegocioException("Categoria inexistente");
+            }
+
+            return gerarId(lancamento);
+        });
+
+        List<CompletableFuture<Lancamento>> salvos = salvarSimultaneamente("a", "ruim", "c", "d");
+
+        assertThat(salvos.get(0).get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThat(salvos.get(2).get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThat(salvos.get(3).get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThatThrownBy(() -> salvos.get(1).join())
+                .hasCauseInstanceOf(RegraNegocioException.class)
+                .hasRootCauseMessage("Categoria inexistente");
+        Mockito.verify(transactionManager).rollback(Mockito.any());
+    }
+
+    private List<CompletableFuture<Lancamento>> salvarSimultaneamente(String... descricoes) {
+        ExecutorService requisicoes = Executors.newFixedThreadPool(descricoes.length);
+        List<CompletableFuture<Lancamento>> salvos = new ArrayList<>();
+
+        for (String descricao : descricoes) {
+            Lancamento lancamento = Lancamento.builder().descricao(descricao).build();
+            salvos.add(CompletableFuture.supplyAsync(() -> gravacao.salvar(lancamento), requisicoes));
+        }
+
+        requisicoes.shutdown();
+
+        return salvos;
+    }
+
+    private Lancamento gerarId(Lancamento lancamento) {
+        lancamento.setId(ids.incrementAndGet());
+        return lancamento;
+    }
+}
@@ -0,0 +1,152 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.Grupo;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.GrupoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.UsuarioRepository;
+import br.edu.gustavo.minhasfinancas.service.grupo.SaldoGrupo;
+import br.edu.gustavo.minhasfinancas.service.grupo.SaldoMembro;
+import br.edu.gustavo.minhasfinancas.service.grupo.SaldoMensalGrupo;
+import br.edu.gustavo.minhasfinancas.service.impl.GrupoServiceImpl;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "minhasfinancas.grupo.membros-por-particao=2")
+public class GrupoServiceTest {
+
+    @SpyBean
+    GrupoServiceImpl service;
+
+    @MockBean
+    GrupoRepository repository;
+
+    @MockBean
+    UsuarioRepository usuarioRepository;
+
+    @MockBean
+    LancamentoRepository lancamentoRepository;
+
+    @MockBean
+    LancamentoArquivoRepository arquivoRepository;
+
+    @Test
+    public void deveSomarUmGrupoPequenoEmUmaConsultaNaThreadDaRequisicao() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        responderSomas(threads);
+
+        SaldoGrupo saldo = service.obterSaldo(grupo(1, 2));
+
+        assertThat(saldo.getSaldo()).isEqualByComparingTo("27");
+        assertThat(saldo.getMembros()).extracting(SaldoMembro::getIdUsuario).containsExactly(1l, 2l);
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+        Mockito.verify(lancamentoRepository, Mockito.times(1))
+                .obterSomasPorUsuarios(ArgumentMatchers.anyCollection(), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void deveSomarUmGrupoGrandeEmParticoesParalelas() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        responderSomas(threads);
+
+        SaldoGrupo saldo = service.obterSaldo(grupo(1, 2, 3, 4, 5));
+
+        assertThat(saldo.getReceitas()).isEqualByComparingTo("150");
+        assertThat(saldo.getDespesas()).isEqualByComparingTo("15");
+        assertThat(saldo.getMembros()).extracting(SaldoMembro::getSaldo)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(BigDecimal.valueOf(9), BigDecimal.valueOf(18), BigDecimal.valueOf(27),
+                        BigDecimal.valueOf(36), BigDecimal.valueOf(45));
+        assertThat(threads).allMatch(thread -> thread.startsWith("saldo-grupo-"));
+        Mockito.verify(lancamentoRepository, Mockito.times(3))
+                .obterSomasPorUsuarios(ArgumentMatchers.anyCollection(), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void deveSepararOSaldoMensalPorMesEIncluirOsArquivados() {
+        Mockito.when(lancamentoRepository.obterSomasMensaisPorUsuarios(ArgumentMatchers.anyCollection(),
+                ArgumentMatchers.eq(2021), ArgumentMatchers.eq(StatusLancamento.EFETIVADO)))
+                .thenReturn(List.<Object[]>of(
+                        new Object[]{1l, 3, TipoLancamento.RECEITA, BigDecimal.valueOf(100)},
+                        new Object[]{2l, 3, TipoLancamento.DESPESA, BigDecimal.valueOf(40)}));
+        Mockito.when(arquivoRepository.streamExtrato(1l, 2021, Set.of())).thenReturn(Stream.<Object[]>of(
+                new Object[]{5, "arquivado", TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, BigDecimal.TEN, null},
+                new Object[]{5, "cancelado", TipoLancamento.DESPESA, StatusLancamento.CANCELADO, BigDecimal.ONE, null}));
+        Mockito.when(arquivoRepository.streamExtrato(2l, 2021, Set.of())).thenReturn(Stream.empty());
+
+        List<SaldoMensalGrupo> meses = service.obterSaldoMensal(grupo(1, 2), 2021);
+
+        assertThat(meses).extracting(SaldoMensalGrupo::getMes).containsExactly(3, 5);
+        assertThat(meses.get(0).getSaldo()).isEqualByComparingTo("60");
+        assertThat(meses.get(0).getMembros()).hasSize(2);
+        assertThat(meses.get(1).getDespesas()).isEqualByComparingTo("10");
+        assertThat(meses.get(1).getMembros()).extracting(SaldoMembro::getIdUsuario).containsExactly(1l);
+    }
+
+    @Test
+    public void deveIncluirODonoEValidarOsMembrosAoSalvar() {
+        Usuario dono = Usuario.builder().id(1l).build();
+        Grupo grupo = Grupo.builder().nome(" Família ").usuario(dono).membros(new HashSet<>(Set.of(2l, 3l))).build();
+
+        Mockito.when(usuarioRepository.findAllById(Set.of(1l, 2l, 3l)))
+                .thenReturn(List.of(dono, Usuario.builder().id(2l).build()));
+
+        assertThatThrownBy(() -> service.salvar(grupo))
+                .isInstanceOf(RegraNegocioException.class)
+                .hasMessage("Há membros que não correspondem a nenhum Usuário");
+        assertThat(grupo.getMembros()).containsExactlyInAnyOrder(1l, 2l, 3l);
+        Mockito.verify(repository, Mockito.never()).save(Mockito.any());
+    }
+
+    /**
+     * Cada usuário n tem 10·n de receitas e n de despesas; a thread de cada consulta é anotada.
+     */
+    private void responderSomas(Set<String> threads) {
+        Mockito.when(lancamentoRepository.obterSomasPorUsuarios(ArgumentMatchers.anyCollection(),
+                ArgumentMatchers.eq(StatusLancamento.EFETIVADO))).thenAnswer(invocacao -> {
+            threads.add(Thread.currentThread().getName());
+
+            List<Object[]> linhas = new ArrayList<>();
+
+            for (Long id : invocacao.<Collection<Long>>getArgument(0)) {
+                linhas.add(new Object[]{id, TipoLancamento.RECEITA, BigDecimal.valueOf(10 * id)});
+                linhas.add(new Object[]{id, TipoLancamento.DESPESA, BigDecimal.valueOf(id)});
+            }
+
+            return linhas;
+        });
+    }
+
+    private static Grupo grupo(long... membros) {
+        return Grupo.builder()
+                .id(1l)
+                .usuario(Usuario.builder().id(membros[0]).build())
+                .membros(LongStream.of(membros).boxed().collect(Collectors.toCollection(HashSet::new)))
+                .build();
+    }
+}
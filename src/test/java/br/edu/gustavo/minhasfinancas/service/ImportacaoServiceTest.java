@@ -0,0 +1,150 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoLoteRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.SegmentoLancamentos;
+import br.edu.gustavo.minhasfinancas.service.impl.ImportacaoServiceImpl;
+import br.edu.gustavo.minhasfinancas.service.importacao.ResultadoImportacao;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "minhasfinancas.importacao.tamanho-lote=2")
+public class ImportacaoServiceTest {
+
+    @SpyBean
+    ImportacaoServiceImpl service;
+
+    @MockBean
+    LancamentoRepository lancamentoRepository;
+
+    @MockBean
+    LancamentoLoteRepository loteRepository;
+
+    @MockBean
+    LancamentoArquivoRepository arquivoRepository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void deveImportarAsTransacoesComOTipoPeloSinalSemConsultarOBancoPorTransacao() throws Exception {
+        Usuario usuario = Usuario.builder().id(1l).build();
+        List<Lancamento> gravados = capturarGravados();
+
+        ResultadoImportacao resultado = service.importarOfx(usuario, extrato(
+                transacao("F1", "20210305", "-10.00", "Mercado"),
+                transacao("F2", "20210410", "100.00", "Salário"),
+                transacao(null, "20210415", "-5.00", "Café"),
+                transacao(null, "20210415", "-5.00", "Café")));
+
+        assertThat(resultado).isEqualTo(new ResultadoImportacao(4, 4, 0, 0));
+        assertThat(gravados).extracting(Lancamento::getTipo).containsExactly(TipoLancamento.DESPESA,
+                TipoLancamento.RECEITA, TipoLancamento.DESPESA, TipoLancamento.DESPESA);
+        assertThat(gravados.get(0).getMes()).isEqualTo(3);
+        assertThat(gravados.get(0).getValor()).isEqualByComparingTo("10");
+        assertThat(gravados.get(0).getStatus()).isEqualTo(StatusLancamento.EFETIVADO);
+        assertThat(gravados).extracting(Lancamento::getHashImportacao).doesNotHaveDuplicates().allMatch(h -> h.length() == 64);
+        Mockito.verify(lancamentoRepository, Mockito.never())
+                .obterHashesImportacaoExistentes(ArgumentMatchers.any(), ArgumentMatchers.anyCollection());
+    }
+
+    @Test
+    public void naoDeveDuplicarAoReimportarUmExtratoQueSobrepoeOAnterior() throws Exception {
+        Usuario usuario = Usuario.builder().id(2l).build();
+        List<Lancamento> gravados = capturarGravados();
+
+        Mockito.when(lancamentoRepository.obterHashesImportacaoExistentes(ArgumentMatchers.eq(2l),
+                ArgumentMatchers.anyCollection())).thenAnswer(invocacao -> {
+            Collection<String> hashes = invocacao.getArgument(1);
+            List<String> existentes = gravados.stream().map(Lancamento::getHashImportacao).collect(Collectors.toList());
+
+            return hashes.stream().filter(existentes::contains).collect(Collectors.toList());
+        });
+
+        service.importarOfx(usuario, extrato(
+                transacao("F1", "20210305", "-10.00", "Mercado"),
+                transacao("F2", "20210310", "-20.00", "Farmácia")));
+
+        ResultadoImportacao resultado = service.importarOfx(usuario, extrato(
+                transacao("F2", "20210310", "-20.00", "Farmácia"),
+                transacao("F3", "20210320", "-30.00", "Posto"),
+                transacao("F3", "20210320", "-30.00", "Posto")));
+
+        assertThat(resultado).isEqualTo(new ResultadoImportacao(3, 1, 2, 0));
+        assertThat(gravados).extracting(Lancamento::getDescricao).containsExactly("Mercado", "Farmácia", "Posto");
+    }
+
+    @Test
+    public void deveIgnorarAsTransacoesDeAnosArquivadosEDeValorZero() throws Exception {
+        Usuario usuario = Usuario.builder().id(3l).build();
+        List<Lancamento> gravados = capturarGravados();
+
+        SegmentoLancamentos arquivado = segmento(2020);
+        Mockito.when(arquivoRepository.segmentos(3l)).thenReturn(List.of(arquivado));
+
+        ResultadoImportacao resultado = service.importarOfx(usuario, extrato(
+                transacao("F1", "20201230", "-10.00", "Arquivado"),
+                transacao("F2", "20210102", "0.00", "Tarifa isenta"),
+                transacao("F3", "20210103", "-1.00", "Tarifa")));
+
+        assertThat(resultado).isEqualTo(new ResultadoImportacao(3, 1, 0, 2));
+        assertThat(gravados).extracting(Lancamento::getDescricao).containsExactly("Tarifa");
+    }
+
+    private List<Lancamento> capturarGravados() {
+        List<Lancamento> gravados = new ArrayList<>();
+
+        Mockito.when(lancamentoRepository.streamHashesImportacaoPorUsuario(ArgumentMatchers.any()))
+                .thenAnswer(invocacao -> Stream.empty());
+        Mockito.doAnswer(invocacao -> gravados.addAll(invocacao.getArgument(0)))
+                .when(loteRepository).inserir(ArgumentMatchers.anyList(), ArgumentMatchers.anyInt());
+
+        return gravados;
+    }
+
+    private static SegmentoLancamentos segmento(int ano) {
+        SegmentoLancamentos segmento =
+                Mockito.mock(SegmentoLancamentos.class);
+
+        Mockito.when(segmento.getAno()).thenReturn(ano);
+
+        return segmento;
+    }
+
+    private static String transacao(String fitid, String data, String valor, String nome) {
+        return "<STMTTRN><DTPOSTED>" + data + "<TRNAMT>" + valor
+                + (fitid == null ? "" : "<FITID>" + fitid) + "<NAME>" + nome + "</STMTTRN>";
+    }
+
+    private static InputStream extrato(String... transacoes) {
+        String ofx = "OFXHEADER:100\nCHARSET:NONE\n\n<OFX><BANKACCTFROM><ACCTID>1</BANKACCTFROM><BANKTRANLIST>"
+                + String.join("\n", transacoes) + "</BANKTRANLIST></OFX>";
+
+        return new ByteArrayInputStream(ofx.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
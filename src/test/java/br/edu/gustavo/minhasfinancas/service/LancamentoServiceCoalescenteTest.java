@@ -0,0 +1,203 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.EstadoLancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.service.busca.CacheBuscaLancamentos;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.edu.gustavo.minhasfinancas.service.impl.GravacaoAgrupadaLancamentos;
+import br.edu.gustavo.minhasfinancas.service.impl.LancamentoServiceCoalescente;
+import br.edu.gustavo.minhasfinancas.service.impl.LancamentoServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LancamentoServiceCoalescenteTest {
+
+    @SpyBean
+    LancamentoServiceCoalescente service;
+
+    @SpyBean
+    SimpleMeterRegistry registry;
+
+    @MockBean
+    LancamentoServiceImpl servico;
+
+    @MockBean
+    GravacaoAgrupadaLancamentos gravacaoAgrupada;
+
+    @SpyBean
+    CacheBuscaLancamentos cacheBusca;
+
+    @Test
+    public void deveCompartilharUmaExecucaoEntreChamadasSimultaneas() throws Exception {
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        Mockito.when(servico.obterSaldoPorUsuario(1L)).thenAnswer(invocacao -> {
+            iniciada.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            return BigDecimal.TEN;
+        });
+
+        CompletableFuture<BigDecimal> primeira = CompletableFuture.supplyAsync(() -> service.obterSaldoPorUsuario(1L));
+        iniciada.await(5, TimeUnit.SECONDS);
+        CompletableFuture<BigDecimal> segunda = CompletableFuture.supplyAsync(() -> service.obterSaldoPorUsuario(1L));
+
+        aguardarCompartilhadas("saldo", 1);
+        liberar.countDown();
+
+        assertThat(primeira.get(5, TimeUnit.SECONDS)).isEqualTo(BigDecimal.TEN);
+        assertThat(segunda.get(5, TimeUnit.SECONDS)).isEqualTo(BigDecimal.TEN);
+        Mockito.verify(servico, Mockito.times(1)).obterSaldoPorUsuario(1L);
+        assertThat(registry.get("minhasfinancas.coalescencia.razao").tag("operacao", "saldo").gauge().value())
+                .isEqualTo(0.5);
+    }
+
+    @Test
+    public void naoDeveAproveitarConsultaIniciadaAntesDeUmaEscrita() throws Exception {
+        Usuario usuario = Usuario.builder().id(1L).build();
+        Lancamento filtro = Lancamento.builder().usuario(usuario).ano(2021).build();
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        Mockito.when(servico.buscar(Mockito.any(Lancamento.class), Mockito.anyCollection(), Mockito.anyCollection()))
+                .thenAnswer(invocacao -> {
+                    iniciada.countDown();
+                    liberar.await(5, TimeUnit.SECONDS);
+                    return List.of();
+                })
+                .thenReturn(List.of(Lancamento.builder().id(7L).usuario(usuario).build()));
+
+        CompletableFuture<List<Lancamento>> antes = CompletableFuture.supplyAsync(() -> service.buscar(filtro));
+        iniciada.await(5, TimeUnit.SECONDS);
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.lote(1L));
+        List<Lancamento> depois = service.buscar(filtro);
+        liberar.countDown();
+
+        assertThat(antes.get(5, TimeUnit.SECONDS)).isEmpty();
+        assertThat(depois).extracting(Lancamento::getId).containsExactly(7L);
+        Mockito.verify(servico, Mockito.times(2))
+                .buscar(Mockito.any(Lancamento.class), Mockito.anyCollection(), Mockito.anyCollection());
+    }
+
+    @Test
+    public void deveEntregarUmaCopiaProfundaParaCadaChamadaCompartilhada() throws Exception {
+        Usuario usuario = Usuario.builder().id(4L).build();
+        Lancamento filtro = Lancamento.builder().usuario(usuario).ano(2020).build();
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        Mockito.when(servico.buscar(Mockito.any(Lancamento.class), Mockito.anyCollection(), Mockito.anyCollection()))
+                .thenAnswer(invocacao -> {
+                    iniciada.countDown();
+                    liberar.await(5, TimeUnit.SECONDS);
+                    return List.of(Lancamento.builder().id(1L).descricao("aluguel").usuario(usuario)
+                            .tags(new HashSet<>(Set.of("casa"))).build());
+                });
+
+        CompletableFuture<List<Lancamento>> primeira = CompletableFuture.supplyAsync(() -> service.buscar(filtro));
+        iniciada.await(5, TimeUnit.SECONDS);
+        CompletableFuture<List<Lancamento>> segunda = CompletableFuture.supplyAsync(() -> service.buscar(filtro));
+
+        aguardarCompartilhadas("buscar", 1);
+        liberar.countDown();
+
+        Lancamento alterado = primeira.get(5, TimeUnit.SECONDS).get(0);
+        alterado.setDescricao("alterada");
+        alterado.getTags().add("outra");
+        alterado.getUsuario().setNome("outro");
+
+        Lancamento recebido = segunda.get(5, TimeUnit.SECONDS).get(0);
+
+        assertThat(recebido.getDescricao()).isEqualTo("aluguel");
+        assertThat(recebido.getTags()).containsExactly("casa");
+        assertThat(recebido.getUsuario().getNome()).isNull();
+    }
+
+    @Test
+    public void deveAvancarAGeracaoDoDonoAnteriorQuandoOLancamentoMudaDeUsuario() throws Exception {
+        Usuario usuario = Usuario.builder().id(5L).build();
+        Lancamento filtro = Lancamento.builder().usuario(usuario).ano(2021).build();
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        Mockito.when(servico.buscar(Mockito.any(Lancamento.class), Mockito.anyCollection(), Mockito.anyCollection()))
+                .thenAnswer(invocacao -> {
+                    iniciada.countDown();
+                    liberar.await(5, TimeUnit.SECONDS);
+                    return List.of(Lancamento.builder().id(7L).usuario(usuario).build());
+                })
+                .thenReturn(List.of());
+
+        CompletableFuture<List<Lancamento>> antes = CompletableFuture.supplyAsync(() -> service.buscar(filtro));
+        iniciada.await(5, TimeUnit.SECONDS);
+
+        Lancamento movido = Lancamento.builder().id(7L).usuario(Usuario.builder().id(6L).build()).build();
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(movido, LancamentoAlteradoEvent.Operacao.ATUALIZADO,
+                new EstadoLancamento(5L, 2021, 1, null, null, null, null)));
+        List<Lancamento> depois = service.buscar(filtro);
+        liberar.countDown();
+
+        assertThat(antes.get(5, TimeUnit.SECONDS)).extracting(Lancamento::getId).containsExactly(7L);
+        assertThat(depois).isEmpty();
+        Mockito.verify(cacheBusca).invalidar(5L);
+        Mockito.verify(cacheBusca).invalidar(6L);
+    }
+
+    @Test
+    public void deveServirBuscaRepetidaDoCacheAteUmaEscritaDoUsuario() {
+        Usuario usuario = Usuario.builder().id(2L).build();
+        Lancamento filtro = Lancamento.builder().usuario(usuario).ano(2021).mes(3).build();
+
+        Mockito.when(servico.buscar(Mockito.any(Lancamento.class), Mockito.anyCollection(), Mockito.anyCollection()))
+                .thenReturn(List.of(Lancamento.builder().id(1L).usuario(usuario).build()))
+                .thenReturn(List.of(Lancamento.builder().id(2L).usuario(usuario).build()));
+
+        service.buscar(filtro);
+        List<Lancamento> guardado = service.buscar(filtro, List.of(), List.of());
+
+        assertThatThrownBy(guardado::clear).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(service.buscar(filtro, List.of(), List.of())).isSameAs(guardado)
+                .extracting(Lancamento::getId).containsExactly(1L);
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.lote(3L));
+        assertThat(service.buscar(filtro)).extracting(Lancamento::getId).containsExactly(1L);
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.lote(2L));
+        assertThat(service.buscar(filtro)).extracting(Lancamento::getId).containsExactly(2L);
+
+        Mockito.verify(servico, Mockito.times(2))
+                .buscar(Mockito.any(Lancamento.class), Mockito.anyCollection(), Mockito.anyCollection());
+    }
+
+    private void aguardarCompartilhadas(String operacao, int esperadas) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (registry.get("minhasfinancas.coalescencia.chamadas")
+                    .tag("operacao", operacao).tag("resultado", "compartilhada").counter().count() >= esperadas) {
+                return;
+            }
+
+            Thread.sleep(10);
+        }
+
+        fail("A segunda chamada não aguardou a primeira");
+    }
+}
@@ -4,6 +4,9 @@ import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
 import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
 import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
 import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.CategoriaRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
 import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
 import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepositoryTest;
 import br.edu.gustavo.minhasfinancas.service.impl.LancamentoServiceImpl;
@@ -18,9 +21,11 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -32,6 +37,15 @@ public class LancamentoServiceTest {
     @MockBean
     LancamentoRepository repository;
 
+    @MockBean
+    LancamentoArquivoRepository arquivoRepository;
+
+    @MockBean
+    CategoriaRepository categoriaRepository;
+
+    @MockBean
+    IndiceLancamentoService indiceService;
+
     @Test
     public void deveSalvarUmLancamento() {
         Lancamento lancamentoASalvar = LancamentoRepositoryTest.criarLancamento();
@@ -48,6 +62,7 @@ public class LancamentoServiceTest {
 
         assertThat(lancamento.getId()).isEqualTo(lancamentoSalvo.getId());
         assertThat(lancamento.getStatus()).isEqualTo(StatusLancamento.PENDENTE);
+        assertThat(lancamentoASalvar.getDataCadastro()).isEqualTo(LocalDate.now());
     }
 
     @Test
@@ -120,6 +135,28 @@ public class LancamentoServiceTest {
         assertThat(resultado).isNotEmpty().hasSize(1).contains(lancamento);
     }
 
+    @Test
+    public void deveBuscarPeloIndiceQuandoOFiltroTiverTags() {
+        Usuario usuario = Usuario.builder().id(1l).build();
+
+        Lancamento filtro = Lancamento.builder().usuario(usuario).ano(2021).build();
+
+        Lancamento mercado = LancamentoRepositoryTest.criarLancamento();
+        mercado.setId(1l);
+        mercado.setTags(Set.of("casa"));
+
+        Lancamento alterado = LancamentoRepositoryTest.criarLancamento();
+        alterado.setId(2l);
+
+        Mockito.when(indiceService.filtrar(1l, filtro, List.of(), Set.of("casa"))).thenReturn(Arrays.asList(1l, 2l));
+        Mockito.when(repository.obterPorIds(Arrays.asList(1l, 2l))).thenReturn(Arrays.asList(mercado, alterado));
+
+        List<Lancamento> resultado = service.buscar(filtro, List.of(), List.of(" Casa "));
+
+        assertThat(resultado).containsExactly(mercado);
+        Mockito.verify(repository, Mockito.never()).findAll(Mockito.any(Example.class));
+    }
+
     @Test
     public void deveAtualizarOStatusDeUmLancamento() {
         Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
@@ -224,9 +261,49 @@ public class LancamentoServiceTest {
         erro = catchThrowable(() -> service.validar(lancamento));
         assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Valor válido");
 
+        lancamento.setValor(new BigDecimal("10.005"));
+
+        erro = catchThrowable(() -> service.validar(lancamento));
+        assertThat(erro).isInstanceOf(RegraNegocioException.class)
+                .hasMessage("Informe um Valor com até duas casas decimais");
+
+        lancamento.setValor(new BigDecimal("100000000000000.00"));
+
+        erro = catchThrowable(() -> service.validar(lancamento));
+        assertThat(erro).isInstanceOf(RegraNegocioException.class)
+                .hasMessage("Informe um Valor de até 99999999999999.99");
+
         lancamento.setValor(BigDecimal.valueOf(500));
 
         erro = catchThrowable(() -> service.validar(lancamento));
         assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Tipo de Lançamento");
     }
+
+    @Test
+    public void deveSomarOsLancamentosArquivadosAoSaldo() {
+        Mockito.when(repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(1l, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO))
+                .thenReturn(BigDecimal.valueOf(100));
+        Mockito.when(arquivoRepository.somarCentavos(1l, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, Set.of()))
+                .thenReturn(50000l);
+        Mockito.when(arquivoRepository.somarCentavos(1l, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, Set.of()))
+                .thenReturn(12050l);
+
+        BigDecimal saldo = service.obterSaldoPorUsuario(1l);
+
+        assertThat(saldo).isEqualByComparingTo("479.50");
+    }
+
+    @Test
+    public void naoDeveSomarAoSaldoOsArquivadosQueAindaEstaoNoBanco() {
+        Mockito.when(arquivoRepository.anos(1l)).thenReturn(List.of(2019));
+        Mockito.when(repository.obterIdsPorUsuarioEAnos(1l, List.of(2019))).thenReturn(Set.of(7l));
+        Mockito.when(arquivoRepository.somarCentavos(1l, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, Set.of(7l)))
+                .thenReturn(20000l);
+
+        BigDecimal saldo = service.obterSaldoPorUsuario(1l);
+
+        assertThat(saldo).isEqualByComparingTo("200.00");
+        Mockito.verify(arquivoRepository, Mockito.never())
+                .somarCentavos(1l, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, Set.of());
+    }
 }
@@ -0,0 +1,174 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.AlertaLimite;
+import br.edu.gustavo.minhasfinancas.model.entity.Categoria;
+import br.edu.gustavo.minhasfinancas.model.entity.EstadoLancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.LimiteGasto;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.AlertaLimiteRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LimiteGastoRepository;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.edu.gustavo.minhasfinancas.service.impl.LimiteGastoServiceImpl;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "minhasfinancas.limite.usuarios-maximos=0")
+public class LimiteGastoServiceTest {
+
+    @SpyBean
+    LimiteGastoServiceImpl service;
+
+    @MockBean
+    LimiteGastoRepository repository;
+
+    @MockBean
+    AlertaLimiteRepository alertaRepository;
+
+    @MockBean
+    LancamentoRepository lancamentoRepository;
+
+    @Test
+    public void deveAlertarQuandoUmaDespesaUltrapassaOLimiteDoMes() {
+        Usuario usuario = Usuario.builder().id(1l).build();
+        LimiteGasto limite = LimiteGasto.builder().id(1l).usuario(usuario).valor(BigDecimal.valueOf(100)).build();
+
+        Mockito.when(repository.findByUsuarioId(1l)).thenReturn(List.of(limite));
+        Mockito.when(lancamentoRepository.obterSomaPorCategoriaNoMes(1l, 2021, 3, TipoLancamento.DESPESA, StatusLancamento.CANCELADO))
+                .thenReturn(List.<Object[]>of(new Object[]{null, BigDecimal.valueOf(90)}));
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(despesa(usuario, 90), LancamentoAlteradoEvent.Operacao.SALVO));
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(despesa(usuario, 20), LancamentoAlteradoEvent.Operacao.SALVO));
+
+        ArgumentCaptor<List<AlertaLimite>> alertas = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(alertaRepository, Mockito.timeout(2000)).saveAll(alertas.capture());
+
+        assertThat(alertas.getValue()).hasSize(1);
+        assertThat(alertas.getValue().get(0).getValorGasto()).isEqualByComparingTo("110");
+        assertThat(alertas.getValue().get(0).getMes()).isEqualTo(3);
+
+        Mockito.verify(lancamentoRepository, Mockito.times(1)).obterSomaPorCategoriaNoMes(
+                ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void naoDeveConsultarOsGastosQuandoAAtualizacaoNaoMudaAsDespesas() {
+        Usuario usuario = Usuario.builder().id(1l).build();
+        LimiteGasto limite = LimiteGasto.builder().id(1l).usuario(usuario).valor(BigDecimal.valueOf(100)).build();
+        Lancamento lancamento = despesa(usuario, 150);
+        EstadoLancamento anterior = EstadoLancamento.de(lancamento);
+
+        lancamento.setStatus(StatusLancamento.EFETIVADO);
+
+        Mockito.when(repository.findByUsuarioId(1l)).thenReturn(List.of(limite));
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(lancamento, LancamentoAlteradoEvent.Operacao.ATUALIZADO, anterior));
+
+        Mockito.verify(lancamentoRepository, Mockito.never()).obterSomaPorCategoriaNoMes(
+                ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void naoDeveSomarDuasVezesAEscritaQueJaEstavaNoBancoQuandoOContadorFoiCarregado() {
+        Usuario usuario = Usuario.builder().id(3l).build();
+        LimiteGasto limite = LimiteGasto.builder().id(3l).usuario(usuario).valor(BigDecimal.valueOf(100)).build();
+        CountDownLatch segundaNumerada = new CountDownLatch(1);
+
+        // A primeira escrita só segue para carregar o contador depois que a segunda já foi numerada
+        Mockito.when(repository.findByUsuarioId(3l))
+                .thenAnswer(invocacao -> {
+                    CompletableFuture.runAsync(() -> service.aoAlterarLancamento(
+                            LancamentoAlteradoEvent.de(despesa(usuario, 40), LancamentoAlteradoEvent.Operacao.SALVO)));
+                    segundaNumerada.await(5, TimeUnit.SECONDS);
+                    return List.of(limite);
+                })
+                .thenAnswer(invocacao -> {
+                    segundaNumerada.countDown();
+                    return List.of(limite);
+                })
+                .thenReturn(List.of(limite));
+        Mockito.when(lancamentoRepository.obterSomaPorCategoriaNoMes(3l, 2021, 3, TipoLancamento.DESPESA, StatusLancamento.CANCELADO))
+                .thenReturn(List.<Object[]>of(new Object[]{null, BigDecimal.valueOf(80)}));
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(despesa(usuario, 40), LancamentoAlteradoEvent.Operacao.SALVO));
+        // Quem carregou o contador já terminou: a primeira, ou a segunda antes dela
+        Mockito.verify(lancamentoRepository, Mockito.times(1)).obterSomaPorCategoriaNoMes(
+                3l, 2021, 3, TipoLancamento.DESPESA, StatusLancamento.CANCELADO);
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(despesa(usuario, 30), LancamentoAlteradoEvent.Operacao.SALVO));
+
+        ArgumentCaptor<List<AlertaLimite>> alertas = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(alertaRepository, Mockito.timeout(2000)).saveAll(alertas.capture());
+
+        assertThat(alertas.getAllValues()).flatExtracting(lote -> lote).hasSize(1);
+        assertThat(alertas.getValue().get(0).getValorGasto()).isEqualByComparingTo("110");
+    }
+
+    @Test
+    public void deveUsarOsLimitesDoDonoDeCadaMesQuandoOLancamentoMudaDeUsuario() {
+        Usuario anterior = Usuario.builder().id(5l).build();
+        Usuario atual = Usuario.builder().id(4l).build();
+        LimiteGasto limite = LimiteGasto.builder().id(4l).usuario(atual).valor(BigDecimal.valueOf(100)).build();
+
+        Mockito.when(repository.findByUsuarioId(4l)).thenReturn(List.of(limite));
+        Mockito.when(repository.findByUsuarioId(5l)).thenReturn(List.of());
+        Mockito.when(lancamentoRepository.obterSomaPorCategoriaNoMes(4l, 2021, 3, TipoLancamento.DESPESA, StatusLancamento.CANCELADO))
+                .thenReturn(List.<Object[]>of(new Object[]{null, BigDecimal.valueOf(50)}));
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(despesa(atual, 50), LancamentoAlteradoEvent.Operacao.ATUALIZADO,
+                EstadoLancamento.de(despesa(anterior, 50))));
+
+        Mockito.verify(lancamentoRepository).obterSomaPorCategoriaNoMes(4l, 2021, 3, TipoLancamento.DESPESA, StatusLancamento.CANCELADO);
+        Mockito.verify(lancamentoRepository, Mockito.never()).obterSomaPorCategoriaNoMes(
+                ArgumentMatchers.eq(5l), ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void deveLancarErroAoSalvarLimiteDeCategoriaDeOutroUsuario() {
+        Categoria categoria = Categoria.builder().id(1l).usuario(Usuario.builder().id(2l).build()).build();
+        LimiteGasto limite = LimiteGasto.builder()
+                .usuario(Usuario.builder().id(1l).build())
+                .categoria(categoria)
+                .valor(BigDecimal.TEN)
+                .build();
+
+        Throwable erro = catchThrowable(() -> service.salvar(limite));
+
+        assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("A Categoria informada não pertence ao Usuário");
+        Mockito.verify(repository, Mockito.never()).save(ArgumentMatchers.any());
+    }
+
+    private static Lancamento despesa(Usuario usuario, int valor) {
+        return Lancamento.builder()
+                .usuario(usuario)
+                .ano(2021)
+                .mes(3)
+                .tipo(TipoLancamento.DESPESA)
+                .status(StatusLancamento.PENDENTE)
+                .valor(BigDecimal.valueOf(valor))
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Recorrencia;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoLoteRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.RecorrenciaRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.TravaAgendamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.impl.RecorrenciaServiceImpl;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "minhasfinancas.recorrencia.usuarios-por-particao=1")
+public class RecorrenciaServiceTest {
+
+    @SpyBean
+    RecorrenciaServiceImpl service;
+
+    @MockBean
+    RecorrenciaRepository repository;
+
+    @MockBean
+    LancamentoLoteRepository loteRepository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @MockBean
+    TravaAgendamentoRepository travaRepository;
+
+    @Test
+    public void deveGerarTodasAsParcelasDeUmaCompraParcelada() {
+        Recorrencia recorrencia = criarRecorrencia();
+        recorrencia.setTotalParcelas(3);
+
+        List<Lancamento> ocorrencias = service.gerarOcorrencias(recorrencia, YearMonth.of(2022, 12));
+
+        assertThat(ocorrencias).hasSize(3);
+        assertThat(ocorrencias.get(0).getDescricao()).isEqualTo("Notebook (1/3)");
+        assertThat(ocorrencias.get(2).getMes()).isEqualTo(2);
+        assertThat(ocorrencias.get(2).getAno()).isEqualTo(2022);
+        assertThat(ocorrencias.get(2).getParcela()).isEqualTo(3);
+        assertThat(ocorrencias.get(2).getStatus()).isEqualTo(StatusLancamento.PENDENTE);
+        assertThat(ocorrencias.get(2).getIdRecorrencia()).isEqualTo(recorrencia.getId());
+    }
+
+    @Test
+    public void deveContinuarAPartirDasParcelasJaGeradas() {
+        Recorrencia recorrencia = criarRecorrencia();
+        recorrencia.setParcelasGeradas(2);
+
+        List<Lancamento> ocorrencias = service.gerarOcorrencias(recorrencia, YearMonth.of(2022, 3));
+
+        assertThat(ocorrencias).extracting(Lancamento::getParcela).containsExactly(3, 4);
+    }
+
+    @Test
+    public void naoDeveGerarOcorrenciasAlemDoLimiteOuDaDataFim() {
+        Recorrencia recorrencia = criarRecorrencia();
+        recorrencia.setDataFim(LocalDate.of(2022, 2, 10));
+
+        assertThat(service.gerarOcorrencias(recorrencia, YearMonth.of(2021, 12))).hasSize(1);
+        assertThat(service.gerarOcorrencias(recorrencia, YearMonth.of(2030, 1))).hasSize(3);
+    }
+
+    @Test
+    public void deveEncerrarARecorrenciaDepoisDaUltimaParcelaOuDaDataFim() {
+        Recorrencia parcelada = criarRecorrencia();
+        parcelada.setTotalParcelas(3);
+        parcelada.setParcelasGeradas(3);
+
+        Recorrencia comFim = criarRecorrencia();
+        comFim.setDataFim(LocalDate.of(2022, 2, 10));
+        comFim.setParcelasGeradas(2);
+
+        Recorrencia semFim = criarRecorrencia();
+        semFim.setParcelasGeradas(120);
+
+        assertThat(service.encerrada(parcelada)).isTrue();
+        assertThat(service.encerrada(comFim)).isFalse();
+
+        comFim.setParcelasGeradas(3);
+
+        assertThat(service.encerrada(comFim)).isTrue();
+        assertThat(service.encerrada(semFim)).isFalse();
+    }
+
+    @Test
+    public void deveSeguirParaAProximaParticaoQuandoUmaFalha() {
+        Recorrencia recorrencia = criarRecorrencia();
+        recorrencia.setUsuario(Usuario.builder().id(2l).build());
+        recorrencia.setMesInicio(YearMonth.now().getMonthValue());
+        recorrencia.setAnoInicio(YearMonth.now().getYear());
+        recorrencia.setTotalParcelas(2);
+
+        Mockito.when(travaRepository.adquirir(Mockito.anyString(), Mockito.any())).thenReturn(true);
+        Mockito.when(repository.obterUsuariosComRecorrenciasPendentes()).thenReturn(List.of(1l, 2l));
+        Mockito.when(repository.obterPendentesPorUsuarios(List.of(1l))).thenThrow(new IllegalStateException("falha"));
+        Mockito.when(repository.obterPendentesPorUsuarios(List.of(2l))).thenReturn(List.of(recorrencia));
+
+        assertThat(service.materializarPendentes()).isEqualTo(2);
+        assertThat(recorrencia.getAtiva()).isFalse();
+        Mockito.verify(loteRepository).inserir(Mockito.anyList(), Mockito.anyInt());
+        Mockito.verify(travaRepository).liberar(Mockito.anyString());
+    }
+
+    @Test
+    public void naoDeveMaterializarQuandoOutraInstanciaTemATrava() {
+        Mockito.when(travaRepository.adquirir(Mockito.anyString(), Mockito.any())).thenReturn(false);
+
+        assertThat(service.materializarPendentes()).isZero();
+        Mockito.verifyNoInteractions(repository, loteRepository);
+        Mockito.verify(travaRepository, Mockito.never()).liberar(Mockito.anyString());
+    }
+
+    @Test
+    public void deveLancarErroAoValidarRecorrenciaComParcelasInvalidas() {
+        Recorrencia recorrencia = criarRecorrencia();
+        recorrencia.setTotalParcelas(0);
+
+        Throwable erro = catchThrowable(() -> service.validar(recorrencia));
+
+        assertThat(erro).isInstanceOf(RegraNegocioException.class)
+                .hasMessage("Informe uma quantidade de parcelas válida");
+    }
+
+    public static Recorrencia criarRecorrencia() {
+        return Recorrencia.builder()
+                .id(1l)
+                .descricao("Notebook")
+                .usuario(Usuario.builder().id(1l).build())
+                .valor(BigDecimal.valueOf(1000))
+                .tipo(TipoLancamento.DESPESA)
+                .mesInicio(12)
+                .anoInicio(2021)
+                .parcelasGeradas(0)
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoArquivoRepository;
+import br.edu.gustavo.minhasfinancas.model.repository.LancamentoRepository;
+import br.edu.gustavo.minhasfinancas.service.impl.RelatorioServiceImpl;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class RelatorioServiceTest {
+
+    @SpyBean
+    RelatorioServiceImpl service;
+
+    @MockBean
+    LancamentoRepository lancamentoRepository;
+
+    @MockBean
+    LancamentoArquivoRepository arquivoRepository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void deveEscreverOExtratoComSubtotaisMensais() throws Exception {
+        List<Object[]> linhas = List.of(
+                new Object[]{1, "Salario", TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, BigDecimal.valueOf(1000), LocalDate.of(2021, 1, 5)},
+                new Object[]{1, "Aluguel; apto", TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, BigDecimal.valueOf(400), null},
+                new Object[]{2, "Mercado", TipoLancamento.DESPESA, StatusLancamento.PENDENTE, BigDecimal.valueOf(50), null}
+        );
+
+        StringWriter conteudo = new StringWriter();
+
+        try (BufferedWriter writer = new BufferedWriter(conteudo)) {
+            service.escreverExtrato(2021, linhas.iterator(), writer);
+        }
+
+        assertThat(conteudo.toString().split(System.lineSeparator())).containsExactly(
+                "mes;descricao;tipo;status;valor;data_cadastro",
+                "1;Salario;RECEITA;EFETIVADO;1000;2021-01-05",
+                "1;\"Aluguel; apto\";DESPESA;EFETIVADO;400;",
+                "Subtotal 1/2021;receitas=1000;despesas=400;saldo=600",
+                "2;Mercado;DESPESA;PENDENTE;50;",
+                "Subtotal 2/2021;receitas=0;despesas=0;saldo=0",
+                "Total 2021;receitas=1000;despesas=400;saldo=600"
+        );
+    }
+
+    @Test
+    public void pedidosSimultaneosDoMesmoExtratoDevemReceberOMesmoRelatorio() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        Mockito.when(arquivoRepository.anos(7l)).thenAnswer(invocacao -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        Mockito.when(lancamentoRepository.streamExtratoPorUsuarioEAno(7l, 2021)).thenAnswer(invocacao -> Stream.empty());
+        Mockito.when(arquivoRepository.streamExtrato(7l, 2021, Set.of())).thenAnswer(invocacao -> Stream.empty());
+
+        int pedidos = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(pedidos);
+        CountDownLatch largada = new CountDownLatch(1);
+
+        try {
+            List<Future<String>> ids = new ArrayList<>();
+
+            for (int i = 0; i < pedidos; i++) {
+                ids.add(executor.submit(() -> {
+                    largada.await();
+                    return service.solicitarExtratoAnual(7l, 2021).getId();
+                }));
+            }
+
+            largada.countDown();
+
+            String primeiro = ids.get(0).get(5, TimeUnit.SECONDS);
+
+            for (Future<String> id : ids) {
+                assertThat(id.get(5, TimeUnit.SECONDS)).isEqualTo(primeiro);
+            }
+
+            liberar.countDown();
+
+            Mockito.verify(arquivoRepository, Mockito.timeout(5000).times(1)).streamExtrato(7l, 2021, Set.of());
+        } finally {
+            liberar.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void deveLancarErroAoSolicitarExtratoComAnoInvalido() {
+        Throwable erro = catchThrowable(() -> service.solicitarExtratoAnual(1l, 21));
+
+        assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Ano válido");
+    }
+}
@@ -0,0 +1,129 @@
+package br.edu.gustavo.minhasfinancas.service;
+
+import br.edu.gustavo.minhasfinancas.model.entity.EstadoLancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import br.edu.gustavo.minhasfinancas.service.impl.SaldoServiceImpl;
+import br.edu.gustavo.minhasfinancas.service.saldo.SaldoObtido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "minhasfinancas.saldo-cache.fresco-ms=0",
+        "minhasfinancas.saldo-cache.espera-ms=200"
+})
+public class SaldoServiceTest {
+
+    @SpyBean
+    SaldoServiceImpl service;
+
+    @SpyBean
+    SimpleMeterRegistry registry;
+
+    @MockBean
+    LancamentoService lancamentoService;
+
+    @Test
+    public void deveDevolverOSaldoAtualizadoQuandoOBancoRespondeATempo() {
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(BigDecimal.TEN, BigDecimal.ONE);
+
+        SaldoObtido calculado = service.obterSaldo(1l);
+        SaldoObtido atualizado = service.obterSaldo(1l);
+
+        assertThat(calculado.getSaldo()).isEqualTo(BigDecimal.TEN);
+        assertThat(atualizado.getSaldo()).isEqualTo(BigDecimal.ONE);
+        assertThat(atualizado.isObsoleto()).isFalse();
+    }
+
+    @Test
+    public void deveDevolverOSaldoObsoletoQuandoAAtualizacaoDemora() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(2l))
+                .thenReturn(BigDecimal.TEN)
+                .thenAnswer(invocacao -> {
+                    liberar.await();
+                    return BigDecimal.ONE;
+                });
+
+        service.obterSaldo(2l);
+        SaldoObtido obsoleto = service.obterSaldo(2l);
+        SaldoObtido aindaObsoleto = service.obterSaldo(2l);
+
+        assertThat(obsoleto.getSaldo()).isEqualTo(BigDecimal.TEN);
+        assertThat(obsoleto.isObsoleto()).isTrue();
+        assertThat(aindaObsoleto.isObsoleto()).isTrue();
+
+        liberar.countDown();
+
+        Mockito.verify(lancamentoService, Mockito.timeout(2000).times(2)).obterSaldoPorUsuario(2l);
+    }
+
+    @Test
+    public void deveDevolverOSaldoObsoletoQuandoAAtualizacaoFalha() {
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(3l))
+                .thenReturn(BigDecimal.TEN)
+                .thenThrow(new QueryTimeoutException("tempo esgotado"));
+
+        service.obterSaldo(3l);
+        SaldoObtido obsoleto = service.obterSaldo(3l);
+
+        assertThat(obsoleto.getSaldo()).isEqualTo(BigDecimal.TEN);
+        assertThat(obsoleto.isObsoleto()).isTrue();
+    }
+
+    @Test
+    public void naoDeveGuardarUmSaldoCalculadoAntesDeUmaEscrita() throws Exception {
+        CountDownLatch calculando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(4l))
+                .thenReturn(BigDecimal.TEN)
+                .thenAnswer(invocacao -> {
+                    calculando.countDown();
+                    liberar.await();
+                    return BigDecimal.ONE;
+                })
+                .thenReturn(BigDecimal.valueOf(5));
+
+        service.obterSaldo(4l);
+        service.obterSaldo(4l);
+        calculando.await();
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.lote(4l));
+        liberar.countDown();
+
+        Mockito.verify(lancamentoService, Mockito.timeout(2000).times(2)).obterSaldoPorUsuario(4l);
+
+        assertThat(service.obterSaldo(4l).getSaldo()).isEqualTo(BigDecimal.valueOf(5));
+    }
+
+    @Test
+    public void deveInvalidarOSaldoDoDonoAnteriorDeUmLancamentoQueMudouDeUsuario() {
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(5l)).thenReturn(BigDecimal.TEN, BigDecimal.ONE);
+
+        service.obterSaldo(5l);
+
+        Lancamento movido = Lancamento.builder().id(9l).usuario(Usuario.builder().id(6l).build()).build();
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(movido, LancamentoAlteradoEvent.Operacao.ATUALIZADO,
+                new EstadoLancamento(5l, 2021, 1, null, null, null, null)));
+
+        assertThat(service.obterSaldoGuardado(5l)).isEmpty();
+        assertThat(service.obterSaldo(5l).getSaldo()).isEqualTo(BigDecimal.ONE);
+    }
+}
@@ -2,8 +2,12 @@ package br.edu.gustavo.minhasfinancas.service;
 
 import br.edu.gustavo.minhasfinancas.exception.ErroAutenticacao;
 import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import br.edu.gustavo.minhasfinancas.exception.TentativasExcedidasException;
 import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.model.enums.ResultadoLogin;
 import br.edu.gustavo.minhasfinancas.model.repository.UsuarioRepository;
+import br.edu.gustavo.minhasfinancas.service.autenticacao.AuditoriaLogin;
+import br.edu.gustavo.minhasfinancas.service.autenticacao.LimitadorLogin;
 import br.edu.gustavo.minhasfinancas.service.impl.UsuarioServiceImpl;
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +31,12 @@ public class UsuarioServiceTest {
     @MockBean
     UsuarioRepository repository;
 
+    @MockBean
+    LimitadorLogin limitador;
+
+    @MockBean
+    AuditoriaLogin auditoria;
+
     @Test
     public void deveSalvarUmUsuario() {
         Mockito.doNothing().when(service).validarEmail(Mockito.anyString());
@@ -69,6 +79,7 @@ public class UsuarioServiceTest {
         Usuario resultado = service.autenticar(email, senha);
 
         assertThat(resultado).isNotNull();
+        Mockito.verify(limitador).registrarSucesso(email, null);
     }
 
     @Test
@@ -92,6 +103,21 @@ public class UsuarioServiceTest {
         Throwable exception = catchThrowable(() -> service.autenticar("email@email.com", "1234"));
 
         assertThat(exception).isInstanceOf(ErroAutenticacao.class).hasMessage("Senha inválida");
+        Mockito.verify(limitador).reservarTentativa("email@email.com", null);
+        Mockito.verify(limitador, Mockito.never()).registrarSucesso(Mockito.any(), Mockito.any());
+        Mockito.verify(auditoria).registrar("email@email.com", null, ResultadoLogin.SENHA_INVALIDA);
+    }
+
+    @Test
+    public void deveRecusarOLoginBloqueadoSemConsultarOBanco() {
+        Mockito.when(limitador.reservarTentativa("email@email.com", "10.0.0.1")).thenReturn(30l);
+
+        Throwable exception = catchThrowable(() -> service.autenticar("email@email.com", "senha", "10.0.0.1"));
+
+        assertThat(exception).isInstanceOf(TentativasExcedidasException.class);
+        assertThat(((TentativasExcedidasException) exception).getSegundosParaNovaTentativa()).isEqualTo(30l);
+        Mockito.verify(repository, Mockito.never()).findByEmail(Mockito.anyString());
+        Mockito.verify(auditoria).registrar("email@email.com", "10.0.0.1", ResultadoLogin.BLOQUEADO);
     }
 
     @Test
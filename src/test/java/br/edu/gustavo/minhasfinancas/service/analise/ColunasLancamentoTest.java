@@ -0,0 +1,76 @@
+package br.edu.gustavo.minhasfinancas.service.analise;
+
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+public class ColunasLancamentoTest {
+
+    static final int RECEITA = TipoLancamento.RECEITA.ordinal();
+    static final int DESPESA = TipoLancamento.DESPESA.ordinal();
+    static final int EFETIVADO = StatusLancamento.EFETIVADO.ordinal();
+    static final int PENDENTE = StatusLancamento.PENDENTE.ordinal();
+
+    @Test
+    public void deveSomarPorFaixaDeCompetenciaTipoEStatus() {
+        ColunasLancamento colunas = criarColunas();
+
+        long receitasEfetivadas = colunas.somar(
+                ColunasLancamento.competencia(2021, 1), ColunasLancamento.competencia(2021, 12), RECEITA, EFETIVADO);
+
+        long todasAsDespesas = colunas.somar(
+                Integer.MIN_VALUE, Integer.MAX_VALUE, DESPESA, ColunasLancamento.QUALQUER);
+
+        assertThat(receitasEfetivadas).isEqualTo(500000);
+        assertThat(todasAsDespesas).isEqualTo(12050 + 9999);
+    }
+
+    @Test
+    public void deveAgruparPorMesETipo() {
+        ColunasLancamento colunas = criarColunas();
+
+        long[] despesasPorMes = new long[12];
+        colunas.somarPorMes(2021, DESPESA, ColunasLancamento.QUALQUER, despesasPorMes);
+
+        long[] porTipo = new long[2];
+        colunas.somarPorTipo(Integer.MIN_VALUE, Integer.MAX_VALUE, ColunasLancamento.QUALQUER, porTipo);
+
+        assertThat(despesasPorMes[0]).isEqualTo(12050);
+        assertThat(despesasPorMes[2]).isEqualTo(9999);
+        assertThat(porTipo[RECEITA]).isEqualTo(500000 + 100);
+        assertThat(porTipo[DESPESA]).isEqualTo(12050 + 9999);
+    }
+
+    @Test
+    public void deveAtualizarERemoverLinhasPeloId() {
+        ColunasLancamento colunas = criarColunas();
+
+        colunas.gravar(2, ColunasLancamento.competencia(2021, 1), DESPESA, EFETIVADO, 100);
+        colunas.remover(3);
+        colunas.remover(99);
+
+        assertThat(colunas.getTamanho()).isEqualTo(3);
+        assertThat(colunas.somar(Integer.MIN_VALUE, Integer.MAX_VALUE, DESPESA, ColunasLancamento.QUALQUER))
+                .isEqualTo(100);
+    }
+
+    @Test
+    public void deveConverterValorParaCentavos() {
+        assertThat(ColunasLancamento.paraCentavos(new BigDecimal("120.5"))).isEqualTo(12050);
+        assertThat(ColunasLancamento.paraCentavos(new BigDecimal("0.015"))).isEqualTo(2);
+    }
+
+    private ColunasLancamento criarColunas() {
+        ColunasLancamento colunas = new ColunasLancamento(2);
+
+        colunas.gravar(4, ColunasLancamento.competencia(2022, 1), RECEITA, PENDENTE, 100);
+        colunas.gravar(1, ColunasLancamento.competencia(2021, 1), RECEITA, EFETIVADO, 500000);
+        colunas.gravar(2, ColunasLancamento.competencia(2021, 1), DESPESA, PENDENTE, 12050);
+        colunas.gravar(3, ColunasLancamento.competencia(2021, 3), DESPESA, EFETIVADO, 9999);
+
+        return colunas;
+    }
+}
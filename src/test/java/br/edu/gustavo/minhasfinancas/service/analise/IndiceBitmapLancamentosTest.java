@@ -0,0 +1,77 @@
+package br.edu.gustavo.minhasfinancas.service.analise;
+
+import br.edu.gustavo.minhasfinancas.model.enums.StatusLancamento;
+import br.edu.gustavo.minhasfinancas.model.enums.TipoLancamento;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+public class IndiceBitmapLancamentosTest {
+
+    static final int RECEITA = TipoLancamento.RECEITA.ordinal();
+    static final int DESPESA = TipoLancamento.DESPESA.ordinal();
+    static final int PENDENTE = StatusLancamento.PENDENTE.ordinal();
+    static final int EFETIVADO = StatusLancamento.EFETIVADO.ordinal();
+
+    @Test
+    public void deveCombinarCriteriosComAndEValoresDeUmCriterioComOr() {
+        IndiceBitmapLancamentos indice = criarIndice();
+
+        assertThat(indice.ids(indice.filtrar(2021, null, DESPESA, ColunasLancamento.QUALQUER, List.of(10l, 20l), null)))
+                .containsExactly(2l, 3l, 4l);
+        assertThat(indice.ids(indice.filtrar(null, 1, ColunasLancamento.QUALQUER, ColunasLancamento.QUALQUER, null, Set.of("mercado", "viagem"))))
+                .containsExactly(2l, 5l);
+        assertThat(indice.filtrar(2021, null, DESPESA, EFETIVADO, List.of(20l), Set.of("mercado")).cardinality())
+                .isEqualTo(1);
+        assertThat(indice.filtrar(2021, null, ColunasLancamento.QUALQUER, ColunasLancamento.QUALQUER, List.of(99l), null).isEmpty())
+                .isTrue();
+    }
+
+    @Test
+    public void deveRefletirAtualizacoesERemocoes() {
+        IndiceBitmapLancamentos indice = criarIndice();
+
+        indice.gravar(2l, 2021, 3, DESPESA, EFETIVADO, null, Set.of());
+        indice.remover(3l);
+
+        assertThat(indice.ids(indice.filtrar(2021, null, DESPESA, ColunasLancamento.QUALQUER, List.of(10l, 20l), null)))
+                .containsExactly(4l);
+        assertThat(indice.ids(indice.filtrar(2021, 3, ColunasLancamento.QUALQUER, ColunasLancamento.QUALQUER, null, null)))
+                .containsExactly(2l);
+        assertThat(indice.getTamanho()).isEqualTo(4);
+    }
+
+    @Test
+    public void deveReaproveitarAsPosicoesDosLancamentosRemovidos() {
+        IndiceBitmapLancamentos indice = criarIndice();
+        long bytesAntes = indice.bytesOcupados();
+
+        indice.remover(1l);
+        indice.remover(3l);
+        indice.gravar(6l, 2022, 5, RECEITA, PENDENTE, null, Set.of("bonus"));
+        indice.gravar(7l, 2022, 5, DESPESA, PENDENTE, 20l, Set.of());
+
+        assertThat(indice.ids(indice.filtrar(null, null, ColunasLancamento.QUALQUER, ColunasLancamento.QUALQUER, null, null)))
+                .containsExactly(7l, 2l, 6l, 4l, 5l);
+        assertThat(indice.filtrar(null, null, ColunasLancamento.QUALQUER, ColunasLancamento.QUALQUER, null, Set.of("salario", "casa")).isEmpty())
+                .isTrue();
+        assertThat(indice.ids(indice.filtrar(2022, 5, ColunasLancamento.QUALQUER, ColunasLancamento.QUALQUER, List.of(20l), null)))
+                .containsExactly(7l);
+        assertThat(indice.bytesOcupados()).isLessThanOrEqualTo(bytesAntes);
+    }
+
+    private IndiceBitmapLancamentos criarIndice() {
+        IndiceBitmapLancamentos indice = new IndiceBitmapLancamentos(2,
+                TipoLancamento.values().length, StatusLancamento.values().length);
+
+        indice.gravar(1l, 2021, 1, RECEITA, EFETIVADO, null, Set.of("salario"));
+        indice.gravar(2l, 2021, 1, DESPESA, PENDENTE, 10l, Set.of("mercado"));
+        indice.gravar(3l, 2021, 2, DESPESA, EFETIVADO, 20l, Set.of("mercado", "casa"));
+        indice.gravar(4l, 2021, 2, DESPESA, PENDENTE, 20l, Set.of());
+        indice.gravar(5l, 2020, 1, DESPESA, EFETIVADO, 10l, Set.of("viagem"));
+
+        return indice;
+    }
+}
@@ -0,0 +1,58 @@
+package br.edu.gustavo.minhasfinancas.service.autenticacao;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class FilaCircularTest {
+
+    @Test
+    public void deveRecusarQuandoCheiaEAceitarDepoisDeDrenar() {
+        FilaCircular<Integer> fila = new FilaCircular<>(3);
+
+        Assertions.assertThat(fila.oferecer(1)).isTrue();
+        Assertions.assertThat(fila.oferecer(2)).isTrue();
+        Assertions.assertThat(fila.oferecer(3)).isTrue();
+        Assertions.assertThat(fila.oferecer(4)).isFalse();
+
+        Assertions.assertThat(fila.drenar(2)).containsExactly(1, 2);
+        Assertions.assertThat(fila.oferecer(5)).isTrue();
+        Assertions.assertThat(fila.drenar(10)).containsExactly(3, 5);
+        Assertions.assertThat(fila.tamanho()).isZero();
+    }
+
+    @Test
+    public void naoDevePerderNemRepetirElementosComVariosProdutores() throws Exception {
+        FilaCircular<Integer> fila = new FilaCircular<>(64);
+        ExecutorService produtores = Executors.newFixedThreadPool(4);
+        List<Integer> drenados = new ArrayList<>();
+
+        for (int p = 0; p < 4; p++) {
+            int produtor = p;
+            produtores.execute(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    while (!fila.oferecer(produtor * 5000 + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+
+        produtores.shutdown();
+
+        while (!produtores.isTerminated() || fila.tamanho() > 0) {
+            drenados.addAll(fila.drenar(16));
+        }
+
+        Assertions.assertThat(produtores.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(drenados).hasSize(20000)
+                .containsExactlyInAnyOrderElementsOf(IntStream.range(0, 20000).boxed().collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,148 @@
+package br.edu.gustavo.minhasfinancas.service.autenticacao;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LimitadorLoginTest {
+
+    AtomicLong agora = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+
+    LimitadorLogin limitador = new LimitadorLogin(2, 5, 1000, 4000, 60000, 100, agora::get);
+
+    @Test
+    public void deveDobrarAEsperaACadaFalhaDepoisDasLivresAteOMaximo() {
+        falhar("email@email.com", 3);
+
+        Assertions.assertThat(limitador.reservarTentativa("email@email.com", null)).isEqualTo(1);
+
+        agora.addAndGet(1000);
+        falhar("email@email.com", 1);
+        Assertions.assertThat(limitador.reservarTentativa("email@email.com", null)).isEqualTo(2);
+
+        agora.addAndGet(2000);
+        falhar("email@email.com", 1);
+        Assertions.assertThat(limitador.reservarTentativa(" EMAIL@email.com", null)).isEqualTo(4);
+
+        agora.addAndGet(4000);
+        falhar("email@email.com", 1);
+        Assertions.assertThat(limitador.reservarTentativa("email@email.com", null)).isEqualTo(4);
+    }
+
+    @Test
+    public void deveZerarAsFalhasDoEmailDepoisDeUmLoginComSucesso() {
+        falhar("email@email.com", 3);
+        limitador.registrarSucesso("email@email.com", null);
+
+        falhar("email@email.com", 3);
+    }
+
+    @Test
+    public void deveBloquearAOrigemQueTentaMuitosEmails() {
+        for (int i = 0; i < 6; i++) {
+            Assertions.assertThat(limitador.reservarTentativa("email" + i + "@email.com", "10.0.0.1")).isZero();
+        }
+
+        Assertions.assertThat(limitador.reservarTentativa("outro@email.com", "10.0.0.1")).isEqualTo(1);
+        Assertions.assertThat(limitador.reservarTentativa("outro@email.com", "10.0.0.2")).isZero();
+    }
+
+    @Test
+    public void naoDeveContarContraAOrigemOsLoginsComSucesso() {
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertThat(limitador.reservarTentativa("email" + i + "@email.com", "10.0.0.1")).isZero();
+            limitador.registrarSucesso("email" + i + "@email.com", "10.0.0.1");
+        }
+
+        limitador.reservarTentativa("email@email.com", "10.0.0.1");
+        limitador.cancelarReserva("email@email.com", "10.0.0.1");
+
+        for (int i = 0; i < 6; i++) {
+            Assertions.assertThat(limitador.reservarTentativa("outro" + i + "@email.com", "10.0.0.1")).isZero();
+        }
+    }
+
+    @Test
+    public void deveEsquecerAsFalhasDepoisDaJanela() {
+        falhar("email@email.com", 3);
+        agora.addAndGet(60001);
+
+        limitador.removerContadoresExpirados();
+
+        falhar("email@email.com", 3);
+    }
+
+    @Test
+    public void deveAceitarSoAsTentativasLivresDeUmaRajadaSimultanea() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Long>> tentativas = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 50; i++) {
+                tentativas.add(executor.submit(() -> {
+                    largada.await();
+
+                    return limitador.reservarTentativa("email@email.com", "10.0.0.1");
+                }));
+            }
+
+            largada.countDown();
+
+            int aceitas = 0;
+
+            for (Future<Long> tentativa : tentativas) {
+                aceitas += tentativa.get(5, TimeUnit.SECONDS) == 0 ? 1 : 0;
+            }
+
+            Assertions.assertThat(aceitas).isEqualTo(3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void deveContinuarLimitandoChavesNovasComOsContadoresCheios() {
+        for (int i = 0; i < 1000; i++) {
+            limitador.reservarTentativa("email" + i + "@email.com", null);
+        }
+
+        falhar("novo@email.com", 3);
+
+        Assertions.assertThat(limitador.reservarTentativa("novo@email.com", null)).isEqualTo(1);
+    }
+
+    @Test
+    public void deveRemoverPrimeiroOsContadoresDeFalhaMaisAntiga() {
+        falhar("antigo@email.com", 3);
+        agora.addAndGet(1000);
+
+        for (int i = 0; i < 99; i++) {
+            limitador.reservarTentativa("email" + i + "@email.com", null);
+        }
+
+        // O primeiro contador acima do máximo (100) dispara a remoção
+        agora.addAndGet(1000);
+        falhar("recente@email.com", 3);
+
+        Assertions.assertThat(limitador.reservarTentativa("recente@email.com", null)).isEqualTo(1);
+        Assertions.assertThat(limitador.reservarTentativa("antigo@email.com", null)).isZero();
+    }
+
+    /**
+     * Tentativas aceitas e não confirmadas com sucesso, ou seja, falhas.
+     */
+    private void falhar(String email, int vezes) {
+        for (int i = 0; i < vezes; i++) {
+            Assertions.assertThat(limitador.reservarTentativa(email, null)).isZero();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package br.edu.gustavo.minhasfinancas.service.busca;
+
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CacheBuscaLancamentosTest {
+
+    // 408 bytes por resultado de um lançamento; cabem dois por segmento
+    static final long BYTES_MAXIMOS = 1000 * CacheBuscaLancamentos.SEGMENTOS;
+
+    AtomicLong agora = new AtomicLong();
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    CacheBuscaLancamentos cache = new CacheBuscaLancamentos(registry, true, BYTES_MAXIMOS, 60000, agora::get);
+
+    @Test
+    public void deveRemoverOMenosUsadoQuandoOSegmentoEnche() {
+        // 1, 17 e 33 caem no mesmo segmento
+        cache.guardar(1L, List.of(2021), resultado(1L), () -> true);
+        cache.guardar(17L, List.of(2021), resultado(2L), () -> true);
+        cache.obter(1L, List.of(2021));
+        cache.guardar(33L, List.of(2021), resultado(3L), () -> true);
+
+        Assertions.assertThat(cache.obter(17L, List.of(2021))).isNull();
+        Assertions.assertThat(cache.obter(1L, List.of(2021))).isEqualTo(resultado(1L));
+        Assertions.assertThat(cache.obter(33L, List.of(2021))).isEqualTo(resultado(3L));
+        Assertions.assertThat(registry.get("minhasfinancas.busca-cache.remocoes").tag("motivo", "tamanho")
+                .counter().count()).isEqualTo(1);
+        Assertions.assertThat(registry.get("minhasfinancas.busca-cache.bytes").gauge().value()).isEqualTo(816);
+    }
+
+    @Test
+    public void deveInvalidarSoAsBuscasDoUsuario() {
+        cache.guardar(1L, List.of(2021), resultado(1L), () -> true);
+        cache.guardar(1L, List.of(2022), resultado(2L), () -> true);
+        cache.guardar(17L, List.of(2021), resultado(3L), () -> true);
+
+        cache.invalidar(1L);
+
+        Assertions.assertThat(cache.obter(1L, List.of(2021))).isNull();
+        Assertions.assertThat(cache.obter(1L, List.of(2022))).isNull();
+        Assertions.assertThat(cache.obter(17L, List.of(2021))).isEqualTo(resultado(3L));
+        Assertions.assertThat(registry.get("minhasfinancas.busca-cache.entradas").gauge().value()).isEqualTo(1);
+        Assertions.assertThat(registry.get("minhasfinancas.busca-cache.taxa-acerto").gauge().value())
+                .isEqualTo(1.0 / 3);
+    }
+
+    @Test
+    public void naoDeveGuardarResultadoQueDeixouDeValer() {
+        cache.guardar(1L, List.of(2021), resultado(1L), () -> false);
+
+        Assertions.assertThat(cache.obter(1L, List.of(2021))).isNull();
+    }
+
+    @Test
+    public void naoDeveServirEntradaDepoisDaValidade() {
+        cache.guardar(1L, List.of(2021), resultado(1L), () -> true);
+        agora.addAndGet(60000);
+
+        Assertions.assertThat(cache.obter(1L, List.of(2021))).isNull();
+        Assertions.assertThat(registry.get("minhasfinancas.busca-cache.entradas").gauge().value()).isZero();
+    }
+
+    @Test
+    public void naoDeveGuardarResultadoMaiorQueOSegmento() {
+        cache.guardar(1L, List.of(2021), List.of(lancamento(1L), lancamento(2L), lancamento(3L)), () -> true);
+
+        Assertions.assertThat(cache.obter(1L, List.of(2021))).isNull();
+    }
+
+    @Test
+    public void deveDevolverOMesmoInstantaneoSomenteLeituraGuardado() {
+        Lancamento original = lancamento(1L);
+        List<Lancamento> instantaneo = CopiasBusca.lancamentos(new ArrayList<>(List.of(original)));
+        cache.guardar(1L, List.of(2021), instantaneo, () -> true);
+        original.setDescricao("alterada depois de guardar");
+
+        @SuppressWarnings("unchecked")
+        List<Lancamento> guardado = (List<Lancamento>) cache.obter(1L, List.of(2021));
+
+        Assertions.assertThat(guardado).isSameAs(instantaneo);
+        Assertions.assertThatThrownBy(guardado::clear).isInstanceOf(UnsupportedOperationException.class);
+        Assertions.assertThatThrownBy(() -> guardado.get(0).setDescricao("alterada"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        Assertions.assertThatThrownBy(() -> guardado.get(0).getTags().add("alterada"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        Assertions.assertThat(cache.obter(1L, List.of(2021))).isEqualTo(resultado(1L));
+    }
+
+    @Test
+    public void deveEstimarOPesoPelosTextosDoResultado() {
+        Lancamento lancamento = lancamento(1L);
+        lancamento.setDescricao("aluguel");
+
+        Assertions.assertThat(CacheBuscaLancamentos.peso(List.of(lancamento)))
+                .isEqualTo(CacheBuscaLancamentos.peso(resultado(1L)) + 40 + 14);
+    }
+
+    @Test
+    public void deveGuardarUmaCopiaDoUsuarioPorResultadoSemASenha() {
+        Usuario usuario = Usuario.builder().id(1L).nome("dono").email("dono@email.com").senha("senha").build();
+        List<Lancamento> lancamentos = List.of(lancamento(1L), lancamento(2L));
+        lancamentos.forEach(lancamento -> lancamento.setUsuario(usuario));
+
+        cache.guardar(1L, List.of(2021), CopiasBusca.lancamentos(lancamentos), () -> true);
+
+        @SuppressWarnings("unchecked")
+        List<Lancamento> guardados = (List<Lancamento>) cache.obter(1L, List.of(2021));
+
+        Assertions.assertThat(guardados.get(0).getUsuario()).isNotSameAs(usuario)
+                .isSameAs(guardados.get(1).getUsuario());
+        Assertions.assertThat(guardados.get(0).getUsuario().getSenha()).isNull();
+    }
+
+    @Test
+    public void deveContarOUsuarioDivididoUmaVezNoPeso() {
+        Usuario usuario = Usuario.builder().id(1L).nome("dono").build();
+        List<Lancamento> lancamentos = List.of(lancamento(1L), lancamento(2L));
+
+        long semUsuario = CacheBuscaLancamentos.peso(lancamentos);
+        lancamentos.forEach(lancamento -> lancamento.setUsuario(usuario));
+
+        Assertions.assertThat(CacheBuscaLancamentos.peso(lancamentos)).isEqualTo(semUsuario + 40 + 40 + 8);
+    }
+
+    private static List<Lancamento> resultado(Long id) {
+        return List.of(lancamento(id));
+    }
+
+    private static Lancamento lancamento(Long id) {
+        return Lancamento.builder().id(id).build();
+    }
+}
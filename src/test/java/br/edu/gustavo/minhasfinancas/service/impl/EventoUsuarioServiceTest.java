@@ -0,0 +1,262 @@
+package br.edu.gustavo.minhasfinancas.service.impl;
+
+import br.edu.gustavo.minhasfinancas.model.entity.EstadoLancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Lancamento;
+import br.edu.gustavo.minhasfinancas.model.entity.Usuario;
+import br.edu.gustavo.minhasfinancas.service.LancamentoService;
+import br.edu.gustavo.minhasfinancas.service.event.AlteracaoSaldo;
+import br.edu.gustavo.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+public class EventoUsuarioServiceTest {
+
+    LancamentoService lancamentoService = Mockito.mock(LancamentoService.class);
+
+    AtomicLong agora = new AtomicLong();
+
+    BlockingQueue<EmitterDeTeste> proximosEmitters = new LinkedBlockingQueue<>();
+
+    EventoUsuarioServiceImpl service;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (service != null) {
+            service.encerrar();
+        }
+    }
+
+    @Test
+    public void deveEntregarOSaldoATodosOsAssinantesDoUsuario() throws Exception {
+        criarService(10, 16, 2);
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(BigDecimal.valueOf(100));
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(2l)).thenReturn(BigDecimal.valueOf(50));
+
+        EmitterDeTeste primeiro = (EmitterDeTeste) service.assinar(1l);
+
+        assertThat(primeiro.proximo().getSaldo()).isEqualByComparingTo("100");
+
+        // o saldo inicial do segundo assinante também vai para o primeiro
+        EmitterDeTeste segundo = (EmitterDeTeste) service.assinar(1l);
+        EmitterDeTeste outroUsuario = (EmitterDeTeste) service.assinar(2l);
+
+        for (EmitterDeTeste emitter : List.of(primeiro, segundo)) {
+            assertThat(emitter.proximo().getSaldo()).isEqualByComparingTo("100");
+        }
+
+        assertThat(outroUsuario.proximo().getSaldo()).isEqualByComparingTo("50");
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(lancamento(7l, 1l), LancamentoAlteradoEvent.Operacao.SALVO));
+
+        for (EmitterDeTeste emitter : List.of(primeiro, segundo)) {
+            AlteracaoSaldo alteracao = emitter.proximo();
+
+            assertThat(alteracao.getLancamentos()).containsExactly(7l);
+            assertThat(alteracao.isRecarregar()).isFalse();
+        }
+
+        assertThat(outroUsuario.enviados.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    public void deveAvisarOsAssinantesDoDonoAnteriorDeUmLancamentoQueMudouDeUsuario() throws Exception {
+        criarService(10, 16, 2);
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(BigDecimal.TEN, BigDecimal.ONE);
+
+        EmitterDeTeste doDonoAnterior = (EmitterDeTeste) service.assinar(1l);
+        doDonoAnterior.proximo();
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(lancamento(7l, 2l),
+                LancamentoAlteradoEvent.Operacao.ATUALIZADO, new EstadoLancamento(1l, 2021, 1, null, null, null, null)));
+
+        AlteracaoSaldo alteracao = doDonoAnterior.proximo();
+
+        assertThat(alteracao.getSaldo()).isEqualByComparingTo("1");
+        assertThat(alteracao.getLancamentos()).containsExactly(7l);
+    }
+
+    @Test
+    public void deveDesconectarOAssinanteQueDeixaAFilaEncher() throws Exception {
+        criarService(1, 1, 2);
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(BigDecimal.TEN);
+
+        CountDownLatch liberar = new CountDownLatch(1);
+        EmitterDeTeste emitter = preparar(new EmitterDeTeste(liberar));
+        service.assinar(1l);
+
+        // o primeiro evento fica preso no send; o heartbeat ocupa a fila e o seguinte não cabe
+        assertThat(emitter.emEnvio.await(5, TimeUnit.SECONDS)).isTrue();
+        service.enviarHeartbeat();
+        service.enviarHeartbeat();
+
+        assertThatCode(() -> service.assinar(1l)).doesNotThrowAnyException();
+
+        liberar.countDown();
+
+        aguardar(() -> emitter.completo);
+        assertThat(emitter.enviados).hasSize(1);
+    }
+
+    @Test
+    public void deveDesconectarOAssinantePresoNoEnvioSemSegurarOsOutros() throws Exception {
+        criarService(10, 16, 1);
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(Mockito.anyLong())).thenReturn(BigDecimal.ONE);
+
+        // como um socket bloqueado, o send não volta com a interrupção
+        CountDownLatch liberar = new CountDownLatch(1);
+        EmitterDeTeste lento = preparar(new EmitterDeTeste(liberar));
+        lento.ignorarInterrupcao = true;
+        service.assinar(1l);
+
+        assertThat(lento.emEnvio.await(5, TimeUnit.SECONDS)).isTrue();
+
+        agora.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        service.desconectarAssinantesLentos();
+
+        assertThat(service.getThreadsDeEnvio()).isEqualTo(1);
+
+        agora.addAndGet(TimeUnit.MILLISECONDS.toNanos(2));
+        service.desconectarAssinantesLentos();
+
+        // a única thread de envio estava presa: o outro assinante só recebe com a thread extra
+        EmitterDeTeste outro = (EmitterDeTeste) service.assinar(2l);
+
+        assertThat(outro.proximo().getSaldo()).isEqualByComparingTo("1");
+        assertThat(service.getThreadsDeEnvio()).isEqualTo(2);
+        aguardar(() -> lento.interrompido);
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(lancamento(8l, 1l), LancamentoAlteradoEvent.Operacao.SALVO));
+
+        // quando o send preso volta, a conexão é fechada e o pool volta ao tamanho configurado
+        liberar.countDown();
+
+        aguardar(() -> lento.completo && service.getThreadsDeEnvio() == 1);
+        assertThat(lento.enviados).hasSize(1);
+    }
+
+    @Test
+    public void deveLiberarOAssinanteQuandoOClienteDesconecta() throws Exception {
+        criarService(1, 16, 2);
+        Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(BigDecimal.TEN);
+
+        EmitterDeTeste emitter = (EmitterDeTeste) service.assinar(1l);
+        emitter.proximo();
+
+        assertThatThrownBy(() -> service.assinar(3l)).isInstanceOf(RejectedExecutionException.class);
+
+        emitter.aoCompletar.run();
+
+        service.aoAlterarLancamento(LancamentoAlteradoEvent.de(lancamento(9l, 1l), LancamentoAlteradoEvent.Operacao.SALVO));
+
+        assertThat(emitter.enviados.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        Mockito.verify(lancamentoService, Mockito.times(1)).obterSaldoPorUsuario(1l);
+        assertThatCode(() -> service.assinar(3l)).doesNotThrowAnyException();
+    }
+
+    private void criarService(int assinantesMaximos, int filaPorAssinante, int threadsEnvio) {
+        service = new EventoUsuarioServiceImpl(lancamentoService, 60000, assinantesMaximos, filaPorAssinante,
+                threadsEnvio, 1000, 2, agora::get) {
+            @Override
+            SseEmitter criarEmitter() {
+                EmitterDeTeste emitter = proximosEmitters.poll();
+
+                return emitter != null ? emitter : new EmitterDeTeste(null);
+            }
+        };
+    }
+
+    private EmitterDeTeste preparar(EmitterDeTeste emitter) {
+        proximosEmitters.add(emitter);
+
+        return emitter;
+    }
+
+    private static Lancamento lancamento(Long id, Long idUsuario) {
+        return Lancamento.builder().id(id).usuario(Usuario.builder().id(idUsuario).build()).build();
+    }
+
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!condicao.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(limite);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Guarda os eventos de saldo enviados. Com uma liberação o send espera por ela, e uma interrupção
+     * durante a espera vira erro de E/S, a menos que {@code ignorarInterrupcao}.
+     */
+    static class EmitterDeTeste extends SseEmitter {
+
+        final BlockingQueue<AlteracaoSaldo> enviados = new LinkedBlockingQueue<>();
+        final CountDownLatch emEnvio = new CountDownLatch(1);
+        final CountDownLatch liberacao;
+        volatile boolean ignorarInterrupcao;
+        volatile boolean interrompido;
+        volatile boolean completo;
+        Runnable aoCompletar;
+
+        EmitterDeTeste(CountDownLatch liberacao) {
+            this.liberacao = liberacao;
+        }
+
+        AlteracaoSaldo proximo() throws InterruptedException {
+            AlteracaoSaldo alteracao = enviados.poll(5, TimeUnit.SECONDS);
+
+            assertThat(alteracao).isNotNull();
+
+            return alteracao;
+        }
+
+        @Override
+        public void send(SseEventBuilder evento) throws IOException {
+            emEnvio.countDown();
+
+            while (liberacao != null) {
+                try {
+                    liberacao.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrompido = true;
+
+                    if (!ignorarInterrupcao) {
+                        throw new InterruptedIOException("envio interrompido");
+                    }
+                }
+            }
+
+            for (DataWithMediaType dado : evento.build()) {
+                if (dado.getData() instanceof AlteracaoSaldo) {
+                    enviados.add((AlteracaoSaldo) dado.getData());
+                }
+            }
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            aoCompletar = callback;
+        }
+
+        @Override
+        public synchronized void complete() {
+            completo = true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package br.edu.gustavo.minhasfinancas.service.importacao;
+
+import br.edu.gustavo.minhasfinancas.exception.RegraNegocioException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LeitorOfxTest {
+
+    static final String SGML =
+            "OFXHEADER:100\r\nDATA:OFXSGML\r\nVERSION:102\r\nENCODING:USASCII\r\nCHARSET:1252\r\n\r\n" +
+            "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKACCTFROM><BANKID>001<ACCTID>12345-6</BANKACCTFROM>" +
+            "<BANKTRANLIST><DTSTART>20210301\n" +
+            "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20210305120000[-3:BRT]\n<TRNAMT>-45,90\n<FITID>A1\n" +
+            "<NAME>Padaria São João\n<MEMO>Compra no débito\n</STMTTRN>\n" +
+            "<STMTTRN>\n<TRNTYPE>CREDIT\n<DTPOSTED>20210310\n<TRNAMT>2500.00\n<MEMO>Salário &amp; bônus\n</STMTTRN>\n" +
+            "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>";
+
+    static final String XML =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<?OFX OFXHEADER=\"200\" VERSION=\"211\"?>\n" +
+            "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKACCTFROM><ACCTID>999</ACCTID></BANKACCTFROM>" +
+            "<BANKTRANLIST><STMTTRN><TRNTYPE>DEBIT</TRNTYPE><DTPOSTED>20211231</DTPOSTED>" +
+            "<TRNAMT>-1.5</TRNAMT><FITID>X9</FITID><NAME>Café</NAME></STMTTRN></BANKTRANLIST>" +
+            "</STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>";
+
+    @Test
+    public void deveLerUmExtratoSgmlComElementosSemFechamento() throws IOException {
+        List<TransacaoOfx> transacoes = ler(SGML, Charset.forName("windows-1252"));
+
+        Assertions.assertThat(transacoes).hasSize(2);
+        Assertions.assertThat(transacoes.get(0)).isEqualTo(new TransacaoOfx("12345-6", "A1", LocalDate.of(2021, 3, 5),
+                new BigDecimal("-45.90"), "Padaria São João", "Compra no débito"));
+        Assertions.assertThat(transacoes.get(1).getIdentificador()).isNull();
+        Assertions.assertThat(transacoes.get(1).getValor()).isEqualByComparingTo("2500");
+        Assertions.assertThat(transacoes.get(1).getMemo()).isEqualTo("Salário & bônus");
+    }
+
+    @Test
+    public void deveLerUmExtratoXml() throws IOException {
+        List<TransacaoOfx> transacoes = ler(XML, StandardCharsets.UTF_8);
+
+        Assertions.assertThat(transacoes).containsExactly(new TransacaoOfx("999", "X9", LocalDate.of(2021, 12, 31),
+                new BigDecimal("-1.5"), "Café", null));
+    }
+
+    @Test
+    public void deveRecusarUmArquivoTruncado() {
+        String truncado = SGML.substring(0, SGML.indexOf("</STMTTRN>"));
+
+        Assertions.assertThatThrownBy(() -> ler(truncado, StandardCharsets.ISO_8859_1))
+                .isInstanceOf(RegraNegocioException.class)
+                .hasMessageContaining("Arquivo OFX inválido");
+    }
+
+    private static List<TransacaoOfx> ler(String conteudo, Charset codificacao) throws IOException {
+        List<TransacaoOfx> transacoes = new ArrayList<>();
+
+        try (LeitorOfx leitor = new LeitorOfx(new ByteArrayInputStream(conteudo.getBytes(codificacao)))) {
+            for (TransacaoOfx transacao = leitor.proxima(); transacao != null; transacao = leitor.proxima()) {
+                transacoes.add(transacao);
+            }
+        }
+
+        return transacoes;
+    }
+}